@@ -0,0 +1,98 @@
+package com.zoll.collector;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.httpclient.HttpStatus;
+
+import com.zoll.collector.cluster.ClusterManager;
+import com.zoll.collector.cluster.ReportBatch;
+import com.zoll.collector.config.CollectorCfg;
+import com.zoll.collector.http.HttpRequest;
+import com.zoll.collector.http.HttpResponse;
+import com.zoll.collector.http.IHttpHandler;
+import com.zoll.collector.listener.IEventListener;
+import com.zoll.collector.listener.ReportEvent;
+import com.zoll.collector.listener.ReportEventBus;
+import com.zoll.collector.parser.LineProtocolParser;
+import com.zoll.collector.parser.QueryStringParser;
+import com.zoll.collector.parser.ReportEventFlyweight;
+
+/**
+ * 批量上报处理者;
+ * 
+ * 一个POST请求携带多行 {@link LineProtocolParser} 格式的事件, 请求头 Content-Encoding: gzip 时先解压;
+ * 
+ * 应答带上负载提示(见 {@link CollectorService#loadHint}); 负载超过 {@link CollectorCfg#LOAD_REJECT} 时整批返回503, 由上报端稍后重试;
+ * 
+ * 查询串可以带上报端ID(rid), 批次序号(seq)和上报端时间(ts): 同一上报端重复的批次只应答不处理, 事件按上报端时间聚合;
+ * 整批解析完后再登记和分发(见 {@link ClusterManager#fireBatch(ReportBatch)}), 分发队列放不下整批时返回503, 批次不登记, 由上报端重发;
+ * 
+ * @date 2026年10月19日 上午3:06:25
+ * 
+ * @project zoll-monitor-collector
+ * 
+ */
+public class BulkCollectorHandler implements IHttpHandler {
+	public static final String REPORTER_ID_KEY = "rid";
+	public static final String SEQ_KEY = "seq";
+	public static final String TIME_KEY = "ts";
+
+	@Override
+	public void handle(HttpRequest request, HttpResponse response) {
+		if (!"POST".equals(request.getMethod())) {
+			response.setStatus(HttpStatus.SC_METHOD_NOT_ALLOWED);
+			return;
+		}
+		int load = ReportEventBus.getLoad();
+		if (load >= CollectorCfg.LOAD_REJECT) {
+			response.setStatus(HttpStatus.SC_SERVICE_UNAVAILABLE);
+			CollectorService.response(response, "\"status\":\"Busy\"" + CollectorService.loadHint(response, load));
+			return;
+		}
+		ReportEventFlyweight params = CollectorService.getFlyweight();
+		QueryStringParser.parse(request.getQuery(), params);
+		String reporterId = params.getValue(REPORTER_ID_KEY);
+		long seq = params.getLong(SEQ_KEY, -1);
+		final long time = params.getLong(TIME_KEY, 0);
+		final List<ReportEvent> events = new ArrayList<ReportEvent>();
+		IEventListener listener = new IEventListener() {
+			@Override
+			public void onEvent(ReportEvent event) {
+				if (time > 0) {
+					event.setTime(time);
+				}
+				events.add(event);
+			}
+		};
+		LineProtocolParser parser = new LineProtocolParser(CollectorCfg.BULK_MAX_LINE_LENGTH);
+		try {
+			InputStream in = request.getBodyStream();
+			if ("gzip".equalsIgnoreCase(request.getHeader("Content-Encoding"))) {
+				in = new GZIPInputStream(in);
+			}
+			parser.parse(in, listener);
+		} catch (IOException e) {
+			response.setStatus(HttpStatus.SC_BAD_REQUEST);
+			CollectorService.response(response, "\"status\":\"Error\",\"message\":\"" + CollectorService.escapeJson(e.getMessage()) + "\"");
+			return;
+		}
+		int fired = ClusterManager.getInstance().fireBatch(new ReportBatch(reporterId, seq, events));
+		if (fired == ClusterManager.BATCH_BUSY) {
+			load = Math.max(load, CollectorCfg.LOAD_REJECT);
+			response.setStatus(HttpStatus.SC_SERVICE_UNAVAILABLE);
+			CollectorService.response(response, "\"status\":\"Busy\"" + CollectorService.loadHint(response, load));
+			return;
+		}
+		if (fired == ClusterManager.BATCH_DUPLICATE) {
+			CollectorService.response(response, "\"status\":\"Finished\",\"accepted\":0,\"rejected\":0,\"duplicate\":true" + CollectorService.loadHint(response, load));
+			return;
+		}
+		int rejected = parser.getRejected() + events.size() - fired;
+		CollectorService.response(response, "\"status\":\"Finished\",\"accepted\":" + fired + ",\"rejected\":" + rejected + CollectorService.loadHint(response, load));
+	}
+
+}
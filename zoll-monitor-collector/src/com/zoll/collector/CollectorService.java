@@ -1,62 +1,183 @@
 package com.zoll.collector;
 
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
-import java.net.InetSocketAddress;
-import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-import org.apache.commons.httpclient.HttpStatus;
-
-import com.sun.net.httpserver.HttpExchange;
-import com.sun.net.httpserver.HttpServer;
+import com.zoll.collector.aggregate.AggregateManager;
+import com.zoll.collector.cluster.ClusterManager;
+import com.zoll.collector.cluster.ForwardServer;
 import com.zoll.collector.config.CollectorCfg;
+import com.zoll.collector.database.DBManager;
+import com.zoll.collector.database.sink.IDataSink;
+import com.zoll.collector.database.sink.TimeSeriesSink;
+import com.zoll.collector.http.HttpResponse;
+import com.zoll.collector.http.NioHttpServer;
+import com.zoll.collector.listener.ReportEventBus;
+import com.zoll.collector.parser.QueryStringParser;
+import com.zoll.collector.parser.ReportEventFlyweight;
 
+/**
+ * 采集端服务;
+ * 
+ * 启动时注册停服钩子: 先停止接收上报, 再等分发和转发队列清空, 然后把预聚合窗口全部落库, 最后等DB线程写完,
+ * 已应答给上报端的数据不会因为重启而丢失;
+ */
 public class CollectorService {
-	private HttpServer httpServer;
+	private static final ThreadLocal<ReportEventFlyweight> FLYWEIGHT = new ThreadLocal<ReportEventFlyweight>() {
+		@Override
+		protected ReportEventFlyweight initialValue() {
+			return new ReportEventFlyweight();
+		}
+	};
+
+	private NioHttpServer httpServer;
+	/** 上报端二进制帧的接收端 */
+	private ForwardServer binaryServer;
+	private final AtomicBoolean stopped = new AtomicBoolean();
 	
 	public void init(String address, int port, int param) {
 		try {
-			httpServer = HttpServer.create(new InetSocketAddress(address, port), param);
-			httpServer.setExecutor(Executors.newFixedThreadPool(CollectorCfg.HTTP_SERVER_THREAD_SIZE));
+			httpServer = new NioHttpServer();
 			httpServer.createContext("/statsd", new DefaultCollectorHandler());
-			httpServer.start();
+			httpServer.createWorkerContext("/bulk", new BulkCollectorHandler());
+			httpServer.createContext("/metrics", new MetricsHandler());
+			IDataSink sink = DBManager.getInstance().getSink();
+			if (sink instanceof TimeSeriesSink) {
+				httpServer.createWorkerContext("/query", new TimeSeriesQueryHandler((TimeSeriesSink) sink));
+			}
+			httpServer.start(address, port, param, CollectorCfg.HTTP_IO_THREAD_SIZE);
+			// 默认不接收上报端的二进制帧
+			int binaryPort = CollectorCfg.BINARY_PORT < 0 ? port - 1 : CollectorCfg.BINARY_PORT;
+			if (binaryPort > 0 && ClusterManager.getInstance().isClustered()) {
+				// 集群转发端口同样接收上报端的帧, 同一台机器上的多个实例各用各的端口
+				System.out.println("binary frames are accepted on cluster forward port " + ClusterManager.getInstance().getForwardPort());
+			} else if (binaryPort > 0) {
+				binaryServer = new ForwardServer(true);
+				binaryServer.start(address, binaryPort);
+			}
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
+		Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+			@Override
+			public void run() {
+				CollectorService.this.stop();
+			}
+		}, "Collector-Shutdown"));
 	}
 	
-	public static Map<String, String> getParams(HttpExchange httpExchange) {
-		Map<String, String> paramMap = new HashMap<String, String>();
-		@SuppressWarnings("unused")
-		String path = httpExchange.getRequestURI().getPath();
-		String query = httpExchange.getRequestURI().getQuery();
-		if (query != null && query.split("&").length != 0) {
-			String[] sp1 = query.split("&");
-			for (String eacheSp1 : sp1) {
-				String[] sp2 = eacheSp1.split("=");
-				if (sp2.length == 2) {
-					paramMap.put(sp2[0], sp2[1]);
-				}
-			}
+	/**
+	 * 停服, 只执行一次;
+	 */
+	public void stop() {
+		if (!stopped.compareAndSet(false, true)) {
+			return;
+		}
+		System.out.println("collector stopping...");
+		if (httpServer != null) {
+			httpServer.stop();
+		}
+		if (binaryServer != null) {
+			binaryServer.stop();
+		}
+		ClusterManager.getInstance().stop();
+		ReportEventBus.shutdown(CollectorCfg.SHUTDOWN_TIMEOUT);
+		AggregateManager.getInstance().shutdown();
+		DBManager.getInstance().shutdown();
+		System.out.println("collector stopped");
+	}
+	
+	/**
+	 * 解析查询串(参数值会做URL解码);
+	 * 
+	 * @param query
+	 * @return
+	 */
+	public static Map<String, String> getParams(String query) {
+		ReportEventFlyweight flyweight = FLYWEIGHT.get();
+		QueryStringParser.parse(query, flyweight);
+		return flyweight.toMap();
+	}
+
+	/**
+	 * 当前线程复用的事件对象;
+	 * 
+	 * @return
+	 */
+	public static ReportEventFlyweight getFlyweight() {
+		return FLYWEIGHT.get();
+	}
+
+	/**
+	 * 负载对应的建议暂停时间;
+	 * 
+	 * @param load
+	 * @return 毫秒, 负载不高时为0
+	 */
+	public static long retryAfter(int load) {
+		if (load < CollectorCfg.LOAD_HIGH) {
+			return 0;
+		}
+		return CollectorCfg.LOAD_RETRY_AFTER * (Math.min(load, 100) - CollectorCfg.LOAD_HIGH + 1) / (100 - CollectorCfg.LOAD_HIGH + 1);
+	}
+
+	/**
+	 * 应答中的负载提示: 分发队列中排队的事件数, 负载百分比和建议暂停时间(毫秒); 需要暂停时同时设置 Retry-After 头(秒);
+	 * 
+	 * @param httpResponse
+	 * @param load
+	 * @return 以 ',' 开头的json字段
+	 */
+	public static String loadHint(HttpResponse httpResponse, int load) {
+		long retryAfter = retryAfter(load);
+		if (retryAfter > 0) {
+			httpResponse.setHeader("Retry-After", String.valueOf((retryAfter + 999) / 1000));
 		}
-		return paramMap;
+		return ",\"queue\":" + ReportEventBus.getQueueDepth() + ",\"load\":" + load + ",\"retryAfter\":" + retryAfter;
 	}
 
-	public static void response(HttpExchange httpExchange, String response) {
-		if (response != null && response.length() > 0) {
-			try {
-				byte[] bytes = response.getBytes("UTF-8");
-				httpExchange.sendResponseHeaders(HttpStatus.SC_OK, bytes.length);
-				httpExchange.getResponseBody().write(bytes);
-				httpExchange.getResponseBody().close();
-			} catch (UnsupportedEncodingException e) {
-				e.printStackTrace();
-			} catch (IOException e) {
-				e.printStackTrace();
+	/**
+	 * 转义后放入json字符串: 引号, 反斜杠和控制字符;
+	 * 
+	 * @param value
+	 * @return
+	 */
+	public static String escapeJson(String value) {
+		if (value == null) {
+			return "";
+		}
+		StringBuilder sb = new StringBuilder(value.length() + 16);
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '"':
+				sb.append("\\\"");
+				break;
+			case '\\':
+				sb.append("\\\\");
+				break;
+			case '\n':
+				sb.append("\\n");
+				break;
+			case '\r':
+				sb.append("\\r");
+				break;
+			case '\t':
+				sb.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					sb.append(String.format("\\u%04x", (int) c));
+				} else {
+					sb.append(c);
+				}
 			}
 		}
-		
+		return sb.toString();
+	}
+
+	public static void response(HttpResponse httpResponse, String response) {
+		httpResponse.setBody(response);
 	}
 }
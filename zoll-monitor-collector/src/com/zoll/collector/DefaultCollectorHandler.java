@@ -1,23 +1,33 @@
 package com.zoll.collector;
 
-import java.io.IOException;
-import java.util.Map;
-
-import com.sun.net.httpserver.HttpExchange;
-import com.sun.net.httpserver.HttpHandler;
+import com.zoll.collector.cluster.ClusterManager;
+import com.zoll.collector.http.HttpRequest;
+import com.zoll.collector.http.HttpResponse;
+import com.zoll.collector.http.IHttpHandler;
+import com.zoll.collector.config.CollectorCfg;
 import com.zoll.collector.listener.ReportEvent;
 import com.zoll.collector.listener.ReportEventBus;
+import com.zoll.collector.parser.QueryStringParser;
+import com.zoll.collector.parser.ReportEventFlyweight;
 
-public class DefaultCollectorHandler implements HttpHandler {
+public class DefaultCollectorHandler implements IHttpHandler {
+	private static final byte[] FINISHED = "\"status\":\"Finished\"".getBytes();
 
 	@Override
-	public void handle(HttpExchange httpExchange) throws IOException {
-		Map<String, String> params = CollectorService.getParams(httpExchange);
-		String dataType = params.get("dataType");
-		ReportEvent event = new ReportEvent(dataType);
-		event.setDatas(params);
-		ReportEventBus.fireReportEvent(event);
-		CollectorService.response(httpExchange, "\"status\":\"Finished\"");
+	public void handle(HttpRequest request, HttpResponse response) {
+		ReportEventFlyweight flyweight = CollectorService.getFlyweight();
+		QueryStringParser.parse(request.getQuery(), flyweight);
+		ReportEvent event = flyweight.toReportEvent("dataType");
+		if (event != null) {
+			ClusterManager.getInstance().fire(event);
+		}
+		int load = ReportEventBus.getLoad();
+		if (load >= CollectorCfg.LOAD_HIGH) {
+			// 负载高时才带上负载提示, 平时应答不分配对象
+			CollectorService.response(response, "\"status\":\"Finished\"" + CollectorService.loadHint(response, load));
+			return;
+		}
+		response.setBody(FINISHED);
 	}
 
 }
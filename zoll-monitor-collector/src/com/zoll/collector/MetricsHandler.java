@@ -0,0 +1,98 @@
+package com.zoll.collector;
+
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.zoll.collector.http.HttpRequest;
+import com.zoll.collector.http.HttpResponse;
+import com.zoll.collector.http.IHttpHandler;
+import com.zoll.collector.metrics.CollectorMetrics;
+
+/**
+ * 以JSON输出采集端自身指标;
+ * 
+ * 速率为最近一分钟的每秒平均值, 耗时单位为毫秒;
+ * 
+ * @date 2026年10月19日 上午3:17:49
+ * 
+ * @project zoll-monitor-collector
+ * 
+ */
+public class MetricsHandler implements IHttpHandler {
+	private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+	@Override
+	@SuppressWarnings("rawtypes")
+	public void handle(HttpRequest request, HttpResponse response) {
+		MetricRegistry registry = CollectorMetrics.getInstance().getRegistry();
+		StringBuilder sb = new StringBuilder(1024);
+		sb.append('{');
+		sb.append("\"gauges\":{");
+		int i = 0;
+		for (Entry<String, Gauge> entry : registry.getGauges().entrySet()) {
+			name(sb, i++, entry.getKey());
+			Object value = entry.getValue().getValue();
+			if (value instanceof Number) {
+				sb.append(value);
+			} else {
+				sb.append('"').append(value).append('"');
+			}
+		}
+		sb.append("},\"meters\":{");
+		i = 0;
+		for (Entry<String, Meter> entry : registry.getMeters().entrySet()) {
+			name(sb, i++, entry.getKey());
+			meter(sb, entry.getValue().getCount(), entry.getValue().getOneMinuteRate());
+			sb.append('}');
+		}
+		sb.append("},\"histograms\":{");
+		i = 0;
+		for (Entry<String, Histogram> entry : registry.getHistograms().entrySet()) {
+			name(sb, i++, entry.getKey());
+			sb.append("{\"count\":").append(entry.getValue().getCount());
+			snapshot(sb, entry.getValue().getSnapshot(), 1);
+			sb.append('}');
+		}
+		sb.append("},\"timers\":{");
+		i = 0;
+		for (Entry<String, Timer> entry : registry.getTimers().entrySet()) {
+			name(sb, i++, entry.getKey());
+			meter(sb, entry.getValue().getCount(), entry.getValue().getOneMinuteRate());
+			snapshot(sb, entry.getValue().getSnapshot(), NANOS_PER_MILLI);
+			sb.append('}');
+		}
+		sb.append("}}");
+		response.setContentType("application/json");
+		CollectorService.response(response, sb.toString());
+	}
+
+	private static void name(StringBuilder sb, int index, String name) {
+		if (index > 0) {
+			sb.append(',');
+		}
+		sb.append('"').append(name.replace("\\", "\\\\").replace("\"", "\\\"")).append("\":");
+	}
+
+	private static void meter(StringBuilder sb, long count, double rate) {
+		sb.append("{\"count\":").append(count);
+		sb.append(",\"m1_rate\":").append(round(rate));
+	}
+
+	private static void snapshot(StringBuilder sb, Snapshot snapshot, double scale) {
+		sb.append(",\"min\":").append(round(snapshot.getMin() / scale));
+		sb.append(",\"mean\":").append(round(snapshot.getMean() / scale));
+		sb.append(",\"p50\":").append(round(snapshot.getMedian() / scale));
+		sb.append(",\"p99\":").append(round(snapshot.getValue(0.99) / scale));
+		sb.append(",\"max\":").append(round(snapshot.getMax() / scale));
+	}
+
+	private static double round(double value) {
+		return Math.round(value * 1000) / 1000.0;
+	}
+}
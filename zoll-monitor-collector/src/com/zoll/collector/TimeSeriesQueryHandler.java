@@ -0,0 +1,59 @@
+package com.zoll.collector;
+
+import org.apache.commons.httpclient.HttpStatus;
+
+import com.zoll.collector.database.sink.TimeSeriesSink;
+import com.zoll.collector.http.HttpRequest;
+import com.zoll.collector.http.HttpResponse;
+import com.zoll.collector.http.IHttpHandler;
+import com.zoll.collector.parser.QueryStringParser;
+import com.zoll.collector.parser.ReportEventFlyweight;
+
+/**
+ * 时序存储查询处理者;
+ * 
+ * /query?dataType=login&start=毫秒&end=毫秒&step=毫秒, 返回每个步长一个值的数组;
+ * 
+ * @date 2026年10月19日 上午3:14:20
+ * 
+ * @project zoll-monitor-collector
+ * 
+ */
+public class TimeSeriesQueryHandler implements IHttpHandler {
+	/** 单次查询最多返回的点数 */
+	private static final int MAX_POINTS = 10000;
+
+	private final TimeSeriesSink sink;
+
+	public TimeSeriesQueryHandler(TimeSeriesSink sink) {
+		this.sink = sink;
+	}
+
+	@Override
+	public void handle(HttpRequest request, HttpResponse response) {
+		ReportEventFlyweight params = CollectorService.getFlyweight();
+		QueryStringParser.parse(request.getQuery(), params);
+		int index = params.indexOf("dataType");
+		long end = params.getLong("end", System.currentTimeMillis());
+		long start = params.getLong("start", end - 3600 * 1000L);
+		long step = params.getLong("step", 60 * 1000L);
+		if (index < 0 || step <= 0 || end < start || (end - start) / step > MAX_POINTS) {
+			response.setStatus(HttpStatus.SC_BAD_REQUEST);
+			CollectorService.response(response, "\"status\":\"Error\"");
+			return;
+		}
+		long[] values = sink.getStore().query(params.getValue(index), start, end, step);
+		StringBuilder sb = new StringBuilder(values.length * 8 + 2);
+		sb.append('[');
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append(values[i]);
+		}
+		sb.append(']');
+		response.setContentType("application/json");
+		CollectorService.response(response, sb.toString());
+	}
+
+}
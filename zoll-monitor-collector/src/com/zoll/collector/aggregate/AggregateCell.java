@@ -0,0 +1,93 @@
+package com.zoll.collector.aggregate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.zoll.collector.config.CollectorCfg;
+
+/**
+ * 单个序列在一个窗口内的聚合值;
+ *
+ * @date 2026年10月19日 上午3:03:41
+ *
+ * @project zoll-monitor-collector
+ *
+ */
+public class AggregateCell {
+	/** 上报类型 */
+	private final String dataType;
+	/** 维度标签 */
+	private final Map<String, String> tags;
+	/** 计数方式 {@link CollectorCfg#INCREASE_COUNT} {@link CollectorCfg#LATEST_COUNT} */
+	private final int countType;
+	/** 聚合后的值 */
+	private final AtomicLong value = new AtomicLong(0);
+	/** 窗口内收到的样本数 */
+	private final AtomicLong samples = new AtomicLong(0);
+	/** 采样数据按权重放大后的累加值(double的bit), 与value分开累加避免小数被截断 */
+	private final AtomicLong weighted = new AtomicLong(Double.doubleToRawLongBits(0));
+
+	public AggregateCell(String dataType, Map<String, String> tags, int countType) {
+		this.dataType = dataType;
+		this.tags = tags;
+		this.countType = countType;
+	}
+
+	/**
+	 * 合并一个样本;
+	 *
+	 * @param count
+	 */
+	public void add(long count) {
+		add(count, 1);
+	}
+
+	/**
+	 * 合并一个采样保留下来的样本, INCREASE_COUNT 按权重(采样率的倒数)放大, 使累加值是无偏估计;
+	 * 
+	 * @param count
+	 * @param weight
+	 */
+	public void add(long count, double weight) {
+		if (countType == CollectorCfg.LATEST_COUNT) {
+			value.set(count);
+		} else if (weight == 1) {
+			value.addAndGet(count);
+		} else {
+			long bits;
+			do {
+				bits = weighted.get();
+			} while (!weighted.compareAndSet(bits, Double.doubleToRawLongBits(Double.longBitsToDouble(bits) + count * weight)));
+		}
+		samples.incrementAndGet();
+	}
+
+	public String getDataType() {
+		return dataType;
+	}
+
+	public int getCountType() {
+		return countType;
+	}
+
+	public long getValue() {
+		return value.get() + Math.round(Double.longBitsToDouble(weighted.get()));
+	}
+
+	public long getSamples() {
+		return samples.get();
+	}
+
+	/**
+	 * 转换为一行待入库的数据;
+	 *
+	 * @return
+	 */
+	public Map<String, String> toRow() {
+		Map<String, String> row = new HashMap<String, String>(tags);
+		row.put(AggregateManager.COUNT_KEY, String.valueOf(getValue()));
+		row.put(AggregateManager.COUNT_TYPE_KEY, String.valueOf(countType));
+		return row;
+	}
+}
@@ -0,0 +1,373 @@
+package com.zoll.collector.aggregate;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.zoll.collector.config.CollectorCfg;
+import com.zoll.collector.config.CollectorConfig;
+import com.zoll.collector.config.IngestRule;
+import com.zoll.collector.database.DBManager;
+import com.zoll.collector.database.TableSchemaRegistry;
+import com.zoll.collector.listener.ReportEvent;
+import com.zoll.collector.metrics.CollectorMetrics;
+
+/**
+ * 内存预聚合管理器(类似statsd);
+ *
+ * 按 dataType + 维度标签 把同一窗口(长度见 {@link CollectorConfig#getAggregateWindow()})内的上报合并成一行, INCREASE_COUNT 累加, LATEST_COUNT 取最新值, 窗口结束后统一落库;
+ *
+ * 带有上报端时间戳的事件按上报端时间归入窗口, 已落库窗口的迟到数据在下一次落库时补一行, 已汇总的时间段由 RollupManager 重新汇总; 没有时间戳或时间戳超前太多时按采集端当前时间;
+ *
+ * 按 {@link IngestRule} 限制每个dataType: 配置为去重计数的ID字段不作为标签, 只进入HyperLogLog, 落到 {dataType}_distinct 表;
+ * 去重计数只表示单个窗口内的不同值个数, 不同窗口的值不能相加, 所以 _distinct 表不做降采样; 迟到数据与该窗口已落库的计数器合并后重写这一行;
+ * INCREASE_COUNT 按采样率随机保留, 保留的样本按权重放大并带上 sampleRate 标签; 窗口内序列数超过上限后, 新序列合并到标签值为 -1 的溢出序列;
+ * dataType不是合法表名或以汇总表, 去重计数表的后缀结尾时丢弃, 见 {@link TableSchemaRegistry#isValidDataType(String)};
+ *
+ * @date 2026年10月19日 上午3:03:41
+ *
+ * @project zoll-monitor-collector
+ *
+ */
+public class AggregateManager {
+	public static final String COUNT_KEY = "count";
+	public static final String COUNT_TYPE_KEY = "countType";
+	/** 采样保留的比例, 作为标签落库 */
+	public static final String SAMPLE_RATE_KEY = "sampleRate";
+	/** 去重计数表中的字段名列 */
+	public static final String DISTINCT_FIELD_KEY = "field";
+	/** 去重计数表的后缀 */
+	public static final String DISTINCT_SUFFIX = "_distinct";
+	/** 溢出序列的标签值, 数字列和字符串列都能存下, 不会触发改表 */
+	public static final String OVERFLOW_TAG = "-1";
+
+	private static AggregateManager instance = new AggregateManager();
+
+	/** 窗口起始时间 -> 窗口 */
+	private final ConcurrentMap<Long, Window> windows = new ConcurrentHashMap<Long, Window>();
+	/** 写入取读锁, 摘除窗口取写锁, 保证摘除之后不会再有数据写进旧窗口 */
+	private final ReadWriteLock windowLock = new ReentrantReadWriteLock();
+
+	private ScheduledExecutorService flusher;
+	/** 已落库窗口的去重计数: 窗口起始时间 -> dataType|字段 -> 计数器, 保留 {@link CollectorCfg#DISTINCT_RETAIN_TIME} */
+	private final TreeMap<Long, Map<String, HyperLogLog>> flushedDistincts = new TreeMap<Long, Map<String, HyperLogLog>>();
+	/** 窗口长度 */
+	private final long window = CollectorConfig.getInstance().getAggregateWindow();
+	/** 窗口结束后等待迟到数据的时间 */
+	private final long flushDelay = CollectorConfig.getInstance().getAggregateFlushDelay();
+
+	private AggregateManager() {
+		flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r);
+				t.setName("Aggregate-Flusher");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		long period = Math.max(100, Math.min(window, 1000));
+		flusher.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					flush(System.currentTimeMillis(), false);
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		}, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	public static AggregateManager getInstance() {
+		return instance;
+	}
+
+	/**
+	 * 聚合一条上报数据;
+	 *
+	 * @param event
+	 */
+	public void aggregate(ReportEvent event) {
+		String dataType = event.getDataType();
+		Map<String, String> datas = event.getDatas();
+		if (dataType == null || datas == null) {
+			return;
+		}
+		if (!TableSchemaRegistry.isValidDataType(dataType)) {
+			CollectorMetrics.getInstance().getAggregateIllegal().mark();
+			return;
+		}
+		IngestRule rule = CollectorConfig.getInstance().getIngestRule(dataType);
+		long count = parseLong(datas.get(COUNT_KEY), 1);
+		int countType = (int) parseLong(datas.get(COUNT_TYPE_KEY), CollectorCfg.INCREASE_COUNT);
+		long time = eventTime(event);
+		if (time < 0) {
+			CollectorMetrics.getInstance().getAggregateExpired().mark();
+			return;
+		}
+		long windowStart = windowStart(time);
+
+		windowLock.readLock().lock();
+		try {
+			Window window = windows.get(windowStart);
+			if (window == null) {
+				Window newWindow = new Window();
+				window = windows.putIfAbsent(windowStart, newWindow);
+				if (window == null) {
+					window = newWindow;
+				}
+			}
+			TreeMap<String, String> tags = new TreeMap<String, String>();
+			for (Entry<String, String> entry : datas.entrySet()) {
+				if (COUNT_KEY.equals(entry.getKey()) || COUNT_TYPE_KEY.equals(entry.getKey())) {
+					continue;
+				}
+				if (rule.getDistinctFields().contains(entry.getKey())) {
+					// 去重计数在采样之前, 不受采样影响
+					if (entry.getValue() != null) {
+						window.distinct(dataType, entry.getKey()).offer(entry.getValue());
+					}
+					continue;
+				}
+				tags.put(entry.getKey(), entry.getValue());
+			}
+			double weight = 1;
+			if (rule.isSampled() && countType == CollectorCfg.INCREASE_COUNT) {
+				if (ThreadLocalRandom.current().nextDouble() >= rule.getSampleRate()) {
+					CollectorMetrics.getInstance().sampled(dataType).mark();
+					return;
+				}
+				weight = 1 / rule.getSampleRate();
+				tags.put(SAMPLE_RATE_KEY, String.valueOf(rule.getSampleRate()));
+			}
+			String seriesKey = seriesKey(dataType, countType, tags);
+			AggregateCell cell = window.cells.get(seriesKey);
+			if (cell == null) {
+				if (!window.admit(dataType, rule.getMaxSeries())) {
+					tags = overflowTags(tags);
+					seriesKey = seriesKey(dataType, countType, tags);
+					CollectorMetrics.getInstance().getAggregateOverflow().mark();
+				}
+				cell = window.cells.get(seriesKey);
+				if (cell == null) {
+					AggregateCell newCell = new AggregateCell(dataType, tags, countType);
+					cell = window.cells.putIfAbsent(seriesKey, newCell);
+					if (cell == null) {
+						cell = newCell;
+					}
+				}
+			}
+			cell.add(count, weight);
+		} finally {
+			windowLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * 把已结束的窗口落库;
+	 *
+	 * @param now
+	 * @param all
+	 *            是否忽略窗口是否结束, 全部落库(停服时使用)
+	 */
+	public void flush(long now, boolean all) {
+		Iterator<Long> iterator = windows.keySet().iterator();
+		while (iterator.hasNext()) {
+			Long windowStart = iterator.next();
+			if (!all && windowStart + window + flushDelay > now) {
+				continue;
+			}
+			Window window;
+			windowLock.writeLock().lock();
+			try {
+				window = windows.remove(windowStart);
+			} finally {
+				windowLock.writeLock().unlock();
+			}
+			if (window != null) {
+				for (AggregateCell cell : window.cells.values()) {
+					DBManager.getInstance().insertData(cell.toRow(), cell.getDataType(), windowStart);
+					CollectorMetrics.getInstance().getAggregateRows().mark();
+				}
+				for (Entry<String, ConcurrentMap<String, HyperLogLog>> type : window.distincts.entrySet()) {
+					for (Entry<String, HyperLogLog> field : type.getValue().entrySet()) {
+						HyperLogLog merged = mergeFlushed(windowStart, type.getKey(), field.getKey(), field.getValue(), now);
+						if (merged == null) {
+							CollectorMetrics.getInstance().getDistinctLate().mark();
+							continue;
+						}
+						Map<String, String> row = new HashMap<String, String>();
+						row.put(DISTINCT_FIELD_KEY, field.getKey());
+						row.put(COUNT_KEY, String.valueOf(merged.cardinality()));
+						row.put(COUNT_TYPE_KEY, String.valueOf(CollectorCfg.LATEST_COUNT));
+						DBManager.getInstance().insertData(row, type.getKey() + DISTINCT_SUFFIX, windowStart);
+						CollectorMetrics.getInstance().getAggregateRows().mark();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * 与该窗口已落库的去重计数合并, 迟到数据落库时写入合并后的估计值, 不会用部分数据的估计值覆盖完整的;
+	 *
+	 * @param windowStart
+	 * @param dataType
+	 * @param field
+	 * @param hll
+	 * @param now
+	 * @return 合并后的计数器, 窗口已超出保留时间时返回null
+	 */
+	private HyperLogLog mergeFlushed(long windowStart, String dataType, String field, HyperLogLog hll, long now) {
+		synchronized (flushedDistincts) {
+			long horizon = now - CollectorCfg.DISTINCT_RETAIN_TIME;
+			flushedDistincts.headMap(horizon).clear();
+			if (windowStart < horizon) {
+				return null;
+			}
+			Map<String, HyperLogLog> flushed = flushedDistincts.get(windowStart);
+			if (flushed == null) {
+				flushed = new HashMap<String, HyperLogLog>();
+				flushedDistincts.put(windowStart, flushed);
+			}
+			String key = dataType + '|' + field;
+			HyperLogLog merged = flushed.get(key);
+			if (merged == null) {
+				flushed.put(key, hll);
+				return hll;
+			}
+			merged.merge(hll);
+			return merged;
+		}
+	}
+
+	/**
+	 * 停止定时落库, 等正在进行的落库结束后把剩余数据全部落库; 调用前应先停止接收和分发事件;
+	 */
+	public void shutdown() {
+		flusher.shutdown();
+		try {
+			flusher.awaitTermination(CollectorCfg.SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		flush(System.currentTimeMillis(), true);
+	}
+
+	/**
+	 * 事件所属的时间: 上报端时间戳, 没有或超前 {@link CollectorCfg#MAX_CLOCK_SKEW} 以上时为当前时间;
+	 *
+	 * @param event
+	 * @return 落后 {@link CollectorCfg#MAX_EVENT_LAG} 以上时返回-1, 事件应丢弃
+	 */
+	private static long eventTime(ReportEvent event) {
+		long now = System.currentTimeMillis();
+		long time = event.getTime();
+		if (time <= 0 || time > now + CollectorCfg.MAX_CLOCK_SKEW) {
+			return now;
+		}
+		return time < now - CollectorCfg.MAX_EVENT_LAG ? -1 : time;
+	}
+
+	public long windowStart(long time) {
+		return time - time % window;
+	}
+
+	public long getWindow() {
+		return window;
+	}
+
+	private static String seriesKey(String dataType, int countType, TreeMap<String, String> tags) {
+		StringBuilder sb = new StringBuilder(dataType).append('|').append(countType);
+		for (Entry<String, String> entry : tags.entrySet()) {
+			sb.append('|').append(entry.getKey()).append('=').append(entry.getValue());
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * 溢出序列的标签: 列不变, 值都换成 {@link #OVERFLOW_TAG}, 保留采样率;
+	 */
+	private static TreeMap<String, String> overflowTags(TreeMap<String, String> tags) {
+		TreeMap<String, String> overflow = new TreeMap<String, String>();
+		for (Entry<String, String> entry : tags.entrySet()) {
+			overflow.put(entry.getKey(), SAMPLE_RATE_KEY.equals(entry.getKey()) ? entry.getValue() : OVERFLOW_TAG);
+		}
+		return overflow;
+	}
+
+	private static long parseLong(String value, long defaultValue) {
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Long.parseLong(value.trim());
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * 一个预聚合窗口;
+	 */
+	static class Window {
+		/** 序列标识 -> 聚合值 */
+		final ConcurrentMap<String, AggregateCell> cells = new ConcurrentHashMap<String, AggregateCell>();
+		/** dataType -> 已有的序列数 */
+		final ConcurrentMap<String, AtomicInteger> seriesCounts = new ConcurrentHashMap<String, AtomicInteger>();
+		/** dataType -> 字段 -> 去重计数 */
+		final ConcurrentMap<String, ConcurrentMap<String, HyperLogLog>> distincts = new ConcurrentHashMap<String, ConcurrentMap<String, HyperLogLog>>();
+
+		/**
+		 * 为dataType新增一个序列, 已达上限时返回false;
+		 */
+		boolean admit(String dataType, int maxSeries) {
+			AtomicInteger counter = seriesCounts.get(dataType);
+			if (counter == null) {
+				AtomicInteger newCounter = new AtomicInteger();
+				counter = seriesCounts.putIfAbsent(dataType, newCounter);
+				if (counter == null) {
+					counter = newCounter;
+				}
+			}
+			if (counter.incrementAndGet() > maxSeries) {
+				counter.decrementAndGet();
+				return false;
+			}
+			return true;
+		}
+
+		HyperLogLog distinct(String dataType, String field) {
+			ConcurrentMap<String, HyperLogLog> fields = distincts.get(dataType);
+			if (fields == null) {
+				ConcurrentMap<String, HyperLogLog> newFields = new ConcurrentHashMap<String, HyperLogLog>();
+				fields = distincts.putIfAbsent(dataType, newFields);
+				if (fields == null) {
+					fields = newFields;
+				}
+			}
+			HyperLogLog hll = fields.get(field);
+			if (hll == null) {
+				HyperLogLog newHll = new HyperLogLog(CollectorCfg.DISTINCT_PRECISION);
+				hll = fields.putIfAbsent(field, newHll);
+				if (hll == null) {
+					hll = newHll;
+				}
+			}
+			return hll;
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package com.zoll.collector.aggregate;
+
+/**
+ * HyperLogLog 去重计数器, 用固定大小的内存估算不同值的个数;
+ * 
+ * 64位散列的高p位选择寄存器, 其余位的前导0个数+1作为观测值, 每个寄存器保留最大观测值; 小基数时按线性计数修正;
+ * 
+ * @date 2026年10月19日 上午3:29:31
+ * 
+ * @project zoll-monitor-collector
+ * 
+ */
+public class HyperLogLog {
+	private final int precision;
+	private final byte[] registers;
+
+	/**
+	 * @param precision
+	 *            4~16, 2^precision个寄存器
+	 */
+	public HyperLogLog(int precision) {
+		this.precision = Math.max(4, Math.min(16, precision));
+		this.registers = new byte[1 << this.precision];
+	}
+
+	/**
+	 * 记录一个值;
+	 * 
+	 * @param value
+	 */
+	public synchronized void offer(String value) {
+		long hash = hash(value);
+		int index = (int) (hash >>> (64 - precision));
+		// 最低的保护位保证观测值不超过 64-p+1
+		int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+		if (rank > registers[index]) {
+			registers[index] = (byte) rank;
+		}
+	}
+
+	/**
+	 * 并入另一个同精度计数器的值, 结果等于两者所见值的并集;
+	 * 
+	 * @param other
+	 */
+	public void merge(HyperLogLog other) {
+		if (other.registers.length != registers.length) {
+			throw new IllegalArgumentException("precision mismatch: " + other.precision + " != " + precision);
+		}
+		byte[] copy;
+		synchronized (other) {
+			copy = other.registers.clone();
+		}
+		synchronized (this) {
+			for (int i = 0; i < registers.length; i++) {
+				if (copy[i] > registers[i]) {
+					registers[i] = copy[i];
+				}
+			}
+		}
+	}
+
+	/**
+	 * 估算不同值的个数;
+	 * 
+	 * @return
+	 */
+	public synchronized long cardinality() {
+		int m = registers.length;
+		double sum = 0;
+		int zeros = 0;
+		for (byte register : registers) {
+			sum += 1.0 / (1L << register);
+			if (register == 0) {
+				zeros++;
+			}
+		}
+		double estimate = 0.7213 / (1 + 1.079 / m) * m * m / sum;
+		if (estimate <= 2.5 * m && zeros > 0) {
+			estimate = m * Math.log((double) m / zeros);
+		}
+		return Math.round(estimate);
+	}
+
+	/**
+	 * 64位FNV-1a, 再用 MurmurHash3 的 fmix64 打散低位相近的输入;
+	 */
+	private static long hash(String value) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < value.length(); i++) {
+			h ^= value.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
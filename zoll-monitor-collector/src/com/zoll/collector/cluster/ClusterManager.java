@@ -0,0 +1,209 @@
+package com.zoll.collector.cluster;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.zoll.collector.config.CollectorCfg;
+import com.zoll.collector.dedup.BatchDeduplicator;
+import com.zoll.collector.listener.ReportEvent;
+import com.zoll.collector.listener.ReportEventBus;
+
+/**
+ * 分片集群管理器;
+ * 
+ * 多个采集端实例按dataType(小写)在一致性哈希环上分片, 任何实例都可以接收上报, 不属于自己的事件转发给负责的实例;
+ * 每个实例只聚合, 落库和维护自己负责的表; 没有配置集群时所有事件都在本地处理;
+ * 
+ * @date 2026年10月19日 上午3:23:25
+ * 
+ * @project zoll-monitor-collector
+ * 
+ */
+public class ClusterManager {
+	/** {@link #fireBatch(ReportBatch)} 的返回值: 重复的批次, 不处理 */
+	public static final int BATCH_DUPLICATE = -1;
+	/** {@link #fireBatch(ReportBatch)} 的返回值: 分发队列放不下整批, 不处理也不登记, 由上报端稍后重发 */
+	public static final int BATCH_BUSY = -2;
+
+	private static ClusterManager instance = new ClusterManager();
+
+	private volatile HashRing ring;
+	private volatile ClusterNode self;
+	private Map<ClusterNode, ForwardClient> clients = new HashMap<ClusterNode, ForwardClient>();
+	private ForwardServer forwardServer;
+
+	private ClusterManager() {
+	}
+
+	public static ClusterManager getInstance() {
+		return instance;
+	}
+
+	/**
+	 * 加入集群;
+	 * 
+	 * @param members
+	 *            所有实例(含自己), 逗号分隔的 host:httpPort:forwardPort
+	 * @param self
+	 *            自己的 host:httpPort:forwardPort
+	 * @throws IOException
+	 */
+	public synchronized void init(String members, String self) throws IOException {
+		List<ClusterNode> nodes = new ArrayList<ClusterNode>();
+		ClusterNode local = ClusterNode.parse(self);
+		for (String spec : members.split(",")) {
+			ClusterNode node = ClusterNode.parse(spec);
+			if (node.getName().equals(local.getName())) {
+				node = local;
+			} else {
+				ForwardClient client = new ForwardClient(node);
+				client.start();
+				clients.put(node, client);
+			}
+			nodes.add(node);
+		}
+		if (!nodes.contains(local)) {
+			throw new IllegalArgumentException(self + " is not a member of " + members);
+		}
+		forwardServer = new ForwardServer(CollectorCfg.BINARY_PORT != 0);
+		forwardServer.start("0.0.0.0", local.getForwardPort());
+		this.self = local;
+		this.ring = new HashRing(nodes, CollectorCfg.CLUSTER_VIRTUAL_NODES);
+		System.out.println("cluster joined as " + local + ", members " + nodes);
+	}
+
+	/**
+	 * 分发一个上报事件: 自己负责的交给本地事件总线, 否则转发;
+	 * 
+	 * @param event
+	 * @return 是否放入了分发或转发队列, 队列已满时丢弃并返回false
+	 */
+	public boolean fire(ReportEvent event) {
+		ClusterNode owner = ownerOf(event.getDataType());
+		if (owner == null || owner == self) {
+			return ReportEventBus.fireReportEvent(event);
+		}
+		return clients.get(owner).send(event);
+	}
+
+	/**
+	 * 分发上报端的一个批次: 先确认各分发和转发队列放得下整批, 再登记去重, 最后逐个分发; 放不下时整批不处理也不登记, 不会在分发了一部分之后
+	 * 撤销登记, 让重发的批次重复计数; 比整个队列还大的批次无法事先确认, 分发时等队列腾出位置;
+	 * 
+	 * @param batch
+	 * @return 分发出去的事件数, 其余的因队列已满被丢弃; 或者 {@link #BATCH_DUPLICATE}, {@link #BATCH_BUSY}
+	 */
+	public int fireBatch(ReportBatch batch) {
+		if (!hasCapacity(batch.getEvents())) {
+			return BATCH_BUSY;
+		}
+		if (!BatchDeduplicator.getInstance().accept(batch.getReporterId(), batch.getSeq())) {
+			return BATCH_DUPLICATE;
+		}
+		int fired = 0;
+		long deadline = System.currentTimeMillis() + CollectorCfg.SHUTDOWN_TIMEOUT;
+		for (ReportEvent event : batch.getEvents()) {
+			while (queueOf(event).remainingCapacity() == 0 && System.currentTimeMillis() < deadline) {
+				LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+			}
+			if (fire(event)) {
+				fired++;
+			} else if (fired == 0) {
+				// 一个都没有分发出去, 撤销登记, 整批由上报端重发
+				BatchDeduplicator.getInstance().forget(batch.getReporterId(), batch.getSeq());
+				return BATCH_BUSY;
+			}
+		}
+		return fired;
+	}
+
+	/**
+	 * 该dataType(或表)是否由本实例负责;
+	 * 
+	 * @param dataType
+	 * @return
+	 */
+	public boolean isLocal(String dataType) {
+		ClusterNode owner = ownerOf(dataType);
+		return owner == null || owner == self;
+	}
+
+	public boolean isClustered() {
+		return ring != null;
+	}
+
+	/**
+	 * 本实例的集群转发端口, 未加入集群时返回0;
+	 * 
+	 * @return
+	 */
+	public int getForwardPort() {
+		ClusterNode local = self;
+		return local == null ? 0 : local.getForwardPort();
+	}
+
+	/**
+	 * 先停止接收其他实例的转发, 再把待转发的事件发完;
+	 */
+	public synchronized void stop() {
+		if (forwardServer != null) {
+			forwardServer.stop();
+		}
+		for (ForwardClient client : clients.values()) {
+			client.stop(CollectorCfg.SHUTDOWN_TIMEOUT);
+		}
+	}
+
+	/**
+	 * 各事件要进入的队列是否都还放得下;
+	 * 
+	 * @param events
+	 * @return
+	 */
+	private boolean hasCapacity(List<ReportEvent> events) {
+		Map<BlockingQueue<?>, int[]> needed = new IdentityHashMap<BlockingQueue<?>, int[]>();
+		for (ReportEvent event : events) {
+			BlockingQueue<?> queue = queueOf(event);
+			int[] count = needed.get(queue);
+			if (count == null) {
+				count = new int[1];
+				needed.put(queue, count);
+			}
+			count[0]++;
+		}
+		for (Entry<BlockingQueue<?>, int[]> entry : needed.entrySet()) {
+			BlockingQueue<?> queue = entry.getKey();
+			int count = entry.getValue()[0];
+			int remaining = queue.remainingCapacity();
+			// 比整个队列还大的部分无论如何放不下, 不在这里拒绝
+			if (count > remaining && count <= remaining + queue.size()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private BlockingQueue<?> queueOf(ReportEvent event) {
+		ClusterNode owner = ownerOf(event.getDataType());
+		if (owner == null || owner == self) {
+			return ReportEventBus.queueOf(event.getDataType());
+		}
+		return clients.get(owner).getQueue();
+	}
+
+	private ClusterNode ownerOf(String dataType) {
+		HashRing current = ring;
+		if (current == null || dataType == null) {
+			return null;
+		}
+		return current.nodeFor(dataType.toLowerCase());
+	}
+}
@@ -0,0 +1,63 @@
+package com.zoll.collector.cluster;
+
+/**
+ * 集群中的一个采集端实例;
+ * 
+ * @date 2026年10月19日 上午3:23:25
+ * 
+ * @project zoll-monitor-collector
+ * 
+ */
+public class ClusterNode {
+	private final String host;
+	/** 接收上报的HTTP端口 */
+	private final int httpPort;
+	/** 接收其他实例转发事件的端口 */
+	private final int forwardPort;
+
+	public ClusterNode(String host, int httpPort, int forwardPort) {
+		this.host = host;
+		this.httpPort = httpPort;
+		this.forwardPort = forwardPort;
+	}
+
+	/**
+	 * 解析 host:httpPort:forwardPort;
+	 * 
+	 * @param spec
+	 * @return
+	 */
+	public static ClusterNode parse(String spec) {
+		String[] parts = spec.trim().split(":");
+		if (parts.length != 3) {
+			throw new IllegalArgumentException("cluster member must be host:httpPort:forwardPort, but " + spec);
+		}
+		return new ClusterNode(parts[0], Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+	}
+
+	public String getHost() {
+		return host;
+	}
+
+	public int getHttpPort() {
+		return httpPort;
+	}
+
+	public int getForwardPort() {
+		return forwardPort;
+	}
+
+	/**
+	 * 节点名, 也是在哈希环上取虚拟节点位置的依据;
+	 * 
+	 * @return
+	 */
+	public String getName() {
+		return host + ":" + httpPort;
+	}
+
+	@Override
+	public String toString() {
+		return host + ":" + httpPort + ":" + forwardPort;
+	}
+}
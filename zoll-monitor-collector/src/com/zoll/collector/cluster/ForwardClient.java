@@ -0,0 +1,227 @@
+package com.zoll.collector.cluster;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.zoll.collector.config.CollectorCfg;
+import com.zoll.collector.listener.ReportEvent;
+import com.zoll.collector.metrics.CollectorMetrics;
+
+/**
+ * 向另一个实例转发事件;
+ * 
+ * I/O线程只把事件放入有界队列, 发送线程每次取出一批编码成一帧写出; 队列满时丢弃事件并计数; 连接断开后按间隔重连,
+ * 上次flush之后写出的事件在重连后重发, 连续失败 {@link CollectorCfg#CLUSTER_FORWARD_RETRIES} 次后丢弃并计数;
+ * 无法编码的事件(字段超过帧格式的长度上限)在写出前丢弃并单独计数, 不影响连接和同批的其他事件;
+ * 
+ * @date 2026年10月19日 上午3:23:25
+ * 
+ * @project zoll-monitor-collector
+ * 
+ */
+public class ForwardClient implements Runnable {
+	private final ClusterNode node;
+	private final BlockingQueue<ReportEvent> queue = new ArrayBlockingQueue<ReportEvent>(CollectorCfg.CLUSTER_FORWARD_QUEUE_SIZE);
+	private final Meter sent;
+	private final Meter dropped;
+	private final Meter rejected;
+
+	private Socket socket;
+	private OutputStream out;
+	/** 上次写出的时间, 空闲太久的连接可能已被对端断开 */
+	private long lastWrite;
+	private volatile boolean running = true;
+	private Thread thread;
+
+	public ForwardClient(ClusterNode node) {
+		this.node = node;
+		String prefix = "cluster.forward." + node.getName().replace(':', '_');
+		this.sent = CollectorMetrics.getInstance().getRegistry().meter(prefix + ".sent");
+		this.dropped = CollectorMetrics.getInstance().getRegistry().meter(prefix + ".dropped");
+		this.rejected = CollectorMetrics.getInstance().getRegistry().meter(prefix + ".rejected");
+		CollectorMetrics.getInstance().gauge(prefix + ".queue", new Gauge<Integer>() {
+			@Override
+			public Integer getValue() {
+				return queue.size();
+			}
+		});
+	}
+
+	public void start() {
+		thread = new Thread(this);
+		thread.setName("Forward-" + node.getName());
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * 停止转发, 等待队列中的事件发完;
+	 * 
+	 * @param timeout
+	 *            毫秒
+	 */
+	public void stop(long timeout) {
+		running = false;
+		if (thread != null) {
+			try {
+				thread.join(timeout);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * 放入发送队列, 不阻塞;
+	 * 
+	 * @param event
+	 * @return 是否放入, 队列已满时丢弃并返回false
+	 */
+	public boolean send(ReportEvent event) {
+		if (!queue.offer(event)) {
+			dropped.mark();
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * 发送队列, 只用于查看容量;
+	 * 
+	 * @return
+	 */
+	public BlockingQueue<ReportEvent> getQueue() {
+		return queue;
+	}
+
+	@Override
+	public void run() {
+		List<ReportEvent> batch = new ArrayList<ReportEvent>(CollectorCfg.CLUSTER_FORWARD_BATCH);
+		// 已写出但还没有flush的事件, 连接断开时可能没有送达
+		List<ReportEvent> unflushed = new ArrayList<ReportEvent>();
+		// 等待重连后重发的事件
+		List<ReportEvent> retry = new ArrayList<ReportEvent>();
+		// 本批编码好的帧和编码时跳过的事件
+		List<byte[]> frames = new ArrayList<byte[]>();
+		List<ReportEvent> skipped = new ArrayList<ReportEvent>();
+		int failures = 0;
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 * 1024);
+		while (running || !queue.isEmpty() || !retry.isEmpty()) {
+			try {
+				if (retry.isEmpty()) {
+					ReportEvent first = queue.poll(100, TimeUnit.MILLISECONDS);
+					if (first == null) {
+						continue;
+					}
+					batch.add(first);
+					queue.drainTo(batch, CollectorCfg.CLUSTER_FORWARD_BATCH - 1);
+				} else {
+					batch.addAll(retry);
+					retry.clear();
+				}
+				// 整批都无法编码时也要走到下面, 把之前未flush的帧发出去
+				encode(batch, buffer, frames, skipped);
+				unflushed.addAll(batch);
+				try {
+					OutputStream stream = connect();
+					for (byte[] frame : frames) {
+						stream.write(frame);
+					}
+					// 队列已空时才flush, 积压时多帧合并成一次写; 未flush的事件最多和队列一样多
+					if (queue.isEmpty() || unflushed.size() >= CollectorCfg.CLUSTER_FORWARD_QUEUE_SIZE) {
+						stream.flush();
+						sent.mark(unflushed.size());
+						unflushed.clear();
+						failures = 0;
+					}
+				} catch (IOException e) {
+					retry.addAll(unflushed);
+					unflushed.clear();
+					System.err.println("forward to " + node + " fail E:" + e.getMessage());
+					if (++failures > CollectorCfg.CLUSTER_FORWARD_RETRIES) {
+						dropped.mark(retry.size());
+						retry.clear();
+						failures = 0;
+					}
+					close();
+					TimeUnit.MILLISECONDS.sleep(CollectorCfg.CLUSTER_RECONNECT_INTERVAL);
+				}
+				batch.clear();
+			} catch (InterruptedException e) {
+				dropped.mark(retry.size() + unflushed.size());
+				break;
+			}
+		}
+		close();
+	}
+
+	/**
+	 * 在连接之前编码, 编码失败只丢弃出错的事件, 不当作连接错误重连重发;
+	 * 
+	 * @param batch
+	 *            去掉跳过的事件
+	 * @param buffer
+	 * @param frames
+	 * @param skipped
+	 */
+	private void encode(List<ReportEvent> batch, ByteArrayOutputStream buffer, List<byte[]> frames, List<ReportEvent> skipped) {
+		frames.clear();
+		skipped.clear();
+		try {
+			for (int from = 0; from < batch.size(); from += CollectorCfg.CLUSTER_FORWARD_BATCH) {
+				frames.add(FrameCodec.encodeEvents(batch.subList(from, Math.min(batch.size(), from + CollectorCfg.CLUSTER_FORWARD_BATCH)), buffer, skipped));
+			}
+		} catch (IOException e) {
+			// 写内存缓冲区, 不会发生
+			System.err.println("encode " + batch.size() + " events to " + node + " fail E:" + e.getMessage());
+			rejected.mark(batch.size());
+			batch.clear();
+			frames.clear();
+			return;
+		}
+		if (!skipped.isEmpty()) {
+			System.err.println(skipped.size() + " events to " + node + " are rejected: field longer than 65535 bytes");
+			rejected.mark(skipped.size());
+			batch.removeAll(skipped);
+		}
+	}
+
+	private OutputStream connect() throws IOException {
+		long now = System.currentTimeMillis();
+		if (out != null && now - lastWrite > CollectorCfg.FORWARD_IDLE_TIMEOUT / 2) {
+			// 对端会断开空闲连接, 断开后的第一次写往往不报错, 先重连
+			close();
+		}
+		lastWrite = now;
+		if (out == null) {
+			socket = new Socket();
+			socket.setTcpNoDelay(true);
+			socket.connect(new InetSocketAddress(node.getHost(), node.getForwardPort()), 3000);
+			out = new BufferedOutputStream(socket.getOutputStream(), 64 * 1024);
+		}
+		return out;
+	}
+
+	private void close() {
+		if (socket != null) {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+		socket = null;
+		out = null;
+	}
+}
@@ -0,0 +1,189 @@
+package com.zoll.collector.cluster;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.zoll.collector.CollectorService;
+import com.zoll.collector.config.CollectorCfg;
+import com.zoll.collector.listener.IEventListener;
+import com.zoll.collector.listener.ReportEvent;
+import com.zoll.collector.listener.ReportEventBus;
+import com.zoll.collector.parser.LineProtocolParser;
+
+/**
+ * 接收二进制帧: 其他实例转发来的事件直接交给本地事件总线, 不再转发; 上报端的批量数据按集群路由分发, 每帧回复一个带负载提示的应答,
+ * 负载超过 {@link CollectorCfg#LOAD_REJECT} 时整帧不处理;
+ * 
+ * 对端是集群中的其他实例和上报端的少量长连接, 每个连接一个线程, 连接数超过 {@link CollectorCfg#FORWARD_MAX_CONNECTIONS} 时新连接直接关闭;
+ * 帧收到一半后超过 {@link CollectorCfg#FORWARD_READ_TIMEOUT} 没有数据, 或帧之间空闲超过 {@link CollectorCfg#FORWARD_IDLE_TIMEOUT} 时断开连接;
+ * 停止时关闭各连接的输入端, 正在处理的帧处理完并应答后线程退出;
+ * 
+ * @date 2026年10月19日 上午3:23:25
+ * 
+ * @project zoll-monitor-collector
+ * 
+ */
+public class ForwardServer {
+	private static final IEventListener FIRE = new IEventListener() {
+		@Override
+		public void onEvent(ReportEvent event) {
+			ReportEventBus.fireReportEvent(event);
+		}
+	};
+
+	/** 是否接收上报端的帧, 集群转发端口只有开启了 {@link CollectorCfg#BINARY_PORT} 时才接收 */
+	private final boolean acceptReports;
+	private ServerSocket serverSocket;
+	private volatile boolean running;
+	/** 连接 -> 读线程 */
+	private final ConcurrentMap<Socket, Thread> readers = new ConcurrentHashMap<Socket, Thread>();
+
+	public ForwardServer(boolean acceptReports) {
+		this.acceptReports = acceptReports;
+	}
+
+	public void start(String address, int port) throws IOException {
+		serverSocket = new ServerSocket();
+		serverSocket.setReuseAddress(true);
+		serverSocket.bind(new InetSocketAddress(address, port));
+		running = true;
+		Thread acceptor = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				while (running) {
+					try {
+						final Socket socket = serverSocket.accept();
+						if (readers.size() >= CollectorCfg.FORWARD_MAX_CONNECTIONS) {
+							System.err.println("too many forward connections, close " + socket.getRemoteSocketAddress());
+							socket.close();
+							continue;
+						}
+						Thread reader = new Thread(new Runnable() {
+							@Override
+							public void run() {
+								read(socket);
+							}
+						});
+						reader.setName("Forward-Reader-" + socket.getRemoteSocketAddress());
+						reader.setDaemon(true);
+						readers.put(socket, reader);
+						reader.start();
+					} catch (IOException e) {
+						if (running) {
+							e.printStackTrace();
+						}
+					}
+				}
+			}
+		});
+		acceptor.setName("Forward-Acceptor-" + port);
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	public void stop() {
+		running = false;
+		try {
+			serverSocket.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		for (Socket socket : readers.keySet()) {
+			try {
+				socket.shutdownInput();
+			} catch (IOException e) {
+				// 已关闭
+			}
+		}
+		long deadline = System.currentTimeMillis() + CollectorCfg.SHUTDOWN_TIMEOUT;
+		try {
+			for (Entry<Socket, Thread> entry : readers.entrySet()) {
+				entry.getValue().join(Math.max(1, deadline - System.currentTimeMillis()));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void read(Socket socket) {
+		try {
+			socket.setTcpNoDelay(true);
+			socket.setSoTimeout(CollectorCfg.FORWARD_READ_TIMEOUT);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), CollectorCfg.HTTP_READ_BUFFER_SIZE));
+			OutputStream out = socket.getOutputStream();
+			LineProtocolParser parser = new LineProtocolParser(CollectorCfg.BULK_MAX_LINE_LENGTH);
+			long idleSince = System.currentTimeMillis();
+			while (running) {
+				int first;
+				try {
+					first = in.read();
+				} catch (SocketTimeoutException e) {
+					// 帧之间的空闲, 超过空闲时间才断开
+					if (System.currentTimeMillis() - idleSince >= CollectorCfg.FORWARD_IDLE_TIMEOUT) {
+						break;
+					}
+					continue;
+				}
+				if (first < 0) {
+					break;
+				}
+				// 帧的其余部分读超时按I/O错误断开
+				int type = first << 24 | in.readUnsignedByte() << 16 | in.readUnsignedShort();
+				int length = in.readInt();
+				if (length < 0 || length > CollectorCfg.HTTP_MAX_REQUEST_SIZE) {
+					System.err.println("illegal forward frame length " + length + " from " + socket.getRemoteSocketAddress());
+					break;
+				}
+				byte[] body = new byte[length];
+				in.readFully(body);
+				if (type == FrameCodec.TYPE_EVENTS) {
+					FrameCodec.decodeEvents(body, FIRE);
+				} else if (type == FrameCodec.TYPE_REPORTS) {
+					if (!acceptReports) {
+						System.err.println("binary reports are disabled, close " + socket.getRemoteSocketAddress());
+						break;
+					}
+					int load = ReportEventBus.getLoad();
+					long retryAfter = CollectorService.retryAfter(load);
+					if (load >= CollectorCfg.LOAD_REJECT) {
+						out.write(FrameCodec.encodeAck(-1, 0, load, retryAfter));
+					} else {
+						int rejected = parser.getRejected();
+						ReportBatch batch = FrameCodec.decodeReports(body, parser);
+						int fired = ClusterManager.getInstance().fireBatch(batch);
+						if (fired == ClusterManager.BATCH_BUSY) {
+							out.write(FrameCodec.encodeAck(-1, 0, load, retryAfter));
+						} else if (fired == ClusterManager.BATCH_DUPLICATE) {
+							out.write(FrameCodec.encodeAck(0, 0, load, retryAfter));
+						} else {
+							out.write(FrameCodec.encodeAck(fired, parser.getRejected() - rejected + batch.size() - fired, load, retryAfter));
+						}
+					}
+					out.flush();
+				}
+				idleSince = System.currentTimeMillis();
+			}
+		} catch (EOFException e) {
+			// 对端关闭
+		} catch (IOException e) {
+			System.err.println("forward connection " + socket.getRemoteSocketAddress() + " fail E:" + e.getMessage());
+		} finally {
+			readers.remove(socket);
+			try {
+				socket.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+}
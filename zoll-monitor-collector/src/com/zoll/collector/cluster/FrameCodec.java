@@ -0,0 +1,225 @@
+package com.zoll.collector.cluster;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.zoll.collector.listener.IEventListener;
+import com.zoll.collector.listener.ReportEvent;
+import com.zoll.collector.parser.LineProtocolParser;
+
+/**
+ * 二进制帧格式, 与RPC模块一致为 type(int) + length(int) + body, 大端;
+ * 
+ * <pre>
+ * TYPE_EVENTS  实例间转发: 事件数(int), 每个事件: dataType(UTF) 时间(long) 参数个数(short) [name(UTF) value(UTF)]*
+ * TYPE_REPORTS 上报端批量上报: 上报端ID(UTF) 批次序号(long) 时间(long) 行数(int),
+ *              每行: 序列长度(short) 序列(与行协议相同的 dataType[,tag=value]*) count(long) countType(byte)
+ * TYPE_ACK     对TYPE_REPORTS的应答: accepted(int) rejected(int) 负载百分比(int) 建议暂停时间(int, 毫秒), accepted为-1表示过载未处理
+ * </pre>
+ * 
+ * @date 2026年10月19日 上午3:23:25
+ * 
+ * @project zoll-monitor-collector
+ * 
+ */
+public class FrameCodec {
+	/** 帧头长度 */
+	public static final int HEAD_LENGTH = 8;
+	/** 一批上报事件 */
+	public static final int TYPE_EVENTS = 1;
+	/** 上报端的一批聚合数据 */
+	public static final int TYPE_REPORTS = 2;
+	/** 上报应答 */
+	public static final int TYPE_ACK = 3;
+	/** UTF字段和参数个数的上限 */
+	private static final int MAX_UTF_LENGTH = 0xFFFF;
+
+	/**
+	 * 把一批事件编码成一帧; 字段超过UTF编码长度上限的事件跳过, 不影响同一帧中的其他事件;
+	 * 
+	 * @param events
+	 * @param out
+	 *            复用的缓冲区
+	 * @param skipped
+	 *            收集跳过的事件
+	 * @return
+	 * @throws IOException
+	 */
+	public static byte[] encodeEvents(List<ReportEvent> events, ByteArrayOutputStream out, List<ReportEvent> skipped) throws IOException {
+		out.reset();
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(TYPE_EVENTS);
+		data.writeInt(0);
+		data.writeInt(0);
+		int count = 0;
+		for (ReportEvent event : events) {
+			// writeUTF超长时才抛异常, 那时事件的前几个字段已经写出, 所以先整体检查
+			if (!isEncodable(event)) {
+				skipped.add(event);
+				continue;
+			}
+			count++;
+			data.writeUTF(event.getDataType());
+			data.writeLong(event.getTime());
+			Map<String, String> datas = event.getDatas();
+			if (datas == null) {
+				data.writeShort(0);
+				continue;
+			}
+			data.writeShort(datas.size());
+			for (Entry<String, String> entry : datas.entrySet()) {
+				data.writeUTF(entry.getKey());
+				data.writeUTF(entry.getValue() == null ? "" : entry.getValue());
+			}
+		}
+		data.flush();
+		byte[] frame = out.toByteArray();
+		writeInt(frame, 4, frame.length - HEAD_LENGTH);
+		writeInt(frame, HEAD_LENGTH, count);
+		return frame;
+	}
+
+	private static boolean isEncodable(ReportEvent event) {
+		if (event.getDataType() == null || utfLength(event.getDataType()) > MAX_UTF_LENGTH) {
+			return false;
+		}
+		Map<String, String> datas = event.getDatas();
+		if (datas == null) {
+			return true;
+		}
+		if (datas.size() > MAX_UTF_LENGTH) {
+			return false;
+		}
+		for (Entry<String, String> entry : datas.entrySet()) {
+			if (utfLength(entry.getKey()) > MAX_UTF_LENGTH || (entry.getValue() != null && utfLength(entry.getValue()) > MAX_UTF_LENGTH)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * {@link DataOutputStream#writeUTF(String)} 的编码长度, 只用于和上限比较: 不可能超限的短字符串直接返回字符数, 超过上限后不再累加;
+	 */
+	private static int utfLength(String s) {
+		// 每个字符最多3字节, 短字符串不用逐个计算
+		if (s.length() * 3 <= MAX_UTF_LENGTH) {
+			return s.length();
+		}
+		int length = 0;
+		for (int i = 0; i < s.length() && length <= MAX_UTF_LENGTH; i++) {
+			char c = s.charAt(i);
+			if (c >= 0x0001 && c <= 0x007F) {
+				length++;
+			} else if (c > 0x07FF) {
+				length += 3;
+			} else {
+				length += 2;
+			}
+		}
+		return length;
+	}
+
+	private static void writeInt(byte[] buf, int offset, int value) {
+		buf[offset] = (byte) (value >>> 24);
+		buf[offset + 1] = (byte) (value >>> 16);
+		buf[offset + 2] = (byte) (value >>> 8);
+		buf[offset + 3] = (byte) value;
+	}
+
+	/**
+	 * 解码一帧的body;
+	 * 
+	 * @param body
+	 * @param listener
+	 * @throws IOException
+	 */
+	public static void decodeEvents(byte[] body, IEventListener listener) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			ReportEvent event = new ReportEvent(in.readUTF());
+			event.setTime(in.readLong());
+			int size = in.readShort() & 0xFFFF;
+			Map<String, String> datas = new HashMap<String, String>(size * 2);
+			for (int j = 0; j < size; j++) {
+				datas.put(in.readUTF(), in.readUTF());
+			}
+			event.setDatas(datas);
+			listener.onEvent(event);
+		}
+	}
+
+	/**
+	 * 解码上报端的一帧body, 序列部分直接在body上解析, 不复制; 整帧解码完才返回, 去重和分发交给 {@link ClusterManager#fireBatch(ReportBatch)};
+	 * 
+	 * @param body
+	 * @param parser
+	 *            统计accepted和rejected
+	 * @return
+	 * @throws IOException
+	 */
+	public static ReportBatch decodeReports(byte[] body, LineProtocolParser parser) throws IOException {
+		ByteBuffer in = ByteBuffer.wrap(body);
+		String reporterId;
+		long seq;
+		long time;
+		try {
+			int idLength = in.getShort() & 0xFFFF;
+			reporterId = new String(body, in.position(), idLength, "UTF-8");
+			in.position(in.position() + idLength);
+			seq = in.getLong();
+			time = in.getLong();
+		} catch (RuntimeException e) {
+			throw new IOException("truncated report frame");
+		}
+		List<ReportEvent> events;
+		try {
+			int count = in.getInt();
+			events = new ArrayList<ReportEvent>(Math.max(0, Math.min(count, in.remaining() / 11)));
+			for (int i = 0; i < count; i++) {
+				int length = in.getShort() & 0xFFFF;
+				int from = in.position();
+				in.position(from + length);
+				ReportEvent event = parser.parseEvent(body, from, from + length, in.getLong(), in.get());
+				if (event != null) {
+					event.setTime(time);
+					events.add(event);
+				}
+			}
+		} catch (BufferUnderflowException e) {
+			throw new IOException("truncated report frame");
+		} catch (IllegalArgumentException e) {
+			throw new IOException("truncated report frame");
+		}
+		return new ReportBatch(reporterId, seq, events);
+	}
+
+	/**
+	 * 上报应答帧;
+	 * 
+	 * @param accepted
+	 *            -1表示过载, 整批未处理
+	 * @param rejected
+	 * @param load
+	 *            负载百分比
+	 * @param retryAfter
+	 *            建议暂停时间(毫秒)
+	 * @return
+	 */
+	public static byte[] encodeAck(int accepted, int rejected, int load, long retryAfter) {
+		ByteBuffer frame = ByteBuffer.allocate(HEAD_LENGTH + 16);
+		frame.putInt(TYPE_ACK).putInt(16).putInt(accepted).putInt(rejected).putInt(load).putInt((int) retryAfter);
+		return frame.array();
+	}
+}
@@ -0,0 +1,70 @@
+package com.zoll.collector.cluster;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * 一致性哈希环, 每个节点在环上放置若干虚拟节点, 增减节点时只有相邻区间的dataType会迁移;
+ * 
+ * @date 2026年10月19日 上午3:23:25
+ * 
+ * @project zoll-monitor-collector
+ * 
+ */
+public class HashRing {
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final TreeMap<Long, ClusterNode> ring = new TreeMap<Long, ClusterNode>();
+
+	public HashRing(List<ClusterNode> nodes, int virtualNodes) {
+		for (ClusterNode node : nodes) {
+			for (int i = 0; i < virtualNodes; i++) {
+				ring.put(hash(node.getName() + "#" + i), node);
+			}
+		}
+	}
+
+	/**
+	 * 负责该key的节点;
+	 * 
+	 * @param key
+	 * @return
+	 */
+	public ClusterNode nodeFor(String key) {
+		if (ring.isEmpty()) {
+			return null;
+		}
+		SortedMap<Long, ClusterNode> tail = ring.tailMap(hash(key));
+		return tail.isEmpty() ? ring.firstEntry().getValue() : tail.get(tail.firstKey());
+	}
+
+	public Map<Long, ClusterNode> getRing() {
+		return ring;
+	}
+
+	/**
+	 * 取MD5的前8个字节, 分布比 String.hashCode 均匀;
+	 * 
+	 * @param key
+	 * @return
+	 */
+	static long hash(String key) {
+		MessageDigest md5;
+		try {
+			md5 = MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+		byte[] digest = md5.digest(key.getBytes(UTF8));
+		long h = 0;
+		for (int i = 0; i < 8; i++) {
+			h = (h << 8) | (digest[i] & 0xFF);
+		}
+		return h;
+	}
+}
@@ -0,0 +1,43 @@
+package com.zoll.collector.cluster;
+
+import java.util.List;
+
+import com.zoll.collector.listener.ReportEvent;
+
+/**
+ * 上报端的一个批次, 整批解析完后再去重和分发;
+ * 
+ * @date 2026年10月19日 上午5:06:40
+ * 
+ * @project zoll-monitor-collector
+ * 
+ */
+public class ReportBatch {
+	/** 上报端ID, 为空时不去重 */
+	private final String reporterId;
+	/** 批次序号, 小于0时不去重 */
+	private final long seq;
+	private final List<ReportEvent> events;
+
+	public ReportBatch(String reporterId, long seq, List<ReportEvent> events) {
+		this.reporterId = reporterId;
+		this.seq = seq;
+		this.events = events;
+	}
+
+	public String getReporterId() {
+		return reporterId;
+	}
+
+	public long getSeq() {
+		return seq;
+	}
+
+	public List<ReportEvent> getEvents() {
+		return events;
+	}
+
+	public int size() {
+		return events.size();
+	}
+}
@@ -22,12 +22,36 @@ public class CollectorCfg {
 	public static final String DB_USER =  "root";
 
 	public static final String DB_PWD =  "";
+
+	/** 落地到MySQL */
+	public static final int SINK_MYSQL = 1;
+	/** 落地到嵌入式时序存储 */
+	public static final int SINK_TIME_SERIES = 2;
+	/** 数据落地方式 */
+	public static final int SINK_TYPE = Integer.getInteger("collector.sink", SINK_MYSQL);
+	/** 时序存储目录 */
+	public static final String TSDB_DIR = System.getProperty("collector.tsdb.dir", "tsdb");
+	/** 时序存储数据块大小 */
+	public static final int TSDB_CHUNK_SIZE = 1024;
+	/** 时序存储段文件大小 */
+	public static final int TSDB_SEGMENT_SIZE = 16 * 1024 * 1024;
 	
 	/** 数据库连接池最小个数 */
 	public static final int CONNECTION_POOL_MIN_SIZE = 3;
 	/** 数据库连接池最大个数 */
 	public static final int CONNECTION_POOL_MAX_SIZE = 6;
 	
+	/** 连接池无可用连接时的最长等待时间(毫秒) */
+	public static final long CONNECTION_TIMEOUT = 30 * 1000;
+	/** 超过最小个数的连接空闲多久后关闭(毫秒) */
+	public static final long CONNECTION_IDLE_TIMEOUT = 60 * 1000;
+	/** 空闲超过该时间的连接借出前先检查是否有效(毫秒) */
+	public static final long CONNECTION_VALIDATE_IDLE = 30 * 1000;
+	/** 借出超过该时间未归还视为疑似泄漏(毫秒), 0表示不检测 */
+	public static final long CONNECTION_LEAK_THRESHOLD = 60 * 1000;
+	/** 连接池收缩和泄漏检测的间隔(毫秒) */
+	public static final long CONNECTION_HOUSEKEEP_INTERVAL = 30 * 1000;
+	
 	/** 连接为有效状态 */
 	public static final int CONNECTION_AVAILABLE = 0;
 	/** 连接为无效状态(被其他线程获取) */
@@ -35,7 +59,113 @@ public class CollectorCfg {
 	
 	/** HTTP服务端线程数量 */
 	public static final int HTTP_SERVER_THREAD_SIZE = 6;
+	/** HTTP服务端I/O线程数量 */
+	public static final int HTTP_IO_THREAD_SIZE = Math.max(2, Runtime.getRuntime().availableProcessors());
+	/** 处理批量上报等耗时请求的工作线程数量 */
+	public static final int HTTP_WORKER_THREAD_SIZE = Math.max(2, Runtime.getRuntime().availableProcessors());
+	/** 等待工作线程处理的请求数, 超出时直接应答503 */
+	public static final int HTTP_WORKER_QUEUE_SIZE = 1024;
+	/** 工作线程处理的请求, 已收到未解析的请求体超过该大小时暂停读取 */
+	public static final int HTTP_BODY_BUFFER_SIZE = 256 * 1024;
+	/** HTTP连接读缓冲区初始大小 */
+	public static final int HTTP_READ_BUFFER_SIZE = 8 * 1024;
+	/** 单个HTTP请求(含请求体)的最大长度 */
+	public static final int HTTP_MAX_REQUEST_SIZE = 4 * 1024 * 1024;
+	/** 上报端二进制帧的监听端口, 默认0不监听, 小于0时取HTTP端口-1; 集群模式下由集群转发端口接收, 不另外监听 */
+	public static final int BINARY_PORT = Integer.getInteger("collector.binary.port", 0);
+	/** 批量上报中单行的最大长度, 超长的行会被丢弃 */
+	public static final int BULK_MAX_LINE_LENGTH = 4 * 1024;
+
+	/** 事件分发线程数量, 同一dataType固定在一个线程上 */
+	public static final int EVENT_DISPATCH_THREAD_SIZE = 4;
+	/** 每个事件分发线程的队列长度 */
+	public static final int EVENT_QUEUE_SIZE = 64 * 1024;
+	/** 负载(最满的分发队列的占用百分比)超过该值时, 应答中建议上报端暂停 */
+	public static final int LOAD_HIGH = 70;
+	/** 负载超过该值时拒绝整批上报, 由上报端稍后重试 */
+	public static final int LOAD_REJECT = 95;
+	/** 负载达到100时建议上报端暂停的时间(毫秒), 在 LOAD_HIGH 和 100 之间线性增长 */
+	public static final long LOAD_RETRY_AFTER = 5000;
 
 	/** DB线程I/O操作的间歇时间 */
 	public static final long DB_TICK_TIME = 300;
+	/** 每条insert最多合并的行数 */
+	public static final int DB_BATCH_SIZE = 1000;
+	/** 每个DB线程最多积压的待写行数, 写入持续失败超出时丢弃最早的insert */
+	public static final int DB_MAX_PENDING_ROWS = 100 * 1000;
+
+	/** 运行时配置文件, 见 {@link CollectorConfig} */
+	public static final String CONFIG_FILE = "config.xml";
+	/** 检查配置文件是否修改的间隔(毫秒) */
+	public static final long CONFIG_CHECK_INTERVAL = 5000;
+
+	/** 不分区 */
+	public static final int PARTITION_NONE = 0;
+	/** 按天分区 */
+	public static final int PARTITION_BY_DAY = 1;
+	/** 按小时分区 */
+	public static final int PARTITION_BY_HOUR = 2;
+	/** 自动建表时对createTime的分区方式 */
+	public static final int PARTITION_MODE = PARTITION_BY_DAY;
+	/** 提前创建的分区个数 */
+	public static final int PARTITION_PRECREATE = 3;
+	/** 检查并补建分区的间隔(毫秒) */
+	public static final long PARTITION_CHECK_INTERVAL = 10 * 60 * 1000;
+
+	/** 内存预聚合窗口长度(毫秒)的默认值, 每个序列每个窗口只落一行, 可在 config.xml 的 aggregate.window 中修改 */
+	public static final long AGGREGATE_WINDOW = 10 * 1000;
+	/** 窗口结束后等待迟到数据的时间(毫秒)的默认值, 可在 config.xml 的 aggregate.flushDelay 中修改 */
+	public static final long AGGREGATE_FLUSH_DELAY = 1000;
+	/** 每个dataType每个窗口默认的序列数上限, 超出的新序列合并到溢出序列中 */
+	public static final int AGGREGATE_MAX_SERIES = 10000;
+	/** 单独统计上报速率和采样速率的dataType个数上限, 超出的和名称不合法的合并计入 ingest.other 和 sampled.other */
+	public static final int METRICS_MAX_DATA_TYPES = 1000;
+	/** 上报端时间戳最多允许超前采集端的时间(毫秒), 超出时以采集端时间为准 */
+	public static final long MAX_CLOCK_SKEW = 60 * 1000;
+	/** 上报端时间戳最多允许落后采集端的时间(毫秒), 超出的事件丢弃并计数; 不应超过 RETENTION_RAW, 更早的数据落库后马上会被清理, 也会让降采样重算很久以前的桶 */
+	public static final long MAX_EVENT_LAG = 3 * 24 * 3600 * 1000L;
+	/** 去重计数的HyperLogLog精度, 2^p个寄存器, 标准误差约 1.04/sqrt(2^p) */
+	public static final int DISTINCT_PRECISION = 12;
+	/** 已落库窗口的去重计数在内存中保留的时间(毫秒), 期间的迟到数据合并后重新落库, 更早的迟到数据不再计入去重计数 */
+	public static final long DISTINCT_RETAIN_TIME = 10 * 60 * 1000;
+
+	/** 降采样任务的执行间隔(毫秒) */
+	public static final long ROLLUP_INTERVAL = 60 * 1000;
+	/** 降采样只处理结束超过该时间的桶, 给预聚合和DB批量写入留出余量(毫秒) */
+	public static final long ROLLUP_LAG = 60 * 1000;
+	/** 原始数据保留时间(毫秒), 0表示永久保留 */
+	public static final long RETENTION_RAW = 3 * 24 * 3600 * 1000L;
+	/** 分钟汇总保留时间(毫秒) */
+	public static final long RETENTION_MINUTE = 30 * 24 * 3600 * 1000L;
+	/** 小时汇总保留时间(毫秒) */
+	public static final long RETENTION_HOUR = 365 * 24 * 3600 * 1000L;
+	/** 天汇总保留时间(毫秒) */
+	public static final long RETENTION_DAY = 0;
+	/** 过期数据每次删除的最大行数 */
+	public static final int RETENTION_DELETE_BATCH = 10000;
+
+	/** 集群中每个实例在哈希环上的虚拟节点数 */
+	public static final int CLUSTER_VIRTUAL_NODES = 160;
+	/** 向每个实例转发的队列长度 */
+	public static final int CLUSTER_FORWARD_QUEUE_SIZE = 64 * 1024;
+	/** 转发时每帧最多包含的事件数 */
+	public static final int CLUSTER_FORWARD_BATCH = 512;
+	/** 转发连接断开后的重连间隔(毫秒) */
+	public static final long CLUSTER_RECONNECT_INTERVAL = 1000;
+	/** 转发失败的事件重连后最多重发的次数, 超过后丢弃并计数 */
+	public static final int CLUSTER_FORWARD_RETRIES = 3;
+	/** 二进制帧接收端同时保持的最大连接数, 超出的连接接受后立即关闭 */
+	public static final int FORWARD_MAX_CONNECTIONS = 256;
+	/** 二进制帧接收端的读超时(毫秒), 一帧收到一半后超时即断开 */
+	public static final int FORWARD_READ_TIMEOUT = 30 * 1000;
+	/** 二进制帧连接在帧之间空闲超过该时间(毫秒)后由接收端断开; 转发端空闲超过一半时先自行重连, 避免写到已被断开的连接上 */
+	public static final long FORWARD_IDLE_TIMEOUT = 5 * 60 * 1000L;
+
+	/** 停服时每个环节(停止接收, 分发, 转发, 落库)最长等待时间(毫秒) */
+	public static final long SHUTDOWN_TIMEOUT = 10 * 1000;
+
+	/** 每个上报端记住的最近批次序号个数(滑动位图的位数), 重试和回放落在其中的批次可以去重 */
+	public static final int DEDUP_WINDOW = 64 * 1024;
+	/** 上报端超过该时间(毫秒)没有上报时丢弃它的去重状态 */
+	public static final long DEDUP_IDLE_TIME = 3600 * 1000L;
 }
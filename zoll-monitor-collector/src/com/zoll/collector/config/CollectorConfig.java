@@ -0,0 +1,247 @@
+package com.zoll.collector.config;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.AbstractFileConfiguration;
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.configuration.ConversionException;
+import org.apache.commons.configuration.HierarchicalConfiguration;
+import org.apache.commons.configuration.XMLConfiguration;
+import org.apache.commons.configuration.event.ConfigurationEvent;
+import org.apache.commons.configuration.event.ConfigurationListener;
+import org.apache.commons.configuration.reloading.FileChangedReloadingStrategy;
+
+/**
+ * 运行时可调整的配置, 从 config.xml 加载, 文件修改后自动重新加载并通知 {@link IConfigListener};
+ * 
+ * 未配置的项使用 {@link CollectorCfg} 中的默认值; 文件位置可通过 -Dcollector.config 指定, 默认从classpath查找;
+ * 
+ * 预聚合窗口只在启动时读取一次, 修改后重启生效; 任何一项无法解析时整次加载都不生效, 保留之前的配置;
+ * 
+ * @date 2026年10月19日 上午3:25:45
+ * 
+ * @project zoll-monitor-collector
+ * 
+ */
+public class CollectorConfig {
+	private static CollectorConfig instance = new CollectorConfig();
+
+	private XMLConfiguration xml;
+	private List<IConfigListener> listeners = new CopyOnWriteArrayList<IConfigListener>();
+
+	/** DB线程数量 */
+	private volatile int writerThreads = CollectorCfg.HTTP_SERVER_THREAD_SIZE;
+	/** 每条insert最多合并的行数 */
+	private volatile int batchSize = CollectorCfg.DB_BATCH_SIZE;
+	/** DB线程I/O操作的间歇时间 */
+	private volatile long lingerTime = CollectorCfg.DB_TICK_TIME;
+	/** 每个DB线程最多积压的待写行数 */
+	private volatile int maxPendingRows = CollectorCfg.DB_MAX_PENDING_ROWS;
+	/** 数据库连接池最小个数 */
+	private volatile int poolMinSize = CollectorCfg.CONNECTION_POOL_MIN_SIZE;
+	/** 数据库连接池最大个数 */
+	private volatile int poolMaxSize = CollectorCfg.CONNECTION_POOL_MAX_SIZE;
+	/** 预聚合窗口长度(毫秒) */
+	private long aggregateWindow = CollectorCfg.AGGREGATE_WINDOW;
+	/** 窗口结束后等待迟到数据的时间(毫秒) */
+	private long aggregateFlushDelay = CollectorCfg.AGGREGATE_FLUSH_DELAY;
+	/** 未单独配置的dataType使用的接入限制 */
+	private volatile IngestRule defaultIngestRule = new IngestRule(1, CollectorCfg.AGGREGATE_MAX_SERIES, new HashSet<String>());
+	/** dataType -> 接入限制 */
+	private volatile Map<String, IngestRule> ingestRules = Collections.emptyMap();
+
+	private CollectorConfig() {
+		String path = System.getProperty("collector.config", CollectorCfg.CONFIG_FILE);
+		try {
+			xml = new XMLConfiguration(path);
+		} catch (ConfigurationException e) {
+			System.err.println("load " + path + " fail, use default config E:" + e.getMessage());
+			return;
+		}
+		loadAggregate();
+		if (!apply()) {
+			System.err.println("use default config");
+		}
+		FileChangedReloadingStrategy strategy = new FileChangedReloadingStrategy();
+		strategy.setRefreshDelay(CollectorCfg.CONFIG_CHECK_INTERVAL);
+		xml.setReloadingStrategy(strategy);
+		xml.addConfigurationListener(new ConfigurationListener() {
+			@Override
+			public void configurationChanged(ConfigurationEvent event) {
+				if (event.getType() == AbstractFileConfiguration.EVENT_RELOAD && !event.isBeforeUpdate()) {
+					if (!apply()) {
+						return;
+					}
+					System.out.println("config reloaded : " + CollectorConfig.this);
+					for (IConfigListener listener : listeners) {
+						try {
+							listener.onReload(CollectorConfig.this);
+						} catch (Exception e) {
+							e.printStackTrace();
+						}
+					}
+				}
+			}
+		});
+		ScheduledExecutorService watcher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r);
+				t.setName("Config-Watcher");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		watcher.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				// 读取任意配置项时, 重新加载策略会检查文件是否修改
+				xml.getString("db.writerThreads");
+			}
+		}, CollectorCfg.CONFIG_CHECK_INTERVAL, CollectorCfg.CONFIG_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+	}
+
+	public static CollectorConfig getInstance() {
+		return instance;
+	}
+
+	public void addListener(IConfigListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * 预聚合窗口需要整除一分钟或是一分钟的整数倍, 窗口才不会跨越降采样的分钟桶;
+	 */
+	private void loadAggregate() {
+		long window;
+		long flushDelay;
+		try {
+			window = xml.getLong("aggregate.window", CollectorCfg.AGGREGATE_WINDOW);
+			flushDelay = xml.getLong("aggregate.flushDelay", CollectorCfg.AGGREGATE_FLUSH_DELAY);
+		} catch (ConversionException e) {
+			System.err.println("illegal aggregate config, use default E:" + e.getMessage());
+			return;
+		}
+		if (window < 1000 || (60 * 1000 % window != 0 && window % (60 * 1000) != 0)) {
+			System.err.println("illegal aggregate.window " + window + ", use " + CollectorCfg.AGGREGATE_WINDOW);
+			window = CollectorCfg.AGGREGATE_WINDOW;
+		}
+		aggregateWindow = window;
+		aggregateFlushDelay = Math.max(0, flushDelay);
+	}
+
+	/**
+	 * 先把所有配置项解析到局部变量, 全部成功后才一起生效, 不会出现只更新了一部分的配置;
+	 * 
+	 * @return 是否生效, 有无法解析的配置项时记录该项并返回false
+	 */
+	private boolean apply() {
+		int newWriterThreads;
+		int newBatchSize;
+		long newLingerTime;
+		int newMaxPendingRows;
+		int newPoolMaxSize;
+		int newPoolMinSize;
+		int maxSeries;
+		Map<String, IngestRule> rules = new HashMap<String, IngestRule>();
+		try {
+			newWriterThreads = Math.max(1, xml.getInt("db.writerThreads", CollectorCfg.HTTP_SERVER_THREAD_SIZE));
+			newBatchSize = Math.max(1, xml.getInt("db.batchSize", CollectorCfg.DB_BATCH_SIZE));
+			newLingerTime = Math.max(0, xml.getLong("db.lingerTime", CollectorCfg.DB_TICK_TIME));
+			newMaxPendingRows = Math.max(1, xml.getInt("db.maxPendingRows", CollectorCfg.DB_MAX_PENDING_ROWS));
+			newPoolMaxSize = Math.max(1, xml.getInt("pool.maxSize", CollectorCfg.CONNECTION_POOL_MAX_SIZE));
+			newPoolMinSize = Math.min(newPoolMaxSize, Math.max(0, xml.getInt("pool.minSize", CollectorCfg.CONNECTION_POOL_MIN_SIZE)));
+
+			maxSeries = xml.getInt("ingest.maxSeries", CollectorCfg.AGGREGATE_MAX_SERIES);
+			for (HierarchicalConfiguration type : xml.configurationsAt("ingest.type")) {
+				String name = type.getString("[@name]");
+				if (name == null || name.isEmpty()) {
+					continue;
+				}
+				Set<String> distinctFields = new HashSet<String>();
+				for (String field : type.getStringArray("distinct")) {
+					if (!field.trim().isEmpty()) {
+						distinctFields.add(field.trim());
+					}
+				}
+				try {
+					rules.put(name, new IngestRule(type.getDouble("[@sampleRate]", 1), type.getInt("[@maxSeries]", maxSeries), distinctFields));
+				} catch (ConversionException e) {
+					// 属性的key是相对路径, 补上是哪个dataType
+					throw new ConversionException("ingest.type " + name + " " + e.getMessage(), e);
+				}
+			}
+		} catch (ConversionException e) {
+			System.err.println("reject config reload, keep previous config E:" + e.getMessage());
+			return false;
+		}
+
+		writerThreads = newWriterThreads;
+		batchSize = newBatchSize;
+		lingerTime = newLingerTime;
+		maxPendingRows = newMaxPendingRows;
+		poolMaxSize = newPoolMaxSize;
+		poolMinSize = newPoolMinSize;
+		defaultIngestRule = new IngestRule(1, maxSeries, new HashSet<String>());
+		ingestRules = rules;
+		return true;
+	}
+
+	public int getWriterThreads() {
+		return writerThreads;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public long getLingerTime() {
+		return lingerTime;
+	}
+
+	public int getMaxPendingRows() {
+		return maxPendingRows;
+	}
+
+	public long getAggregateWindow() {
+		return aggregateWindow;
+	}
+
+	public long getAggregateFlushDelay() {
+		return aggregateFlushDelay;
+	}
+
+	public int getPoolMinSize() {
+		return poolMinSize;
+	}
+
+	public int getPoolMaxSize() {
+		return poolMaxSize;
+	}
+
+	/**
+	 * dataType的接入限制, 未配置时返回默认限制;
+	 * 
+	 * @param dataType
+	 * @return
+	 */
+	public IngestRule getIngestRule(String dataType) {
+		IngestRule rule = ingestRules.get(dataType);
+		return rule == null ? defaultIngestRule : rule;
+	}
+
+	@Override
+	public String toString() {
+		return "aggregateWindow=" + aggregateWindow + ", writerThreads=" + writerThreads + ", batchSize=" + batchSize + ", lingerTime=" + lingerTime + ", maxPendingRows=" + maxPendingRows + ", poolMinSize=" + poolMinSize + ", poolMaxSize=" + poolMaxSize + ", ingest=" + ingestRules;
+	}
+}
@@ -0,0 +1,13 @@
+package com.zoll.collector.config;
+
+/**
+ * 配置重新加载后的回调;
+ * 
+ * @date 2026年10月19日 上午3:25:45
+ * 
+ * @project zoll-monitor-collector
+ * 
+ */
+public interface IConfigListener {
+	public void onReload(CollectorConfig config);
+}
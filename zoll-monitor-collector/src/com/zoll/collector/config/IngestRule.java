@@ -0,0 +1,48 @@
+package com.zoll.collector.config;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * 单个dataType的接入限制: 采样率, 每个窗口的序列数上限, 按HyperLogLog去重计数的ID字段;
+ * 
+ * @date 2026年10月19日 上午3:29:31
+ * 
+ * @project zoll-monitor-collector
+ * 
+ */
+public class IngestRule {
+	/** 保留的比例, 1表示不采样 */
+	private final double sampleRate;
+	/** 每个预聚合窗口内的序列数上限 */
+	private final int maxSeries;
+	/** 不作为维度标签, 只统计不同值个数的字段 */
+	private final Set<String> distinctFields;
+
+	public IngestRule(double sampleRate, int maxSeries, Set<String> distinctFields) {
+		this.sampleRate = Math.max(0, Math.min(1, sampleRate));
+		this.maxSeries = Math.max(1, maxSeries);
+		this.distinctFields = Collections.unmodifiableSet(distinctFields);
+	}
+
+	public double getSampleRate() {
+		return sampleRate;
+	}
+
+	public boolean isSampled() {
+		return sampleRate < 1;
+	}
+
+	public int getMaxSeries() {
+		return maxSeries;
+	}
+
+	public Set<String> getDistinctFields() {
+		return distinctFields;
+	}
+
+	@Override
+	public String toString() {
+		return "sampleRate=" + sampleRate + ", maxSeries=" + maxSeries + ", distinct=" + distinctFields;
+	}
+}
@@ -0,0 +1,168 @@
+package com.zoll.collector.database;
+
+/**
+ * 自动建表时的列类型, 按能容纳的值从窄到宽排列;
+ *
+ * @date 2026年10月19日 上午3:10:31
+ *
+ * @project zoll-monitor-collector
+ *
+ */
+public enum ColumnType {
+	INT("int", 0),
+	BIGINT("bigint", 0),
+	DOUBLE("double", 0),
+	/** double只有53位有效位, 同时出现bigint和小数时用decimal, 能精确存下任意bigint和 {@link #infer(String)} 认作小数的值 */
+	DECIMAL("decimal(65,30)", 0),
+	SHORT_STRING("varchar(32)", 32),
+	STRING("varchar(255)", 255),
+	TEXT("text", Integer.MAX_VALUE),
+	;
+
+	private final String ddl;
+	/** 字符串类型的最大长度 */
+	private final int maxLength;
+
+	private ColumnType(String ddl, int maxLength) {
+		this.ddl = ddl;
+		this.maxLength = maxLength;
+	}
+
+	public String getDdl() {
+		return ddl;
+	}
+
+	public boolean isNumeric() {
+		return maxLength == 0;
+	}
+
+	/**
+	 * 该类型能否直接存下这个值;
+	 *
+	 * @param value
+	 * @return
+	 */
+	public boolean accepts(String value) {
+		if (!isNumeric()) {
+			return value.length() <= maxLength;
+		}
+		ColumnType type = infer(value);
+		return type == null || widen(type) == this;
+	}
+
+	/**
+	 * 两种类型都能容纳的最窄类型;
+	 *
+	 * @param other
+	 * @return
+	 */
+	public ColumnType widen(ColumnType other) {
+		ColumnType wider = other.ordinal() > ordinal() ? other : this;
+		ColumnType narrower = wider == this ? other : this;
+		if (wider == DOUBLE && narrower == BIGINT) {
+			return DECIMAL;
+		}
+		// decimal(65,30)转成字符串最长67个字符
+		if (wider == SHORT_STRING && narrower == DECIMAL) {
+			return STRING;
+		}
+		return wider;
+	}
+
+	/**
+	 * 根据值推断最窄的类型;
+	 *
+	 * @param value
+	 * @return 空值不提供类型信息, 返回null, 任何列都能存(数值列存为NULL)
+	 */
+	public static ColumnType infer(String value) {
+		if (value == null || value.isEmpty()) {
+			return null;
+		}
+		if (isInteger(value)) {
+			if (value.length() < 10) {
+				return INT;
+			}
+			try {
+				long l = Long.parseLong(value);
+				return l >= Integer.MIN_VALUE && l <= Integer.MAX_VALUE ? INT : BIGINT;
+			} catch (NumberFormatException e) {
+				return ofString(value);
+			}
+		}
+		if (isDecimal(value)) {
+			return DOUBLE;
+		}
+		return ofString(value);
+	}
+
+	/**
+	 * 根据 information_schema.columns 的 data_type 和 character_maximum_length 还原类型;
+	 *
+	 * @param dataType
+	 * @param maxLength
+	 * @return
+	 */
+	public static ColumnType fromSchema(String dataType, long maxLength) {
+		String type = dataType.toLowerCase();
+		if ("int".equals(type) || "tinyint".equals(type) || "smallint".equals(type) || "mediumint".equals(type)) {
+			return INT;
+		}
+		if ("bigint".equals(type)) {
+			return BIGINT;
+		}
+		if ("double".equals(type) || "float".equals(type)) {
+			return DOUBLE;
+		}
+		if ("decimal".equals(type)) {
+			return DECIMAL;
+		}
+		if ("varchar".equals(type) || "char".equals(type)) {
+			return maxLength <= SHORT_STRING.maxLength ? SHORT_STRING : maxLength <= STRING.maxLength ? STRING : TEXT;
+		}
+		return TEXT;
+	}
+
+	private static ColumnType ofString(String value) {
+		if (value.length() <= SHORT_STRING.maxLength) {
+			return SHORT_STRING;
+		}
+		return value.length() <= STRING.maxLength ? STRING : TEXT;
+	}
+
+	private static boolean isInteger(String value) {
+		int i = value.charAt(0) == '-' ? 1 : 0;
+		if (i == value.length() || value.length() - i > 19) {
+			return false;
+		}
+		// 有前导0的当作字符串, 避免 "007" 之类的编号被转成数字
+		if (value.charAt(i) == '0' && value.length() - i > 1) {
+			return false;
+		}
+		for (; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c < '0' || c > '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isDecimal(String value) {
+		int dot = value.indexOf('.');
+		if (dot <= 0 || dot == value.length() - 1 || value.length() > 24) {
+			return false;
+		}
+		return isInteger(value.substring(0, dot)) && isDigits(value, dot + 1);
+	}
+
+	private static boolean isDigits(String value, int from) {
+		for (int i = from; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c < '0' || c > '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -1,19 +1,28 @@
 package com.zoll.collector.database;
 
 import java.sql.Connection;
-import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.Date;
-import java.util.Iterator;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
 
 import org.apache.commons.lang.time.DateFormatUtils;
 
-import com.zoll.collector.database.pool.HikariPool;
+import com.zoll.collector.aggregate.AggregateManager;
+import com.zoll.collector.config.CollectorCfg;
+import com.zoll.collector.config.CollectorConfig;
+import com.zoll.collector.config.IConfigListener;
+import com.zoll.collector.database.pool.BagPool;
 import com.zoll.collector.database.pool.IConnectionPool;
-import com.zoll.collector.listener.ReportEvent;
+import com.zoll.collector.database.sink.IDataSink;
+import com.zoll.collector.database.sink.MysqlSink;
+import com.zoll.collector.database.sink.TimeSeriesSink;
 
 /**
  * 持久化数据管理器;
@@ -26,22 +35,65 @@ import com.zoll.collector.listener.ReportEvent;
  * 
  */
 public class DBManager {
+	/** LATEST_COUNT 行的序列标识列, 与createTime组成唯一键 */
+	public static final String SERIES_KEY = "seriesKey";
+	/** 同一序列同一时间已有一行时只更新值 */
+	private static final String UPSERT_TAIL = " on duplicate key update count=values(count)";
+
 	private static DBManager instance = new DBManager();
 	/** 数据库连接池 */
 	private IConnectionPool connectionPool;
 
 	/** DB线程管理器 */
 	private DBThreadManager tm = new DBThreadManager();
+	/** 表结构注册表 */
+	private TableSchemaRegistry schemaRegistry = new TableSchemaRegistry();
+	/** 分区维护 */
+	private PartitionManager partitionManager = new PartitionManager();
+	/** 降采样和过期清理 */
+	private RollupManager rollupManager = new RollupManager();
+	/** 是否使用MySQL落地 */
+	private boolean useMysql = CollectorCfg.SINK_TYPE == CollectorCfg.SINK_MYSQL;
+	/** 数据落地方式 */
+	private IDataSink sink;
 
 	private DBManager() {
-		checkConnection();
-		tm.initExecutor();
+		if (useMysql) {
+			checkConnection();
+			schemaRegistry.load(connectionPool);
+			partitionManager.start(schemaRegistry);
+			rollupManager.start(schemaRegistry);
+			tm.initExecutor();
+			sink = new MysqlSink(this);
+			CollectorConfig.getInstance().addListener(new IConfigListener() {
+				@Override
+				public void onReload(CollectorConfig config) {
+					tm.resize(config.getWriterThreads());
+					if (connectionPool instanceof BagPool) {
+						((BagPool) connectionPool).resize(config.getPoolMinSize(), config.getPoolMaxSize());
+					}
+				}
+			});
+		} else {
+			sink = new TimeSeriesSink();
+		}
+		sink.init();
+	}
+
+	/**
+	 * 停服: 等待DB线程写完已缓存的行, 然后关闭数据落地; 调用前应先停止预聚合;
+	 */
+	public void shutdown() {
+		if (useMysql) {
+			tm.shutdown(CollectorCfg.SHUTDOWN_TIMEOUT);
+		}
+		sink.close();
 	}
 
 	public void checkConnection() {
-		if (connectionPool == null) {
-			// 使用 HikariCP 来作为数据库连接池
-			connectionPool = new HikariPool();
+		if (useMysql && connectionPool == null) {
+			// 连接数随DB线程的需求在最小和最大个数之间伸缩
+			connectionPool = new BagPool();
 			connectionPool.initPool();
 		}
 	}
@@ -51,24 +103,13 @@ public class DBManager {
 	}
 
 	/**
-	 * 查询数据库中是否有该表;
+	 * 查询数据库中是否有该表(只查内存中的表结构注册表);
 	 * 
 	 * @param name
 	 * @return
 	 */
 	public boolean hasTable(String name) {
-		ResultSet tables = null;
-		try {
-			checkConnection();
-			DatabaseMetaData metaData = connectionPool.getConnection().getMetaData();
-			tables = metaData.getTables(null, null, name, null);
-			if (tables != null && tables.next()) {
-				return true;
-			}
-		} catch (SQLException e) {
-			e.printStackTrace();
-		}
-		return false;
+		return schemaRegistry.hasTable(name);
 	}
 
 	/**
@@ -78,59 +119,271 @@ public class DBManager {
 	 * @param eventName
 	 */
 	public void insertData(Map<String, String> datas, String eventName) {
-		StringBuilder sb = new StringBuilder();
-		sb.append("insert into " + eventName + " (");
-		Iterator<String> iterator = datas.keySet().iterator();
-		while (iterator.hasNext()) {
-			String column = iterator.next();
-			sb.append(column + ",");
+		insertData(datas, eventName, System.currentTimeMillis());
+	}
+
+	/**
+	 * 插入一条数据, 并指定createTime(预聚合窗口的起始时间);
+	 * 
+	 * @param datas
+	 * @param eventName
+	 * @param createTime
+	 */
+	public void insertData(Map<String, String> datas, String eventName, long createTime) {
+		sink.write(eventName, datas, createTime);
+	}
+
+	/**
+	 * 以insert方式写入MySQL, LATEST_COUNT 的行按 序列+时间 upsert;
+	 * 
+	 * @param datas
+	 * @param eventName
+	 * @param createTime
+	 */
+	public void insertRow(Map<String, String> datas, String eventName, long createTime) {
+		if (!TableSchemaRegistry.isValidName(eventName)) {
+			System.err.println("illegal table name : " + eventName);
+			return;
 		}
-		sb.append("createTime)values(");
-		Iterator<String> iterator2 = datas.keySet().iterator();
-		while (iterator2.hasNext()) {
-			String column = iterator2.next();
-			sb.append("'" + datas.get(column) + "',");
+		Map<String, String> row = new LinkedHashMap<String, String>();
+		for (Entry<String, String> entry : datas.entrySet()) {
+			// id, createTime 和 seriesKey 由采集端维护, 不接受上报值
+			if (TableSchemaRegistry.isValidName(entry.getKey()) && !"id".equalsIgnoreCase(entry.getKey()) && !"createTime".equalsIgnoreCase(entry.getKey()) && !SERIES_KEY.equalsIgnoreCase(entry.getKey())) {
+				row.put(entry.getKey(), entry.getValue() == null ? "" : entry.getValue());
+			}
+		}
+		boolean upsert = String.valueOf(CollectorCfg.LATEST_COUNT).equals(row.get(AggregateManager.COUNT_TYPE_KEY));
+		if (upsert) {
+			row.put(SERIES_KEY, String.valueOf(seriesKey(row)));
+		}
+		if (!schemaRegistry.ensureColumns(eventName, row)) {
+			return;
+		}
+		StringBuilder head = new StringBuilder();
+		head.append("insert into " + eventName + " (");
+		for (String column : row.keySet()) {
+			head.append(column + ",");
 		}
-		sb.append("'" + DateFormatUtils.format(new Date(), "yyyy-MM-dd HH:mm:ss") + "')");
-		// 提交给ThreadManager分配执行;
-		tm.dispatchSql(sb.toString(), eventName);
+		head.append("createTime)values");
+		Map<String, ColumnType> types = schemaRegistry.getColumns(eventName);
+		StringBuilder values = new StringBuilder();
+		values.append("(");
+		for (Entry<String, String> entry : row.entrySet()) {
+			ColumnType type = types == null ? null : types.get(entry.getKey().toLowerCase());
+			// 空值写入数值列时存为NULL, '' 在严格模式下会报错
+			if (entry.getValue().isEmpty() && type != null && type.isNumeric()) {
+				values.append("NULL,");
+			} else {
+				values.append("'" + escape(entry.getValue()) + "',");
+			}
+		}
+		values.append("'" + DateFormatUtils.format(createTime, "yyyy-MM-dd HH:mm:ss") + "')");
+		// 提交给ThreadManager分配执行, 列相同的行会被合并成一条多行insert;
+		tm.dispatchSql(head.toString(), values.toString(), upsert ? UPSERT_TAIL : "");
+		rollupManager.onWrite(eventName, createTime);
 	}
 
 	/**
-	 * 创建数据库表;
+	 * 序列标识: 除 count 以外所有列按列名排序后的64位FNV-1a散列;
 	 * 
-	 * @param event
+	 * @param row
+	 * @return
 	 */
-	public void createTable(ReportEvent event) {
+	static long seriesKey(Map<String, String> row) {
+		long hash = 0xcbf29ce484222325L;
+		for (Entry<String, String> entry : new TreeMap<String, String>(row).entrySet()) {
+			if (AggregateManager.COUNT_KEY.equals(entry.getKey())) {
+				continue;
+			}
+			hash = fnv(hash, entry.getKey());
+			hash = fnv(hash, "=");
+			hash = fnv(hash, entry.getValue());
+			hash = fnv(hash, "&");
+		}
+		return hash;
+	}
+
+	private static long fnv(long hash, String value) {
+		for (int i = 0; i < value.length(); i++) {
+			hash ^= value.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * 建表语句, 按 {@link CollectorCfg#PARTITION_MODE} 对createTime做范围分区;
+	 * 
+	 * @param tableName
+	 * @param columns
+	 * @return
+	 */
+	public String createTableSql(String tableName, Map<String, ColumnType> columns) {
 		StringBuilder sb = new StringBuilder();
-		String tableName = event.getDataType();
-		Iterator<String> iterator = event.getDatas().keySet().iterator();
-		sb.append("CREATE TABLE " + tableName + " (id int auto_increment primary key,");
-		while (iterator.hasNext()) {
-			String column = iterator.next();
-			sb.append(column + " varchar(25)");
+		sb.append("CREATE TABLE " + tableName + " (id bigint NOT NULL auto_increment,");
+		for (Entry<String, ColumnType> column : columns.entrySet()) {
+			sb.append(column.getKey() + " " + column.getValue().getDdl());
 			sb.append(",");
 		}
-		sb.append("`createTime` timestamp NOT NULL DEFAULT '" + DateFormatUtils.format(new Date(), "yyyy-MM-dd HH:mm:ss") + "')");
-		executeSql(sb.toString());
+		sb.append("`createTime` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,");
+		// 分区表的主键必须包含分区列
+		sb.append("PRIMARY KEY (id, createTime),");
+		for (String column : columns.keySet()) {
+			if (SERIES_KEY.equalsIgnoreCase(column)) {
+				sb.append(seriesKeyIndex()).append(",");
+			}
+		}
+		sb.append("KEY idx_createTime (createTime))");
+		sb.append(partitionManager.partitionClause());
+		return sb.toString();
+	}
+
+	/**
+	 * 加列语句;
+	 * 
+	 * @param tableName
+	 * @param column
+	 * @param type
+	 * @return
+	 */
+	public String addColumnSql(String tableName, String column, ColumnType type) {
+		if (SERIES_KEY.equalsIgnoreCase(column)) {
+			// 老表中的行seriesKey为null, 不受唯一键约束
+			return "ALTER TABLE " + tableName + " ADD COLUMN " + column + " " + type.getDdl() + ", ADD " + seriesKeyIndex();
+		}
+		return "ALTER TABLE " + tableName + " ADD COLUMN " + column + " " + type.getDdl();
 	}
 
 	/**
-	 * 执行sql;
+	 * 分区表的唯一键必须包含分区列createTime;
+	 * 
+	 * @return
+	 */
+	private static String seriesKeyIndex() {
+		return "UNIQUE KEY uk_series (" + SERIES_KEY + ", createTime)";
+	}
+
+	/**
+	 * 放宽列类型语句;
+	 * 
+	 * @param tableName
+	 * @param column
+	 * @param type
+	 * @return
+	 */
+	public String modifyColumnSql(String tableName, String column, ColumnType type) {
+		return "ALTER TABLE " + tableName + " MODIFY COLUMN " + column + " " + type.getDdl();
+	}
+
+	/**
+	 * 失败是否是暂时的(拿不到连接, 连接断开, 死锁或锁等待超时), 原样重试可能成功;
+	 * 
+	 * @param e
+	 * @return
+	 */
+	public static boolean isRetryable(SQLException e) {
+		if (e instanceof SQLTransientException || e instanceof SQLRecoverableException) {
+			return true;
+		}
+		String state = e.getSQLState();
+		// 08: connection exception, 40: transaction rollback
+		return state != null && (state.startsWith("08") || state.startsWith("40"));
+	}
+
+	/**
+	 * 执行sql, 失败时抛出异常由调用者处理;
+	 * 
+	 * @param sql
+	 * @return 影响的行数
+	 * @throws SQLException
+	 */
+	public int executeUpdate(String sql) throws SQLException {
+		Connection connection = connectionPool.getConnection();
+		PreparedStatement statement = null;
+		try {
+			statement = connection.prepareStatement(sql);
+			return statement.executeUpdate();
+		} finally {
+			close(statement);
+			connectionPool.closeConnection(connection);
+		}
+	}
+
+	/**
+	 * 查询单个时间值(如 max(createTime)), 没有结果时返回-1;
 	 * 
 	 * @param sql
+	 * @return 毫秒
+	 * @throws SQLException
 	 */
-	public void executeSql(String sql) {
+	public long queryTime(String sql) throws SQLException {
+		Connection connection = connectionPool.getConnection();
+		PreparedStatement statement = null;
+		ResultSet result = null;
 		try {
-			System.out.println(sql);
-			Connection connection = connectionPool.getConnection();
-			PreparedStatement statement = connection.prepareStatement(sql);
-			statement.executeUpdate();
-			statement.close();
+			statement = connection.prepareStatement(sql);
+			result = statement.executeQuery();
+			if (result.next() && result.getTimestamp(1) != null) {
+				return result.getTimestamp(1).getTime();
+			}
+			return -1;
+		} finally {
+			close(statement, result);
 			connectionPool.closeConnection(connection);
+		}
+	}
+
+	/**
+	 * DB线程的积压负载, 不使用MySQL时为0;
+	 * 
+	 * @return 0 ~ 100
+	 */
+	public int getWriterLoad() {
+		return tm.getLoad();
+	}
+
+	public TableSchemaRegistry getSchemaRegistry() {
+		return schemaRegistry;
+	}
+
+	public IDataSink getSink() {
+		return sink;
+	}
+
+	public IConnectionPool getConnectionPool() {
+		return connectionPool;
+	}
+
+	/**
+	 * 转义单引号和反斜杠;
+	 * 
+	 * @param value
+	 * @return
+	 */
+	public static String escape(String value) {
+		if (value == null) {
+			return "";
+		}
+		if (value.indexOf('\'') < 0 && value.indexOf('\\') < 0) {
+			return value;
+		}
+		return value.replace("\\", "\\\\").replace("'", "''");
+	}
+
+	public static void close(Statement statement, ResultSet... results) {
+		try {
+			if (results != null) {
+				for (ResultSet result : results) {
+					if (result != null) {
+						result.close();
+					}
+				}
+			}
+			if (statement != null) {
+				statement.close();
+			}
 		} catch (SQLException e) {
-			e.printStackTrace();
-			System.exit(0);
+			System.out.println(e.getMessage());
 		}
 	}
 
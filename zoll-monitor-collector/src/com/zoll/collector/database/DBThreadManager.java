@@ -1,20 +1,30 @@
 package com.zoll.collector.database;
 
-import java.util.Collection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
-import com.zoll.collector.config.CollectorCfg;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Timer;
+import com.zoll.collector.config.CollectorConfig;
+import com.zoll.collector.metrics.CollectorMetrics;
 
 /**
  * DB线程管理器;
  * 
+ * DB线程数量可在运行时调整: 增加时直接启动新线程; 减少时被移除的线程不再接收新行, 把已缓存的行写完后退出;
+ * 停服时所有线程都按减少处理, 等待已缓存的行写完; 拿不到连接等暂时性的写入失败留到下一轮重试, 线程不会因为写入失败退出;
+ * 
  * @author qianhang
  * 
  * @date 2015年9月22日 下午5:14:55
@@ -28,36 +38,138 @@ public class DBThreadManager {
 
 	private ExecutorService exec;
 	/** 拥有的DB线程 */
-	private CopyOnWriteArrayList<MysqlPerformer> threadList;
+	private volatile MysqlPerformer[] threadList = new MysqlPerformer[0];
+	/** 已注册指标的DB线程序号上限 */
+	private int gaugeCount;
+	/** 已停止, 不再接收新行 */
+	private volatile boolean stopped;
 
 	public void initExecutor() {
 		if (exec == null) {
-			exec = Executors.newFixedThreadPool(CollectorCfg.HTTP_SERVER_THREAD_SIZE);
-			threadList = new CopyOnWriteArrayList<MysqlPerformer>();
-			for (int i = 0; i < CollectorCfg.HTTP_SERVER_THREAD_SIZE; i++) {
-				MysqlPerformer dbTask = new MysqlPerformer();
-				threadList.add(dbTask);
-				exec.execute(dbTask);
-			}
+			exec = Executors.newCachedThreadPool(new ThreadFactory() {
+				private final AtomicInteger index = new AtomicInteger();
+
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r);
+					t.setName("DB-Writer-" + index.getAndIncrement());
+					return t;
+				}
+			});
+			resize(CollectorConfig.getInstance().getWriterThreads());
+		}
+	}
+
+	/**
+	 * 调整DB线程数量, 不丢弃已缓存的行;
+	 * 
+	 * @param size
+	 */
+	public synchronized void resize(int size) {
+		MysqlPerformer[] current = threadList;
+		if (size == current.length || size <= 0) {
+			return;
+		}
+		MysqlPerformer[] resized = Arrays.copyOf(current, size);
+		for (int i = current.length; i < size; i++) {
+			resized[i] = new MysqlPerformer();
+			exec.execute(resized[i]);
 		}
+		threadList = resized;
+		for (int i = size; i < current.length; i++) {
+			current[i].retire();
+		}
+		for (; gaugeCount < size; gaugeCount++) {
+			final int index = gaugeCount;
+			CollectorMetrics.getInstance().gauge("db.writer." + index + ".pending", new Gauge<Integer>() {
+				@Override
+				public Integer getValue() {
+					MysqlPerformer[] performers = threadList;
+					return index < performers.length ? performers[index].pending.get() : 0;
+				}
+			});
+		}
+	}
+
+	/**
+	 * 负载: 积压最多的DB线程的待写行数占 {@link CollectorConfig#getMaxPendingRows()} 的百分比, 达到100时开始丢弃最早的insert;
+	 * 
+	 * @return 0 ~ 100
+	 */
+	public int getLoad() {
+		int max = 0;
+		for (MysqlPerformer performer : threadList) {
+			max = Math.max(max, performer.pending.get());
+		}
+		return (int) Math.min(100, max * 100L / CollectorConfig.getInstance().getMaxPendingRows());
+	}
+
+	/**
+	 * 根据计数器余数来决定分配给哪个线程;
+	 * 
+	 * @param head
+	 *            insert into table (columns)values
+	 * @param row
+	 *            (values)
+	 */
+	public void dispatchSql(String head, String row) {
+		dispatchSql(head, row, "");
 	}
 
 	/**
 	 * 根据计数器余数来决定分配给哪个线程;
 	 * 
-	 * @param sql
-	 * @param tableName
+	 * @param head
+	 *            insert into table (columns)values
+	 * @param row
+	 *            (values)
+	 * @param tail
+	 *            合并后追加在最后一行之后, 如 on duplicate key update ...
 	 */
-	public void dispatchSql(String sql, String tableName) {
-		MysqlPerformer dbTask = threadList.get((int) Math.abs(countAtomicLong.get() % CollectorCfg.HTTP_SERVER_THREAD_SIZE));
-		dbTask.appendSql(sql, tableName);
+	public void dispatchSql(String head, String row, String tail) {
+		if (stopped) {
+			System.err.println("db writers are stopped, drop row : " + head + row);
+			return;
+		}
+		while (true) {
+			MysqlPerformer[] performers = threadList;
+			MysqlPerformer dbTask = performers[(int) Math.abs(countAtomicLong.get() % performers.length)];
+			if (dbTask.appendSql(head, row, tail)) {
+				return;
+			}
+			// 该线程正在退出, 换一个
+			increaseCount();
+		}
+	}
+
+	/**
+	 * 停止所有DB线程, 等待已缓存的行写完;
+	 * 
+	 * @param timeout
+	 *            毫秒
+	 */
+	public void shutdown(long timeout) {
+		synchronized (this) {
+			if (stopped || exec == null) {
+				return;
+			}
+			stopped = true;
+			for (MysqlPerformer performer : threadList) {
+				performer.retire();
+			}
+		}
+		exec.shutdown();
+		try {
+			if (!exec.awaitTermination(timeout, TimeUnit.MILLISECONDS)) {
+				System.err.println("db writers shutdown timeout");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
 	}
 
 	private void increaseCount() {
-		// if (countAtomicLong.get() == 10001) {
-		// System.exit(0);
-		// }
-		System.out.println(countAtomicLong.addAndGet(1));
+		countAtomicLong.incrementAndGet();
 	}
 
 	/**
@@ -70,44 +182,69 @@ public class DBThreadManager {
 	 * 
 	 */
 	class MysqlPerformer implements Runnable {
-		private Map<String, StringBuilder> sbs = new HashMap<String, StringBuilder>();
+		private Map<String, Batch> sbs = new HashMap<String, Batch>();
+		/** 已达到合并行数上限, 等待写入的insert */
+		private List<Batch> full = new ArrayList<Batch>();
+		/** 待写入的行数 */
+		private final AtomicInteger pending = new AtomicInteger();
+		/** 已被移除, 写完缓存后退出 */
+		private boolean retired;
 		private long tick = 0;
 
 		public MysqlPerformer() {
 		}
 
 		/**
-		 * 追加sql语句;
+		 * 追加一行数据, 表和列都相同的行合并到同一条insert中;
 		 * 
-		 * @param sql
-		 * @param name
+		 * @param head
+		 * @param row
+		 * @param tail
+		 * @return 线程已退出时返回false
 		 */
-		public void appendSql(String sql, String name) {
+		public boolean appendSql(String head, String row, String tail) {
+			String key = tail.isEmpty() ? head : head + tail;
 			synchronized (sbs) {
-				if (sbs.containsKey(name)) {
-					sbs.get(name).append("," + sql.split("values")[1]);
+				if (retired) {
+					return false;
+				}
+				Batch batch = sbs.get(key);
+				if (batch != null) {
+					batch.sb.append(",").append(row);
+					batch.rows++;
 				} else {
-					StringBuilder sb = new StringBuilder();
-					sb.append(sql);
-					sbs.put(name, sb);
+					batch = new Batch(tail);
+					batch.sb.append(head).append(row);
+					sbs.put(key, batch);
 				}
+				if (batch.rows >= CollectorConfig.getInstance().getBatchSize()) {
+					full.add(batch);
+					sbs.remove(key);
+				}
+			}
+			pending.incrementAndGet();
+			return true;
+		}
+
+		public void retire() {
+			synchronized (sbs) {
+				retired = true;
 			}
 		}
 
+		/**
+		 * 只有被移除且缓存的行都写完后才退出, 写入失败不会让线程退出;
+		 */
 		@Override
 		public void run() {
-			while (!Thread.interrupted()) {
-				if (new Date().getTime() - tick > CollectorCfg.DB_TICK_TIME) {
-					DBManager.getInstance().checkConnection();
-					synchronized (sbs) {
-						if (sbs.size() > 0) {
-							Collection<StringBuilder> values = sbs.values();
-							for (StringBuilder eacheSb : values) {
-								DBManager.getInstance().executeSql(eacheSb.toString());
-							}
-							sbs.clear();
-							increaseCount();
+			while (true) {
+				if (new Date().getTime() - tick > CollectorConfig.getInstance().getLingerTime()) {
+					try {
+						if (flush()) {
+							return;
 						}
+					} catch (RuntimeException e) {
+						e.printStackTrace();
 					}
 					tick = new Date().getTime();
 				} else {
@@ -119,6 +256,103 @@ public class DBThreadManager {
 				}
 			}
 		}
+
+		/**
+		 * 写出所有缓存的insert, 可重试的失败留到下一轮;
+		 * 
+		 * @return 已被移除且没有待写的insert
+		 */
+		private boolean flush() {
+			DBManager.getInstance().checkConnection();
+			synchronized (sbs) {
+				if (sbs.size() > 0 || full.size() > 0) {
+					full.addAll(sbs.values());
+					sbs.clear();
+					List<Batch> failed = new ArrayList<Batch>();
+					for (Batch eacheSb : full) {
+						if (!write(eacheSb)) {
+							failed.add(eacheSb);
+						}
+					}
+					full = failed;
+					dropOverflow();
+					increaseCount();
+				}
+				return retired && full.isEmpty();
+			}
+		}
+
+		/**
+		 * 积压超过 {@link CollectorConfig#getMaxPendingRows()} 时从最早的insert开始丢弃, 数据库长时间不可用时内存不会无限增长;
+		 */
+		private void dropOverflow() {
+			int limit = CollectorConfig.getInstance().getMaxPendingRows();
+			int dropped = 0;
+			while (pending.get() > limit && !full.isEmpty()) {
+				Batch batch = full.remove(0);
+				dropped += batch.rows;
+				pending.addAndGet(-batch.rows);
+			}
+			if (dropped > 0) {
+				CollectorMetrics.getInstance().getDbWriteDropped().mark(dropped);
+				System.err.println("db write backlog over " + limit + " rows, drop " + dropped + " oldest rows");
+			}
+		}
+
+		/**
+		 * 写入一条insert;
+		 * 
+		 * @param batch
+		 * @return 失败且可以重试时返回false
+		 */
+		private boolean write(Batch batch) {
+			Timer.Context context = CollectorMetrics.getInstance().getDbWrite().time();
+			try {
+				DBManager.getInstance().executeUpdate(batch.sql());
+			} catch (SQLException e) {
+				if (DBManager.isRetryable(e)) {
+					CollectorMetrics.getInstance().getDbWriteRetry().mark();
+					System.err.println("db write fail, retry next round E:" + e.getMessage());
+					return false;
+				}
+				CollectorMetrics.getInstance().getDbWriteDropped().mark(batch.rows);
+				System.err.println("db write fail, drop " + batch.rows + " rows E:" + e.getMessage());
+			} finally {
+				context.stop();
+			}
+			CollectorMetrics.getInstance().getBatchRows().update(batch.rows);
+			pending.addAndGet(-batch.rows);
+			return true;
+		}
+	}
+
+	/**
+	 * 合并中的一条多行insert;
+	 */
+	static class Batch {
+		final StringBuilder sb = new StringBuilder();
+		final String tail;
+		/** 已合并的行数 */
+		int rows = 1;
+		/** tail已追加, 不再接收新行 */
+		private boolean sealed;
+
+		Batch(String tail) {
+			this.tail = tail;
+		}
+
+		/**
+		 * 完整的insert语句, 重试时复用;
+		 * 
+		 * @return
+		 */
+		String sql() {
+			if (!sealed) {
+				sb.append(tail);
+				sealed = true;
+			}
+			return sb.toString();
+		}
 	}
 
 }
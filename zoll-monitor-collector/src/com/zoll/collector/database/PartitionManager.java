@@ -0,0 +1,196 @@
+package com.zoll.collector.database;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.time.DateFormatUtils;
+
+import com.zoll.collector.cluster.ClusterManager;
+import com.zoll.collector.config.CollectorCfg;
+import com.zoll.collector.database.pool.IConnectionPool;
+
+/**
+ * 按createTime做范围分区的维护者;
+ * 
+ * 建表时预建当前及之后 {@link CollectorCfg#PARTITION_PRECREATE} 个周期的分区, 之后定时把 pmax 拆分出新的分区, 使按时间的范围查询只扫描相关分区;
+ * 
+ * @date 2026年10月19日 上午3:10:31
+ * 
+ * @project zoll-monitor-collector
+ * 
+ */
+public class PartitionManager {
+	private static final String PARTITIONS_SQL = "select table_name, partition_name, partition_description from information_schema.partitions where table_schema = database() and partition_name is not null";
+	private static final String MAX_PARTITION = "pmax";
+
+	private ScheduledExecutorService exec;
+
+	/**
+	 * 启动定时补建分区;
+	 * 
+	 * @param registry
+	 */
+	public void start(final TableSchemaRegistry registry) {
+		if (CollectorCfg.PARTITION_MODE == CollectorCfg.PARTITION_NONE || exec != null) {
+			return;
+		}
+		exec = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r);
+				t.setName("Partition-Maintainer");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		exec.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					maintain();
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		}, CollectorCfg.PARTITION_CHECK_INTERVAL, CollectorCfg.PARTITION_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 建表语句中的分区子句;
+	 * 
+	 * @return
+	 */
+	public String partitionClause() {
+		if (CollectorCfg.PARTITION_MODE == CollectorCfg.PARTITION_NONE) {
+			return "";
+		}
+		StringBuilder sb = new StringBuilder(" PARTITION BY RANGE (UNIX_TIMESTAMP(createTime)) (");
+		long periodStart = periodStart(System.currentTimeMillis());
+		for (int i = 0; i <= CollectorCfg.PARTITION_PRECREATE; i++) {
+			sb.append(partitionDef(periodStart)).append(",");
+			periodStart = nextPeriod(periodStart);
+		}
+		sb.append("PARTITION " + MAX_PARTITION + " VALUES LESS THAN MAXVALUE)");
+		return sb.toString();
+	}
+
+	/**
+	 * 给所有分区表补建到 当前+PARTITION_PRECREATE 个周期;
+	 */
+	public void maintain() {
+		Map<String, Long> upperBounds = loadUpperBounds();
+		long target = periodStart(System.currentTimeMillis());
+		for (int i = 0; i < CollectorCfg.PARTITION_PRECREATE; i++) {
+			target = nextPeriod(target);
+		}
+		for (Entry<String, Long> entry : upperBounds.entrySet()) {
+			// 集群模式下只维护自己负责的表
+			if (!ClusterManager.getInstance().isLocal(Resolution.baseTable(entry.getKey()))) {
+				continue;
+			}
+			// upperBound 是已有的最后一个分区的上界(秒), 即下一个待建分区的起始时间
+			long periodStart = entry.getValue() * 1000;
+			if (periodStart > target) {
+				continue;
+			}
+			StringBuilder sb = new StringBuilder("ALTER TABLE " + entry.getKey() + " REORGANIZE PARTITION " + MAX_PARTITION + " INTO (");
+			while (periodStart <= target) {
+				sb.append(partitionDef(periodStart)).append(",");
+				periodStart = nextPeriod(periodStart);
+			}
+			sb.append("PARTITION " + MAX_PARTITION + " VALUES LESS THAN MAXVALUE)");
+			try {
+				DBManager.getInstance().executeUpdate(sb.toString());
+			} catch (SQLException e) {
+				System.err.println("reorganize partition of " + entry.getKey() + " fail E:" + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * 查询含有pmax分区的表, 以及它们最后一个有界分区的上界(秒);
+	 * 
+	 * @return
+	 */
+	private Map<String, Long> loadUpperBounds() {
+		Map<String, Long> upperBounds = new HashMap<String, Long>();
+		Map<String, Boolean> hasMax = new HashMap<String, Boolean>();
+		IConnectionPool pool = DBManager.getInstance().getConnectionPool();
+		Connection connection;
+		try {
+			connection = pool.getConnection();
+		} catch (SQLException e) {
+			System.err.println("load partitions fail E:" + e.getMessage());
+			return upperBounds;
+		}
+		Statement statement = null;
+		ResultSet result = null;
+		try {
+			statement = connection.createStatement();
+			result = statement.executeQuery(PARTITIONS_SQL);
+			while (result.next()) {
+				String table = result.getString(1);
+				if (MAX_PARTITION.equalsIgnoreCase(result.getString(2))) {
+					hasMax.put(table, true);
+					continue;
+				}
+				try {
+					long bound = Long.parseLong(result.getString(3).trim());
+					Long current = upperBounds.get(table);
+					if (current == null || bound > current) {
+						upperBounds.put(table, bound);
+					}
+				} catch (NumberFormatException e) {
+					// 不是本类建立的分区表
+				}
+			}
+		} catch (SQLException e) {
+			e.printStackTrace();
+		} finally {
+			DBManager.close(statement, result);
+			pool.closeConnection(connection);
+		}
+		upperBounds.keySet().retainAll(hasMax.keySet());
+		return upperBounds;
+	}
+
+	/**
+	 * 一个周期对应的分区定义, 存放 createTime < 下个周期起始时间 的数据;
+	 * 
+	 * @param periodStart
+	 * @return
+	 */
+	private String partitionDef(long periodStart) {
+		String pattern = CollectorCfg.PARTITION_MODE == CollectorCfg.PARTITION_BY_HOUR ? "yyyyMMddHH" : "yyyyMMdd";
+		return "PARTITION p" + DateFormatUtils.format(periodStart, pattern) + " VALUES LESS THAN (" + nextPeriod(periodStart) / 1000 + ")";
+	}
+
+	private static long periodStart(long time) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTimeInMillis(time);
+		calendar.set(Calendar.MILLISECOND, 0);
+		calendar.set(Calendar.SECOND, 0);
+		calendar.set(Calendar.MINUTE, 0);
+		if (CollectorCfg.PARTITION_MODE != CollectorCfg.PARTITION_BY_HOUR) {
+			calendar.set(Calendar.HOUR_OF_DAY, 0);
+		}
+		return calendar.getTimeInMillis();
+	}
+
+	private static long nextPeriod(long periodStart) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTimeInMillis(periodStart);
+		calendar.add(CollectorCfg.PARTITION_MODE == CollectorCfg.PARTITION_BY_HOUR ? Calendar.HOUR_OF_DAY : Calendar.DAY_OF_MONTH, 1);
+		return calendar.getTimeInMillis();
+	}
+}
@@ -0,0 +1,121 @@
+package com.zoll.collector.database;
+
+import java.util.Calendar;
+
+import com.zoll.collector.config.CollectorCfg;
+
+/**
+ * 数据精度, 除原始数据外每种精度对应一张带后缀的汇总表(如 login_1m);
+ * 
+ * @date 2026年10月19日 上午3:16:46
+ * 
+ * @project zoll-monitor-collector
+ * 
+ */
+public enum Resolution {
+	RAW("", null, -1, CollectorCfg.RETENTION_RAW),
+	MINUTE("_1m", "%Y-%m-%d %H:%i:00", Calendar.MINUTE, CollectorCfg.RETENTION_MINUTE),
+	HOUR("_1h", "%Y-%m-%d %H:00:00", Calendar.HOUR_OF_DAY, CollectorCfg.RETENTION_HOUR),
+	DAY("_1d", "%Y-%m-%d 00:00:00", Calendar.DAY_OF_MONTH, CollectorCfg.RETENTION_DAY),
+	;
+
+	/** 表名后缀 */
+	private final String suffix;
+	/** MySQL中把createTime截断到桶起始时间的date_format格式 */
+	private final String bucketFormat;
+	/** 桶长度对应的Calendar字段 */
+	private final int calendarField;
+	/** 保留时间(毫秒), 0表示永久保留 */
+	private final long retention;
+
+	private Resolution(String suffix, String bucketFormat, int calendarField, long retention) {
+		this.suffix = suffix;
+		this.bucketFormat = bucketFormat;
+		this.calendarField = calendarField;
+		this.retention = retention;
+	}
+
+	public String tableName(String baseTable) {
+		return baseTable + suffix;
+	}
+
+	public String getBucketFormat() {
+		return bucketFormat;
+	}
+
+	public long getRetention() {
+		return retention;
+	}
+
+	/**
+	 * 汇总的数据来源, 每一级都从上一级精度汇总;
+	 * 
+	 * @return
+	 */
+	public Resolution source() {
+		return this == RAW ? null : values()[ordinal() - 1];
+	}
+
+	/**
+	 * 时间所在桶的起始时间(本地时区);
+	 * 
+	 * @param time
+	 * @return
+	 */
+	public long floor(long time) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTimeInMillis(time);
+		calendar.set(Calendar.MILLISECOND, 0);
+		calendar.set(Calendar.SECOND, 0);
+		if (calendarField != Calendar.MINUTE) {
+			calendar.set(Calendar.MINUTE, 0);
+		}
+		if (calendarField == Calendar.DAY_OF_MONTH) {
+			calendar.set(Calendar.HOUR_OF_DAY, 0);
+		}
+		return calendar.getTimeInMillis();
+	}
+
+	/**
+	 * 下一个桶的起始时间;
+	 * 
+	 * @param bucketStart
+	 * @return
+	 */
+	public long next(long bucketStart) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTimeInMillis(bucketStart);
+		calendar.add(calendarField, 1);
+		return calendar.getTimeInMillis();
+	}
+
+	/**
+	 * 汇总表对应的原始表名, 原始表返回自身;
+	 * 
+	 * @param table
+	 * @return
+	 */
+	public static String baseTable(String table) {
+		for (Resolution resolution : values()) {
+			if (resolution != RAW && table.toLowerCase().endsWith(resolution.suffix)) {
+				return table.substring(0, table.length() - resolution.suffix.length());
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * 表名是否是某张汇总表;
+	 * 
+	 * @param table
+	 * @return
+	 */
+	public static boolean isRollupTable(String table) {
+		for (Resolution resolution : values()) {
+			if (resolution != RAW && table.toLowerCase().endsWith(resolution.suffix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,300 @@
+package com.zoll.collector.database;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.time.DateFormatUtils;
+
+import com.zoll.collector.aggregate.AggregateManager;
+import com.zoll.collector.cluster.ClusterManager;
+import com.zoll.collector.config.CollectorCfg;
+
+/**
+ * 降采样和过期清理;
+ * 
+ * 定时把原始数据汇总到分钟表, 分钟表汇总到小时表, 小时表汇总到天表; 汇总表与原始表结构相同, 每个序列每个桶一行:
+ * INCREASE_COUNT 取桶内累加值, LATEST_COUNT 取桶内最新值; 之后按 {@link Resolution#getRetention()} 删除过期数据,
+ * 但不会删除还没有汇总到下一级的数据; 迟到的批次写入已汇总的时间段时, 下一轮从最早的迟到桶起逐级重新汇总(先删后插);
+ * 去重计数表({@link AggregateManager#DISTINCT_SUFFIX})的值只对单个窗口有意义, 不汇总, 只按原始数据的保留时间清理;
+ * 
+ * @date 2026年10月19日 上午3:16:46
+ * 
+ * @project zoll-monitor-collector
+ * 
+ */
+public class RollupManager {
+	private static final String TIME_PATTERN = "yyyy-MM-dd HH:mm:ss";
+
+	/** 汇总表 -> 下一个待汇总桶的起始时间 */
+	private final ConcurrentMap<String, Long> watermarks = new ConcurrentHashMap<String, Long>();
+	/** 原始表 -> 写入了已汇总时间段的行: createTime -> 最后写入时间 */
+	private final Map<String, TreeMap<Long, Long>> lateRows = new HashMap<String, TreeMap<Long, Long>>();
+	private ScheduledExecutorService exec;
+
+	/**
+	 * 启动定时汇总;
+	 * 
+	 * @param registry
+	 */
+	public void start(final TableSchemaRegistry registry) {
+		if (exec != null) {
+			return;
+		}
+		exec = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r);
+				t.setName("Rollup-Worker");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		exec.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					rollupAll(registry, System.currentTimeMillis());
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		}, CollectorCfg.ROLLUP_INTERVAL, CollectorCfg.ROLLUP_INTERVAL, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 原始表写入了一行; 时间早于分钟表的汇总进度时记下, 等 {@link CollectorCfg#ROLLUP_LAG} 之后(行已经落库)从该桶起重新汇总;
+	 * 早于 {@link CollectorCfg#MAX_EVENT_LAG} 的行不再重新汇总, 预聚合已经丢弃了这样的事件;
+	 * 
+	 * @param table
+	 * @param createTime
+	 */
+	public void onWrite(String table, long createTime) {
+		String key = table.toLowerCase();
+		Long rolled = watermarks.get(Resolution.MINUTE.tableName(key));
+		if (rolled == null || createTime >= rolled) {
+			return;
+		}
+		long now = System.currentTimeMillis();
+		if (createTime < now - CollectorCfg.MAX_EVENT_LAG) {
+			return;
+		}
+		markLate(key, createTime, now);
+	}
+
+	/**
+	 * 汇总并清理所有原始表;
+	 * 
+	 * @param registry
+	 * @param now
+	 */
+	public void rollupAll(TableSchemaRegistry registry, long now) {
+		for (String table : new ArrayList<String>(registry.getTables())) {
+			// 集群模式下只处理自己负责的表
+			if (Resolution.isRollupTable(table) || !ClusterManager.getInstance().isLocal(table)) {
+				continue;
+			}
+			if (table.toLowerCase().endsWith(AggregateManager.DISTINCT_SUFFIX)) {
+				expire(table, null, now);
+				continue;
+			}
+			Map<String, ColumnType> columns = registry.getColumns(table);
+			if (columns == null || !columns.containsKey(AggregateManager.COUNT_KEY.toLowerCase()) || !columns.containsKey(AggregateManager.COUNT_TYPE_KEY.toLowerCase())) {
+				continue;
+			}
+			long late = takeLate(table, now);
+			Map<Resolution, Long> rolledUntil = new EnumMap<Resolution, Long>(Resolution.class);
+			for (Resolution resolution : Resolution.values()) {
+				if (resolution == Resolution.RAW) {
+					continue;
+				}
+				if (!registry.ensureLike(resolution.tableName(table), table)) {
+					break;
+				}
+				try {
+					rolledUntil.put(resolution, rollup(registry, table, resolution, late, now));
+				} catch (SQLException e) {
+					System.err.println("rollup " + resolution.tableName(table) + " fail E:" + e.getMessage());
+					break;
+				}
+			}
+			if (late >= 0 && rolledUntil.size() < Resolution.values().length - 1) {
+				// 没有逐级汇总完, 下一轮重来
+				markLate(table, late, 0);
+			}
+			expire(table, rolledUntil, now);
+		}
+	}
+
+	/**
+	 * 把来源表中已结束的桶汇总到该精度的表;
+	 * 
+	 * @param registry
+	 * @param table
+	 *            原始表
+	 * @param resolution
+	 * @param late
+	 *            最早的迟到行的时间, 从它所在的桶起重新汇总, -1表示没有
+	 * @param now
+	 * @return 已汇总到的时间(不含), 来源表为空时返回-1
+	 * @throws SQLException
+	 */
+	private long rollup(TableSchemaRegistry registry, String table, Resolution resolution, long late, long now) throws SQLException {
+		DBManager db = DBManager.getInstance();
+		String target = resolution.tableName(table);
+		String source = resolution.source().tableName(table);
+		Long from = watermarks.get(target);
+		if (from == null) {
+			long last = db.queryTime("select max(createTime) from " + target);
+			if (last >= 0) {
+				from = resolution.next(last);
+			} else {
+				long first = db.queryTime("select min(createTime) from " + source);
+				if (first < 0) {
+					return -1;
+				}
+				from = resolution.floor(first);
+			}
+		}
+		if (late >= 0) {
+			long redo = resolution.floor(late);
+			long sourceRetention = resolution.source().getRetention();
+			if (sourceRetention > 0) {
+				// 来源表中可能已被清理的桶不能重新汇总
+				redo = Math.max(redo, resolution.next(resolution.floor(now - sourceRetention)));
+			}
+			if (redo < from) {
+				db.executeUpdate("delete from " + target + " where createTime >= '" + DateFormatUtils.format(redo, TIME_PATTERN) + "' and createTime < '" + DateFormatUtils.format(from, TIME_PATTERN) + "'");
+				from = redo;
+			}
+		}
+		long to = resolution.floor(now - CollectorCfg.ROLLUP_LAG);
+		if (from >= to) {
+			return from;
+		}
+		List<String> tags = new ArrayList<String>();
+		for (String column : registry.getColumns(table).keySet()) {
+			if (!"id".equals(column) && !"createtime".equals(column) && !AggregateManager.COUNT_KEY.equalsIgnoreCase(column) && !AggregateManager.COUNT_TYPE_KEY.equalsIgnoreCase(column)) {
+				tags.add(column);
+			}
+		}
+		String bucket = "date_format(createTime, '" + resolution.getBucketFormat() + "')";
+		StringBuilder group = new StringBuilder();
+		for (String tag : tags) {
+			group.append(tag).append(",");
+		}
+		group.append("countType,").append(bucket);
+
+		StringBuilder sql = new StringBuilder();
+		sql.append("insert into ").append(target).append(" (");
+		for (String tag : tags) {
+			sql.append(tag).append(",");
+		}
+		sql.append("count,countType,createTime) select ");
+		for (String tag : tags) {
+			sql.append(tag).append(",");
+		}
+		// LATEST_COUNT 取桶内最后一个值, group_concat 超长截断的是尾部, 不影响第一个元素
+		sql.append("if(countType = " + CollectorCfg.LATEST_COUNT + ", substring_index(group_concat(count order by createTime desc), ',', 1), sum(count)),");
+		sql.append("countType,").append(bucket);
+		sql.append(" from ").append(source);
+		sql.append(" where createTime >= '").append(DateFormatUtils.format(from, TIME_PATTERN));
+		sql.append("' and createTime < '").append(DateFormatUtils.format(to, TIME_PATTERN)).append("'");
+		sql.append(" group by ").append(group);
+		db.executeUpdate(sql.toString());
+		watermarks.put(target, to);
+		return to;
+	}
+
+	private void markLate(String table, long createTime, long writeTime) {
+		synchronized (lateRows) {
+			TreeMap<Long, Long> rows = lateRows.get(table);
+			if (rows == null) {
+				rows = new TreeMap<Long, Long>();
+				lateRows.put(table, rows);
+			}
+			Long previous = rows.get(createTime);
+			if (previous == null || previous < writeTime) {
+				rows.put(createTime, writeTime);
+			}
+		}
+	}
+
+	/**
+	 * 取出已经落库的迟到行中最早的时间, 写入不到 {@link CollectorCfg#ROLLUP_LAG} 的留到下一轮;
+	 * 
+	 * @param table
+	 * @param now
+	 * @return 没有时返回-1
+	 */
+	private long takeLate(String table, long now) {
+		synchronized (lateRows) {
+			TreeMap<Long, Long> rows = lateRows.get(table);
+			if (rows == null) {
+				return -1;
+			}
+			long earliest = -1;
+			Iterator<Entry<Long, Long>> iterator = rows.entrySet().iterator();
+			while (iterator.hasNext()) {
+				Entry<Long, Long> entry = iterator.next();
+				if (entry.getValue() <= now - CollectorCfg.ROLLUP_LAG) {
+					if (earliest < 0) {
+						earliest = entry.getKey();
+					}
+					iterator.remove();
+				}
+			}
+			if (rows.isEmpty()) {
+				lateRows.remove(table);
+			}
+			return earliest;
+		}
+	}
+
+	/**
+	 * 删除各精度中过期的数据, 只删除已经汇总到下一级的部分;
+	 * 
+	 * @param table
+	 * @param rolledUntil
+	 *            各精度已汇总到的时间, null表示该表不汇总
+	 * @param now
+	 */
+	private void expire(String table, Map<Resolution, Long> rolledUntil, long now) {
+		// 没有汇总表时只清理原始表
+		Resolution[] resolutions = rolledUntil == null ? new Resolution[] { Resolution.RAW } : Resolution.values();
+		for (int i = 0; i < resolutions.length; i++) {
+			Resolution resolution = resolutions[i];
+			if (resolution.getRetention() <= 0) {
+				continue;
+			}
+			long cutoff = now - resolution.getRetention();
+			if (i + 1 < resolutions.length) {
+				Long rolled = rolledUntil.get(resolutions[i + 1]);
+				if (rolled == null || rolled < 0) {
+					continue;
+				}
+				cutoff = Math.min(cutoff, rolled);
+			}
+			String sql = "delete from " + resolution.tableName(table) + " where createTime < '" + DateFormatUtils.format(cutoff, TIME_PATTERN) + "' limit " + CollectorCfg.RETENTION_DELETE_BATCH;
+			try {
+				// 分批删除, 避免长时间锁表
+				while (DBManager.getInstance().executeUpdate(sql) >= CollectorCfg.RETENTION_DELETE_BATCH) {
+				}
+			} catch (SQLException e) {
+				System.err.println("expire " + resolution.tableName(table) + " fail E:" + e.getMessage());
+			}
+		}
+	}
+}
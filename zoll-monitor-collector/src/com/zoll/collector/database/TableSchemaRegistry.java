@@ -0,0 +1,289 @@
+package com.zoll.collector.database;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import com.zoll.collector.aggregate.AggregateManager;
+import com.zoll.collector.database.pool.IConnectionPool;
+
+/**
+ * 表结构注册表;
+ *
+ * 启动时一次性从 information_schema 加载所有表和列, 之后判断表和列是否存在都只查内存; 只有出现新表, 新列或需要放宽列类型时才会执行DDL;
+ *
+ * @date 2026年10月19日 上午3:08:49
+ *
+ * @project zoll-monitor-collector
+ *
+ */
+public class TableSchemaRegistry {
+	private static final String LOAD_SQL = "select table_name, column_name, data_type, character_maximum_length from information_schema.columns where table_schema = database()";
+	/** 表名和列名只允许字母数字下划线, 防止上报内容拼进DDL */
+	private static final Pattern NAME_PATTERN = Pattern.compile("[A-Za-z_][A-Za-z0-9_]{0,63}");
+
+	/** 表名(小写) -> 列名(小写) -> 列类型 */
+	private final ConcurrentMap<String, Map<String, ColumnType>> tables = new ConcurrentHashMap<String, Map<String, ColumnType>>();
+
+	/**
+	 * 加载当前库中所有表的列信息;
+	 *
+	 * @param pool
+	 */
+	public void load(IConnectionPool pool) {
+		query(pool, LOAD_SQL);
+	}
+
+	public boolean hasTable(String table) {
+		return tables.containsKey(table.toLowerCase());
+	}
+
+	/**
+	 * 所有已知的表名(小写);
+	 *
+	 * @return
+	 */
+	public Set<String> getTables() {
+		return tables.keySet();
+	}
+
+	/**
+	 * 一张表的列名(小写) -> 列类型, 表不存在时返回null;
+	 *
+	 * @param table
+	 * @return
+	 */
+	public Map<String, ColumnType> getColumns(String table) {
+		return tables.get(table.toLowerCase());
+	}
+
+	/**
+	 * 保证表存在且包含来源表的所有列, 列类型不比来源表窄, 不存在时按来源表的结构(含分区)创建;
+	 *
+	 * @param table
+	 * @param source
+	 * @return 表结构是否可用
+	 */
+	public boolean ensureLike(String table, String source) {
+		Map<String, ColumnType> sourceColumns = tables.get(source.toLowerCase());
+		if (sourceColumns == null) {
+			return false;
+		}
+		Map<String, ColumnType> known = tables.get(table.toLowerCase());
+		if (known != null && coversAll(known, sourceColumns)) {
+			return true;
+		}
+		synchronized (this) {
+			try {
+				if (!tables.containsKey(table.toLowerCase())) {
+					DBManager.getInstance().executeUpdate("CREATE TABLE IF NOT EXISTS " + table + " LIKE " + source);
+					reload(table);
+				}
+				known = tables.get(table.toLowerCase());
+				if (known == null) {
+					return false;
+				}
+				for (Entry<String, ColumnType> entry : sourceColumns.entrySet()) {
+					ColumnType current = known.get(entry.getKey());
+					if (current == null) {
+						DBManager.getInstance().executeUpdate(DBManager.getInstance().addColumnSql(table, entry.getKey(), entry.getValue()));
+						known.put(entry.getKey(), entry.getValue());
+					} else if (current.widen(entry.getValue()) != current) {
+						// 来源表的列被放宽过, 汇总时插入的值可能存不下
+						ColumnType needed = current.widen(entry.getValue());
+						DBManager.getInstance().executeUpdate(DBManager.getInstance().modifyColumnSql(table, entry.getKey(), needed));
+						known.put(entry.getKey(), needed);
+					}
+				}
+			} catch (SQLException e) {
+				System.err.println("create table " + table + " like " + source + " fail E:" + e.getMessage());
+				reload(table);
+				return false;
+			}
+			return true;
+		}
+	}
+
+	public static boolean isValidName(String name) {
+		return name != null && NAME_PATTERN.matcher(name).matches();
+	}
+
+	/**
+	 * 上报的dataType(原始表名)是否合法: 汇总表和去重计数表靠后缀识别, 所以dataType不能以 _1m, _1h, _1d 和
+	 * {@link AggregateManager#DISTINCT_SUFFIX} 结尾;
+	 * 
+	 * @param dataType
+	 * @return
+	 */
+	public static boolean isValidDataType(String dataType) {
+		return isValidName(dataType) && !Resolution.isRollupTable(dataType) && !dataType.toLowerCase().endsWith(AggregateManager.DISTINCT_SUFFIX);
+	}
+
+	/**
+	 * 保证表和列存在且列类型能存下这一行的值, 已知的表和列不访问数据库;
+	 *
+	 * @param table
+	 * @param row
+	 *            列名 -> 值
+	 * @return 表结构是否可用
+	 */
+	public boolean ensureColumns(String table, Map<String, String> row) {
+		Map<String, ColumnType> known = tables.get(table.toLowerCase());
+		if (known != null && acceptsAll(known, row)) {
+			return true;
+		}
+		synchronized (this) {
+			known = tables.get(table.toLowerCase());
+			if (known == null) {
+				Map<String, ColumnType> columns = new LinkedHashMap<String, ColumnType>();
+				for (Entry<String, String> entry : row.entrySet()) {
+					columns.put(entry.getKey(), inferType(entry.getKey(), entry.getValue()));
+				}
+				try {
+					DBManager.getInstance().executeUpdate(DBManager.getInstance().createTableSql(table, columns));
+				} catch (SQLException e) {
+					// 可能已被其他采集端实例创建, 重新加载后再判断
+					System.err.println("create table " + table + " fail E:" + e.getMessage());
+					reload(table);
+					if (!tables.containsKey(table.toLowerCase())) {
+						return false;
+					}
+					return ensureColumns(table, row);
+				}
+				Map<String, ColumnType> created = new ConcurrentHashMap<String, ColumnType>();
+				created.put("id", ColumnType.BIGINT);
+				created.put("createtime", ColumnType.TEXT);
+				for (Entry<String, ColumnType> entry : columns.entrySet()) {
+					created.put(entry.getKey().toLowerCase(), entry.getValue());
+				}
+				tables.put(table.toLowerCase(), created);
+				return true;
+			}
+			List<String> changed = new ArrayList<String>();
+			for (Entry<String, String> entry : row.entrySet()) {
+				String column = entry.getKey().toLowerCase();
+				ColumnType current = known.get(column);
+				if (current != null && current.accepts(entry.getValue())) {
+					continue;
+				}
+				ColumnType needed = inferType(column, entry.getValue());
+				try {
+					if (current == null) {
+						DBManager.getInstance().executeUpdate(DBManager.getInstance().addColumnSql(table, entry.getKey(), needed));
+					} else {
+						needed = current.widen(needed);
+						DBManager.getInstance().executeUpdate(DBManager.getInstance().modifyColumnSql(table, entry.getKey(), needed));
+					}
+				} catch (SQLException e) {
+					// 1060: Duplicate column name, 列已被其他实例加上
+					if (e.getErrorCode() != 1060) {
+						System.err.println("alter table " + table + " fail E:" + e.getMessage());
+						return false;
+					}
+					changed.add(column);
+					continue;
+				}
+				known.put(column, needed);
+			}
+			if (!changed.isEmpty()) {
+				reload(table);
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * 推断列类型, count列一律用bigint, 避免窗口内累加后溢出再改表; seriesKey是64位散列;
+	 * 
+	 * 空值没有类型信息, 新列先按最窄的int建, 之后出现的值再放宽;
+	 *
+	 * @param column
+	 * @param value
+	 * @return
+	 */
+	private static ColumnType inferType(String column, String value) {
+		if (DBManager.SERIES_KEY.equalsIgnoreCase(column)) {
+			return ColumnType.BIGINT;
+		}
+		ColumnType type = ColumnType.infer(value);
+		if (type == null) {
+			type = ColumnType.INT;
+		}
+		if ("count".equalsIgnoreCase(column) && type.isNumeric()) {
+			return type.widen(ColumnType.BIGINT);
+		}
+		return type;
+	}
+
+	/**
+	 * 重新加载一张表的列信息;
+	 *
+	 * @param table
+	 */
+	private void reload(String table) {
+		query(DBManager.getInstance().getConnectionPool(), LOAD_SQL + " and table_name = '" + table + "'");
+	}
+
+	private void query(IConnectionPool pool, String sql) {
+		Connection connection;
+		try {
+			connection = pool.getConnection();
+		} catch (SQLException e) {
+			System.err.println("load table schema fail E:" + e.getMessage());
+			return;
+		}
+		Statement statement = null;
+		ResultSet result = null;
+		try {
+			statement = connection.createStatement();
+			result = statement.executeQuery(sql);
+			while (result.next()) {
+				String key = result.getString(1).toLowerCase();
+				Map<String, ColumnType> columns = tables.get(key);
+				if (columns == null) {
+					Map<String, ColumnType> newColumns = new ConcurrentHashMap<String, ColumnType>();
+					columns = tables.putIfAbsent(key, newColumns);
+					if (columns == null) {
+						columns = newColumns;
+					}
+				}
+				columns.put(result.getString(2).toLowerCase(), ColumnType.fromSchema(result.getString(3), result.getLong(4)));
+			}
+		} catch (SQLException e) {
+			e.printStackTrace();
+		} finally {
+			DBManager.close(statement, result);
+			pool.closeConnection(connection);
+		}
+	}
+
+	private static boolean coversAll(Map<String, ColumnType> known, Map<String, ColumnType> source) {
+		for (Entry<String, ColumnType> entry : source.entrySet()) {
+			ColumnType type = known.get(entry.getKey());
+			if (type == null || type.widen(entry.getValue()) != type) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean acceptsAll(Map<String, ColumnType> known, Map<String, String> row) {
+		for (Entry<String, String> entry : row.entrySet()) {
+			ColumnType type = known.get(entry.getKey().toLowerCase());
+			if (type == null || !type.accepts(entry.getValue())) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
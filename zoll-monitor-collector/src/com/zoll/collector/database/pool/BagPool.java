@@ -0,0 +1,439 @@
+package com.zoll.collector.database.pool;
+
+import java.lang.ref.WeakReference;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.codahale.metrics.Gauge;
+import com.zoll.collector.config.CollectorCfg;
+import com.zoll.collector.config.CollectorConfig;
+import com.zoll.collector.metrics.CollectorMetrics;
+
+/**
+ * 无锁连接池;
+ * 
+ * 空闲连接放在 ConcurrentLinkedDeque 中(后进先出, 让冷连接自然空闲超时), 每个线程优先取回自己上次归还的连接; 借出和归还都只有CAS,
+ * 只有连接用尽时才在锁上限时等待; 连接数在 min ~ max 之间随需求增长, 空闲超时后收缩, 范围可在运行时调整; 借出超过
+ * {@link CollectorCfg#CONNECTION_LEAK_THRESHOLD} 未归还时打印借用线程当前的堆栈;
+ * 
+ * @date 2026年10月19日 上午3:20:20
+ * 
+ * @project zoll-monitor-collector
+ * 
+ */
+public class BagPool implements IConnectionPool {
+	private static final int IDLE = 0;
+	private static final int IN_USE = 1;
+	private static final int REMOVED = 2;
+
+	/** 所有连接 */
+	private final ConcurrentMap<Connection, Entry> entries = new ConcurrentHashMap<Connection, Entry>();
+	/** 空闲连接 */
+	private final ConcurrentLinkedDeque<Entry> idle = new ConcurrentLinkedDeque<Entry>();
+	/** 当前线程上次使用的连接 */
+	private final ThreadLocal<WeakReference<Entry>> affinity = new ThreadLocal<WeakReference<Entry>>();
+	/** 连接总数(含正在建立的) */
+	private final AtomicInteger total = new AtomicInteger();
+	/** 正在等待连接的线程数 */
+	private final AtomicInteger waiters = new AtomicInteger();
+	private final Object waitLock = new Object();
+
+	private volatile int minSize;
+	private volatile int maxSize;
+	private ScheduledExecutorService housekeeper;
+
+	public BagPool() {
+		this(CollectorConfig.getInstance().getPoolMinSize(), CollectorConfig.getInstance().getPoolMaxSize());
+	}
+
+	public BagPool(int minSize, int maxSize) {
+		this.minSize = minSize;
+		this.maxSize = maxSize;
+	}
+
+	@Override
+	public void initPool() {
+		for (int i = 0; i < minSize; i++) {
+			Entry entry = tryCreate();
+			if (entry != null) {
+				release(entry);
+			}
+		}
+		housekeeper = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r);
+				t.setName("BagPool-Housekeeper");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		housekeeper.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					housekeep(System.currentTimeMillis());
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		}, CollectorCfg.CONNECTION_HOUSEKEEP_INTERVAL, CollectorCfg.CONNECTION_HOUSEKEEP_INTERVAL, TimeUnit.MILLISECONDS);
+		CollectorMetrics.getInstance().gauge("pool.total", new Gauge<Integer>() {
+			@Override
+			public Integer getValue() {
+				return total.get();
+			}
+		});
+		CollectorMetrics.getInstance().gauge("pool.active", new Gauge<Integer>() {
+			@Override
+			public Integer getValue() {
+				return getActiveCount();
+			}
+		});
+		CollectorMetrics.getInstance().gauge("pool.waiting", new Gauge<Integer>() {
+			@Override
+			public Integer getValue() {
+				return waiters.get();
+			}
+		});
+	}
+
+	/**
+	 * 获得数据库连接, 超过 {@link CollectorCfg#CONNECTION_TIMEOUT} 仍没有可用连接时抛出 SQLTransientConnectionException;
+	 * 
+	 * @return
+	 * @throws SQLException
+	 */
+	@Override
+	public Connection getConnection() throws SQLException {
+		WeakReference<Entry> ref = affinity.get();
+		Entry entry = ref == null ? null : ref.get();
+		if (entry != null && entry.state.compareAndSet(IDLE, IN_USE)) {
+			return checkout(entry);
+		}
+		entry = pollIdle();
+		if (entry != null) {
+			return checkout(entry);
+		}
+		entry = tryCreate();
+		if (entry != null) {
+			return entry.connection;
+		}
+		long deadline = System.currentTimeMillis() + CollectorCfg.CONNECTION_TIMEOUT;
+		waiters.incrementAndGet();
+		try {
+			synchronized (waitLock) {
+				while (true) {
+					entry = pollIdle();
+					if (entry != null) {
+						return checkout(entry);
+					}
+					entry = tryCreate();
+					if (entry != null) {
+						return entry.connection;
+					}
+					long remaining = deadline - System.currentTimeMillis();
+					if (remaining <= 0) {
+						throw new SQLTransientConnectionException("can't get Connection in " + CollectorCfg.CONNECTION_TIMEOUT + "ms! total=" + total.get() + " active=" + getActiveCount());
+					}
+					waitLock.wait(remaining);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLTransientConnectionException("interrupted while waiting for Connection!", e);
+		} finally {
+			waiters.decrementAndGet();
+		}
+	}
+
+	/**
+	 * 关闭连接(将连接交还给连接池, 并未真正关闭)
+	 * 
+	 * @param conn
+	 */
+	@Override
+	public void closeConnection(Connection conn) {
+		if (conn == null) {
+			return;
+		}
+		Entry entry = entries.get(conn);
+		if (entry == null) {
+			throw new RuntimeException("not include this connection!");
+		}
+		WeakReference<Entry> ref = affinity.get();
+		if (ref != entry.self) {
+			affinity.set(entry.self);
+		}
+		release(entry);
+	}
+
+	/**
+	 * 关闭所有连接;
+	 */
+	@Override
+	public void closePool() {
+		if (housekeeper != null) {
+			housekeeper.shutdownNow();
+		}
+		for (Entry entry : entries.values()) {
+			remove(entry);
+		}
+	}
+
+	/**
+	 * 调整连接数范围; 缩小时多余的连接在归还时关闭, 不影响正在使用的连接;
+	 * 
+	 * @param minSize
+	 * @param maxSize
+	 */
+	public void resize(int minSize, int maxSize) {
+		this.maxSize = maxSize;
+		this.minSize = Math.min(minSize, maxSize);
+		Entry entry;
+		while ((entry = pollIdle()) != null) {
+			if (!claimRemoval(maxSize)) {
+				release(entry);
+				break;
+			}
+			entry.state.set(REMOVED);
+			discard(entry);
+		}
+		if (waiters.get() > 0) {
+			// 上限调大后等待者可以新建连接
+			synchronized (waitLock) {
+				waitLock.notifyAll();
+			}
+		}
+	}
+
+	public int getTotalCount() {
+		return total.get();
+	}
+
+	public int getActiveCount() {
+		int active = 0;
+		for (Entry entry : entries.values()) {
+			if (entry.state.get() == IN_USE) {
+				active++;
+			}
+		}
+		return active;
+	}
+
+	/**
+	 * 收缩空闲超时的连接, 补足最小连接数, 报告疑似泄漏的连接;
+	 * 
+	 * @param now
+	 */
+	void housekeep(long now) {
+		for (Entry entry : entries.values()) {
+			int state = entry.state.get();
+			if (state == IDLE && now - entry.lastAccess > CollectorCfg.CONNECTION_IDLE_TIMEOUT && claimRemoval(minSize)) {
+				if (entry.state.compareAndSet(IDLE, REMOVED)) {
+					discard(entry);
+				} else {
+					// 刚被借出, 名额还回去
+					total.incrementAndGet();
+				}
+			} else if (state == IN_USE && CollectorCfg.CONNECTION_LEAK_THRESHOLD > 0 && now - entry.lastAccess > CollectorCfg.CONNECTION_LEAK_THRESHOLD && !entry.leakReported) {
+				Thread borrower = entry.borrower;
+				entry.leakReported = true;
+				System.err.println("connection leak detection: held " + (now - entry.lastAccess) + "ms by " + (borrower == null ? "unknown" : borrower.getName()));
+				if (borrower != null) {
+					for (StackTraceElement element : borrower.getStackTrace()) {
+						System.err.println("\tat " + element);
+					}
+				}
+			}
+		}
+		while (total.get() < minSize) {
+			Entry entry = tryCreate();
+			if (entry == null) {
+				break;
+			}
+			release(entry);
+		}
+	}
+
+	/**
+	 * 从空闲队列中取出一个可用连接;
+	 * 
+	 * @return
+	 */
+	private Entry pollIdle() {
+		Entry entry;
+		while ((entry = idle.pollFirst()) != null) {
+			// 先清标记再抢占, 抢占失败的连接由持有者归还时重新入队
+			entry.queued.set(false);
+			if (entry.state.compareAndSet(IDLE, IN_USE)) {
+				return entry;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 借出前检查长时间空闲的连接是否还有效, 失效时换一个;
+	 * 
+	 * @param entry
+	 * @return
+	 */
+	private Connection checkout(Entry entry) throws SQLException {
+		long now = System.currentTimeMillis();
+		if (now - entry.lastAccess > CollectorCfg.CONNECTION_VALIDATE_IDLE && !isValid(entry.connection)) {
+			entry.state.set(REMOVED);
+			remove(entry);
+			return getConnection();
+		}
+		entry.lastAccess = now;
+		Thread current = Thread.currentThread();
+		if (entry.borrower != current) {
+			entry.borrower = current;
+		}
+		if (entry.leakReported) {
+			entry.leakReported = false;
+		}
+		return entry.connection;
+	}
+
+	/**
+	 * 连接数未达上限时新建一个连接, 直接处于借出状态;
+	 * 
+	 * @return 已达上限或建立失败时返回null
+	 */
+	private Entry tryCreate() {
+		while (true) {
+			int current = total.get();
+			if (current >= maxSize) {
+				return null;
+			}
+			if (total.compareAndSet(current, current + 1)) {
+				break;
+			}
+		}
+		try {
+			Connection connection = DriverManager.getConnection(CollectorCfg.DB_HOST, CollectorCfg.DB_USER, CollectorCfg.DB_PWD);
+			Entry entry = new Entry(connection);
+			entry.borrower = Thread.currentThread();
+			entries.put(connection, entry);
+			return entry;
+		} catch (SQLException e) {
+			total.decrementAndGet();
+			System.err.println("BagPool connect fail E:" + e.getMessage());
+			return null;
+		}
+	}
+
+	private void release(Entry entry) {
+		if (claimRemoval(maxSize)) {
+			entry.state.set(REMOVED);
+			discard(entry);
+			return;
+		}
+		entry.lastAccess = System.currentTimeMillis();
+		entry.state.set(IDLE);
+		if (entry.queued.compareAndSet(false, true)) {
+			idle.offerFirst(entry);
+		}
+		if (waiters.get() > 0) {
+			synchronized (waitLock) {
+				waitLock.notify();
+			}
+		}
+	}
+
+	/**
+	 * 连接总数大于下限时用CAS减一, 多个线程同时归还时不会减到下限以下;
+	 * 
+	 * @param floor
+	 * @return 是否占到了一个移除名额, 占到后用 {@link #discard(Entry)} 关闭连接
+	 */
+	private boolean claimRemoval(int floor) {
+		while (true) {
+			int current = total.get();
+			if (current <= floor) {
+				return false;
+			}
+			if (total.compareAndSet(current, current - 1)) {
+				return true;
+			}
+		}
+	}
+
+	private void remove(Entry entry) {
+		if (entries.remove(entry.connection) == null) {
+			return;
+		}
+		total.decrementAndGet();
+		close(entry);
+	}
+
+	/**
+	 * 关闭已经通过 {@link #claimRemoval(int)} 扣减过总数的连接;
+	 * 
+	 * @param entry
+	 */
+	private void discard(Entry entry) {
+		if (entries.remove(entry.connection) == null) {
+			// 已被其他线程移除并扣减过, 还回名额
+			total.incrementAndGet();
+			return;
+		}
+		close(entry);
+	}
+
+	private void close(Entry entry) {
+		idle.remove(entry);
+		try {
+			entry.connection.close();
+		} catch (SQLException e) {
+			System.out.println(e.getMessage());
+		}
+		if (waiters.get() > 0) {
+			// 腾出了名额, 让等待者去新建连接
+			synchronized (waitLock) {
+				waitLock.notify();
+			}
+		}
+	}
+
+	private static boolean isValid(Connection connection) {
+		try {
+			return connection.isValid(1);
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * 池中的一个连接;
+	 */
+	static class Entry {
+		final Connection connection;
+		final AtomicInteger state = new AtomicInteger(IN_USE);
+		/** 是否在空闲队列中 */
+		final AtomicBoolean queued = new AtomicBoolean();
+		final WeakReference<Entry> self = new WeakReference<Entry>(this);
+		/** 最后一次借出或归还的时间 */
+		volatile long lastAccess = System.currentTimeMillis();
+		/** 最近一次借出的线程 */
+		volatile Thread borrower;
+		volatile boolean leakReported;
+
+		Entry(Connection connection) {
+			this.connection = connection;
+		}
+	}
+}
@@ -6,6 +6,7 @@ import java.sql.SQLException;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import com.zoll.collector.config.CollectorCfg;
+import com.zoll.collector.config.CollectorConfig;
 
 public class HikariPool implements IConnectionPool{
 	private HikariDataSource hds;
@@ -21,22 +22,16 @@ public class HikariPool implements IConnectionPool{
 		config.setConnectionTestQuery("SELECT 1");
 		config.setAutoCommit(true);
 		
-		config.setMinimumIdle(CollectorCfg.CONNECTION_POOL_MIN_SIZE);
+		config.setMinimumIdle(CollectorConfig.getInstance().getPoolMinSize());
 		
-		config.setMaximumPoolSize(CollectorCfg.CONNECTION_POOL_MAX_SIZE);
+		config.setMaximumPoolSize(CollectorConfig.getInstance().getPoolMaxSize());
 		
 		hds = new HikariDataSource(config);
 	}
 
 	@Override
-	public Connection getConnection() {
-		try {
-			return hds.getConnection();
-		} catch (SQLException e) {
-			System.out.println(e.getMessage());
-			hds.resumePool();
-			return null;
-		}
+	public Connection getConnection() throws SQLException {
+		return hds.getConnection();
 	}
 
 	@Override
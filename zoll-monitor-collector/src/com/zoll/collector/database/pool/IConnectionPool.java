@@ -1,11 +1,18 @@
 package com.zoll.collector.database.pool;
 
 import java.sql.Connection;
+import java.sql.SQLException;
 
 public interface IConnectionPool {
 	public void initPool();
 	
-	public Connection getConnection();
+	/**
+	 * 获得数据库连接, 拿不到时抛出 SQLException, 由调用者决定重试还是放弃;
+	 * 
+	 * @return
+	 * @throws SQLException
+	 */
+	public Connection getConnection() throws SQLException;
 	
 	public void closeConnection(Connection conn);
 	
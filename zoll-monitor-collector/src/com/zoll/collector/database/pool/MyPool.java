@@ -3,6 +3,7 @@ package com.zoll.collector.database.pool;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
@@ -34,7 +35,7 @@ public class MyPool implements IConnectionPool{
 	 * @return
 	 */
 	@Override
-	public Connection getConnection() {
+	public Connection getConnection() throws SQLException {
 		synchronized (connections) {
 			try {
 				Collection<Integer> values = connections.values();
@@ -50,10 +51,10 @@ public class MyPool implements IConnectionPool{
 				}
 
 			} catch (InterruptedException e) {
-				e.printStackTrace();
+				Thread.currentThread().interrupt();
 			}
 		}
-		throw new RuntimeException("can't get Connection!");
+		throw new SQLTransientConnectionException("can't get Connection!");
 	}
 
 	/**
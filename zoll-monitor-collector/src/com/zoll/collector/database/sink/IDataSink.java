@@ -0,0 +1,29 @@
+package com.zoll.collector.database.sink;
+
+import java.util.Map;
+
+/**
+ * 数据落地方式;
+ * 
+ * @date 2026年10月19日 上午3:14:20
+ * 
+ * @project zoll-monitor-collector
+ * 
+ */
+public interface IDataSink {
+
+	public void init();
+
+	/**
+	 * 写入一行;
+	 * 
+	 * @param table
+	 *            表名(dataType)
+	 * @param row
+	 *            列名 -> 值
+	 * @param createTime
+	 */
+	public void write(String table, Map<String, String> row, long createTime);
+
+	public void close();
+}
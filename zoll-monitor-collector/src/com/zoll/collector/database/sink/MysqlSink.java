@@ -0,0 +1,35 @@
+package com.zoll.collector.database.sink;
+
+import java.util.Map;
+
+import com.zoll.collector.database.DBManager;
+
+/**
+ * 写入MySQL(默认方式), 由DB线程批量执行insert;
+ * 
+ * @date 2026年10月19日 上午3:14:20
+ * 
+ * @project zoll-monitor-collector
+ * 
+ */
+public class MysqlSink implements IDataSink {
+	private final DBManager dbManager;
+
+	public MysqlSink(DBManager dbManager) {
+		this.dbManager = dbManager;
+	}
+
+	@Override
+	public void init() {
+	}
+
+	@Override
+	public void write(String table, Map<String, String> row, long createTime) {
+		dbManager.insertRow(row, table, createTime);
+	}
+
+	@Override
+	public void close() {
+		dbManager.getConnectionPool().closePool();
+	}
+}
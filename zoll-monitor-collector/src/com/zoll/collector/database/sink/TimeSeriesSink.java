@@ -0,0 +1,75 @@
+package com.zoll.collector.database.sink;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import com.zoll.collector.aggregate.AggregateManager;
+import com.zoll.collector.config.CollectorCfg;
+import com.zoll.collector.tsdb.TimeSeriesStore;
+
+/**
+ * 写入嵌入式时序存储, 不依赖MySQL;
+ * 
+ * 除 count 和 countType 以外的列都作为维度标签, 组成序列标识;
+ * 
+ * @date 2026年10月19日 上午3:14:20
+ * 
+ * @project zoll-monitor-collector
+ * 
+ */
+public class TimeSeriesSink implements IDataSink {
+	private TimeSeriesStore store;
+
+	@Override
+	public void init() {
+		store = new TimeSeriesStore(new File(CollectorCfg.TSDB_DIR), CollectorCfg.TSDB_CHUNK_SIZE, CollectorCfg.TSDB_SEGMENT_SIZE);
+		try {
+			store.open();
+		} catch (IOException e) {
+			throw new RuntimeException("open time series store fail", e);
+		}
+	}
+
+	@Override
+	public void write(String table, Map<String, String> row, long createTime) {
+		long count = 0;
+		int countType = CollectorCfg.INCREASE_COUNT;
+		TreeMap<String, String> tags = new TreeMap<String, String>();
+		for (Entry<String, String> entry : row.entrySet()) {
+			try {
+				if (AggregateManager.COUNT_KEY.equals(entry.getKey())) {
+					count = Long.parseLong(entry.getValue());
+					continue;
+				}
+				if (AggregateManager.COUNT_TYPE_KEY.equals(entry.getKey())) {
+					countType = Integer.parseInt(entry.getValue());
+					continue;
+				}
+			} catch (NumberFormatException e) {
+				return;
+			}
+			tags.put(entry.getKey(), entry.getValue());
+		}
+		StringBuilder seriesKey = new StringBuilder().append(countType);
+		for (Entry<String, String> entry : tags.entrySet()) {
+			seriesKey.append(',').append(entry.getKey()).append('=').append(entry.getValue());
+		}
+		try {
+			store.write(table, seriesKey.toString(), countType, createTime, count);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	public TimeSeriesStore getStore() {
+		return store;
+	}
+
+	@Override
+	public void close() {
+		store.close();
+	}
+}
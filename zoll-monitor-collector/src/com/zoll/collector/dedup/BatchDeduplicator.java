@@ -0,0 +1,153 @@
+package com.zoll.collector.dedup;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.zoll.collector.config.CollectorCfg;
+import com.zoll.collector.metrics.CollectorMetrics;
+
+/**
+ * 上报批次去重;
+ *
+ * 上报端给每个批次打上 上报端ID + 单调递增的序号, 失败重试和磁盘回放时序号不变; 每个上报端记一个最大序号(高水位)和其下
+ * {@link CollectorCfg#DEDUP_WINDOW} 个序号的滑动位图, 位图中已置位的批次视为重复; 并行发送和回放会让序号乱序到达, 所以不能只比较高水位;
+ * 比位图更老的序号无法判断, 照常接收(一般是长时间故障后回放的批次, 之前不可能到达过);
+ *
+ * @date 2026年10月19日 上午3:53:55
+ *
+ * @project zoll-monitor-collector
+ *
+ */
+public class BatchDeduplicator {
+	private static BatchDeduplicator instance = new BatchDeduplicator();
+
+	/** 上报端ID -> 序号窗口 */
+	private final ConcurrentMap<String, SequenceWindow> reporters = new ConcurrentHashMap<String, SequenceWindow>();
+
+	private BatchDeduplicator() {
+	}
+
+	public static BatchDeduplicator getInstance() {
+		return instance;
+	}
+
+	/**
+	 * 登记一个批次;
+	 *
+	 * @param reporterId
+	 *            为空时不去重
+	 * @param seq
+	 * @return 是否需要处理, 重复的批次返回false
+	 */
+	public boolean accept(String reporterId, long seq) {
+		if (reporterId == null || reporterId.isEmpty() || seq < 0) {
+			return true;
+		}
+		SequenceWindow window = reporters.get(reporterId);
+		if (window == null) {
+			SequenceWindow newWindow = new SequenceWindow(CollectorCfg.DEDUP_WINDOW);
+			window = reporters.putIfAbsent(reporterId, newWindow);
+			if (window == null) {
+				window = newWindow;
+				// 新上报端很少出现, 顺便清理长时间没有上报的
+				expire(System.currentTimeMillis() - CollectorCfg.DEDUP_IDLE_TIME);
+			}
+		}
+		return window.accept(seq);
+	}
+
+	/**
+	 * 批次处理失败, 撤销登记, 让重试的批次能再次被接收;
+	 *
+	 * @param reporterId
+	 * @param seq
+	 */
+	public void forget(String reporterId, long seq) {
+		if (reporterId == null || reporterId.isEmpty()) {
+			return;
+		}
+		SequenceWindow window = reporters.get(reporterId);
+		if (window != null) {
+			window.forget(seq);
+		}
+	}
+
+	private void expire(long before) {
+		Iterator<SequenceWindow> iterator = reporters.values().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().lastSeen < before) {
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * 一个上报端的高水位和滑动位图;
+	 */
+	static class SequenceWindow {
+		private final long[] bits;
+		private final long mask;
+		/** 已见过的最大序号, -1表示还没有 */
+		private long highWater = -1;
+		volatile long lastSeen;
+
+		/**
+		 * @param size
+		 *            位数, 2的幂且不小于64
+		 */
+		SequenceWindow(int size) {
+			this.bits = new long[size >>> 6];
+			this.mask = size - 1;
+			this.lastSeen = System.currentTimeMillis();
+		}
+
+		synchronized boolean accept(long seq) {
+			lastSeen = System.currentTimeMillis();
+			if (highWater < 0 || seq > highWater) {
+				if (highWater < 0 || seq - highWater > mask) {
+					Arrays.fill(bits, 0);
+				} else {
+					for (long s = highWater + 1; s < seq; s++) {
+						clear(s);
+					}
+				}
+				highWater = seq;
+				set(seq);
+				return true;
+			}
+			if (seq <= highWater - bits.length * 64L) {
+				CollectorMetrics.getInstance().getDedupExpired().mark();
+				return true;
+			}
+			if (isSet(seq)) {
+				CollectorMetrics.getInstance().getDedupDuplicate().mark();
+				return false;
+			}
+			set(seq);
+			return true;
+		}
+
+		synchronized void forget(long seq) {
+			if (seq <= highWater && seq > highWater - bits.length * 64L) {
+				clear(seq);
+			}
+		}
+
+		private boolean isSet(long seq) {
+			int index = (int) (seq & mask);
+			return (bits[index >>> 6] & (1L << index)) != 0;
+		}
+
+		private void set(long seq) {
+			int index = (int) (seq & mask);
+			bits[index >>> 6] |= 1L << index;
+		}
+
+		private void clear(long seq) {
+			int index = (int) (seq & mask);
+			bits[index >>> 6] &= ~(1L << index);
+		}
+	}
+}
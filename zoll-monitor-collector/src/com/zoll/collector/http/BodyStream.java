@@ -0,0 +1,126 @@
+package com.zoll.collector.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * 工作线程读取的请求体: Reactor线程收到多少喂多少, 工作线程边收边解析, 整个请求体不会同时留在内存中;
+ * 
+ * 已收到未读取的字节超过上限时Reactor暂停读取该连接, 工作线程读走一部分后再通知Reactor继续;
+ * 
+ * @date 2026年10月19日 上午4:20:09
+ * 
+ * @project zoll-monitor-collector
+ * 
+ */
+class BodyStream extends InputStream {
+	private final ArrayDeque<byte[]> chunks = new ArrayDeque<byte[]>();
+	/** 已收到未读取的字节数上限 */
+	private final int maxBuffered;
+	/** 读走数据使缓冲区不再满时的回调(唤醒Reactor) */
+	private final Runnable onDrain;
+	private byte[] current;
+	private int position;
+	/** 已收到未读取的字节数 */
+	private int buffered;
+	/** 还没有收到的字节数 */
+	private int remaining;
+	/** 连接已关闭 */
+	private boolean aborted;
+
+	BodyStream(int length, int maxBuffered, Runnable onDrain) {
+		this.remaining = length;
+		this.maxBuffered = maxBuffered;
+		this.onDrain = onDrain;
+	}
+
+	/**
+	 * 喂入收到的字节(复制一份), 由Reactor线程调用;
+	 * 
+	 * @param buf
+	 * @param offset
+	 * @param length
+	 * @return 实际喂入的字节数, 不超过还没有收到的字节数
+	 */
+	synchronized int feed(byte[] buf, int offset, int length) {
+		int n = Math.min(length, remaining);
+		if (n > 0) {
+			chunks.add(Arrays.copyOfRange(buf, offset, offset + n));
+			buffered += n;
+			remaining -= n;
+			notifyAll();
+		}
+		return n;
+	}
+
+	/**
+	 * 是否还需要从连接读取;
+	 * 
+	 * @return
+	 */
+	synchronized boolean wantsMore() {
+		return remaining > 0 && buffered < maxBuffered && !aborted;
+	}
+
+	/**
+	 * 请求体是否已全部收到;
+	 * 
+	 * @return
+	 */
+	synchronized boolean isReceived() {
+		return remaining == 0;
+	}
+
+	synchronized void abort() {
+		aborted = true;
+		notifyAll();
+	}
+
+	@Override
+	public int read() throws IOException {
+		byte[] one = new byte[1];
+		return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		boolean drained;
+		int n;
+		synchronized (this) {
+			while (current == null || position == current.length) {
+				current = chunks.poll();
+				position = 0;
+				if (current != null) {
+					continue;
+				}
+				if (remaining == 0) {
+					return -1;
+				}
+				if (aborted) {
+					throw new IOException("connection closed before the request body was received");
+				}
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("interrupted while reading the request body");
+				}
+			}
+			n = Math.min(len, current.length - position);
+			System.arraycopy(current, position, b, off, n);
+			position += n;
+			boolean full = buffered >= maxBuffered;
+			buffered -= n;
+			drained = full && buffered < maxBuffered;
+		}
+		if (drained) {
+			onDrain.run();
+		}
+		return n;
+	}
+}
@@ -0,0 +1,104 @@
+package com.zoll.collector.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 解析后的HTTP请求;
+ * 
+ * @date 2026年10月19日 上午3:05:37
+ * 
+ * @project zoll-monitor-collector
+ * 
+ */
+public class HttpRequest {
+	private final String method;
+	private final String path;
+	/** 未解码的查询串, 可能为null */
+	private final String query;
+	/** 头信息, 名称统一为小写 */
+	private final Map<String, String> headers = new HashMap<String, String>();
+	private byte[] body;
+	private int bodyOffset;
+	private int bodyLength;
+	private InputStream bodyStream;
+	private boolean keepAlive;
+
+	public HttpRequest(String method, String path, String query) {
+		this.method = method;
+		this.path = path;
+		this.query = query;
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public String getQuery() {
+		return query;
+	}
+
+	public String getHeader(String name) {
+		return headers.get(name.toLowerCase());
+	}
+
+	void addHeader(String name, String value) {
+		headers.put(name.toLowerCase(), value);
+	}
+
+	/**
+	 * 请求体所在的数组, 只在 {@link IHttpHandler#handle} 期间有效;
+	 * 
+	 * @return
+	 */
+	public byte[] getBody() {
+		return body;
+	}
+
+	public int getBodyOffset() {
+		return bodyOffset;
+	}
+
+	public int getBodyLength() {
+		return bodyLength;
+	}
+
+	void setBody(byte[] body, int offset, int length) {
+		this.body = body;
+		this.bodyOffset = offset;
+		this.bodyLength = length;
+	}
+
+	/**
+	 * 以流的方式读取请求体; 工作线程中的处理者拿到的是边收边读的流, 调用 {@link #getBody()} 得到null;
+	 * 
+	 * @return
+	 */
+	public InputStream getBodyStream() {
+		if (bodyStream == null) {
+			bodyStream = new ByteArrayInputStream(body, bodyOffset, bodyLength);
+		}
+		return bodyStream;
+	}
+
+	void setBodyStream(InputStream bodyStream, int length) {
+		this.body = null;
+		this.bodyOffset = 0;
+		this.bodyLength = length;
+		this.bodyStream = bodyStream;
+	}
+
+	public boolean isKeepAlive() {
+		return keepAlive;
+	}
+
+	void setKeepAlive(boolean keepAlive) {
+		this.keepAlive = keepAlive;
+	}
+}
@@ -0,0 +1,71 @@
+package com.zoll.collector.http;
+
+import java.io.UnsupportedEncodingException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.httpclient.HttpStatus;
+
+/**
+ * HTTP响应;
+ * 
+ * @date 2026年10月19日 上午3:05:37
+ * 
+ * @project zoll-monitor-collector
+ * 
+ */
+public class HttpResponse {
+	private static final byte[] EMPTY = new byte[0];
+
+	private int status = HttpStatus.SC_OK;
+	private String contentType = "text/plain; charset=UTF-8";
+	private Map<String, String> headers;
+	private byte[] body = EMPTY;
+
+	public int getStatus() {
+		return status;
+	}
+
+	public void setStatus(int status) {
+		this.status = status;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	public void setContentType(String contentType) {
+		this.contentType = contentType;
+	}
+
+	public void setHeader(String name, String value) {
+		if (headers == null) {
+			headers = new LinkedHashMap<String, String>();
+		}
+		headers.put(name, value);
+	}
+
+	public Map<String, String> getHeaders() {
+		return headers;
+	}
+
+	public byte[] getBody() {
+		return body;
+	}
+
+	public void setBody(byte[] body) {
+		this.body = body == null ? EMPTY : body;
+	}
+
+	public void setBody(String body) {
+		if (body == null) {
+			this.body = EMPTY;
+			return;
+		}
+		try {
+			this.body = body.getBytes("UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			e.printStackTrace();
+		}
+	}
+}
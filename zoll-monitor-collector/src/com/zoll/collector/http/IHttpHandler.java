@@ -0,0 +1,23 @@
+package com.zoll.collector.http;
+
+/**
+ * HTTP请求处理者;
+ * 
+ * 通过 {@link NioHttpServer#createContext} 注册的在I/O线程中被调用, 实现中不能有阻塞操作;
+ * 解压, 解析大请求体或读磁盘等耗时的处理者通过 {@link NioHttpServer#createWorkerContext} 注册, 在工作线程中调用;
+ * 
+ * @date 2026年10月19日 上午3:05:37
+ * 
+ * @project zoll-monitor-collector
+ * 
+ */
+public interface IHttpHandler {
+
+	/**
+	 * 处理一个请求;
+	 * 
+	 * @param request
+	 * @param response
+	 */
+	public void handle(HttpRequest request, HttpResponse response);
+}
@@ -0,0 +1,612 @@
+package com.zoll.collector.http;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.httpclient.HttpStatus;
+
+import com.zoll.collector.config.CollectorCfg;
+
+/**
+ * 非阻塞HTTP/1.1服务端;
+ *
+ * 一个accept线程 + 若干个Reactor线程, 每个连接固定绑定到一个Reactor; 支持keep-alive和pipelining(同一连接上的请求按顺序处理和应答);
+ * 
+ * 通过 {@link #createWorkerContext} 注册的处理者交给工作线程执行, 执行期间该连接暂停读取, 应答写出后再处理后续请求, 不阻塞同一Reactor上的其他连接;
+ *
+ * @date 2026年10月19日 上午3:05:37
+ *
+ * @project zoll-monitor-collector
+ *
+ */
+public class NioHttpServer {
+	private static final Charset ASCII = Charset.forName("US-ASCII");
+	private static final byte[] CRLF = { '\r', '\n' };
+
+	/** path前缀 -> 处理者 */
+	private final Map<String, IHttpHandler> contexts = new ConcurrentHashMap<String, IHttpHandler>();
+	/** 在工作线程中执行的处理者 */
+	private final Set<IHttpHandler> workerHandlers = Collections.newSetFromMap(new ConcurrentHashMap<IHttpHandler, Boolean>());
+	private ThreadPoolExecutor workers;
+
+	private ServerSocketChannel serverChannel;
+	private Reactor[] reactors;
+	private Thread[] reactorThreads;
+	private Thread acceptThread;
+	private volatile boolean running;
+
+	/**
+	 * 注册处理者, 用法同 HttpServer.createContext;
+	 *
+	 * @param path
+	 * @param handler
+	 */
+	public void createContext(String path, IHttpHandler handler) {
+		contexts.put(path, handler);
+	}
+
+	/**
+	 * 注册在工作线程中执行的处理者, 用于可能阻塞或耗时的请求;
+	 *
+	 * @param path
+	 * @param handler
+	 */
+	public void createWorkerContext(String path, IHttpHandler handler) {
+		workerHandlers.add(handler);
+		contexts.put(path, handler);
+	}
+
+	/**
+	 * 启动服务;
+	 *
+	 * @param address
+	 * @param port
+	 * @param backlog
+	 * @param ioThreads
+	 * @throws IOException
+	 */
+	public void start(String address, int port, int backlog, int ioThreads) throws IOException {
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+		serverChannel.bind(new InetSocketAddress(address, port), backlog);
+		running = true;
+		workers = new ThreadPoolExecutor(CollectorCfg.HTTP_WORKER_THREAD_SIZE, CollectorCfg.HTTP_WORKER_THREAD_SIZE, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(CollectorCfg.HTTP_WORKER_QUEUE_SIZE), new ThreadFactory() {
+			private final AtomicInteger index = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "Collector-Worker-" + index.getAndIncrement());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		reactors = new Reactor[ioThreads];
+		reactorThreads = new Thread[ioThreads];
+		for (int i = 0; i < ioThreads; i++) {
+			reactors[i] = new Reactor();
+			reactorThreads[i] = new Thread(reactors[i], "Collector-IO-" + i);
+			reactorThreads[i].start();
+		}
+		acceptThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				int next = 0;
+				while (running) {
+					try {
+						SocketChannel channel = serverChannel.accept();
+						channel.configureBlocking(false);
+						channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+						reactors[next++ % reactors.length].register(channel);
+					} catch (ClosedChannelException e) {
+						break;
+					} catch (IOException e) {
+						e.printStackTrace();
+					}
+				}
+			}
+		}, "Collector-Acceptor");
+		acceptThread.start();
+	}
+
+	public int getPort() {
+		return serverChannel.socket().getLocalPort();
+	}
+
+	/**
+	 * 关闭服务, 等待正在处理的请求(包括工作线程中的)结束并写出应答;
+	 */
+	public void stop() {
+		running = false;
+		try {
+			serverChannel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		if (reactors != null) {
+			for (Reactor reactor : reactors) {
+				reactor.selector.wakeup();
+			}
+			try {
+				for (Thread t : reactorThreads) {
+					t.join(CollectorCfg.SHUTDOWN_TIMEOUT);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (workers != null) {
+			workers.shutdown();
+		}
+	}
+
+	private IHttpHandler findHandler(String path) {
+		IHttpHandler handler = contexts.get(path);
+		if (handler != null) {
+			return handler;
+		}
+		String matched = null;
+		for (Entry<String, IHttpHandler> entry : contexts.entrySet()) {
+			if (path.startsWith(entry.getKey()) && (matched == null || entry.getKey().length() > matched.length())) {
+				matched = entry.getKey();
+				handler = entry.getValue();
+			}
+		}
+		return handler;
+	}
+
+	/**
+	 * I/O线程;
+	 */
+	class Reactor implements Runnable {
+		private final Selector selector;
+		private final Queue<SocketChannel> pending = new ConcurrentLinkedQueue<SocketChannel>();
+		/** 工作线程已处理完的连接 */
+		private final Queue<HttpConnection> completed = new ConcurrentLinkedQueue<HttpConnection>();
+		/** 交给工作线程还未完成的请求数, 只被Reactor线程访问 */
+		private int inflight;
+
+		Reactor() throws IOException {
+			selector = Selector.open();
+		}
+
+		void register(SocketChannel channel) {
+			pending.add(channel);
+			selector.wakeup();
+		}
+
+		/**
+		 * 工作线程处理完请求, 或读走请求体后需要继续读取时唤醒Reactor;
+		 *
+		 * @param conn
+		 */
+		void complete(HttpConnection conn) {
+			completed.add(conn);
+			selector.wakeup();
+		}
+
+		@Override
+		public void run() {
+			// 停止时等工作线程中的请求应答完再退出
+			while (running || inflight > 0) {
+				try {
+					selector.select();
+					SocketChannel channel;
+					while ((channel = pending.poll()) != null) {
+						HttpConnection conn = new HttpConnection(this, channel);
+						conn.key = channel.register(selector, SelectionKey.OP_READ, conn);
+					}
+					HttpConnection done;
+					while ((done = completed.poll()) != null) {
+						try {
+							if (done.takeFinished()) {
+								inflight--;
+								done.resume();
+							} else if (done.key.isValid()) {
+								done.flush(done.key);
+							}
+						} catch (IOException e) {
+							done.close(done.key);
+						} catch (RuntimeException e) {
+							e.printStackTrace();
+							done.close(done.key);
+						}
+					}
+					Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+					while (iterator.hasNext()) {
+						SelectionKey key = iterator.next();
+						iterator.remove();
+						HttpConnection conn = (HttpConnection) key.attachment();
+						try {
+							if (key.isValid() && key.isWritable()) {
+								conn.flush(key);
+							}
+							if (key.isValid() && key.isReadable() && (running || conn.streaming != null)) {
+								conn.read(key);
+							}
+						} catch (IOException e) {
+							conn.close(key);
+						} catch (RuntimeException e) {
+							// 一个连接出错不能让Reactor线程退出, 否则其上的其他连接都会挂住
+							e.printStackTrace();
+							conn.close(key);
+						}
+					}
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+			for (SelectionKey key : selector.keys()) {
+				((HttpConnection) key.attachment()).close(key);
+			}
+			try {
+				selector.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * 一个客户端连接, 只被所属Reactor线程访问;
+	 */
+	class HttpConnection {
+		private final Reactor reactor;
+		private final SocketChannel channel;
+		private SelectionKey key;
+		private ByteBuffer in = ByteBuffer.allocate(CollectorCfg.HTTP_READ_BUFFER_SIZE);
+		/** 始终处于写入模式 */
+		private ByteBuffer out = ByteBuffer.allocate(CollectorCfg.HTTP_READ_BUFFER_SIZE);
+		private boolean closeAfterWrite;
+		/** 有请求在工作线程中处理, 暂停解析后续请求 */
+		private boolean busy;
+		/** 工作线程正在读取的请求体, 收齐之前继续从连接读取 */
+		private BodyStream streaming;
+		private volatile boolean finished;
+		/** 工作线程的处理结果, 由Reactor线程写出 */
+		private volatile HttpResponse asyncResponse;
+		private volatile boolean asyncKeepAlive;
+
+		HttpConnection(Reactor reactor, SocketChannel channel) {
+			this.reactor = reactor;
+			this.channel = channel;
+		}
+
+		void read(SelectionKey key) throws IOException {
+			if (closeAfterWrite) {
+				return;
+			}
+			if (busy) {
+				readBody(key);
+				return;
+			}
+			if (!in.hasRemaining()) {
+				if (in.capacity() >= CollectorCfg.HTTP_MAX_REQUEST_SIZE) {
+					writeError(HttpStatus.SC_REQUEST_TOO_LONG);
+					flush(key);
+					return;
+				}
+				ByteBuffer bigger = ByteBuffer.allocate(Math.min(in.capacity() * 2, CollectorCfg.HTTP_MAX_REQUEST_SIZE));
+				in.flip();
+				bigger.put(in);
+				in = bigger;
+			}
+			int n = channel.read(in);
+			if (n < 0) {
+				close(key);
+				return;
+			}
+			in.flip();
+			// pipelining: 缓冲区里有几个完整请求就处理几个
+			while (!closeAfterWrite && !busy && parseAndHandle()) {
+			}
+			in.compact();
+			flush(key);
+		}
+
+		/**
+		 * 工作线程处理请求期间读取请求体的剩余部分, 请求体之后的字节留在读缓冲区;
+		 *
+		 * @param key
+		 * @throws IOException
+		 */
+		private void readBody(SelectionKey key) throws IOException {
+			if (streaming == null || !streaming.wantsMore()) {
+				flush(key);
+				return;
+			}
+			int n = channel.read(in);
+			if (n < 0) {
+				close(key);
+				return;
+			}
+			in.flip();
+			int fed = streaming.feed(in.array(), in.arrayOffset() + in.position(), in.remaining());
+			in.position(in.position() + fed);
+			in.compact();
+			flush(key);
+		}
+
+		boolean takeFinished() {
+			if (!finished) {
+				return false;
+			}
+			finished = false;
+			return true;
+		}
+
+		/**
+		 * 写出工作线程的处理结果, 继续处理缓冲区中的后续请求;
+		 *
+		 * @throws IOException
+		 */
+		void resume() throws IOException {
+			busy = false;
+			BodyStream body = streaming;
+			streaming = null;
+			if (!key.isValid()) {
+				return;
+			}
+			// 处理者没有读完请求体时连接上还有未收到的部分, 无法定位下一个请求, 应答后关闭
+			boolean keepAlive = asyncKeepAlive && (body == null || body.isReceived());
+			writeResponse(asyncResponse, keepAlive);
+			asyncResponse = null;
+			in.flip();
+			while (!closeAfterWrite && !busy && parseAndHandle()) {
+			}
+			in.compact();
+			flush(key);
+		}
+
+		/**
+		 * 从读缓冲区中解析并处理一个请求;
+		 *
+		 * @return 是否处理了一个完整请求
+		 */
+		private boolean parseAndHandle() {
+			byte[] buf = in.array();
+			int start = in.arrayOffset() + in.position();
+			int limit = in.arrayOffset() + in.limit();
+			int headerEnd = indexOfHeaderEnd(buf, start, limit);
+			if (headerEnd < 0) {
+				return false;
+			}
+			int lineEnd = indexOf(buf, start, headerEnd, (byte) '\r');
+			String requestLine = new String(buf, start, lineEnd - start, ASCII);
+			int sp1 = requestLine.indexOf(' ');
+			int sp2 = requestLine.lastIndexOf(' ');
+			if (sp1 <= 0 || sp2 <= sp1) {
+				writeError(HttpStatus.SC_BAD_REQUEST);
+				return false;
+			}
+			String method = requestLine.substring(0, sp1);
+			String uri = requestLine.substring(sp1 + 1, sp2);
+			String version = requestLine.substring(sp2 + 1);
+			int q = uri.indexOf('?');
+			HttpRequest request = new HttpRequest(method, q < 0 ? uri : uri.substring(0, q), q < 0 ? null : uri.substring(q + 1));
+
+			int pos = lineEnd + 2;
+			while (pos < headerEnd) {
+				int end = indexOf(buf, pos, headerEnd, (byte) '\r');
+				int colon = indexOf(buf, pos, end, (byte) ':');
+				if (colon > pos && colon < end) {
+					String name = new String(buf, pos, colon - pos, ASCII).trim();
+					String value = new String(buf, colon + 1, end - colon - 1, ASCII).trim();
+					request.addHeader(name, value);
+				}
+				pos = end + 2;
+			}
+
+			int bodyStart = headerEnd + 4;
+			long declaredLength = 0;
+			String contentLength = request.getHeader("Content-Length");
+			if (contentLength != null) {
+				try {
+					declaredLength = Long.parseLong(contentLength);
+				} catch (NumberFormatException e) {
+					writeError(HttpStatus.SC_BAD_REQUEST);
+					return false;
+				}
+			} else if (request.getHeader("Transfer-Encoding") != null) {
+				writeError(HttpStatus.SC_LENGTH_REQUIRED);
+				return false;
+			}
+			if (declaredLength < 0) {
+				writeError(HttpStatus.SC_BAD_REQUEST);
+				return false;
+			}
+			if (declaredLength > Integer.MAX_VALUE) {
+				writeError(HttpStatus.SC_REQUEST_TOO_LONG);
+				return false;
+			}
+			int bodyLength = (int) declaredLength;
+
+			String connection = request.getHeader("Connection");
+			boolean keepAlive = "HTTP/1.1".equals(version) ? !"close".equalsIgnoreCase(connection) : "keep-alive".equalsIgnoreCase(connection);
+			request.setKeepAlive(keepAlive);
+
+			IHttpHandler handler = findHandler(request.getPath());
+			if (handler != null && workerHandlers.contains(handler)) {
+				// 请求体边收边交给工作线程, 不在读缓冲区中攒齐, 大小不受 HTTP_MAX_REQUEST_SIZE 限制
+				final BodyStream body = new BodyStream(bodyLength, CollectorCfg.HTTP_BODY_BUFFER_SIZE, new Runnable() {
+					@Override
+					public void run() {
+						reactor.complete(HttpConnection.this);
+					}
+				});
+				int fed = body.feed(buf, bodyStart, limit - bodyStart);
+				in.position(bodyStart + fed - in.arrayOffset());
+				request.setBodyStream(body, bodyLength);
+				if (submit(handler, request, keepAlive)) {
+					busy = true;
+					streaming = body;
+					reactor.inflight++;
+					return false;
+				}
+				HttpResponse response = new HttpResponse();
+				response.setStatus(HttpStatus.SC_SERVICE_UNAVAILABLE);
+				writeResponse(response, keepAlive && fed == bodyLength);
+				return true;
+			}
+			// 先比较长度再做加法, 超大的 Content-Length 不会溢出成负数
+			if (bodyLength > CollectorCfg.HTTP_MAX_REQUEST_SIZE - (bodyStart - start)) {
+				writeError(HttpStatus.SC_REQUEST_TOO_LONG);
+				return false;
+			}
+			if (bodyLength > limit - bodyStart) {
+				return false;
+			}
+			request.setBody(buf, bodyStart, bodyLength);
+			HttpResponse response = handle(handler, request);
+			in.position(bodyStart + bodyLength - in.arrayOffset());
+			writeResponse(response, keepAlive);
+			return true;
+		}
+
+		private boolean submit(final IHttpHandler handler, final HttpRequest request, final boolean keepAlive) {
+			try {
+				workers.execute(new Runnable() {
+					@Override
+					public void run() {
+						asyncResponse = handle(handler, request);
+						asyncKeepAlive = keepAlive;
+						finished = true;
+						reactor.complete(HttpConnection.this);
+					}
+				});
+				return true;
+			} catch (RejectedExecutionException e) {
+				return false;
+			}
+		}
+
+		private void writeError(int status) {
+			HttpResponse response = new HttpResponse();
+			response.setStatus(status);
+			writeResponse(response, false);
+		}
+
+		private void writeResponse(HttpResponse response, boolean keepAlive) {
+			StringBuilder sb = new StringBuilder(128);
+			sb.append("HTTP/1.1 ").append(response.getStatus()).append(' ').append(HttpStatus.getStatusText(response.getStatus())).append("\r\n");
+			sb.append("Content-Type: ").append(response.getContentType()).append("\r\n");
+			sb.append("Content-Length: ").append(response.getBody().length).append("\r\n");
+			if (response.getHeaders() != null) {
+				for (Entry<String, String> entry : response.getHeaders().entrySet()) {
+					sb.append(entry.getKey()).append(": ").append(entry.getValue()).append("\r\n");
+				}
+			}
+			if (!keepAlive) {
+				sb.append("Connection: close\r\n");
+				closeAfterWrite = true;
+			}
+			byte[] head = sb.toString().getBytes(ASCII);
+			ensureOut(head.length + CRLF.length + response.getBody().length);
+			out.put(head).put(CRLF).put(response.getBody());
+		}
+
+		private void ensureOut(int size) {
+			if (out.remaining() < size) {
+				ByteBuffer bigger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + size));
+				out.flip();
+				bigger.put(out);
+				out = bigger;
+			}
+		}
+
+		void flush(SelectionKey key) throws IOException {
+			out.flip();
+			if (out.hasRemaining()) {
+				channel.write(out);
+			}
+			boolean done = !out.hasRemaining();
+			out.compact();
+			if (done) {
+				if (closeAfterWrite) {
+					close(key);
+				} else if (key.interestOps() != readInterest()) {
+					key.interestOps(readInterest());
+				}
+			} else if (closeAfterWrite || out.position() > CollectorCfg.HTTP_MAX_REQUEST_SIZE) {
+				// 对端只发不收时暂停读取, 等待写缓冲区排空
+				key.interestOps(SelectionKey.OP_WRITE);
+			} else {
+				key.interestOps(readInterest() | SelectionKey.OP_WRITE);
+			}
+		}
+
+		private int readInterest() {
+			if (busy) {
+				return streaming != null && streaming.wantsMore() ? SelectionKey.OP_READ : 0;
+			}
+			return SelectionKey.OP_READ;
+		}
+
+		void close(SelectionKey key) {
+			key.cancel();
+			if (streaming != null) {
+				streaming.abort();
+			}
+			try {
+				channel.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+	}
+
+	private static HttpResponse handle(IHttpHandler handler, HttpRequest request) {
+		HttpResponse response = new HttpResponse();
+		if (handler == null) {
+			response.setStatus(HttpStatus.SC_NOT_FOUND);
+			return response;
+		}
+		try {
+			handler.handle(request, response);
+		} catch (Exception e) {
+			e.printStackTrace();
+			response = new HttpResponse();
+			response.setStatus(HttpStatus.SC_INTERNAL_SERVER_ERROR);
+		}
+		return response;
+	}
+
+	private static int indexOfHeaderEnd(byte[] buf, int from, int to) {
+		for (int i = from; i + 3 < to; i++) {
+			if (buf[i] == '\r' && buf[i + 1] == '\n' && buf[i + 2] == '\r' && buf[i + 3] == '\n') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static int indexOf(byte[] buf, int from, int to, byte b) {
+		for (int i = from; i < to; i++) {
+			if (buf[i] == b) {
+				return i;
+			}
+		}
+		return to;
+	}
+}
@@ -17,6 +17,8 @@ public class ReportEvent {
 	private String dataType;
 	/** 上报内容 */
 	private Map<String, String> datas;
+	/** 上报端打的时间戳, 0表示以采集端聚合时的时间为准 */
+	private long time;
 
 	public ReportEvent(String dataType) {
 		this.dataType = dataType;
@@ -33,4 +35,12 @@ public class ReportEvent {
 	public Map<String, String> getDatas() {
 		return this.datas;
 	}
+
+	public long getTime() {
+		return time;
+	}
+
+	public void setTime(long time) {
+		this.time = time;
+	}
 }
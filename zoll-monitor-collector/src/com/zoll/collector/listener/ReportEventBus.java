@@ -1,28 +1,174 @@
 package com.zoll.collector.listener;
 
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import com.codahale.metrics.Gauge;
+import com.zoll.collector.config.CollectorCfg;
+import com.zoll.collector.database.DBManager;
+import com.zoll.collector.metrics.CollectorMetrics;
+
+/**
+ * 上报事件总线;
+ * 
+ * 事件按dataType散列到固定的分发线程上异步执行, 同一dataType的事件保持先后顺序, I/O线程不会被监听者阻塞;
+ * 
+ * @author qianhang
+ * 
+ * @date 2026年10月20日 下午2:10:31
+ * 
+ * @project zoll-monitor-collector
+ * 
+ */
 public class ReportEventBus {
-	private static Map<String, List<IEventListener>> registers = new ConcurrentHashMap<String, List<IEventListener>>();
-	
-	public static void fireReportEvent(ReportEvent event) {
-		if (registers.containsKey(event.getDataType())) {
-			List<IEventListener> list = registers.get(event.getDataType());
-			for (IEventListener eacheListener : list) {
-				eacheListener.onEvent(event);
+	private static ConcurrentMap<String, List<IEventListener>> registers = new ConcurrentHashMap<String, List<IEventListener>>();
+	/** 对所有dataType生效的监听者 */
+	private static List<IEventListener> globalListeners = new CopyOnWriteArrayList<IEventListener>();
+	/** 分发线程 */
+	private static ThreadPoolExecutor[] stripes = createStripes(CollectorCfg.EVENT_DISPATCH_THREAD_SIZE);
+	/** 分发队列已满而被丢弃的事件数 */
+	private static AtomicLong droppedCount = new AtomicLong();
+
+	static {
+		CollectorMetrics.getInstance().gauge("ingest.queue", new Gauge<Integer>() {
+			@Override
+			public Integer getValue() {
+				return getQueueDepth();
+			}
+		});
+		CollectorMetrics.getInstance().gauge("ingest.dropped", new Gauge<Long>() {
+			@Override
+			public Long getValue() {
+				return getDroppedCount();
+			}
+		});
+	}
+
+	/**
+	 * 放入dataType对应的分发队列;
+	 * 
+	 * @param event
+	 * @return 是否放入, 队列已满或已停止时丢弃并返回false
+	 */
+	public static boolean fireReportEvent(final ReportEvent event) {
+		final List<IEventListener> list = getOrRegister(event.getDataType());
+		CollectorMetrics.getInstance().ingest(event.getDataType()).mark();
+		try {
+			stripeOf(event.getDataType()).execute(new Runnable() {
+				@Override
+				public void run() {
+					dispatch(list, event);
+				}
+			});
+			return true;
+		} catch (RejectedExecutionException e) {
+			droppedCount.incrementAndGet();
+			return false;
+		}
+	}
+
+	/**
+	 * dataType对应的分发队列, 只用于查看容量;
+	 * 
+	 * @param dataType
+	 * @return
+	 */
+	public static BlockingQueue<Runnable> queueOf(String dataType) {
+		return stripeOf(dataType).getQueue();
+	}
+
+	/**
+	 * 为某个dataType注册监听者(聚合, 转发, 报警等);
+	 * 
+	 * @param dataType
+	 * @param listener
+	 */
+	public static void registerListener(String dataType, IEventListener listener) {
+		getOrRegister(dataType).add(listener);
+	}
+
+	/**
+	 * 注册对所有dataType生效的监听者;
+	 * 
+	 * @param listener
+	 */
+	public static void registerGlobalListener(IEventListener listener) {
+		globalListeners.add(listener);
+	}
+
+	public static void removeListener(IEventListener listener) {
+		globalListeners.remove(listener);
+		for (List<IEventListener> list : registers.values()) {
+			list.remove(listener);
+		}
+	}
+
+	/**
+	 * 分发线程中排队的事件数;
+	 * 
+	 * @return
+	 */
+	public static int getQueueDepth() {
+		int depth = 0;
+		for (ThreadPoolExecutor stripe : stripes) {
+			depth += stripe.getQueue().size();
+		}
+		return depth;
+	}
+
+	/**
+	 * 负载: 最满的分发队列的占用百分比和DB线程积压的较大者, 一个dataType过热或数据库写不动时都能反映出来;
+	 * 
+	 * @return 0 ~ 100
+	 */
+	public static int getLoad() {
+		int max = 0;
+		for (ThreadPoolExecutor stripe : stripes) {
+			max = Math.max(max, stripe.getQueue().size());
+		}
+		return Math.max((int) (max * 100L / CollectorCfg.EVENT_QUEUE_SIZE), DBManager.getInstance().getWriterLoad());
+	}
+
+	/**
+	 * 停止接收新事件, 等待队列中的事件分发完;
+	 * 
+	 * @param timeout
+	 *            毫秒
+	 */
+	public static void shutdown(long timeout) {
+		for (ThreadPoolExecutor stripe : stripes) {
+			stripe.shutdown();
+		}
+		long deadline = System.currentTimeMillis() + timeout;
+		try {
+			for (ThreadPoolExecutor stripe : stripes) {
+				if (!stripe.awaitTermination(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS)) {
+					System.err.println("event bus shutdown timeout, " + stripe.getQueue().size() + " events left");
+				}
 			}
-		} else {
-			List<IEventListener> list = new CopyOnWriteArrayList<IEventListener>();
-			list.add(new ReportEventListener(event));
-			registers.put(event.getDataType(), list);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 		}
 	}
-	
+
+	public static long getDroppedCount() {
+		return droppedCount.get();
+	}
+
 	public IEventListener getEventListener(String name, Class<?> clazz) {
 		List<IEventListener> list = registers.get(name);
+		if (list == null) {
+			return null;
+		}
 		for (IEventListener eacheListener : list) {
 			if (eacheListener.getClass().getName().equals(clazz.getName())) {
 				return eacheListener;
@@ -30,4 +176,63 @@ public class ReportEventBus {
 		}
 		return null;
 	}
+
+	/**
+	 * 获取dataType的监听者列表, 第一次出现时原子地注册默认监听者;
+	 * 
+	 * @param dataType
+	 * @return
+	 */
+	private static List<IEventListener> getOrRegister(String dataType) {
+		List<IEventListener> list = registers.get(dataType);
+		if (list == null) {
+			List<IEventListener> newList = new CopyOnWriteArrayList<IEventListener>();
+			newList.add(new ReportEventListener(dataType));
+			list = registers.putIfAbsent(dataType, newList);
+			if (list == null) {
+				list = newList;
+			}
+		}
+		return list;
+	}
+
+	private static void dispatch(List<IEventListener> list, ReportEvent event) {
+		for (IEventListener eacheListener : list) {
+			try {
+				eacheListener.onEvent(event);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+		for (IEventListener eacheListener : globalListeners) {
+			try {
+				eacheListener.onEvent(event);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	private static ThreadPoolExecutor stripeOf(String dataType) {
+		int h = dataType.hashCode();
+		h ^= (h >>> 16);
+		return stripes[(h & 0x7fffffff) % stripes.length];
+	}
+
+	private static ThreadPoolExecutor[] createStripes(int size) {
+		ThreadPoolExecutor[] executors = new ThreadPoolExecutor[size];
+		for (int i = 0; i < size; i++) {
+			final String name = "EventBus-" + i;
+			executors[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(CollectorCfg.EVENT_QUEUE_SIZE), new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r);
+					t.setName(name);
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		return executors;
+	}
 }
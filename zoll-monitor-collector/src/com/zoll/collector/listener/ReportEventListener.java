@@ -1,22 +1,30 @@
 package com.zoll.collector.listener;
 
-import com.zoll.collector.database.DBManager;
+import com.zoll.collector.aggregate.AggregateManager;
 
+/**
+ * 每个dataType的默认监听者, 交给预聚合后落库;
+ * 
+ * @author qianhang
+ * 
+ * @date 2026年10月20日 下午2:12:05
+ * 
+ * @project zoll-monitor-collector
+ * 
+ */
 public class ReportEventListener implements IEventListener {
 	private String eventName;
 
-	public ReportEventListener(ReportEvent event) {
-		this.eventName = event.getDataType();
-		boolean hasTable = DBManager.getInstance().hasTable(eventName);
-		if (hasTable) {
-			DBManager.getInstance().insertData(event.getDatas(), eventName);
-		} else {
-			DBManager.getInstance().createTable(event);
-		}
+	public ReportEventListener(String eventName) {
+		// 表和列在落库时由 TableSchemaRegistry 按需创建, 这里不再访问数据库
+		this.eventName = eventName;
+	}
+
+	public String getEventName() {
+		return eventName;
 	}
 
 	public void onEvent(ReportEvent event) {
-		this.eventName = event.getDataType();
-		DBManager.getInstance().insertData(event.getDatas(), eventName);
+		AggregateManager.getInstance().aggregate(event);
 	}
 }
@@ -0,0 +1,189 @@
+package com.zoll.collector.metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.zoll.collector.config.CollectorCfg;
+import com.zoll.collector.database.TableSchemaRegistry;
+
+/**
+ * 采集端自身的运行指标;
+ * 
+ * <pre>
+ * ingest.{dataType}     每个dataType的上报事件速率, dataType转为小写, 最多 {@link CollectorCfg#METRICS_MAX_DATA_TYPES} 个
+ * ingest.other          超出个数上限或名称不合法的dataType的上报事件速率
+ * ingest.queue          事件分发队列中排队的事件数
+ * ingest.dropped        分发队列已满而丢弃的事件数
+ * sampled.{dataType}    采样丢弃的事件速率, 个数上限同上
+ * sampled.other         超出个数上限或名称不合法的dataType的采样丢弃速率
+ * aggregate.rows        预聚合后输出的行数
+ * aggregate.overflow    超出序列数上限而合并到溢出序列的新序列数
+ * aggregate.illegal     dataType不能作为表名(含汇总表和去重计数表的后缀)而丢弃的事件数
+ * aggregate.expired     时间戳早于 {@link CollectorCfg#MAX_EVENT_LAG} 而丢弃的事件数
+ * dedup.duplicate       重复而丢弃的上报批次
+ * dedup.expired         序号早于去重窗口, 无法判断而照常接收的批次
+ * db.writer.{n}.pending 每个DB线程待写入的行数
+ * db.batch.rows         每条insert合并的行数
+ * db.write              每条sql的执行耗时
+ * </pre>
+ * 
+ * @date 2026年10月19日 上午3:17:49
+ * 
+ * @project zoll-monitor-collector
+ * 
+ */
+public class CollectorMetrics {
+	private static CollectorMetrics instance = new CollectorMetrics();
+
+	private final MetricRegistry registry = new MetricRegistry();
+
+	private final Meter aggregateRows = registry.meter("aggregate.rows");
+	private final Meter aggregateOverflow = registry.meter("aggregate.overflow");
+	private final Meter distinctLate = registry.meter("aggregate.distinct.late");
+	private final Meter aggregateExpired = registry.meter("aggregate.expired");
+	private final Meter aggregateIllegal = registry.meter("aggregate.illegal");
+	private final Meter dedupDuplicate = registry.meter("dedup.duplicate");
+	private final Meter dedupExpired = registry.meter("dedup.expired");
+	private final Histogram batchRows = registry.histogram("db.batch.rows");
+	private final Timer dbWrite = registry.timer("db.write");
+	private final Meter dbWriteRetry = registry.meter("db.write.retry");
+	private final Meter dbWriteDropped = registry.meter("db.write.dropped");
+	private final Meter ingestOther = registry.meter("ingest.other");
+	private final Meter sampledOther = registry.meter("sampled.other");
+	/** 上报的dataType -> 上报速率, 大小写不同的dataType计入同一个指标 */
+	private final ConcurrentMap<String, Meter> ingestMeters = new ConcurrentHashMap<String, Meter>();
+	/** 上报的dataType -> 采样丢弃速率 */
+	private final ConcurrentMap<String, Meter> sampledMeters = new ConcurrentHashMap<String, Meter>();
+
+	private CollectorMetrics() {
+	}
+
+	public static CollectorMetrics getInstance() {
+		return instance;
+	}
+
+	public MetricRegistry getRegistry() {
+		return registry;
+	}
+
+	/**
+	 * 某个dataType的上报速率;
+	 * 
+	 * @param dataType
+	 * @return
+	 */
+	public Meter ingest(String dataType) {
+		return typeMeter("ingest", dataType, ingestMeters, ingestOther);
+	}
+
+	/**
+	 * 某个dataType被采样丢弃的速率;
+	 * 
+	 * @param dataType
+	 * @return
+	 */
+	public Meter sampled(String dataType) {
+		return typeMeter("sampled", dataType, sampledMeters, sampledOther);
+	}
+
+	/**
+	 * dataType来自上报端, 不校验时任意字符串都会注册一个指标且永不移除;
+	 */
+	private Meter typeMeter(String prefix, String dataType, ConcurrentMap<String, Meter> meters, Meter other) {
+		Meter meter = meters.get(dataType);
+		if (meter != null) {
+			return meter;
+		}
+		if (!TableSchemaRegistry.isValidName(dataType) || meters.size() >= CollectorCfg.METRICS_MAX_DATA_TYPES) {
+			return other;
+		}
+		try {
+			meter = registry.meter(MetricRegistry.name(prefix, dataType.toLowerCase()));
+		} catch (IllegalArgumentException e) {
+			// 与其他类型的指标重名, 如 ingest.queue
+			meter = other;
+		}
+		Meter existing = meters.putIfAbsent(dataType, meter);
+		return existing == null ? meter : existing;
+	}
+
+	public Meter getAggregateOverflow() {
+		return aggregateOverflow;
+	}
+
+	/**
+	 * 超过 {@link com.zoll.collector.config.CollectorCfg#DISTINCT_RETAIN_TIME} 才到达, 不再计入去重计数的迟到窗口;
+	 * 
+	 * @return
+	 */
+	public Meter getDistinctLate() {
+		return distinctLate;
+	}
+
+	public Meter getAggregateIllegal() {
+		return aggregateIllegal;
+	}
+
+	public Meter getAggregateExpired() {
+		return aggregateExpired;
+	}
+
+	public Meter getDedupDuplicate() {
+		return dedupDuplicate;
+	}
+
+	public Meter getDedupExpired() {
+		return dedupExpired;
+	}
+
+	public Meter getAggregateRows() {
+		return aggregateRows;
+	}
+
+	public Histogram getBatchRows() {
+		return batchRows;
+	}
+
+	public Timer getDbWrite() {
+		return dbWrite;
+	}
+
+	/**
+	 * 写入失败留到下一轮重试的insert;
+	 * 
+	 * @return
+	 */
+	public Meter getDbWriteRetry() {
+		return dbWriteRetry;
+	}
+
+	/**
+	 * 写入失败且不可重试而丢弃的行;
+	 * 
+	 * @return
+	 */
+	public Meter getDbWriteDropped() {
+		return dbWriteDropped;
+	}
+
+	/**
+	 * 注册一个即时读取的指标, 同名指标已存在时忽略;
+	 * 
+	 * @param name
+	 * @param gauge
+	 */
+	public void gauge(String name, Gauge<?> gauge) {
+		if (!registry.getGauges().containsKey(name)) {
+			try {
+				registry.register(name, gauge);
+			} catch (IllegalArgumentException e) {
+				// 已被其他线程注册
+			}
+		}
+	}
+}
@@ -0,0 +1,262 @@
+package com.zoll.collector.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.zoll.collector.listener.IEventListener;
+import com.zoll.collector.listener.ReportEvent;
+
+/**
+ * 批量上报的行协议流式解析器;
+ *
+ * 每行一个事件: <pre>dataType[,tag=value]* count [countType]</pre>
+ * tag和value中的 ',' ' ' '=' '%' 及非ASCII字符需要按URL方式做百分号转义; 空行和 '#' 开头的行会被忽略;
+ * 解析时只缓存当前行, 不会把整个请求体读进内存;
+ *
+ * @date 2026年10月19日 上午3:06:25
+ *
+ * @project zoll-monitor-collector
+ *
+ */
+public class LineProtocolParser {
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	public static final String DATA_TYPE_KEY = "dataType";
+	public static final String COUNT_KEY = "count";
+	public static final String COUNT_TYPE_KEY = "countType";
+
+	/** 单行最大长度 */
+	private final int maxLineLength;
+
+	private final byte[] readBuffer = new byte[8 * 1024];
+	private byte[] line = new byte[256];
+	private byte[] scratch = new byte[256];
+
+	private int accepted;
+	private int rejected;
+
+	public LineProtocolParser(int maxLineLength) {
+		this.maxLineLength = maxLineLength;
+	}
+
+	/**
+	 * 解析输入流, 每解析出一个事件回调一次;
+	 *
+	 * @param in
+	 * @param listener
+	 * @throws IOException
+	 */
+	public void parse(InputStream in, IEventListener listener) throws IOException {
+		int length = 0;
+		boolean overflow = false;
+		int n;
+		while ((n = in.read(readBuffer)) > 0) {
+			for (int i = 0; i < n; i++) {
+				byte b = readBuffer[i];
+				if (b == '\n') {
+					if (overflow) {
+						rejected++;
+					} else {
+						parseLine(length, listener);
+					}
+					length = 0;
+					overflow = false;
+					continue;
+				}
+				if (overflow) {
+					continue;
+				}
+				if (length == line.length) {
+					if (length >= maxLineLength) {
+						overflow = true;
+						continue;
+					}
+					byte[] bigger = new byte[Math.min(line.length * 2, maxLineLength)];
+					System.arraycopy(line, 0, bigger, 0, length);
+					line = bigger;
+				}
+				line[length++] = b;
+			}
+		}
+		if (overflow) {
+			rejected++;
+		} else if (length > 0) {
+			parseLine(length, listener);
+		}
+	}
+
+	private void parseLine(int length, IEventListener listener) {
+		if (length > 0 && line[length - 1] == '\r') {
+			length--;
+		}
+		if (length == 0 || line[0] == '#') {
+			return;
+		}
+		ReportEvent event = parseEvent(line, 0, length);
+		if (event == null) {
+			rejected++;
+			return;
+		}
+		accepted++;
+		listener.onEvent(event);
+	}
+
+	/**
+	 * 解析一行;
+	 *
+	 * @return 格式错误时返回null
+	 */
+	private ReportEvent parseEvent(byte[] buf, int from, int to) {
+		int seriesEnd = indexOf(buf, from, to, (byte) ' ');
+		if (seriesEnd == to || seriesEnd == from) {
+			return null;
+		}
+		Map<String, String> datas = parseSeries(buf, from, seriesEnd);
+		if (datas == null) {
+			return null;
+		}
+
+		int countStart = seriesEnd + 1;
+		int countEnd = indexOf(buf, countStart, to, (byte) ' ');
+		if (!isNumber(buf, countStart, countEnd)) {
+			return null;
+		}
+		datas.put(COUNT_KEY, new String(buf, countStart, countEnd - countStart, UTF8));
+		if (countEnd < to) {
+			int typeStart = countEnd + 1;
+			if (!isNumber(buf, typeStart, to)) {
+				return null;
+			}
+			datas.put(COUNT_TYPE_KEY, new String(buf, typeStart, to - typeStart, UTF8));
+		}
+		ReportEvent event = new ReportEvent(datas.get(DATA_TYPE_KEY));
+		event.setDatas(datas);
+		return event;
+	}
+
+	/**
+	 * 由序列部分和已经是数字的计数构造事件, 供二进制上报使用, 序列部分的格式和转义与行协议相同;
+	 *
+	 * @param buf
+	 * @param from
+	 * @param to
+	 * @param count
+	 * @param countType
+	 * @return 格式错误时返回null
+	 */
+	public ReportEvent parseEvent(byte[] buf, int from, int to, long count, int countType) {
+		Map<String, String> datas = from < to ? parseSeries(buf, from, to) : null;
+		if (datas == null) {
+			rejected++;
+			return null;
+		}
+		datas.put(COUNT_KEY, String.valueOf(count));
+		datas.put(COUNT_TYPE_KEY, String.valueOf(countType));
+		accepted++;
+		ReportEvent event = new ReportEvent(datas.get(DATA_TYPE_KEY));
+		event.setDatas(datas);
+		return event;
+	}
+
+	/**
+	 * 解析序列部分 dataType[,tag=value]*;
+	 *
+	 * @return 格式错误时返回null
+	 */
+	private Map<String, String> parseSeries(byte[] buf, int from, int to) {
+		Map<String, String> datas = new HashMap<String, String>();
+		int tokenEnd = indexOf(buf, from, to, (byte) ',');
+		if (tokenEnd == from) {
+			return null;
+		}
+		datas.put(DATA_TYPE_KEY, decode(buf, from, tokenEnd));
+		int pos = tokenEnd + 1;
+		while (pos < to) {
+			tokenEnd = indexOf(buf, pos, to, (byte) ',');
+			int eq = indexOf(buf, pos, tokenEnd, (byte) '=');
+			if (eq == tokenEnd || eq == pos) {
+				return null;
+			}
+			datas.put(decode(buf, pos, eq), decode(buf, eq + 1, tokenEnd));
+			pos = tokenEnd + 1;
+		}
+		return datas;
+	}
+
+	/**
+	 * 百分号解码;
+	 */
+	private String decode(byte[] buf, int from, int to) {
+		int percent = indexOf(buf, from, to, (byte) '%');
+		if (percent == to) {
+			return new String(buf, from, to - from, UTF8);
+		}
+		if (scratch.length < to - from) {
+			scratch = new byte[to - from];
+		}
+		int length = 0;
+		for (int i = from; i < to; i++) {
+			byte b = buf[i];
+			if (b == '%' && i + 2 < to) {
+				int hi = hex(buf[i + 1]);
+				int lo = hex(buf[i + 2]);
+				if (hi >= 0 && lo >= 0) {
+					scratch[length++] = (byte) ((hi << 4) | lo);
+					i += 2;
+					continue;
+				}
+			}
+			scratch[length++] = b;
+		}
+		return new String(scratch, 0, length, UTF8);
+	}
+
+	private static int hex(byte b) {
+		if (b >= '0' && b <= '9') {
+			return b - '0';
+		}
+		if (b >= 'a' && b <= 'f') {
+			return b - 'a' + 10;
+		}
+		if (b >= 'A' && b <= 'F') {
+			return b - 'A' + 10;
+		}
+		return -1;
+	}
+
+	private static boolean isNumber(byte[] buf, int from, int to) {
+		if (from >= to) {
+			return false;
+		}
+		int i = buf[from] == '-' ? from + 1 : from;
+		if (i == to) {
+			return false;
+		}
+		for (; i < to; i++) {
+			if (buf[i] < '0' || buf[i] > '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int indexOf(byte[] buf, int from, int to, byte b) {
+		for (int i = from; i < to; i++) {
+			if (buf[i] == b) {
+				return i;
+			}
+		}
+		return to;
+	}
+
+	public int getAccepted() {
+		return accepted;
+	}
+
+	public int getRejected() {
+		return rejected;
+	}
+}
@@ -0,0 +1,156 @@
+package com.zoll.collector.parser;
+
+/**
+ * 查询串解析器;
+ *
+ * 单次遍历, 按下标切分 name=value 对, 同时完成 '+' 和 %XX(UTF-8) 解码, 结果写入可复用的 {@link ReportEventFlyweight};
+ * 没有值的参数(如 "a" 或 "a=")和空参数名会被忽略;
+ *
+ * @date 2026年10月19日 上午3:07:43
+ *
+ * @project zoll-monitor-collector
+ *
+ */
+public class QueryStringParser {
+	private static final char REPLACEMENT = '\uFFFD';
+
+	private QueryStringParser() {
+	}
+
+	/**
+	 * 解析查询串;
+	 *
+	 * @param query
+	 *            可以为null
+	 * @param out
+	 *            解析前会被reset
+	 */
+	public static void parse(CharSequence query, ReportEventFlyweight out) {
+		out.reset();
+		if (query == null) {
+			return;
+		}
+		int len = query.length();
+		int i = 0;
+		while (i < len) {
+			int nameStart = out.position();
+			i = decode(query, i, len, out, true);
+			int nameEnd = out.position();
+			if (i < len && query.charAt(i) == '=') {
+				i = decode(query, i + 1, len, out, false);
+				int valueEnd = out.position();
+				if (nameEnd > nameStart && valueEnd > nameEnd) {
+					out.addParam(nameStart, nameEnd, nameEnd, valueEnd);
+				}
+			}
+			// 跳过 '&' (或参数名之后没有 '=' 的残余部分)
+			while (i < len && query.charAt(i) != '&') {
+				i++;
+			}
+			i++;
+		}
+	}
+
+	/**
+	 * 解码一段内容直到遇到分隔符;
+	 *
+	 * @return 分隔符所在下标
+	 */
+	private static int decode(CharSequence s, int i, int len, ReportEventFlyweight out, boolean isName) {
+		while (i < len) {
+			char c = s.charAt(i);
+			if (c == '&' || (isName && c == '=')) {
+				return i;
+			}
+			if (c == '+') {
+				out.append(' ');
+				i++;
+			} else if (c == '%') {
+				i = decodePercent(s, i, len, out);
+			} else {
+				out.append(c);
+				i++;
+			}
+		}
+		return i;
+	}
+
+	/**
+	 * 解码从i开始的一个 %XX 序列所表示的UTF-8字符(可能由多个 %XX 组成);
+	 *
+	 * @return 序列之后的下标
+	 */
+	private static int decodePercent(CharSequence s, int i, int len, ReportEventFlyweight out) {
+		int b = hexByte(s, i, len);
+		if (b < 0) {
+			out.append('%');
+			return i + 1;
+		}
+		i += 3;
+		int extra;
+		int codePoint;
+		if (b < 0x80) {
+			out.append((char) b);
+			return i;
+		} else if ((b & 0xE0) == 0xC0) {
+			extra = 1;
+			codePoint = b & 0x1F;
+		} else if ((b & 0xF0) == 0xE0) {
+			extra = 2;
+			codePoint = b & 0x0F;
+		} else if ((b & 0xF8) == 0xF0) {
+			extra = 3;
+			codePoint = b & 0x07;
+		} else {
+			out.append(REPLACEMENT);
+			return i;
+		}
+		for (int k = 0; k < extra; k++) {
+			int next = hexByte(s, i, len);
+			if (next < 0 || (next & 0xC0) != 0x80) {
+				out.append(REPLACEMENT);
+				return i;
+			}
+			codePoint = (codePoint << 6) | (next & 0x3F);
+			i += 3;
+		}
+		if (codePoint > Character.MAX_CODE_POINT) {
+			out.append(REPLACEMENT);
+		} else if (codePoint >= 0x10000) {
+			codePoint -= 0x10000;
+			out.append((char) (0xD800 + (codePoint >>> 10)));
+			out.append((char) (0xDC00 + (codePoint & 0x3FF)));
+		} else {
+			out.append((char) codePoint);
+		}
+		return i;
+	}
+
+	private static int hexByte(CharSequence s, int i, int len) {
+		if (i + 2 >= len) {
+			return -1;
+		}
+		if (s.charAt(i) != '%') {
+			return -1;
+		}
+		int hi = hex(s.charAt(i + 1));
+		int lo = hex(s.charAt(i + 2));
+		if (hi < 0 || lo < 0) {
+			return -1;
+		}
+		return (hi << 4) | lo;
+	}
+
+	private static int hex(char c) {
+		if (c >= '0' && c <= '9') {
+			return c - '0';
+		}
+		if (c >= 'a' && c <= 'f') {
+			return c - 'a' + 10;
+		}
+		if (c >= 'A' && c <= 'F') {
+			return c - 'A' + 10;
+		}
+		return -1;
+	}
+}
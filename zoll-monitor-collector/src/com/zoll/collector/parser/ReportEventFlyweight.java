@@ -0,0 +1,183 @@
+package com.zoll.collector.parser;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.zoll.collector.listener.ReportEvent;
+
+/**
+ * 可复用的上报事件;
+ *
+ * 解码后的参数名和参数值都连续存放在一个char数组中, 只记录下标, 解析过程不产生任何对象; 同一个实例只能在一个线程里使用;
+ *
+ * @date 2026年10月19日 上午3:07:43
+ *
+ * @project zoll-monitor-collector
+ *
+ */
+public class ReportEventFlyweight {
+	private char[] chars = new char[256];
+	private int length;
+
+	private int[] nameStart = new int[16];
+	private int[] nameEnd = new int[16];
+	private int[] valueStart = new int[16];
+	private int[] valueEnd = new int[16];
+	private int size;
+
+	/**
+	 * 清空, 准备下一次解析;
+	 */
+	public void reset() {
+		length = 0;
+		size = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	void append(char c) {
+		if (length == chars.length) {
+			char[] bigger = new char[chars.length * 2];
+			System.arraycopy(chars, 0, bigger, 0, length);
+			chars = bigger;
+		}
+		chars[length++] = c;
+	}
+
+	int position() {
+		return length;
+	}
+
+	/**
+	 * 追加一个参数, 下标为 {@link #position()} 返回值;
+	 */
+	void addParam(int nStart, int nEnd, int vStart, int vEnd) {
+		if (size == nameStart.length) {
+			nameStart = grow(nameStart);
+			nameEnd = grow(nameEnd);
+			valueStart = grow(valueStart);
+			valueEnd = grow(valueEnd);
+		}
+		nameStart[size] = nStart;
+		nameEnd[size] = nEnd;
+		valueStart[size] = vStart;
+		valueEnd[size] = vEnd;
+		size++;
+	}
+
+	/**
+	 * 参数名对应的下标, 比较过程不产生对象;
+	 *
+	 * @param name
+	 * @return 不存在时返回-1
+	 */
+	public int indexOf(String name) {
+		// 同名参数以后出现的为准, 与HashMap.put的覆盖语义一致
+		for (int i = size - 1; i >= 0; i--) {
+			int start = nameStart[i];
+			int len = nameEnd[i] - start;
+			if (len != name.length()) {
+				continue;
+			}
+			int j = 0;
+			while (j < len && chars[start + j] == name.charAt(j)) {
+				j++;
+			}
+			if (j == len) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	public boolean has(String name) {
+		return indexOf(name) >= 0;
+	}
+
+	public String getName(int index) {
+		return new String(chars, nameStart[index], nameEnd[index] - nameStart[index]);
+	}
+
+	public String getValue(int index) {
+		return new String(chars, valueStart[index], valueEnd[index] - valueStart[index]);
+	}
+
+	public String getValue(String name) {
+		int index = indexOf(name);
+		return index < 0 ? null : getValue(index);
+	}
+
+	/**
+	 * 直接从字符数组中解析整数值;
+	 *
+	 * @param name
+	 * @param defaultValue
+	 *            参数不存在, 不是整数或超出long范围时返回
+	 * @return
+	 */
+	public long getLong(String name, long defaultValue) {
+		int index = indexOf(name);
+		if (index < 0) {
+			return defaultValue;
+		}
+		int i = valueStart[index];
+		int end = valueEnd[index];
+		if (i == end) {
+			return defaultValue;
+		}
+		boolean negative = chars[i] == '-';
+		if (negative && ++i == end) {
+			return defaultValue;
+		}
+		long value = 0;
+		for (; i < end; i++) {
+			char c = chars[i];
+			if (c < '0' || c > '9') {
+				return defaultValue;
+			}
+			if (value > (Long.MAX_VALUE - (c - '0')) / 10) {
+				// 溢出后的值没有意义
+				return defaultValue;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return negative ? -value : value;
+	}
+
+	/**
+	 * 转换为Map(会产生对象, 只在需要长期持有数据时调用);
+	 *
+	 * @return
+	 */
+	public Map<String, String> toMap() {
+		Map<String, String> map = new HashMap<String, String>(size * 2);
+		for (int i = 0; i < size; i++) {
+			map.put(getName(i), getValue(i));
+		}
+		return map;
+	}
+
+	/**
+	 * 转换为事件;
+	 *
+	 * @param dataTypeKey
+	 * @return 缺少dataType时返回null
+	 */
+	public ReportEvent toReportEvent(String dataTypeKey) {
+		int index = indexOf(dataTypeKey);
+		if (index < 0) {
+			return null;
+		}
+		ReportEvent event = new ReportEvent(getValue(index));
+		event.setDatas(toMap());
+		return event;
+	}
+
+	private static int[] grow(int[] array) {
+		int[] bigger = new int[array.length * 2];
+		System.arraycopy(array, 0, bigger, 0, array.length);
+		return bigger;
+	}
+}
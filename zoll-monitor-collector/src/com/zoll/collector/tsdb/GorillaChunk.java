@@ -0,0 +1,269 @@
+package com.zoll.collector.tsdb;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 一个时间序列数据块, 位于内存映射文件中的固定区域;
+ *
+ * 时间戳使用 delta-of-delta 编码, 值使用 Gorilla 的 XOR 编码, 只能按时间顺序追加; 块头在每次追加后更新, 重启后可直接扫描恢复;
+ *
+ * <pre>
+ * 0  int  seriesId (0表示未使用)
+ * 4  int  点数
+ * 8  long 第一个点的时间
+ * 16 long 最后一个点的时间
+ * 24 int  已写入的bit数
+ * 32 ...  编码后的数据
+ * </pre>
+ *
+ * @date 2026年10月19日 上午3:14:20
+ *
+ * @project zoll-monitor-collector
+ *
+ */
+public class GorillaChunk {
+	public static final int HEADER_SIZE = 32;
+	/** 单个点编码后的最大bit数: dod 4+64, value 1+1+5+6+64 */
+	private static final int MAX_POINT_BITS = 160;
+
+	private final ByteBuffer buf;
+	private final int offset;
+	private final int capacityBits;
+
+	private int count;
+	private int bitPos;
+	private long prevTime;
+	private long prevDelta;
+	private long prevValue;
+	private int prevLeading = -1;
+	private int prevTrailing;
+
+	private GorillaChunk(ByteBuffer buf, int offset, int size) {
+		this.buf = buf;
+		this.offset = offset;
+		this.capacityBits = (size - HEADER_SIZE) * 8;
+	}
+
+	/**
+	 * 在一块空区域上创建数据块并写入第一个点;
+	 *
+	 * @param buf
+	 * @param offset
+	 * @param size
+	 * @param seriesId
+	 * @param time
+	 * @param value
+	 * @return
+	 */
+	public static GorillaChunk create(ByteBuffer buf, int offset, int size, int seriesId, long time, double value) {
+		GorillaChunk chunk = new GorillaChunk(buf, offset, size);
+		long bits = Double.doubleToRawLongBits(value);
+		chunk.writeBits(bits, 64);
+		chunk.count = 1;
+		chunk.prevTime = time;
+		chunk.prevValue = bits;
+		buf.putLong(offset + 8, time);
+		chunk.updateHeader();
+		buf.putInt(offset, seriesId);
+		return chunk;
+	}
+
+	/**
+	 * 追加一个点;
+	 *
+	 * @param time
+	 * @param value
+	 * @return 时间倒退或空间不足时返回false, 调用者需要换一个新块
+	 */
+	public boolean append(long time, double value) {
+		if (time < prevTime || capacityBits - bitPos < MAX_POINT_BITS) {
+			return false;
+		}
+		long delta = time - prevTime;
+		writeDeltaOfDelta(delta - prevDelta);
+		prevDelta = delta;
+		prevTime = time;
+
+		long bits = Double.doubleToRawLongBits(value);
+		long xor = bits ^ prevValue;
+		if (xor == 0) {
+			writeBits(0, 1);
+		} else {
+			writeBits(1, 1);
+			int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+			int trailing = Long.numberOfTrailingZeros(xor);
+			if (prevLeading >= 0 && leading >= prevLeading && trailing >= prevTrailing) {
+				writeBits(0, 1);
+				writeBits(xor >>> prevTrailing, 64 - prevLeading - prevTrailing);
+			} else {
+				int significant = 64 - leading - trailing;
+				writeBits(1, 1);
+				writeBits(leading, 5);
+				writeBits(significant == 64 ? 0 : significant, 6);
+				writeBits(xor >>> trailing, significant);
+				prevLeading = leading;
+				prevTrailing = trailing;
+			}
+		}
+		prevValue = bits;
+		count++;
+		updateHeader();
+		return true;
+	}
+
+	private void writeDeltaOfDelta(long dod) {
+		if (dod == 0) {
+			writeBits(0, 1);
+		} else if (dod >= -63 && dod <= 64) {
+			writeBits(0x2, 2);
+			writeBits(dod, 7);
+		} else if (dod >= -255 && dod <= 256) {
+			writeBits(0x6, 3);
+			writeBits(dod, 9);
+		} else if (dod >= -2047 && dod <= 2048) {
+			writeBits(0xE, 4);
+			writeBits(dod, 12);
+		} else {
+			writeBits(0xF, 4);
+			writeBits(dod, 64);
+		}
+	}
+
+	private void updateHeader() {
+		buf.putLong(offset + 16, prevTime);
+		buf.putInt(offset + 24, bitPos);
+		// 点数最后写, 扫描时以点数为准
+		buf.putInt(offset + 4, count);
+	}
+
+	private void writeBits(long value, int bits) {
+		int base = offset + HEADER_SIZE;
+		while (bits > 0) {
+			int index = base + (bitPos >>> 3);
+			int free = 8 - (bitPos & 7);
+			int take = Math.min(free, bits);
+			int part = (int) ((value >>> (bits - take)) & ((1 << take) - 1));
+			buf.put(index, (byte) (buf.get(index) | (part << (free - take))));
+			bitPos += take;
+			bits -= take;
+		}
+	}
+
+	/**
+	 * 分配块时写入序列号占住这块区域, 点数为0表示还没有写入第一个点;
+	 *
+	 * @param buf
+	 * @param offset
+	 * @param seriesId
+	 */
+	public static void reserve(ByteBuffer buf, int offset, int seriesId) {
+		buf.putInt(offset + 4, 0);
+		buf.putInt(offset, seriesId);
+	}
+
+	public static int count(ByteBuffer buf, int offset) {
+		return buf.getInt(offset + 4);
+	}
+
+	public static int seriesId(ByteBuffer buf, int offset) {
+		return buf.getInt(offset);
+	}
+
+	public static long startTime(ByteBuffer buf, int offset) {
+		return buf.getLong(offset + 8);
+	}
+
+	public static long endTime(ByteBuffer buf, int offset) {
+		return buf.getLong(offset + 16);
+	}
+
+	/**
+	 * 解码一个数据块;
+	 *
+	 * @param buf
+	 * @param offset
+	 * @param visitor
+	 */
+	public static void decode(ByteBuffer buf, int offset, IPointVisitor visitor) {
+		int count = buf.getInt(offset + 4);
+		if (count <= 0) {
+			return;
+		}
+		BitReader reader = new BitReader(buf, offset + HEADER_SIZE);
+		long time = buf.getLong(offset + 8);
+		long value = reader.read(64);
+		visitor.visit(time, Double.longBitsToDouble(value));
+		long delta = 0;
+		int leading = 0;
+		int trailing = 0;
+		for (int i = 1; i < count; i++) {
+			long dod;
+			if (reader.read(1) == 0) {
+				dod = 0;
+			} else if (reader.read(1) == 0) {
+				dod = signExtend(reader.read(7), 7);
+			} else if (reader.read(1) == 0) {
+				dod = signExtend(reader.read(9), 9);
+			} else if (reader.read(1) == 0) {
+				dod = signExtend(reader.read(12), 12);
+			} else {
+				dod = reader.read(64);
+			}
+			delta += dod;
+			time += delta;
+			if (reader.read(1) == 1) {
+				if (reader.read(1) == 1) {
+					leading = (int) reader.read(5);
+					int significant = (int) reader.read(6);
+					if (significant == 0) {
+						significant = 64;
+					}
+					trailing = 64 - leading - significant;
+				}
+				long xor = reader.read(64 - leading - trailing) << trailing;
+				value ^= xor;
+			}
+			visitor.visit(time, Double.longBitsToDouble(value));
+		}
+	}
+
+	/**
+	 * 把7/9/12位的补码还原为long, 正数上界(64/256/2048)按无符号处理;
+	 */
+	private static long signExtend(long value, int bits) {
+		long limit = 1L << (bits - 1);
+		return value > limit ? value - (1L << bits) : value;
+	}
+
+	/**
+	 * 数据点访问者;
+	 */
+	public interface IPointVisitor {
+		public void visit(long time, double value);
+	}
+
+	static class BitReader {
+		private final ByteBuffer buf;
+		private final int base;
+		private int bitPos;
+
+		BitReader(ByteBuffer buf, int base) {
+			this.buf = buf;
+			this.base = base;
+		}
+
+		long read(int bits) {
+			long value = 0;
+			while (bits > 0) {
+				int index = base + (bitPos >>> 3);
+				int free = 8 - (bitPos & 7);
+				int take = Math.min(free, bits);
+				int part = ((buf.get(index) & 0xFF) >>> (free - take)) & ((1 << take) - 1);
+				value = (value << take) | part;
+				bitPos += take;
+				bits -= take;
+			}
+			return value;
+		}
+	}
+}
@@ -0,0 +1,373 @@
+package com.zoll.collector.tsdb;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.zoll.collector.config.CollectorCfg;
+import com.zoll.collector.tsdb.GorillaChunk.IPointVisitor;
+
+/**
+ * 嵌入式列式时序存储;
+ *
+ * 每个序列(表 + 维度标签 + 计数方式)的点写入自己的 {@link GorillaChunk}, 块从按顺序增长的内存映射段文件中分配, 只追加不修改;
+ * 序列字典单独保存在 series.dict 中, 每行一个序列, 字段以制表符分隔, 表名和序列标识中的制表符, 换行和反斜杠转义;
+ * 每个序列在内存中保留块的时间范围索引, 查询时只解码与时间范围相交的块;
+ *
+ * @date 2026年10月19日 上午3:14:20
+ *
+ * @project zoll-monitor-collector
+ *
+ */
+public class TimeSeriesStore {
+	private static final String DICT_FILE = "series.dict";
+	private static final String SEGMENT_PREFIX = "segment-";
+
+	private final File dir;
+	private final int chunkSize;
+	private final int chunksPerSegment;
+
+	private final List<MappedByteBuffer> segments = new ArrayList<MappedByteBuffer>();
+	/** 下一个可分配的块(全局序号) */
+	private int nextChunk;
+
+	private final ConcurrentMap<String, Series> seriesByKey = new ConcurrentHashMap<String, Series>();
+	private final ConcurrentMap<String, List<Series>> seriesByTable = new ConcurrentHashMap<String, List<Series>>();
+	private final Map<Integer, Series> seriesById = new HashMap<Integer, Series>();
+	private int nextSeriesId = 1;
+	private Writer dictWriter;
+
+	public TimeSeriesStore(File dir, int chunkSize, int segmentSize) {
+		this.dir = dir;
+		this.chunkSize = chunkSize;
+		this.chunksPerSegment = segmentSize / chunkSize;
+	}
+
+	/**
+	 * 打开存储, 从字典和段文件中恢复索引;
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void open() throws IOException {
+		if (!dir.exists() && !dir.mkdirs()) {
+			throw new IOException("can't create " + dir.getAbsolutePath());
+		}
+		File dict = new File(dir, DICT_FILE);
+		if (dict.exists()) {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(dict), "UTF-8"));
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					String[] parts = line.split("\t", 4);
+					if (parts.length != 4) {
+						System.err.println("skip illegal series dict line: " + line);
+						continue;
+					}
+					try {
+						Series series = new Series(Integer.parseInt(parts[0]), unescape(parts[2]), unescape(parts[3]), Integer.parseInt(parts[1]));
+						index(series);
+						nextSeriesId = Math.max(nextSeriesId, series.id + 1);
+					} catch (NumberFormatException e) {
+						System.err.println("skip illegal series dict line: " + line);
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		}
+		dictWriter = new OutputStreamWriter(new FileOutputStream(dict, true), "UTF-8");
+
+		// 块在分配时就写入了序列号, 但多个序列并发分配时后分配的块可能先写入数据, 所以扫描全部块, 从最后一个已分配的块之后继续分配
+		for (int seg = 0; new File(dir, segmentName(seg)).exists(); seg++) {
+			MappedByteBuffer buffer = mapSegment(seg);
+			segments.add(buffer);
+			for (int i = 0; i < chunksPerSegment; i++) {
+				int offset = i * chunkSize;
+				int seriesId = GorillaChunk.seriesId(buffer, offset);
+				if (seriesId == 0) {
+					continue;
+				}
+				nextChunk = seg * chunksPerSegment + i + 1;
+				// 字典行损坏时序列号也不能复用, 否则新序列会读到旧序列的块
+				nextSeriesId = Math.max(nextSeriesId, seriesId + 1);
+				Series series = seriesById.get(seriesId);
+				if (series != null && GorillaChunk.count(buffer, offset) > 0) {
+					series.chunks.add(new ChunkRef(buffer, offset));
+				}
+			}
+		}
+	}
+
+	/**
+	 * 写入一个点;
+	 *
+	 * @param table
+	 * @param seriesKey
+	 *            同一表内唯一的序列标识
+	 * @param countType
+	 * @param time
+	 * @param value
+	 * @throws IOException
+	 */
+	public void write(String table, String seriesKey, int countType, long time, double value) throws IOException {
+		Series series = getOrCreate(table, seriesKey, countType);
+		synchronized (series) {
+			if (series.active != null && series.active.append(time, value)) {
+				return;
+			}
+			ChunkRef ref = allocChunk(series.id);
+			series.active = GorillaChunk.create(ref.buffer, ref.offset, chunkSize, series.id, time, value);
+			series.chunks.add(ref);
+		}
+	}
+
+	/**
+	 * 按固定步长查询一张表的值;
+	 *
+	 * INCREASE_COUNT 序列返回每个桶内的累加值, LATEST_COUNT 序列返回每个桶内各序列最新值之和;
+	 *
+	 * @param table
+	 * @param start
+	 *            包含
+	 * @param end
+	 *            不包含
+	 * @param step
+	 * @return 每个桶一个值
+	 */
+	public long[] query(String table, final long start, long end, final long step) {
+		int bucketCount = (int) Math.max(0, (end - start + step - 1) / step);
+		final long[] result = new long[bucketCount];
+		List<Series> list = seriesByTable.get(table.toLowerCase());
+		if (list == null || bucketCount == 0) {
+			return result;
+		}
+		for (final Series series : list) {
+			final long[] latestTime = new long[bucketCount];
+			final double[] latestValue = new double[bucketCount];
+			final boolean latest = series.countType == CollectorCfg.LATEST_COUNT;
+			final long queryEnd = end;
+			synchronized (series) {
+				for (ChunkRef ref : series.chunks) {
+					if (GorillaChunk.startTime(ref.buffer, ref.offset) >= end || GorillaChunk.endTime(ref.buffer, ref.offset) < start) {
+						continue;
+					}
+					GorillaChunk.decode(ref.buffer, ref.offset, new IPointVisitor() {
+						@Override
+						public void visit(long time, double value) {
+							if (time < start || time >= queryEnd) {
+								return;
+							}
+							int bucket = (int) ((time - start) / step);
+							if (latest) {
+								if (time >= latestTime[bucket]) {
+									latestTime[bucket] = time;
+									latestValue[bucket] = value;
+								}
+							} else {
+								result[bucket] += (long) value;
+							}
+						}
+					});
+				}
+			}
+			if (latest) {
+				for (int i = 0; i < bucketCount; i++) {
+					result[i] += (long) latestValue[i];
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 把内存映射的内容刷到磁盘;
+	 */
+	public synchronized void force() {
+		for (MappedByteBuffer segment : segments) {
+			segment.force();
+		}
+	}
+
+	public synchronized void close() {
+		force();
+		try {
+			if (dictWriter != null) {
+				dictWriter.close();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private Series getOrCreate(String table, String seriesKey, int countType) throws IOException {
+		String key = table.toLowerCase() + '|' + seriesKey;
+		Series series = seriesByKey.get(key);
+		if (series != null) {
+			return series;
+		}
+		synchronized (this) {
+			series = seriesByKey.get(key);
+			if (series == null) {
+				series = new Series(nextSeriesId++, table, seriesKey, countType);
+				dictWriter.write(series.id + "\t" + countType + "\t" + escape(table) + "\t" + escape(seriesKey) + "\n");
+				dictWriter.flush();
+				index(series);
+			}
+			return series;
+		}
+	}
+
+	/**
+	 * 转义字典字段中的制表符, 换行和反斜杠;
+	 */
+	private static String escape(String s) {
+		StringBuilder sb = null;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			String replace;
+			switch (c) {
+			case '\t':
+				replace = "\\t";
+				break;
+			case '\n':
+				replace = "\\n";
+				break;
+			case '\r':
+				replace = "\\r";
+				break;
+			case '\\':
+				replace = "\\\\";
+				break;
+			default:
+				if (sb != null) {
+					sb.append(c);
+				}
+				continue;
+			}
+			if (sb == null) {
+				sb = new StringBuilder(s.length() + 8).append(s, 0, i);
+			}
+			sb.append(replace);
+		}
+		return sb == null ? s : sb.toString();
+	}
+
+	/**
+	 * {@link #escape(String)} 的逆过程, 不认识的转义原样保留;
+	 */
+	private static String unescape(String s) {
+		if (s.indexOf('\\') < 0) {
+			return s;
+		}
+		StringBuilder sb = new StringBuilder(s.length());
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '\\' && i + 1 < s.length()) {
+				char next = s.charAt(i + 1);
+				if (next == 't' || next == 'n' || next == 'r' || next == '\\') {
+					sb.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : '\\');
+					i++;
+					continue;
+				}
+			}
+			sb.append(c);
+		}
+		return sb.toString();
+	}
+
+	private void index(Series series) {
+		String table = series.table.toLowerCase();
+		seriesByKey.put(table + '|' + series.key, series);
+		seriesById.put(series.id, series);
+		List<Series> list = seriesByTable.get(table);
+		if (list == null) {
+			List<Series> newList = new CopyOnWriteArrayList<Series>();
+			list = seriesByTable.putIfAbsent(table, newList);
+			if (list == null) {
+				list = newList;
+			}
+		}
+		list.add(series);
+	}
+
+	/**
+	 * 分配一个块并在锁内写入块头的序列号;
+	 *
+	 * @param seriesId
+	 * @return
+	 * @throws IOException
+	 */
+	private synchronized ChunkRef allocChunk(int seriesId) throws IOException {
+		int seg = nextChunk / chunksPerSegment;
+		while (seg >= segments.size()) {
+			segments.add(mapSegment(segments.size()));
+		}
+		int offset = (nextChunk % chunksPerSegment) * chunkSize;
+		nextChunk++;
+		MappedByteBuffer buffer = segments.get(seg);
+		GorillaChunk.reserve(buffer, offset, seriesId);
+		return new ChunkRef(buffer, offset);
+	}
+
+	private MappedByteBuffer mapSegment(int seg) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(new File(dir, segmentName(seg)), "rw");
+		try {
+			return file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, (long) chunksPerSegment * chunkSize);
+		} finally {
+			// 映射建立后关闭文件不影响映射本身
+			file.close();
+		}
+	}
+
+	private static String segmentName(int seg) {
+		return SEGMENT_PREFIX + String.format("%06d", seg);
+	}
+
+	/**
+	 * 一个时间序列;
+	 */
+	static class Series {
+		final int id;
+		final String table;
+		final String key;
+		final int countType;
+		final List<ChunkRef> chunks = new ArrayList<ChunkRef>();
+		/** 正在追加的块, 重启后旧块不再追加 */
+		GorillaChunk active;
+
+		Series(int id, String table, String key, int countType) {
+			this.id = id;
+			this.table = table;
+			this.key = key;
+			this.countType = countType;
+		}
+	}
+
+	/**
+	 * 数据块位置;
+	 */
+	static class ChunkRef {
+		final MappedByteBuffer buffer;
+		final int offset;
+
+		ChunkRef(MappedByteBuffer buffer, int offset) {
+			this.buffer = buffer;
+			this.offset = offset;
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package com.zoll.junit;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.zoll.collector.config.CollectorCfg;
+import com.zoll.collector.dedup.BatchDeduplicator;
+
+/**
+ * {@link BatchDeduplicator} 序号窗口的单元测试;
+ *
+ * @date 2026年10月19日 上午4:41:20
+ *
+ * @project zoll-monitor-collector
+ *
+ */
+public class BatchDeduplicatorTest {
+	private static final AtomicInteger REPORTERS = new AtomicInteger();
+
+	private final BatchDeduplicator deduplicator = BatchDeduplicator.getInstance();
+
+	@Test
+	public void duplicateIsRejected() {
+		String reporter = newReporter();
+		assertTrue(deduplicator.accept(reporter, 1));
+		assertFalse(deduplicator.accept(reporter, 1));
+		assertTrue(deduplicator.accept(reporter, 2));
+		assertFalse(deduplicator.accept(reporter, 2));
+	}
+
+	@Test
+	public void reportersAreIndependent() {
+		String a = newReporter();
+		String b = newReporter();
+		assertTrue(deduplicator.accept(a, 7));
+		assertTrue(deduplicator.accept(b, 7));
+		assertFalse(deduplicator.accept(a, 7));
+	}
+
+	@Test
+	public void outOfOrderWithinWindow() {
+		String reporter = newReporter();
+		assertTrue(deduplicator.accept(reporter, 10));
+		// 跳过的序号之后到达仍然接收, 但只接收一次
+		for (long seq = 1; seq < 10; seq++) {
+			assertTrue("seq " + seq, deduplicator.accept(reporter, seq));
+		}
+		for (long seq = 1; seq <= 10; seq++) {
+			assertFalse("seq " + seq, deduplicator.accept(reporter, seq));
+		}
+	}
+
+	@Test
+	public void forgetAllowsRetry() {
+		String reporter = newReporter();
+		assertTrue(deduplicator.accept(reporter, 5));
+		assertTrue(deduplicator.accept(reporter, 6));
+		deduplicator.forget(reporter, 5);
+		assertTrue(deduplicator.accept(reporter, 5));
+		assertFalse(deduplicator.accept(reporter, 5));
+		assertFalse(deduplicator.accept(reporter, 6));
+	}
+
+	@Test
+	public void olderThanWindowIsAccepted() {
+		String reporter = newReporter();
+		long high = CollectorCfg.DEDUP_WINDOW * 2L;
+		assertTrue(deduplicator.accept(reporter, 1));
+		assertTrue(deduplicator.accept(reporter, high));
+		// 位图已滑过, 无法判断, 照常接收
+		assertTrue(deduplicator.accept(reporter, 1));
+		assertTrue(deduplicator.accept(reporter, high - CollectorCfg.DEDUP_WINDOW));
+		assertTrue(deduplicator.accept(reporter, high - CollectorCfg.DEDUP_WINDOW + 1));
+		assertFalse(deduplicator.accept(reporter, high - CollectorCfg.DEDUP_WINDOW + 1));
+	}
+
+	@Test
+	public void slidingClearsReusedSlots() {
+		String reporter = newReporter();
+		assertTrue(deduplicator.accept(reporter, 3));
+		// 同一个位图槽位在下一圈被复用, 不能被当成重复
+		assertTrue(deduplicator.accept(reporter, 3 + CollectorCfg.DEDUP_WINDOW - 1));
+		assertTrue(deduplicator.accept(reporter, 3 + CollectorCfg.DEDUP_WINDOW + 1));
+		assertTrue(deduplicator.accept(reporter, 3 + CollectorCfg.DEDUP_WINDOW));
+		assertFalse(deduplicator.accept(reporter, 3 + CollectorCfg.DEDUP_WINDOW));
+	}
+
+	@Test
+	public void largeJumpResetsWindow() {
+		String reporter = newReporter();
+		for (long seq = 1; seq <= 100; seq++) {
+			deduplicator.accept(reporter, seq);
+		}
+		long jump = 100 + CollectorCfg.DEDUP_WINDOW * 3L;
+		assertTrue(deduplicator.accept(reporter, jump));
+		assertFalse(deduplicator.accept(reporter, jump));
+		assertTrue(deduplicator.accept(reporter, jump - 1));
+	}
+
+	@Test
+	public void anonymousBatchesAreNotDeduplicated() {
+		assertTrue(deduplicator.accept(null, 1));
+		assertTrue(deduplicator.accept(null, 1));
+		assertTrue(deduplicator.accept("", 1));
+		assertTrue(deduplicator.accept("", 1));
+		String reporter = newReporter();
+		assertTrue(deduplicator.accept(reporter, -1));
+		assertTrue(deduplicator.accept(reporter, -1));
+	}
+
+	/**
+	 * 去重器是单例, 每个用例用自己的上报端ID;
+	 */
+	private static String newReporter() {
+		return "junit-" + System.nanoTime() + "-" + REPORTERS.incrementAndGet();
+	}
+}
@@ -0,0 +1,156 @@
+package com.zoll.junit;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.zoll.collector.cluster.FrameCodec;
+import com.zoll.collector.cluster.ReportBatch;
+import com.zoll.collector.config.CollectorCfg;
+import com.zoll.collector.listener.IEventListener;
+import com.zoll.collector.listener.ReportEvent;
+import com.zoll.collector.parser.LineProtocolParser;
+
+/**
+ * {@link FrameCodec} 对超长字段的编码, 以及对正常, 畸形和截断的上报帧的解码;
+ *
+ * @date 2026年10月19日 上午5:12:40
+ *
+ * @project zoll-monitor-collector
+ *
+ */
+public class FrameCodecTest {
+
+	@Test
+	public void encodeSkipsOnlyOversizedEvents() throws IOException {
+		StringBuilder ascii = new StringBuilder();
+		StringBuilder wide = new StringBuilder();
+		for (int i = 0; i < 30000; i++) {
+			ascii.append("ab");
+			// 3字节字符, 字符数未超限但编码长度超限
+			wide.append('\u4e2d');
+		}
+		List<ReportEvent> events = new ArrayList<ReportEvent>();
+		events.add(event("Login", "host", "h1"));
+		events.add(event("Login", "host", ascii.toString() + ascii.toString()));
+		events.add(event("Login", "host", wide.toString()));
+		events.add(event(ascii.toString() + ascii.toString(), "host", "h2"));
+		events.add(event("Logout", "host", ascii.toString()));
+		List<ReportEvent> skipped = new ArrayList<ReportEvent>();
+		byte[] frame = FrameCodec.encodeEvents(events, new ByteArrayOutputStream(), skipped);
+		assertEquals(3, skipped.size());
+
+		final List<ReportEvent> decoded = new ArrayList<ReportEvent>();
+		FrameCodec.decodeEvents(Arrays.copyOfRange(frame, FrameCodec.HEAD_LENGTH, frame.length), new IEventListener() {
+			@Override
+			public void onEvent(ReportEvent event) {
+				decoded.add(event);
+			}
+		});
+		assertEquals(2, decoded.size());
+		assertEquals("h1", decoded.get(0).getDatas().get("host"));
+		assertEquals(ascii.toString(), decoded.get(1).getDatas().get("host"));
+	}
+
+	@Test
+	public void decodesWellFormedFrame() throws IOException {
+		LineProtocolParser parser = parser();
+		ReportBatch batch = FrameCodec.decodeReports(frame("r1", 7, 2, "Login,host=h1", "Logout"), parser);
+		assertEquals("r1", batch.getReporterId());
+		assertEquals(7, batch.getSeq());
+		assertEquals(2, batch.size());
+		ReportEvent event = batch.getEvents().get(0);
+		assertEquals("Login", event.getDataType());
+		assertEquals("h1", event.getDatas().get("host"));
+		assertEquals(1000L, event.getTime());
+		assertEquals(2, parser.getAccepted());
+		assertEquals(0, parser.getRejected());
+	}
+
+	@Test
+	public void malformedSeriesIsRejectedAlone() throws IOException {
+		LineProtocolParser parser = parser();
+		ReportBatch batch = FrameCodec.decodeReports(frame("r1", 1, 4, "Login", ",host=h1", "Login,host", "Logout"), parser);
+		assertEquals(2, batch.size());
+		assertEquals(2, parser.getAccepted());
+		assertEquals(2, parser.getRejected());
+	}
+
+	@Test(expected = IOException.class)
+	public void emptyBodyIsTruncated() throws IOException {
+		FrameCodec.decodeReports(new byte[0], parser());
+	}
+
+	@Test(expected = IOException.class)
+	public void reporterIdPastEndIsTruncated() throws IOException {
+		FrameCodec.decodeReports(new byte[] { 0x7F, 0x7F, 'r' }, parser());
+	}
+
+	@Test(expected = IOException.class)
+	public void countLargerThanBodyIsTruncated() throws IOException {
+		FrameCodec.decodeReports(frame("r1", 1, Integer.MAX_VALUE, "Login"), parser());
+	}
+
+	@Test(expected = IOException.class)
+	public void seriesLengthPastEndIsTruncated() throws IOException {
+		byte[] frame = frame("r1", 1, 1, "Login");
+		// 第一行的序列长度改成超出body
+		int lengthAt = 2 + 2 + 8 + 8 + 4;
+		frame[lengthAt] = (byte) 0xFF;
+		frame[lengthAt + 1] = (byte) 0xFF;
+		FrameCodec.decodeReports(frame, parser());
+	}
+
+	@Test(expected = IOException.class)
+	public void missingTrailerIsTruncated() throws IOException {
+		byte[] frame = frame("r1", 1, 1, "Login");
+		FrameCodec.decodeReports(Arrays.copyOf(frame, frame.length - 1), parser());
+	}
+
+	@Test
+	public void negativeCountIsEmpty() throws IOException {
+		assertEquals(0, FrameCodec.decodeReports(frame("r1", 1, -1), parser()).size());
+	}
+
+	private static ReportEvent event(String dataType, String key, String value) {
+		ReportEvent event = new ReportEvent(dataType);
+		Map<String, String> datas = new HashMap<String, String>();
+		datas.put(key, value);
+		event.setDatas(datas);
+		return event;
+	}
+
+	private static LineProtocolParser parser() {
+		return new LineProtocolParser(CollectorCfg.BULK_MAX_LINE_LENGTH);
+	}
+
+	/**
+	 * 按上报端的格式构造body, 行数可以和实际给出的序列数不一致;
+	 */
+	private static byte[] frame(String reporterId, long seq, int count, String... series) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeUTF(reporterId);
+		data.writeLong(seq);
+		data.writeLong(1000L);
+		data.writeInt(count);
+		for (String s : series) {
+			byte[] bytes = s.getBytes("UTF-8");
+			data.writeShort(bytes.length);
+			data.write(bytes);
+			data.writeLong(1);
+			data.writeByte(1);
+		}
+		data.flush();
+		return out.toByteArray();
+	}
+}
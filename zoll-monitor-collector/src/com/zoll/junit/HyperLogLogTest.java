@@ -0,0 +1,86 @@
+package com.zoll.junit;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.zoll.collector.aggregate.HyperLogLog;
+import com.zoll.collector.config.CollectorCfg;
+
+/**
+ * {@link HyperLogLog} 估算和合并的单元测试;
+ *
+ * @date 2026年10月19日 上午4:42:05
+ *
+ * @project zoll-monitor-collector
+ *
+ */
+public class HyperLogLogTest {
+
+	@Test
+	public void emptyIsZero() {
+		assertEquals(0, new HyperLogLog(CollectorCfg.DISTINCT_PRECISION).cardinality());
+	}
+
+	@Test
+	public void smallCardinalityIsClose() {
+		HyperLogLog hll = new HyperLogLog(CollectorCfg.DISTINCT_PRECISION);
+		for (int i = 0; i < 100; i++) {
+			hll.offer("player" + i);
+		}
+		// 小基数走线性计数, 误差很小
+		assertEquals(100, hll.cardinality(), 2);
+	}
+
+	@Test
+	public void repeatedValuesCountOnce() {
+		HyperLogLog once = new HyperLogLog(CollectorCfg.DISTINCT_PRECISION);
+		HyperLogLog repeated = new HyperLogLog(CollectorCfg.DISTINCT_PRECISION);
+		for (int i = 0; i < 5000; i++) {
+			once.offer("player" + i);
+		}
+		for (int round = 0; round < 10; round++) {
+			for (int i = 0; i < 5000; i++) {
+				repeated.offer("player" + i);
+			}
+		}
+		assertEquals(once.cardinality(), repeated.cardinality());
+	}
+
+	@Test
+	public void largeCardinalityWithinError() {
+		int[] counts = { 10000, 100000, 1000000 };
+		for (int count : counts) {
+			HyperLogLog hll = new HyperLogLog(CollectorCfg.DISTINCT_PRECISION);
+			for (int i = 0; i < count; i++) {
+				hll.offer("player" + i);
+			}
+			// 标准误差 1.04/sqrt(4096) 约1.6%, 取5%
+			assertEquals("count " + count, count, hll.cardinality(), count * 0.05);
+		}
+	}
+
+	@Test
+	public void mergeIsUnion() {
+		HyperLogLog a = new HyperLogLog(CollectorCfg.DISTINCT_PRECISION);
+		HyperLogLog b = new HyperLogLog(CollectorCfg.DISTINCT_PRECISION);
+		HyperLogLog all = new HyperLogLog(CollectorCfg.DISTINCT_PRECISION);
+		for (int i = 0; i < 30000; i++) {
+			a.offer("player" + i);
+			all.offer("player" + i);
+		}
+		for (int i = 20000; i < 50000; i++) {
+			b.offer("player" + i);
+			all.offer("player" + i);
+		}
+		a.merge(b);
+		// 寄存器取最大值, 合并结果与直接统计并集完全相同
+		assertEquals(all.cardinality(), a.cardinality());
+		assertEquals(50000, a.cardinality(), 50000 * 0.05);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void mergeRejectsPrecisionMismatch() {
+		new HyperLogLog(10).merge(new HyperLogLog(12));
+	}
+}
@@ -0,0 +1,160 @@
+package com.zoll.junit;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.zoll.collector.listener.IEventListener;
+import com.zoll.collector.listener.ReportEvent;
+import com.zoll.collector.parser.LineProtocolParser;
+
+/**
+ * {@link LineProtocolParser} 对正常, 畸形和超长行的处理;
+ *
+ * @date 2026年10月19日 上午5:41:15
+ *
+ * @project zoll-monitor-collector
+ *
+ */
+public class LineProtocolParserTest {
+	private static final int MAX_LINE_LENGTH = 1024;
+
+	private final LineProtocolParser parser = new LineProtocolParser(MAX_LINE_LENGTH);
+	private final List<ReportEvent> events = new ArrayList<ReportEvent>();
+	private final IEventListener collect = new IEventListener() {
+		@Override
+		public void onEvent(ReportEvent event) {
+			events.add(event);
+		}
+	};
+
+	@Test
+	public void parsesSeriesCountAndCountType() throws IOException {
+		parse("Login,host=h1,zone=a 3 2\nLogout 1\n");
+		assertEquals(2, events.size());
+		ReportEvent login = events.get(0);
+		assertEquals("Login", login.getDataType());
+		assertEquals("h1", login.getDatas().get("host"));
+		assertEquals("a", login.getDatas().get("zone"));
+		assertEquals("3", login.getDatas().get(LineProtocolParser.COUNT_KEY));
+		assertEquals("2", login.getDatas().get(LineProtocolParser.COUNT_TYPE_KEY));
+		assertNull(events.get(1).getDatas().get(LineProtocolParser.COUNT_TYPE_KEY));
+		assertEquals(2, parser.getAccepted());
+		assertEquals(0, parser.getRejected());
+	}
+
+	@Test
+	public void ignoresBlankAndCommentLines() throws IOException {
+		parse("\n# comment\r\n\r\nLogin 1\r\n");
+		assertEquals(1, events.size());
+		assertEquals("1", events.get(0).getDatas().get(LineProtocolParser.COUNT_KEY));
+		assertEquals(0, parser.getRejected());
+	}
+
+	@Test
+	public void lastLineWithoutNewline() throws IOException {
+		parse("Login 1\nLogout 2");
+		assertEquals(2, events.size());
+		assertEquals("Logout", events.get(1).getDataType());
+	}
+
+	@Test
+	public void decodesPercentEscapes() throws IOException {
+		parse("Login,host=a%2Cb%20c%3Dd,name=%E4%B8%AD 1\n");
+		assertEquals("a,b c=d", events.get(0).getDatas().get("host"));
+		assertEquals("中", events.get(0).getDatas().get("name"));
+	}
+
+	@Test
+	public void keepsIllegalPercentEscapes() throws IOException {
+		parse("Login,host=%zz%4,tail=%2 1\n");
+		assertEquals("%zz%4", events.get(0).getDatas().get("host"));
+		assertEquals("%2", events.get(0).getDatas().get("tail"));
+	}
+
+	@Test
+	public void rejectsMalformedLinesAlone() throws IOException {
+		parse("Login\n" // 没有计数
+				+ " 1\n" // 没有dataType
+				+ ",host=h1 1\n" // dataType为空
+				+ "Login,host 1\n" // 标签没有 '='
+				+ "Login,=h1 1\n" // 标签名为空
+				+ "Login abc\n" // 计数不是数字
+				+ "Login -\n" // 只有负号
+				+ "Login 1 x\n" // 计数方式不是数字
+				+ "Login 1 2 3\n" // 多余的字段
+				+ "Login 1 \n" // 计数方式为空
+				+ "Login -5\n");
+		assertEquals(1, events.size());
+		assertEquals("-5", events.get(0).getDatas().get(LineProtocolParser.COUNT_KEY));
+		assertEquals(1, parser.getAccepted());
+		assertEquals(10, parser.getRejected());
+	}
+
+	@Test
+	public void rejectsLineOverMaxLength() throws IOException {
+		StringBuilder longLine = new StringBuilder("Login,host=");
+		while (longLine.length() <= MAX_LINE_LENGTH) {
+			longLine.append('x');
+		}
+		longLine.append(" 1");
+		parse(longLine + "\nLogin 1\n" + longLine);
+		// 超长行被丢弃, 不影响后面的行
+		assertEquals(1, events.size());
+		assertEquals(1, parser.getAccepted());
+		assertEquals(2, parser.getRejected());
+	}
+
+	@Test
+	public void acceptsLineUpToMaxLength() throws IOException {
+		StringBuilder line = new StringBuilder("Login,host=");
+		while (line.length() < MAX_LINE_LENGTH - 2) {
+			line.append('x');
+		}
+		line.append(" 1");
+		assertEquals(MAX_LINE_LENGTH, line.length());
+		parse(line + "\n");
+		assertEquals(1, events.size());
+		assertEquals(MAX_LINE_LENGTH - 13, events.get(0).getDatas().get("host").length());
+	}
+
+	@Test
+	public void linesSplitAcrossReads() throws IOException {
+		byte[] body = "Login,host=h1 1\nLogout,host=h2 2\n".getBytes("UTF-8");
+		final ByteArrayInputStream in = new ByteArrayInputStream(body);
+		// 每次只读到一个字节
+		parser.parse(new InputStream() {
+			@Override
+			public int read() {
+				return in.read();
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) {
+				return in.read(b, off, Math.min(1, len));
+			}
+		}, collect);
+		assertEquals(2, events.size());
+		assertEquals("h2", events.get(1).getDatas().get("host"));
+	}
+
+	@Test
+	public void parseEventRejectsEmptySeries() {
+		byte[] buf = "Login,host".getBytes();
+		assertNull(parser.parseEvent(buf, 0, 0, 1, 1));
+		assertNull(parser.parseEvent(buf, 0, buf.length, 1, 1));
+		assertNotNull(parser.parseEvent(buf, 0, 5, 1, 1));
+		assertEquals(1, parser.getAccepted());
+		assertEquals(2, parser.getRejected());
+	}
+
+	private void parse(String body) throws IOException {
+		parser.parse(new ByteArrayInputStream(body.getBytes("UTF-8")), collect);
+	}
+}
@@ -0,0 +1,123 @@
+package com.zoll.junit;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.zoll.collector.config.CollectorCfg;
+import com.zoll.collector.http.HttpRequest;
+import com.zoll.collector.http.HttpResponse;
+import com.zoll.collector.http.IHttpHandler;
+import com.zoll.collector.http.NioHttpServer;
+
+/**
+ * {@link NioHttpServer} 请求分帧对畸形和超长请求的处理;
+ *
+ * @date 2026年10月19日 上午4:58:20
+ *
+ * @project zoll-monitor-collector
+ *
+ */
+public class NioHttpServerTest {
+	private NioHttpServer server;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new NioHttpServer();
+		server.createContext("/echo", new IHttpHandler() {
+			@Override
+			public void handle(HttpRequest request, HttpResponse response) {
+				response.setBody(String.valueOf(request.getBodyLength()));
+			}
+		});
+		// 单个IO线程, 所有连接落在同一个Reactor上
+		server.start("127.0.0.1", 0, 16, 1);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		server.stop();
+	}
+
+	@Test
+	public void acceptsWellFormedRequest() throws IOException {
+		String response = send("POST /echo HTTP/1.1\r\nContent-Length: 3\r\nConnection: close\r\n\r\nabc");
+		assertStatus(200, response);
+		assertTrue(response, response.endsWith("3"));
+	}
+
+	@Test
+	public void rejectsContentLengthOverflowingInt() throws IOException {
+		assertStatus(413, send("POST /echo HTTP/1.1\r\nContent-Length: 2147483647\r\n\r\nabc"));
+		assertStatus(413, send("POST /echo HTTP/1.1\r\nContent-Length: 99999999999\r\n\r\nabc"));
+		// Reactor线程仍然存活
+		assertStatus(200, send("POST /echo HTTP/1.1\r\nContent-Length: 0\r\nConnection: close\r\n\r\n"));
+	}
+
+	@Test
+	public void rejectsBodyOverMaxRequestSize() throws IOException {
+		assertStatus(413, send("POST /echo HTTP/1.1\r\nContent-Length: " + CollectorCfg.HTTP_MAX_REQUEST_SIZE + "\r\n\r\n"));
+	}
+
+	@Test
+	public void rejectsMalformedContentLength() throws IOException {
+		assertStatus(400, send("POST /echo HTTP/1.1\r\nContent-Length: abc\r\n\r\n"));
+		assertStatus(400, send("POST /echo HTTP/1.1\r\nContent-Length: -1\r\n\r\n"));
+	}
+
+	@Test
+	public void rejectsChunkedBody() throws IOException {
+		assertStatus(411, send("POST /echo HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n3\r\nabc\r\n0\r\n\r\n"));
+	}
+
+	@Test
+	public void unknownPathIsNotFound() throws IOException {
+		assertStatus(404, send("GET /missing HTTP/1.1\r\nConnection: close\r\n\r\n"));
+	}
+
+	@Test
+	public void answersPipelinedRequestsInOrder() throws IOException {
+		String response = send("POST /echo HTTP/1.1\r\nContent-Length: 1\r\n\r\na" + "POST /echo HTTP/1.1\r\nContent-Length: 2\r\nConnection: close\r\n\r\nbc");
+		int second = response.indexOf("HTTP/1.1", 1);
+		assertTrue(response, second > 0);
+		assertStatus(200, response);
+		assertTrue(response, response.substring(0, second).endsWith("1"));
+		assertStatus(200, response.substring(second));
+		assertTrue(response, response.endsWith("2"));
+	}
+
+	/**
+	 * 发送原始请求并读到服务端关闭连接;
+	 */
+	private String send(String request) throws IOException {
+		Socket socket = new Socket("127.0.0.1", server.getPort());
+		try {
+			socket.setSoTimeout(5000);
+			OutputStream out = socket.getOutputStream();
+			out.write(request.getBytes("UTF-8"));
+			out.flush();
+			InputStream in = socket.getInputStream();
+			ByteArrayOutputStream response = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			int n;
+			while ((n = in.read(buffer)) > 0) {
+				response.write(buffer, 0, n);
+			}
+			return response.toString("UTF-8");
+		} finally {
+			socket.close();
+		}
+	}
+
+	private static void assertStatus(int status, String response) {
+		assertTrue(response, response.startsWith("HTTP/1.1 " + status + " "));
+	}
+}
@@ -0,0 +1,134 @@
+package com.zoll.junit;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.zoll.collector.listener.ReportEvent;
+import com.zoll.collector.parser.QueryStringParser;
+import com.zoll.collector.parser.ReportEventFlyweight;
+
+/**
+ * {@link QueryStringParser} 和 {@link ReportEventFlyweight} 对正常, 畸形和超长查询串的处理;
+ *
+ * @date 2026年10月19日 上午5:52:30
+ *
+ * @project zoll-monitor-collector
+ *
+ */
+public class QueryStringParserTest {
+	private final ReportEventFlyweight event = new ReportEventFlyweight();
+
+	@Test
+	public void parsesNameValuePairs() {
+		QueryStringParser.parse("dataType=Login&host=h1&count=3", event);
+		assertEquals(3, event.size());
+		assertEquals("Login", event.getValue("dataType"));
+		assertEquals("h1", event.getValue("host"));
+		assertEquals(3, event.getLong("count", 1));
+		assertNull(event.getValue("missing"));
+	}
+
+	@Test
+	public void nullAndEmptyQuery() {
+		QueryStringParser.parse(null, event);
+		assertEquals(0, event.size());
+		QueryStringParser.parse("", event);
+		assertEquals(0, event.size());
+		QueryStringParser.parse("&&&", event);
+		assertEquals(0, event.size());
+	}
+
+	@Test
+	public void decodesPlusAndPercent() {
+		QueryStringParser.parse("a=x+y%2Bz&b=%E4%B8%AD%E6%96%87&c=%F0%9F%98%80&d%3D=1", event);
+		assertEquals("x y+z", event.getValue("a"));
+		assertEquals("中文", event.getValue("b"));
+		assertEquals("\uD83D\uDE00", event.getValue("c"));
+		assertEquals("1", event.getValue("d="));
+	}
+
+	@Test
+	public void keepsIllegalPercentEscapes() {
+		QueryStringParser.parse("a=%&b=%4&c=%zz&d=100%", event);
+		assertEquals("%", event.getValue("a"));
+		assertEquals("%4", event.getValue("b"));
+		assertEquals("%zz", event.getValue("c"));
+		assertEquals("100%", event.getValue("d"));
+	}
+
+	@Test
+	public void replacesMalformedUtf8() {
+		// 缺少后续字节, 后续字节不是10xxxxxx, 非法的首字节, 超出Unicode范围
+		QueryStringParser.parse("a=%E4%B8&b=%E4%41%42&c=%FF&d=%F7%BF%BF%BF", event);
+		assertEquals("\uFFFD", event.getValue("a"));
+		assertEquals("\uFFFDAB", event.getValue("b"));
+		assertEquals("\uFFFD", event.getValue("c"));
+		assertEquals("\uFFFD", event.getValue("d"));
+	}
+
+	@Test
+	public void ignoresParamsWithoutNameOrValue() {
+		QueryStringParser.parse("a&b=&=c&d=1&e", event);
+		assertEquals(1, event.size());
+		assertEquals("1", event.getValue("d"));
+		assertFalse(event.has("a"));
+		assertFalse(event.has("b"));
+	}
+
+	@Test
+	public void lastDuplicateWins() {
+		QueryStringParser.parse("a=1&a=2", event);
+		assertEquals("2", event.getValue("a"));
+		assertEquals("2", event.toMap().get("a"));
+	}
+
+	@Test
+	public void growsForManyAndLongParams() {
+		StringBuilder query = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			query.append("p").append(i).append('=').append(i).append('&');
+		}
+		StringBuilder longValue = new StringBuilder();
+		for (int i = 0; i < 10000; i++) {
+			longValue.append('v');
+		}
+		query.append("long=").append(longValue);
+		QueryStringParser.parse(query, event);
+		assertEquals(101, event.size());
+		assertEquals("99", event.getValue("p99"));
+		assertEquals(longValue.toString(), event.getValue("long"));
+	}
+
+	@Test
+	public void reusedAfterReset() {
+		QueryStringParser.parse("a=1&b=2", event);
+		QueryStringParser.parse("c=3", event);
+		assertEquals(1, event.size());
+		assertFalse(event.has("a"));
+		assertEquals("3", event.getValue("c"));
+	}
+
+	@Test
+	public void getLongRejectsMalformedAndOverflow() {
+		QueryStringParser.parse("a=-12&b=&c=-&d=1x&e=9223372036854775807&f=9223372036854775808&g=99999999999999999999", event);
+		assertEquals(-12, event.getLong("a", 7));
+		assertEquals(7, event.getLong("b", 7));
+		assertEquals(7, event.getLong("c", 7));
+		assertEquals(7, event.getLong("d", 7));
+		assertEquals(Long.MAX_VALUE, event.getLong("e", 7));
+		assertEquals(7, event.getLong("f", 7));
+		assertEquals(7, event.getLong("g", 7));
+		assertEquals(7, event.getLong("missing", 7));
+	}
+
+	@Test
+	public void toReportEventNeedsDataType() {
+		QueryStringParser.parse("host=h1", event);
+		assertNull(event.toReportEvent("dataType"));
+		QueryStringParser.parse("dataType=Login&host=h1", event);
+		ReportEvent reportEvent = event.toReportEvent("dataType");
+		assertEquals("Login", reportEvent.getDataType());
+		assertEquals("h1", reportEvent.getDatas().get("host"));
+	}
+}
@@ -0,0 +1,181 @@
+package com.zoll.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.zoll.collector.CollectorService;
+import com.zoll.collector.listener.ReportEventBus;
+import com.zoll.collector.metrics.CollectorMetrics;
+
+/**
+ * 采集端HTTP接入层压测;
+ *
+ * 不带参数时在本机启动完整的采集端(落地到临时目录下的时序存储), 压测 /statsd 的真实路径: 解析查询串, 集群路由, 事件分发, 预聚合和落库,
+ * 结束时核对进入事件总线的事件数; 带参数时压测已运行的采集端: host port [连接数] [pipeline深度] [秒数];
+ *
+ * @date 2026年10月19日 上午3:05:37
+ *
+ * @project zoll-monitor-collector
+ *
+ */
+public class CollectorLoadTest {
+	private static final int LOCAL_PORT = 19099;
+	private static final String DATA_TYPE = "LoadTest";
+	private static final String REQUEST = "GET /statsd?dataType=" + DATA_TYPE + "&platform=android&serverId=1&count=1&countType=1 HTTP/1.1\r\nHost: localhost\r\n\r\n";
+
+	public static void main(String[] args) throws Exception {
+		String host = "127.0.0.1";
+		int port;
+		CollectorService service = null;
+		if (args.length >= 2) {
+			host = args[0];
+			port = Integer.parseInt(args[1]);
+		} else {
+			// 在加载CollectorCfg之前指定落地方式, 不依赖MySQL
+			if (System.getProperty("collector.sink") == null) {
+				System.setProperty("collector.sink", "2");
+			}
+			if (System.getProperty("collector.tsdb.dir") == null) {
+				System.setProperty("collector.tsdb.dir", new File(System.getProperty("java.io.tmpdir"), "collector-loadtest-" + System.currentTimeMillis()).getPath());
+			}
+			service = new CollectorService();
+			port = LOCAL_PORT;
+			service.init(host, port, 1024);
+		}
+		int connections = args.length >= 3 ? Integer.parseInt(args[2]) : 16;
+		int depth = args.length >= 4 ? Integer.parseInt(args[3]) : 32;
+		int seconds = args.length >= 5 ? Integer.parseInt(args[4]) : 10;
+
+		final AtomicLong responses = new AtomicLong();
+		final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(seconds);
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < connections; i++) {
+			Thread t = new Thread(new PipelineClient(host, port, depth, deadline, responses), "LoadClient-" + i);
+			threads.add(t);
+			t.start();
+		}
+		long begin = System.currentTimeMillis();
+		long last = 0;
+		while (System.currentTimeMillis() < deadline) {
+			TimeUnit.SECONDS.sleep(1);
+			long now = responses.get();
+			System.out.println("req/s : " + (now - last));
+			last = now;
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+		long cost = System.currentTimeMillis() - begin;
+		System.out.println("connections=" + connections + " pipeline=" + depth + " total=" + responses.get() + " avg req/s=" + responses.get() * 1000 / cost);
+		if (service != null) {
+			System.out.println("server ingested=" + CollectorMetrics.getInstance().ingest(DATA_TYPE).getCount() + " dropped=" + ReportEventBus.getDroppedCount());
+			service.stop();
+		}
+	}
+
+	/**
+	 * 一个keep-alive连接, 每轮连续发出depth个请求再读回depth个应答;
+	 */
+	static class PipelineClient implements Runnable {
+		private final String host;
+		private final int port;
+		private final int depth;
+		private final long deadline;
+		private final AtomicLong responses;
+
+		PipelineClient(String host, int port, int depth, long deadline, AtomicLong responses) {
+			this.host = host;
+			this.port = port;
+			this.depth = depth;
+			this.deadline = deadline;
+			this.responses = responses;
+		}
+
+		@Override
+		public void run() {
+			byte[] one = REQUEST.getBytes();
+			byte[] batch = new byte[one.length * depth];
+			for (int i = 0; i < depth; i++) {
+				System.arraycopy(one, 0, batch, i * one.length, one.length);
+			}
+			Socket socket = null;
+			try {
+				socket = new Socket(host, port);
+				socket.setTcpNoDelay(true);
+				OutputStream out = socket.getOutputStream();
+				InputStream in = socket.getInputStream();
+				ResponseCounter counter = new ResponseCounter();
+				while (System.currentTimeMillis() < deadline) {
+					out.write(batch);
+					out.flush();
+					int expected = depth;
+					byte[] buf = new byte[64 * 1024];
+					while (expected > 0) {
+						int n = in.read(buf);
+						if (n < 0) {
+							return;
+						}
+						int got = counter.feed(buf, n);
+						expected -= got;
+						responses.addAndGet(got);
+					}
+				}
+			} catch (IOException e) {
+				System.err.println(e.getMessage());
+			} finally {
+				if (socket != null) {
+					try {
+						socket.close();
+					} catch (IOException e) {
+						// ignore
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * 在字节流中数出完整应答的个数(按Content-Length跳过应答体);
+	 */
+	static class ResponseCounter {
+		private final StringBuilder header = new StringBuilder();
+		private int bodyLeft = -1;
+
+		int feed(byte[] buf, int n) {
+			int count = 0;
+			for (int i = 0; i < n; i++) {
+				if (bodyLeft > 0) {
+					int skip = Math.min(bodyLeft, n - i);
+					bodyLeft -= skip;
+					i += skip - 1;
+					if (bodyLeft == 0) {
+						count++;
+						bodyLeft = -1;
+					}
+					continue;
+				}
+				header.append((char) buf[i]);
+				int len = header.length();
+				if (len >= 4 && header.charAt(len - 1) == '\n' && header.charAt(len - 2) == '\r' && header.charAt(len - 3) == '\n' && header.charAt(len - 4) == '\r') {
+					String h = header.toString();
+					int idx = h.indexOf("Content-Length: ");
+					int length = Integer.parseInt(h.substring(idx + 16, h.indexOf('\r', idx)));
+					header.setLength(0);
+					if (length == 0) {
+						count++;
+					} else {
+						bodyLeft = length;
+					}
+				}
+			}
+			return count;
+		}
+	}
+}
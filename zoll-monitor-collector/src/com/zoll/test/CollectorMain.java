@@ -1,14 +1,31 @@
 package com.zoll.test;
 
+import java.io.IOException;
 import java.util.concurrent.TimeUnit;
 
 import com.zoll.collector.CollectorService;
+import com.zoll.collector.cluster.ClusterManager;
+import com.zoll.collector.cluster.ClusterNode;
 import com.zoll.collector.database.DBManager;
 
+/**
+ * 启动采集端;
+ * 
+ * 不带参数时单实例监听9099; 集群模式: self members, 例如本机三个实例:
+ * 
+ * <pre>
+ * 127.0.0.1:9099:9199 127.0.0.1:9099:9199,127.0.0.1:9100:9200,127.0.0.1:9101:9201
+ * </pre>
+ */
 public class CollectorMain {
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException {
+		int port = 9099;
+		if (args.length >= 2) {
+			port = ClusterNode.parse(args[0]).getHttpPort();
+			ClusterManager.getInstance().init(args[1], args[0]);
+		}
 		CollectorService cs = new CollectorService();
-		cs.init("0.0.0.0", 9099, 100);
+		cs.init("0.0.0.0", port, 100);
 		while (true) {
 			try {
 				TimeUnit.SECONDS.sleep(100);
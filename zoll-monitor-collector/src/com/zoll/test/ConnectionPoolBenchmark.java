@@ -0,0 +1,163 @@
+package com.zoll.test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Logger;
+
+import com.zoll.collector.config.CollectorCfg;
+import com.zoll.collector.database.pool.BagPool;
+import com.zoll.collector.database.pool.HikariPool;
+import com.zoll.collector.database.pool.IConnectionPool;
+import com.zoll.collector.database.pool.MyPool;
+
+/**
+ * 连接池借还开销对比: MyPool / HikariPool / BagPool, 与DB线程数相同的线程同时借还;
+ *
+ * 默认连接 {@link CollectorCfg#DB_HOST} 并在每次借出后执行 SELECT 1; 参数 mock 时用内存中的假连接, 只测池本身的开销(HikariPool 固定使用MySQL驱动, mock 时跳过);
+ *
+ * @date 2026年10月19日 上午3:20:20
+ *
+ * @project zoll-monitor-collector
+ *
+ */
+public class ConnectionPoolBenchmark {
+	private static final int THREADS = CollectorCfg.HTTP_SERVER_THREAD_SIZE;
+	private static final int ROUNDS = 3;
+
+	public static void main(String[] args) throws Exception {
+		boolean mock = args.length > 0 && "mock".equals(args[0]);
+		int iterations = mock ? 200000 : 5000;
+		if (mock) {
+			installMockDriver();
+		}
+		for (int round = 0; round < ROUNDS; round++) {
+			boolean print = round > 0;
+			run("MyPool", new MyPool(), iterations, !mock, print);
+			if (!mock) {
+				run("HikariPool", new HikariPool(), iterations, true, print);
+			}
+			run("BagPool", new BagPool(), iterations, !mock, print);
+		}
+	}
+
+	private static void run(String name, final IConnectionPool pool, final int iterations, final boolean query, boolean print) throws Exception {
+		pool.initPool();
+		final long[][] latencies = new long[THREADS][iterations];
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(THREADS);
+		for (int t = 0; t < THREADS; t++) {
+			final long[] latency = latencies[t];
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+						for (int i = 0; i < iterations; i++) {
+							long begin = System.nanoTime();
+							Connection connection = pool.getConnection();
+							latency[i] = System.nanoTime() - begin;
+							try {
+								if (query) {
+									Statement statement = connection.createStatement();
+									statement.execute("SELECT 1");
+									statement.close();
+								}
+							} finally {
+								pool.closeConnection(connection);
+							}
+						}
+					} catch (Exception e) {
+						e.printStackTrace();
+					} finally {
+						done.countDown();
+					}
+				}
+			}, name + "-" + t).start();
+		}
+		long begin = System.nanoTime();
+		start.countDown();
+		done.await();
+		long cost = System.nanoTime() - begin;
+		pool.closePool();
+		if (!print) {
+			return;
+		}
+		long[] all = new long[THREADS * iterations];
+		for (int t = 0; t < THREADS; t++) {
+			System.arraycopy(latencies[t], 0, all, t * iterations, iterations);
+		}
+		Arrays.sort(all);
+		System.out.println(String.format("%-12s %10.0f ops/s  acquire p50 %7d ns  p99 %9d ns  max %10d ns", name, all.length * 1e9 / cost, all[all.length / 2], all[(int) (all.length * 0.99)], all[all.length - 1]));
+	}
+
+	/**
+	 * 用返回假连接的驱动替换MySQL驱动;
+	 */
+	private static void installMockDriver() throws SQLException {
+		Enumeration<Driver> drivers = DriverManager.getDrivers();
+		while (drivers.hasMoreElements()) {
+			DriverManager.deregisterDriver(drivers.nextElement());
+		}
+		DriverManager.registerDriver(new Driver() {
+			@Override
+			public Connection connect(String url, Properties info) {
+				return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						if ("isValid".equals(method.getName())) {
+							return true;
+						}
+						if ("hashCode".equals(method.getName())) {
+							return System.identityHashCode(proxy);
+						}
+						if ("equals".equals(method.getName())) {
+							return proxy == args[0];
+						}
+						return null;
+					}
+				});
+			}
+
+			@Override
+			public boolean acceptsURL(String url) {
+				return true;
+			}
+
+			@Override
+			public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+				return new DriverPropertyInfo[0];
+			}
+
+			@Override
+			public int getMajorVersion() {
+				return 1;
+			}
+
+			@Override
+			public int getMinorVersion() {
+				return 0;
+			}
+
+			@Override
+			public boolean jdbcCompliant() {
+				return false;
+			}
+
+			public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+				throw new SQLFeatureNotSupportedException();
+			}
+		});
+	}
+}
@@ -0,0 +1,100 @@
+package com.zoll.test;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.zoll.collector.CollectorService;
+import com.zoll.collector.parser.QueryStringParser;
+import com.zoll.collector.parser.ReportEventFlyweight;
+
+/**
+ * 查询串解析的单事件开销对比: 旧的split实现 / 解析到复用对象 / 解析后转换为Map;
+ *
+ * 环境中没有JMH, 这里用预热 + 多轮计时的方式, 同时通过 ThreadMXBean 统计每次解析分配的字节数;
+ *
+ * @date 2026年10月19日 上午3:07:43
+ *
+ * @project zoll-monitor-collector
+ *
+ */
+public class QueryParserBenchmark {
+	private static final String[] QUERIES = {
+			"dataType=Login&playerId=8231&platform=android&serverId=12&count=1&countType=1",
+			"dataType=Online&platform=ios&serverId=201&count=3412&countType=2",
+			"dataType=Chat&playerId=77&platform=android&serverId=3&channel=%E4%B8%96%E7%95%8C&count=1&countType=1" };
+	private static final int ROUNDS = 5;
+	private static final int ITERATIONS = 2000000;
+
+	private static long sink;
+
+	public static void main(String[] args) {
+		for (int round = 0; round < ROUNDS; round++) {
+			boolean print = round >= 2;
+			run("legacy split", new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < ITERATIONS; i++) {
+						sink += legacyGetParams(QUERIES[i % QUERIES.length]).size();
+					}
+				}
+			}, print);
+			run("flyweight", new Runnable() {
+				final ReportEventFlyweight flyweight = new ReportEventFlyweight();
+
+				@Override
+				public void run() {
+					for (int i = 0; i < ITERATIONS; i++) {
+						QueryStringParser.parse(QUERIES[i % QUERIES.length], flyweight);
+						sink += flyweight.getLong("count", 0);
+					}
+				}
+			}, print);
+			run("flyweight + toMap", new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < ITERATIONS; i++) {
+						sink += CollectorService.getParams(QUERIES[i % QUERIES.length]).size();
+					}
+				}
+			}, print);
+		}
+		System.out.println("sink=" + sink);
+	}
+
+	private static void run(String name, Runnable task, boolean print) {
+		long allocatedBefore = allocatedBytes();
+		long begin = System.nanoTime();
+		task.run();
+		long cost = System.nanoTime() - begin;
+		long allocated = allocatedBytes() - allocatedBefore;
+		if (print) {
+			System.out.println(String.format("%-20s %8.1f ns/op %8.1f B/op", name, (double) cost / ITERATIONS, (double) allocated / ITERATIONS));
+		}
+	}
+
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return 0;
+	}
+
+	/**
+	 * 原 CollectorService.getParams 的实现;
+	 */
+	private static Map<String, String> legacyGetParams(String query) {
+		Map<String, String> paramMap = new HashMap<String, String>();
+		if (query != null && query.split("&").length != 0) {
+			String[] sp1 = query.split("&");
+			for (String eacheSp1 : sp1) {
+				String[] sp2 = eacheSp1.split("=");
+				if (sp2.length == 2) {
+					paramMap.put(sp2[0], sp2[1]);
+				}
+			}
+		}
+		return paramMap;
+	}
+}
@@ -0,0 +1,74 @@
+package com.zoll.junit;
+
+import static org.junit.Assert.*;
+
+import java.io.UnsupportedEncodingException;
+
+import org.junit.Test;
+
+import com.zoll.reporter.datas.BaseReportData;
+
+/**
+ * {@link BaseReportData#escape(StringBuilder, String)} 的单元测试;
+ *
+ * @date 2026年10月19日 上午4:33:30
+ *
+ * @project zoll-monitor-reporter
+ *
+ */
+public class BaseReportDataTest {
+
+	@Test
+	public void unreservedCharactersAreKept() {
+		assertEquals("abcXYZ019-_.~", escape("abcXYZ019-_.~"));
+		assertEquals("", escape(""));
+	}
+
+	@Test
+	public void nullAppendsNothing() {
+		StringBuilder sb = new StringBuilder("x");
+		BaseReportData.escape(sb, null);
+		assertEquals("x", sb.toString());
+	}
+
+	@Test
+	public void separatorsAreEscaped() {
+		assertEquals("a%2Cb%3Dc%20d%25e%26f%0A", escape("a,b=c d%e&f\n"));
+	}
+
+	@Test
+	public void multiByteCharactersUseUtf8() throws UnsupportedEncodingException {
+		String[] values = { "é", "服务器1", "a€b", "😀x" };
+		for (String value : values) {
+			assertEquals(value, reference(value), escape(value));
+		}
+	}
+
+	@Test
+	public void unpairedSurrogateBecomesQuestionMark() {
+		assertEquals("a%3Fb", escape("a\uD83Db"));
+		assertEquals("%3F", escape("\uDE00"));
+	}
+
+	private static String escape(String value) {
+		StringBuilder sb = new StringBuilder();
+		BaseReportData.escape(sb, value);
+		return sb.toString();
+	}
+
+	/**
+	 * 按UTF-8字节逐个转义的参照实现;
+	 */
+	private static String reference(String value) throws UnsupportedEncodingException {
+		StringBuilder sb = new StringBuilder();
+		for (byte b : value.getBytes("UTF-8")) {
+			int c = b & 0xFF;
+			if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '_' || c == '.' || c == '~') {
+				sb.append((char) c);
+			} else {
+				sb.append('%').append(String.format("%02X", c));
+			}
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,160 @@
+package com.zoll.junit;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.zoll.reporter.ReportAggregator;
+import com.zoll.reporter.ReportAggregator.Cell;
+import com.zoll.reporter.transport.DiskBuffer;
+import com.zoll.reporter.transport.ReportBatch;
+
+/**
+ * {@link DiskBuffer} 回放, 重启恢复和超限淘汰的单元测试;
+ *
+ * @date 2026年10月19日 上午4:34:10
+ *
+ * @project zoll-monitor-reporter
+ *
+ */
+public class DiskBufferTest {
+	private File dir;
+
+	@Before
+	public void setUp() throws Exception {
+		dir = File.createTempFile("spool", "");
+		dir.delete();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		dir.delete();
+	}
+
+	@Test
+	public void replaysInOrder() throws IOException {
+		DiskBuffer buffer = open(1024 * 1024, 16 * 1024 * 1024);
+		assertTrue(buffer.isEmpty());
+		for (int seq = 1; seq <= 5; seq++) {
+			assertTrue(buffer.append(batch(seq)));
+		}
+		assertFalse(buffer.isEmpty());
+		for (int seq = 1; seq <= 5; seq++) {
+			assertBatch(seq, buffer.peek());
+			// 没有commit时再次peek得到同一条
+			assertBatch(seq, buffer.peek());
+			buffer.commit();
+		}
+		assertNull(buffer.peek());
+		assertTrue(buffer.isEmpty());
+		buffer.close();
+	}
+
+	@Test
+	public void resumesFromCommittedPositionAfterReopen() throws IOException {
+		DiskBuffer buffer = open(1024 * 1024, 16 * 1024 * 1024);
+		for (int seq = 1; seq <= 5; seq++) {
+			buffer.append(batch(seq));
+		}
+		for (int seq = 1; seq <= 2; seq++) {
+			assertBatch(seq, buffer.peek());
+			buffer.commit();
+		}
+		// 已读未commit的记录重启后重新回放
+		assertBatch(3, buffer.peek());
+		buffer.close();
+
+		buffer = open(1024 * 1024, 16 * 1024 * 1024);
+		buffer.append(batch(6));
+		for (int seq = 3; seq <= 6; seq++) {
+			assertBatch(seq, buffer.peek());
+			buffer.commit();
+		}
+		assertNull(buffer.peek());
+		buffer.close();
+	}
+
+	@Test
+	public void skipsTruncatedRecordAfterCrash() throws IOException {
+		DiskBuffer buffer = open(1024 * 1024, 16 * 1024 * 1024);
+		buffer.append(batch(1));
+		buffer.append(batch(2));
+		buffer.close();
+		// 模拟写入中途退出: 截掉最后一条记录的末尾
+		File[] segments = dir.listFiles();
+		for (File segment : segments) {
+			if (segment.getName().endsWith(".log") && segment.length() > 0) {
+				RandomAccessFile file = new RandomAccessFile(segment, "rw");
+				file.setLength(segment.length() - 3);
+				file.close();
+			}
+		}
+
+		buffer = open(1024 * 1024, 16 * 1024 * 1024);
+		assertBatch(1, buffer.peek());
+		buffer.commit();
+		assertNull(buffer.peek());
+		buffer.append(batch(3));
+		assertBatch(3, buffer.peek());
+		buffer.close();
+	}
+
+	@Test
+	public void evictsOldestSegmentsOverMaxSize() throws Exception {
+		DiskBuffer probe = open(1024 * 1024, 16 * 1024 * 1024);
+		probe.append(batch(1));
+		long recordSize = probe.getSize();
+		probe.close();
+		tearDown();
+
+		// 每条记录一个段, 最多保留3段
+		DiskBuffer buffer = open(1, recordSize * 3);
+		for (int seq = 1; seq <= 9; seq++) {
+			assertTrue(buffer.append(batch(seq)));
+		}
+		assertTrue(buffer.getSize() <= recordSize * 3);
+		assertEquals(recordSize * 6, buffer.getDroppedBytes());
+		for (int seq = 7; seq <= 9; seq++) {
+			assertBatch(seq, buffer.peek());
+			buffer.commit();
+		}
+		assertNull(buffer.peek());
+		buffer.close();
+	}
+
+	private DiskBuffer open(long segmentSize, long maxSize) throws IOException {
+		DiskBuffer buffer = new DiskBuffer(dir, segmentSize, maxSize);
+		buffer.open();
+		return buffer;
+	}
+
+	private static ReportBatch batch(int seq) {
+		ReportAggregator aggregator = new ReportAggregator();
+		aggregator.add("Login,host=h" + seq, seq, 1);
+		return new ReportBatch("reporter", seq, 1000L + seq, new ArrayList<Cell>(aggregator.drain()));
+	}
+
+	private static void assertBatch(int seq, ReportBatch batch) {
+		assertNotNull("batch " + seq, batch);
+		assertEquals("reporter", batch.getReporterId());
+		assertEquals(seq, batch.getSeq());
+		assertEquals(1000L + seq, batch.getTime());
+		assertEquals(1, batch.size());
+		StringBuilder sb = new StringBuilder();
+		batch.getCells().get(0).appendLine(sb);
+		assertEquals("Login,host=h" + seq + " " + seq + " 1\n", sb.toString());
+	}
+}
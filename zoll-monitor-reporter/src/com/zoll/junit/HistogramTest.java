@@ -0,0 +1,53 @@
+package com.zoll.junit;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.zoll.reporter.metrics.Histogram;
+
+/**
+ * {@link Histogram} 分桶的单元测试;
+ *
+ * @date 2026年10月19日 上午4:33:05
+ *
+ * @project zoll-monitor-reporter
+ *
+ */
+public class HistogramTest {
+
+	@Test
+	public void smallValuesHaveOwnBucket() {
+		for (int value = 0; value < 16; value++) {
+			assertEquals(value, Histogram.bucketIndex(value));
+			assertEquals(value, Histogram.bucketUpperBound(value));
+		}
+	}
+
+	@Test
+	public void bucketsAreContiguous() {
+		for (int index = 0; index < Histogram.BUCKET_COUNT; index++) {
+			long upper = Histogram.bucketUpperBound(index);
+			assertEquals("upper bound of bucket " + index, index, Histogram.bucketIndex(upper));
+			if (index + 1 < Histogram.BUCKET_COUNT) {
+				assertEquals("value after bucket " + index, index + 1, Histogram.bucketIndex(upper + 1));
+			}
+		}
+	}
+
+	@Test
+	public void lastBucketEndsAtMaxValue() {
+		assertEquals(Long.MAX_VALUE, Histogram.bucketUpperBound(Histogram.BUCKET_COUNT - 1));
+		assertEquals(Histogram.BUCKET_COUNT - 1, Histogram.bucketIndex(Long.MAX_VALUE));
+	}
+
+	@Test
+	public void relativeErrorWithinOneEighth() {
+		long[] values = { 16, 17, 100, 1000, 12345, 999999, 1L << 40, (1L << 40) + 12345, Long.MAX_VALUE / 3 };
+		for (long value : values) {
+			long upper = Histogram.bucketUpperBound(Histogram.bucketIndex(value));
+			assertTrue(value + " <= " + upper, value <= upper);
+			assertTrue("error of " + value, (double) (upper - value) / value <= 1.0 / 8);
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package com.zoll.junit;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.zoll.util.RingBuffer;
+
+/**
+ * {@link RingBuffer} 的单元测试;
+ *
+ * @date 2026年10月19日 上午4:32:40
+ *
+ * @project zoll-monitor-reporter
+ *
+ */
+public class RingBufferTest {
+
+	@Test
+	public void capacityRoundsUpToPowerOfTwo() {
+		assertEquals(1, new RingBuffer<Integer>(1).capacity());
+		assertEquals(8, new RingBuffer<Integer>(5).capacity());
+		assertEquals(1024, new RingBuffer<Integer>(1024).capacity());
+	}
+
+	@Test
+	public void offerAndPollInOrder() {
+		RingBuffer<Integer> buffer = new RingBuffer<Integer>(4);
+		assertTrue(buffer.isEmpty());
+		assertNull(buffer.poll());
+		for (int i = 0; i < 4; i++) {
+			assertTrue(buffer.offer(i));
+		}
+		assertFalse("full buffer must reject", buffer.offer(4));
+		assertEquals(4, buffer.size());
+		for (int i = 0; i < 4; i++) {
+			assertEquals(Integer.valueOf(i), buffer.poll());
+		}
+		assertNull(buffer.poll());
+		assertTrue(buffer.isEmpty());
+	}
+
+	@Test
+	public void wrapsAroundManyLaps() {
+		RingBuffer<Integer> buffer = new RingBuffer<Integer>(4);
+		int next = 0;
+		for (int lap = 0; lap < 1000; lap++) {
+			assertTrue(buffer.offer(lap * 3));
+			assertTrue(buffer.offer(lap * 3 + 1));
+			assertTrue(buffer.offer(lap * 3 + 2));
+			for (int i = 0; i < 3; i++) {
+				assertEquals(Integer.valueOf(next++), buffer.poll());
+			}
+		}
+		assertTrue(buffer.isEmpty());
+	}
+
+	@Test
+	public void concurrentProducersAndConsumers() throws InterruptedException {
+		final int producers = 4;
+		final int consumers = 4;
+		final int perProducer = 100000;
+		final RingBuffer<Long> buffer = new RingBuffer<Long>(1024);
+		final AtomicLong sum = new AtomicLong();
+		final AtomicLong received = new AtomicLong();
+		final CountDownLatch done = new CountDownLatch(producers + consumers);
+		for (int p = 0; p < producers; p++) {
+			final long base = (long) p * perProducer;
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (long i = 1; i <= perProducer; i++) {
+						while (!buffer.offer(base + i)) {
+							Thread.yield();
+						}
+					}
+					done.countDown();
+				}
+			}).start();
+		}
+		final long total = (long) producers * perProducer;
+		for (int c = 0; c < consumers; c++) {
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					while (received.get() < total) {
+						Long value = buffer.poll();
+						if (value == null) {
+							Thread.yield();
+							continue;
+						}
+						sum.addAndGet(value);
+						received.incrementAndGet();
+					}
+					done.countDown();
+				}
+			}).start();
+		}
+		done.await();
+		assertEquals(total, received.get());
+		// 每个值恰好被取出一次: 1..total 之和
+		assertEquals(total * (total + 1) / 2, sum.get());
+		assertTrue(buffer.isEmpty());
+	}
+}
@@ -0,0 +1,146 @@
+package com.zoll.reporter;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.zoll.reporter.transport.ILoadListener;
+
+/**
+ * 按采集端的负载提示调整上报节奏, 加性增 乘性减(AIMD);
+ * 
+ * 发送失败, 采集端要求暂停或负载超过 {@link ReporterCfg#LOAD_HIGH} 时: 上报间隔翻倍, 单批行数减半, 间隔已到上限时采样步长翻倍;
+ * 负载低于 {@link ReporterCfg#LOAD_LOW} 时按相反的顺序逐级恢复: 先减采样步长, 再缩短间隔, 最后增大单批行数; 每个上报间隔内最多调整一次;
+ * 
+ * 每次的上报间隔随机浮动 {@link ReporterCfg#FLUSH_JITTER}, 第一次上报的时间在一个间隔内随机, 采集端要求的暂停时间也加上随机量,
+ * 大量上报端同时启动或同时收到暂停提示时不会在同一时刻一起上报;
+ * 
+ * @date 2026年10月19日 上午4:06:00
+ * 
+ * @project zoll-monitor-reporter
+ * 
+ */
+public class AdaptiveController implements ILoadListener {
+	private volatile long flushInterval = ReporterCfg.FLUSH_INTERVAL;
+	private volatile int batchSize = ReporterCfg.MAX_BATCH_SIZE;
+	/** 采样步长N, 累加类的数据按1/N采样 */
+	private volatile int sampleStep = 1;
+	/** 在此之前不上报 */
+	private volatile long pauseUntil;
+	/** 最近一次收到的负载 */
+	private volatile int load;
+	/** 上次调整的时间 */
+	private long lastAdjust;
+
+	@Override
+	public void onLoad(int load, long retryAfter) {
+		this.load = load;
+		if (retryAfter > 0) {
+			long pause = System.currentTimeMillis() + retryAfter + (long) (retryAfter * ReporterCfg.FLUSH_JITTER * ThreadLocalRandom.current().nextDouble());
+			synchronized (this) {
+				pauseUntil = Math.max(pauseUntil, pause);
+			}
+			decrease();
+		} else if (load >= ReporterCfg.LOAD_HIGH) {
+			decrease();
+		} else if (load < ReporterCfg.LOAD_LOW) {
+			increase();
+		}
+	}
+
+	/**
+	 * 发送失败(连接失败, 超时, 采集端拒绝);
+	 */
+	public void onFailure() {
+		decrease();
+	}
+
+	/**
+	 * 乘性减;
+	 */
+	private synchronized void decrease() {
+		long now = System.currentTimeMillis();
+		if (now - lastAdjust < flushInterval) {
+			return;
+		}
+		lastAdjust = now;
+		if (flushInterval < ReporterCfg.MAX_FLUSH_INTERVAL) {
+			flushInterval = Math.min(flushInterval * 2, ReporterCfg.MAX_FLUSH_INTERVAL);
+			batchSize = Math.max(batchSize / 2, ReporterCfg.MIN_BATCH_SIZE);
+		} else {
+			sampleStep = Math.min(sampleStep * 2, ReporterCfg.MAX_SAMPLE_STEP);
+		}
+	}
+
+	/**
+	 * 加性增;
+	 */
+	private synchronized void increase() {
+		long now = System.currentTimeMillis();
+		if (now - lastAdjust < flushInterval) {
+			return;
+		}
+		if (sampleStep > 1) {
+			sampleStep--;
+		} else if (flushInterval > ReporterCfg.FLUSH_INTERVAL) {
+			flushInterval = Math.max(flushInterval - ReporterCfg.FLUSH_INTERVAL_STEP, ReporterCfg.FLUSH_INTERVAL);
+		} else if (batchSize < ReporterCfg.MAX_BATCH_SIZE) {
+			batchSize = Math.min(batchSize + ReporterCfg.BATCH_SIZE_STEP, ReporterCfg.MAX_BATCH_SIZE);
+		} else {
+			return;
+		}
+		lastAdjust = now;
+	}
+
+	/**
+	 * 第一次上报前的等待时间, 在一个间隔内均匀分布;
+	 * 
+	 * @return 毫秒
+	 */
+	public long initialDelay() {
+		return (long) (flushInterval * ThreadLocalRandom.current().nextDouble());
+	}
+
+	/**
+	 * 到下次上报的等待时间, 当前间隔上下随机浮动 {@link ReporterCfg#FLUSH_JITTER};
+	 * 
+	 * @return 毫秒
+	 */
+	public long nextFlushDelay() {
+		double jitter = ReporterCfg.FLUSH_JITTER * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+		return (long) (flushInterval * (1 + jitter));
+	}
+
+	/**
+	 * 是否处于采集端要求的暂停期;
+	 * 
+	 * @param now
+	 * @return
+	 */
+	public boolean isPaused(long now) {
+		return now < pauseUntil;
+	}
+
+	/**
+	 * 采集端是否拥塞: 处于暂停期或最近的负载超过 {@link ReporterCfg#LOAD_HIGH};
+	 * 
+	 * @return
+	 */
+	public boolean isCongested() {
+		return isPaused(System.currentTimeMillis()) || load >= ReporterCfg.LOAD_HIGH;
+	}
+
+	public long getFlushInterval() {
+		return flushInterval;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public int getSampleStep() {
+		return sampleStep;
+	}
+
+	public int getLoad() {
+		return load;
+	}
+}
@@ -0,0 +1,19 @@
+package com.zoll.reporter;
+
+/**
+ * 上报队列已满时的处理方式;
+ * 
+ * @date 2026年10月19日 上午3:33:27
+ * 
+ * @project zoll-monitor-reporter
+ * 
+ */
+public enum OverflowPolicy {
+	/** 丢弃队列中最早的数据, 保留最新的 */
+	DROP_OLDEST,
+	/** 丢弃当前上报的数据 */
+	DROP_NEWEST,
+	/** 等待队列有空位, 超过 {@link ReporterCfg#BLOCK_TIMEOUT} 后丢弃当前上报的数据 */
+	BLOCK,
+	;
+}
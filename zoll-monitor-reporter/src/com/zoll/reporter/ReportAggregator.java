@@ -0,0 +1,226 @@
+package com.zoll.reporter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.zoll.reporter.datas.IReportData;
+
+/**
+ * 上报端预聚合;
+ * 
+ * 两次上报之间, 同一 dataType + 标签 + 计数方式 的数据合并成一行: INCREASE_COUNT 累加, LATEST_COUNT 取最新值;
+ * 上报数据在聚合线程上合并, 序列写进复用的缓冲, 用复用的查找键去找聚合值, 只有新序列才生成String;
+ * 
+ * @date 2026年10月19日 上午3:32:20
+ * 
+ * @project zoll-monitor-reporter
+ * 
+ */
+public class ReportAggregator {
+	/** 序列 + 计数方式 -> 聚合值 */
+	private ConcurrentMap<SeriesKey, Cell> cells = new ConcurrentHashMap<SeriesKey, Cell>();
+	/** 聚合线程复用的序列缓冲和查找键 */
+	private final StringBuilder scratch = new StringBuilder(128);
+	private final SeriesKey probe = new SeriesKey();
+	/** 合并取读锁, 摘除取写锁, 保证摘除之后不会再有数据合并进旧的集合 */
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * 合并一条上报数据, 只能在聚合线程调用;
+	 * 
+	 * @param data
+	 * @return 当前待上报的序列数
+	 */
+	public int add(IReportData data) {
+		return add(data, 1);
+	}
+
+	/**
+	 * 合并一条采样得到的数据, 值乘以采样步长; 复用内部的缓冲, 只能在聚合线程调用;
+	 * 
+	 * @param data
+	 * @param weight
+	 *            采样步长
+	 * @return 当前待上报的序列数
+	 */
+	public int add(IReportData data, int weight) {
+		scratch.setLength(0);
+		data.writeSeries(scratch);
+		return add(probe.set(scratch, data.getCountType()), data.getCount() * weight);
+	}
+
+	/**
+	 * 合并一个已转义好的序列的值;
+	 * 
+	 * @param series
+	 *            dataType,标签=值,...
+	 * @param count
+	 * @param countType
+	 * @return 当前待上报的序列数
+	 */
+	public int add(String series, long count, int countType) {
+		return add(new SeriesKey().set(series, countType), count);
+	}
+
+	private int add(SeriesKey key, long count) {
+		lock.readLock().lock();
+		try {
+			Cell cell = cells.get(key);
+			if (cell == null) {
+				Cell newCell = new Cell(key.series.toString(), key.countType);
+				cell = cells.putIfAbsent(newCell.key, newCell);
+				if (cell == null) {
+					cell = newCell;
+				}
+			}
+			cell.add(count);
+			return cells.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * 摘除当前所有聚合值;
+	 * 
+	 * @return
+	 */
+	public Collection<Cell> drain() {
+		ConcurrentMap<SeriesKey, Cell> drained;
+		lock.writeLock().lock();
+		try {
+			drained = cells;
+			cells = new ConcurrentHashMap<SeriesKey, Cell>();
+		} finally {
+			lock.writeLock().unlock();
+		}
+		return drained.values();
+	}
+
+	/**
+	 * 序列 + 计数方式 的查找键; 查找时包装复用的缓冲, 放进map的键包装聚合值自己的序列String;
+	 */
+	private static final class SeriesKey {
+		private CharSequence series;
+		private int countType;
+		private int hash;
+
+		SeriesKey set(CharSequence series, int countType) {
+			int h = countType;
+			for (int i = 0, n = series.length(); i < n; i++) {
+				h = 31 * h + series.charAt(i);
+			}
+			this.series = series;
+			this.countType = countType;
+			this.hash = h;
+			return this;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof SeriesKey)) {
+				return false;
+			}
+			SeriesKey other = (SeriesKey) obj;
+			int length = series.length();
+			if (hash != other.hash || countType != other.countType || length != other.series.length()) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				if (series.charAt(i) != other.series.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * 单个序列的聚合值;
+	 */
+	public static class Cell {
+		private final String series;
+		private final int countType;
+		private final SeriesKey key;
+		private final AtomicLong value = new AtomicLong();
+
+		Cell(String series, int countType) {
+			this.series = series;
+			this.countType = countType;
+			this.key = new SeriesKey().set(series, countType);
+		}
+
+		void add(long count) {
+			if (countType == ReporterCfg.LATEST_COUNT) {
+				value.set(count);
+			} else {
+				value.addAndGet(count);
+			}
+		}
+
+		/**
+		 * 按批量上报的行协议输出一行: series count countType;
+		 * 
+		 * @param sb
+		 */
+		public void appendLine(StringBuilder sb) {
+			sb.append(series).append(' ').append(value.get()).append(' ').append(countType).append('\n');
+		}
+
+		/**
+		 * 按二进制帧输出一行: 序列长度(short) 序列 count(long) countType(byte), 序列已转义, 只含ASCII字符;
+		 * 
+		 * @param out
+		 * @return 序列超长无法输出时返回false
+		 * @throws IOException
+		 */
+		public boolean writeFrame(DataOutput out) throws IOException {
+			int length = series.length();
+			if (length > 0xFFFF) {
+				return false;
+			}
+			out.writeShort(length);
+			for (int i = 0; i < length; i++) {
+				out.write(series.charAt(i));
+			}
+			out.writeLong(value.get());
+			out.writeByte(countType);
+			return true;
+		}
+
+		/**
+		 * 读回 {@link #writeFrame(DataOutput)} 输出的一行;
+		 * 
+		 * @param in
+		 * @return
+		 * @throws IOException
+		 */
+		public static Cell readFrame(DataInput in) throws IOException {
+			int seriesLength = in.readUnsignedShort();
+			StringBuilder sb = new StringBuilder(seriesLength);
+			for (int i = 0; i < seriesLength; i++) {
+				sb.append((char) in.readUnsignedByte());
+			}
+			long value = in.readLong();
+			int countType = in.readByte();
+			Cell cell = new Cell(sb.toString(), countType);
+			cell.value.set(value);
+			return cell;
+		}
+	}
+}
@@ -11,7 +11,7 @@ import com.zoll.reporter.datas.OnlineReport;
 public class ReportMain {
 	public static void main(String[] args) {
 		TReporter tr = new TReporter();
-		tr.init("/statsd", "http://localhost:9099", 10000);
+		tr.init("/bulk", "http://localhost:9099", 10000);
 		
 		ExecutorService exec = Executors.newCachedThreadPool();
 		
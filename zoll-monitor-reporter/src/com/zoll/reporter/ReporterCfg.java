@@ -0,0 +1,61 @@
+package com.zoll.reporter;
+
+/**
+ * Reporter配置;
+ * 
+ * @date 2026年10月19日 上午3:32:20
+ * 
+ * @project zoll-monitor-reporter
+ * 
+ */
+public class ReporterCfg {
+	/** 作为累加值增长 */
+	public static final int INCREASE_COUNT = 1;
+	/** 作为最新值刷新 */
+	public static final int LATEST_COUNT = 2;
+
+	/** 批量上报的间隔(毫秒) */
+	public static final long FLUSH_INTERVAL = 1000;
+	/** 待上报的序列数达到该值时立即上报, 也是单个请求最多携带的行数 */
+	public static final int MAX_BATCH_SIZE = 5000;
+	/** 采集端拥塞时上报间隔的上限(毫秒) */
+	public static final long MAX_FLUSH_INTERVAL = 30000;
+	/** 采集端空闲时上报间隔每次缩短的量(毫秒) */
+	public static final long FLUSH_INTERVAL_STEP = 1000;
+	/** 采集端拥塞时单个请求行数的下限 */
+	public static final int MIN_BATCH_SIZE = 500;
+	/** 采集端空闲时单个请求行数每次增加的量 */
+	public static final int BATCH_SIZE_STEP = 500;
+	/** 采集端持续拥塞时累加类数据的最大采样步长, 即最低按1/16采样 */
+	public static final int MAX_SAMPLE_STEP = 16;
+	/** 上报间隔和暂停时间的随机浮动比例 */
+	public static final double FLUSH_JITTER = 0.2;
+	/** 采集端负载超过该值时减慢上报, 与采集端的 LOAD_HIGH 一致 */
+	public static final int LOAD_HIGH = 70;
+	/** 采集端负载低于该值时逐步恢复上报节奏 */
+	public static final int LOAD_LOW = 30;
+	/** 上报队列长度, 向上取整为2的幂 */
+	public static final int QUEUE_SIZE = 64 * 1024;
+	/** {@link OverflowPolicy#BLOCK} 时最长等待时间(毫秒) */
+	public static final long BLOCK_TIMEOUT = 100;
+	/** 队列为空时发送线程的等待时间(毫秒) */
+	public static final long IDLE_WAIT = 1;
+	/** 并行发送的线程数, 也是到采集端的长连接数 */
+	public static final int SENDER_THREADS = 2;
+	/** 等待发送的请求数, 超出时由聚合线程自己发送 */
+	public static final int SEND_QUEUE_SIZE = 16;
+	/** 上报端ID, 与批次序号一起供采集端去重, 为空时每次启动随机生成 */
+	public static final String REPORTER_ID = System.getProperty("reporter.id", "");
+	/** 发送失败的数据落地的目录, 为空时不落地直接丢弃 */
+	public static final String SPOOL_DIR = System.getProperty("reporter.spool.dir", "spool");
+	/** 磁盘缓冲单个段文件的大小 */
+	public static final long SPOOL_SEGMENT_SIZE = 4 * 1024 * 1024;
+	/** 磁盘缓冲的总大小上限, 超出时删除最老的段 */
+	public static final long SPOOL_MAX_SIZE = Long.getLong("reporter.spool.max", 256L * 1024 * 1024);
+	/** 回放速度上限(行/秒), 避免采集端刚恢复就被积压的数据压垮 */
+	public static final int SPOOL_REPLAY_RATE = 20000;
+	/** 回放失败或没有数据时, 下次检查的间隔(毫秒) */
+	public static final long SPOOL_REPLAY_INTERVAL = 5000;
+	/** 停止时等待剩余数据上报的最长时间(毫秒) */
+	public static final long SHUTDOWN_TIMEOUT = 5000;
+}
@@ -1,64 +1,379 @@
 package com.zoll.reporter;
 
+import java.io.File;
 import java.io.IOException;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
-import org.apache.commons.httpclient.HttpClient;
-import org.apache.commons.httpclient.HttpException;
-import org.apache.commons.httpclient.HttpStatus;
-import org.apache.commons.httpclient.methods.GetMethod;
-
+import com.zoll.reporter.ReportAggregator.Cell;
 import com.zoll.reporter.datas.IReportData;
+import com.zoll.reporter.metrics.MetricRegistry;
+import com.zoll.reporter.transport.DiskBuffer;
+import com.zoll.reporter.transport.FrameTransport;
+import com.zoll.reporter.transport.HttpTransport;
+import com.zoll.reporter.transport.IReportTransport;
+import com.zoll.reporter.transport.ReportBatch;
+import com.zoll.reporter.transport.SendResult;
+import com.zoll.util.RingBuffer;
 
+/**
+ * 上报客户端;
+ * 
+ * report() 只把数据放进有界无锁队列, 队列满时按 {@link OverflowPolicy} 处理; 聚合线程从队列取出数据在本地预聚合, 
+ * 每隔 {@link ReporterCfg#FLUSH_INTERVAL} 或待上报的序列数达到 {@link ReporterCfg#MAX_BATCH_SIZE} 时分成批次,
+ * 交给若干个发送线程通过长连接并行发给采集端;
+ * 
+ * host 为 http://ip:port 时按行协议POST到 prefix 路径(如 /bulk); 为 tcp://ip:port 时发送二进制帧到采集端的二进制端口, 忽略prefix;
+ * 
+ * 每个批次带上 上报端ID + 单调递增的序号 + 生成时间, 重试和回放不改变这三者, 采集端按序号去重, 按时间聚合落库;
+ * 序号以启动时的毫秒数 * 1000 开始, 指定了固定的 {@link ReporterCfg#REPORTER_ID} 时重启后也不会与之前的序号重复;
+ * 
+ * 计数器, 当前值和直方图等指标通过 {@link #getMetrics()} 注册, 更新时不经过队列也不分配对象, 每次批量上报前收集一次;
+ * 
+ * 上报节奏由 {@link AdaptiveController} 按采集端应答中的负载提示调整: 拥塞时拉长间隔, 减小单批行数, 仍拥塞时对累加类数据按1/N采样(值乘以N),
+ * 并遵守采集端建议的暂停时间; 间隔带随机浮动, 大量上报端不会同步成一起上报的尖峰;
+ * 
+ * 发送失败的批次写入 {@link ReporterCfg#SPOOL_DIR} 下的磁盘缓冲, 由回放线程按顺序限速重发, 采集端重启期间的数据不丢也不占用堆内存;
+ */
 public class TReporter {
-	private static int count = 1;
-	
-	private HttpClient httpClient;
-
-	/** 前缀 */
-	private String prefix;
+	private static final String TCP_SCHEME = "tcp://";
 
-	private String host;
+	private IReportTransport transport;
+	
+	/** 发送线程 */
+	private ThreadPoolExecutor senders;
+	
+	private RingBuffer<IReportData> queue;
+	
+	private OverflowPolicy policy;
+	
+	private Thread aggregateThread;
+	
+	/** 发送失败时的磁盘缓冲, 未配置目录或打开失败时为null */
+	private DiskBuffer spool;
+	
+	private Thread replayThread;
+	
+	private volatile boolean running;
 	
-	private Executor exec;
+	private ReportAggregator aggregator = new ReportAggregator();
+	
+	private MetricRegistry metrics = new MetricRegistry();
+	
+	private AdaptiveController controller = new AdaptiveController();
+	
+	private final String reporterId = ReporterCfg.REPORTER_ID.isEmpty() ? UUID.randomUUID().toString().replace("-", "") : ReporterCfg.REPORTER_ID;
+	/** 下一个批次序号 */
+	private final AtomicLong batchSeq = new AtomicLong(System.currentTimeMillis() * 1000);
+	/** 已成功上报的行数 */
+	private AtomicLong reportedCount = new AtomicLong(0);
+	/** 队列已满而丢弃的数据数 */
+	private AtomicLong droppedCount = new AtomicLong(0);
+	/** 采样时跳过的数据数, 只由聚合线程修改 */
+	private volatile long sampledCount;
 
 	public void init(String prefix, String host, int timeout) {
-		this.prefix = prefix;
-		this.host = host;
-		exec = Executors.newSingleThreadExecutor(new ReporterThreadFactory());
-		httpClient = new HttpClient();
-		httpClient.getHttpConnectionManager().getParams().setConnectionTimeout(timeout);
-		httpClient.getHttpConnectionManager().getParams().setSoTimeout(timeout);
+		init(prefix, host, timeout, ReporterCfg.QUEUE_SIZE, OverflowPolicy.DROP_OLDEST);
+	}
+
+	public void init(String prefix, String host, int timeout, int queueSize, OverflowPolicy policy) {
+		init(prefix, host, timeout, queueSize, policy, ReporterCfg.SENDER_THREADS);
 	}
 
-	public void report(final IReportData data) {
-		exec.execute(new Runnable() {
+	/**
+	 * @param prefix
+	 * @param host
+	 * @param timeout
+	 * @param queueSize
+	 *            上报队列长度
+	 * @param policy
+	 *            队列满时的处理方式
+	 * @param senderThreads
+	 *            并行发送的线程数
+	 */
+	public void init(String prefix, String host, int timeout, int queueSize, OverflowPolicy policy, int senderThreads) {
+		this.queue = new RingBuffer<IReportData>(queueSize);
+		this.policy = policy;
+		if (host.startsWith(TCP_SCHEME)) {
+			String address = host.substring(TCP_SCHEME.length());
+			int colon = address.lastIndexOf(':');
+			transport = new FrameTransport(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)), timeout, senderThreads);
+		} else {
+			transport = new HttpTransport(host + prefix, timeout, senderThreads);
+		}
+		transport.setLoadListener(controller);
+		senders = new ThreadPoolExecutor(senderThreads, senderThreads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(ReporterCfg.SEND_QUEUE_SIZE), new ReporterThreadFactory(), new ThreadPoolExecutor.CallerRunsPolicy());
+		running = true;
+		if (!ReporterCfg.SPOOL_DIR.isEmpty()) {
+			openSpool(new File(ReporterCfg.SPOOL_DIR));
+		}
+		aggregateThread = new ReporterThreadFactory().newThread(new Runnable() {
 			@Override
 			public void run() {
-				
+				aggregateLoop();
+			}
+		});
+		aggregateThread.start();
+	}
+
+	/**
+	 * 上报一条数据, 不阻塞(BLOCK策略除外), 不分配对象;
+	 * 
+	 * @param data
+	 * @return 是否进入了队列
+	 */
+	public boolean report(IReportData data) {
+		if (queue.offer(data)) {
+			return true;
+		}
+		switch (policy) {
+		case DROP_OLDEST:
+			while (!queue.offer(data)) {
+				if (queue.poll() != null) {
+					droppedCount.incrementAndGet();
+				}
+			}
+			return true;
+		case BLOCK:
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ReporterCfg.BLOCK_TIMEOUT);
+			while (System.nanoTime() < deadline) {
+				LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(ReporterCfg.IDLE_WAIT));
+				if (queue.offer(data)) {
+					return true;
+				}
+			}
+			droppedCount.incrementAndGet();
+			return false;
+		default:
+			droppedCount.incrementAndGet();
+			return false;
+		}
+	}
+
+	/**
+	 * 停止聚合和发送线程, 剩余数据上报后返回;
+	 */
+	public void shutdown() {
+		running = false;
+		try {
+			aggregateThread.join(ReporterCfg.SHUTDOWN_TIMEOUT);
+			senders.shutdown();
+			senders.awaitTermination(ReporterCfg.SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (spool != null) {
+			replayThread.interrupt();
+			try {
+				replayThread.join(ReporterCfg.SHUTDOWN_TIMEOUT);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			spool.close();
+		}
+		transport.close();
+	}
+
+	/**
+	 * 指标注册表;
+	 * 
+	 * @return
+	 */
+	public MetricRegistry getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * 上报节奏控制;
+	 * 
+	 * @return
+	 */
+	public AdaptiveController getController() {
+		return controller;
+	}
+
+	public String getReporterId() {
+		return reporterId;
+	}
+
+	public long getReportedCount() {
+		return reportedCount.get();
+	}
+
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	/**
+	 * 采集端拒收或无法编码的行数;
+	 * 
+	 * @return
+	 */
+	public long getRejectedCount() {
+		return transport == null ? 0 : transport.getRejectedCount();
+	}
+
+	/**
+	 * 采样时跳过的数据数, 其值已按采样步长计入采到的数据中;
+	 * 
+	 * @return
+	 */
+	public long getSampledCount() {
+		return sampledCount;
+	}
+
+	/**
+	 * 磁盘缓冲占用的字节数;
+	 * 
+	 * @return
+	 */
+	public long getSpoolSize() {
+		return spool == null ? 0 : spool.getSize();
+	}
+
+	/**
+	 * 队列中等待发送的数据数;
+	 * 
+	 * @return
+	 */
+	public int getQueueSize() {
+		return queue.size();
+	}
+
+	/**
+	 * 聚合线程: 从队列取数据预聚合(采集端拥塞时按采样步长采样), 到时间或攒够一批后上报; 采集端要求暂停期间只聚合不上报,
+	 * 待上报的序列数达到上限后不再取数据, 由队列的策略处理积压;
+	 */
+	private void aggregateLoop() {
+		long nextFlush = System.currentTimeMillis() + controller.initialDelay();
+		int pending = 0;
+		while (running || !queue.isEmpty()) {
+			int drained = 0;
+			int sampleStep = controller.getSampleStep();
+			IReportData data;
+			while (pending < ReporterCfg.MAX_BATCH_SIZE && (data = queue.poll()) != null) {
+				drained++;
+				if (sampleStep > 1 && data.getCountType() == ReporterCfg.INCREASE_COUNT) {
+					if (ThreadLocalRandom.current().nextInt(sampleStep) != 0) {
+						sampledCount++;
+						continue;
+					}
+					pending = aggregator.add(data, sampleStep);
+				} else {
+					pending = aggregator.add(data);
+				}
+			}
+			long now = System.currentTimeMillis();
+			if ((pending >= ReporterCfg.MAX_BATCH_SIZE || now >= nextFlush) && !controller.isPaused(now)) {
 				try {
-					GetMethod getMethod = new GetMethod(host);
-					getMethod.setPath(prefix);
-					getMethod.setQueryString(data.getParams());
-					int serverCode = httpClient.executeMethod(getMethod);
-					if (serverCode != HttpStatus.SC_OK) {
-						System.out.println(data.getParams() + " is reported fail.");
-					} else {
-						System.out.println(count++);
+					flush();
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+				pending = 0;
+				nextFlush = now + controller.nextFlushDelay();
+			} else if (drained == 0) {
+				LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(ReporterCfg.IDLE_WAIT));
+			}
+		}
+		flush();
+	}
+
+	/**
+	 * 把当前聚合的数据全部交给发送线程, 每个请求最多 {@link AdaptiveController#getBatchSize()} 行;
+	 */
+	private void flush() {
+		metrics.collect(aggregator);
+		Collection<Cell> cells = aggregator.drain();
+		long time = System.currentTimeMillis();
+		int batchSize = controller.getBatchSize();
+		Iterator<Cell> iterator = cells.iterator();
+		while (iterator.hasNext()) {
+			List<Cell> chunk = new ArrayList<Cell>(Math.min(cells.size(), batchSize));
+			while (iterator.hasNext() && chunk.size() < batchSize) {
+				chunk.add(iterator.next());
+			}
+			final ReportBatch batch = new ReportBatch(reporterId, batchSeq.getAndIncrement(), time, chunk);
+			// 发送线程都忙且等待队列已满时, 由聚合线程自己发送, 队列随之积压, 按队列的策略处理
+			senders.execute(new Runnable() {
+				@Override
+				public void run() {
+					SendResult result = transport.send(batch);
+					if (result == SendResult.SENT) {
+						reportedCount.addAndGet(batch.size());
+						return;
+					}
+					if (result == SendResult.REJECTED) {
+						// 已计入拒收, 落地重发也不会成功
+						return;
+					}
+					controller.onFailure();
+					if (spool != null) {
+						spool.append(batch);
 					}
-				} catch (HttpException e) {
-					e.getClass().getSimpleName();
-					System.out.println(e.getMessage());
-				} catch (IOException e) {
-					System.out.println(e.getMessage());
 				}
+			});
+		}
+	}
+
+	private void openSpool(File dir) {
+		spool = new DiskBuffer(dir, ReporterCfg.SPOOL_SEGMENT_SIZE, ReporterCfg.SPOOL_MAX_SIZE);
+		try {
+			spool.open();
+		} catch (IOException e) {
+			System.err.println("open spool " + dir.getAbsolutePath() + " fail, failed batches will be dropped E:" + e.getMessage());
+			spool = null;
+			return;
+		}
+		replayThread = new ReporterThreadFactory().newThread(new Runnable() {
+			@Override
+			public void run() {
+				replayLoop();
 			}
-			
 		});
+		replayThread.setDaemon(true);
+		replayThread.start();
 	}
-	
+
+	/**
+	 * 回放线程: 按落地顺序重发磁盘缓冲中的批次, 每批之后按 {@link ReporterCfg#SPOOL_REPLAY_RATE} 休眠; 可重试的失败或采集端拥塞时等下一轮再试,
+	 * 被拒收的批次计入拒收后跳过, 不会堵住后面的批次;
+	 */
+	private void replayLoop() {
+		while (!Thread.currentThread().isInterrupted()) {
+			try {
+				ReportBatch batch;
+				while (!controller.isCongested() && (batch = spool.peek()) != null) {
+					SendResult result = transport.send(batch);
+					if (result == SendResult.RETRY) {
+						controller.onFailure();
+						break;
+					}
+					spool.commit();
+					if (result == SendResult.SENT) {
+						reportedCount.addAndGet(batch.size());
+					}
+					Thread.sleep(Math.max(1, batch.size() * 1000L / ReporterCfg.SPOOL_REPLAY_RATE));
+				}
+				Thread.sleep(ReporterCfg.SPOOL_REPLAY_INTERVAL);
+			} catch (InterruptedException e) {
+				return;
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
 	class ReporterThreadFactory implements ThreadFactory {
 
 		@Override
@@ -1,6 +1,7 @@
 package com.zoll.reporter.datas;
 
 public abstract class BaseReportData implements IReportData {
+	private static final char[] HEX = "0123456789ABCDEF".toCharArray();
 
 	protected String dataType;
 	protected int count;
@@ -11,5 +12,113 @@ public abstract class BaseReportData implements IReportData {
 		this.count = count;
 		this.countType = countType;
 	}
+
+	@Override
+	public String getParams() {
+		StringBuilder sb = new StringBuilder(96);
+		writeTo(sb);
+		return sb.toString();
+	}
+
+	@Override
+	public void writeTo(StringBuilder sb) {
+		sb.append("dataType=");
+		escape(sb, dataType);
+		appendTags(sb, '&');
+		sb.append("&count=").append(count).append("&countType=").append(countType);
+	}
+
+	@Override
+	public void writeSeries(StringBuilder sb) {
+		escape(sb, dataType);
+		appendTags(sb, ',');
+	}
+
+	@Override
+	public String getDataType() {
+		return dataType;
+	}
+
+	@Override
+	public int getCount() {
+		return count;
+	}
+
+	@Override
+	public int getCountType() {
+		return countType;
+	}
+
+	/**
+	 * 追加维度标签, 每个标签以separator开头;
+	 * 
+	 * @param sb
+	 * @param separator
+	 *            查询串为 '&', 行协议为 ','
+	 */
+	protected abstract void appendTags(StringBuilder sb, char separator);
+
+	protected static void appendTag(StringBuilder sb, char separator, String key, int value) {
+		sb.append(separator).append(key).append('=').append(value);
+	}
+
+	protected static void appendTag(StringBuilder sb, char separator, String key, String value) {
+		sb.append(separator).append(key).append('=');
+		escape(sb, value);
+	}
+
+	/**
+	 * 百分号转义, 除字母数字和 - _ . ~ 以外的字符按UTF-8逐字节转义, 查询串和行协议通用;
+	 * 
+	 * @param sb
+	 * @param value
+	 */
+	public static void escape(StringBuilder sb, String value) {
+		if (value == null) {
+			return;
+		}
+		int length = value.length();
+		int i = 0;
+		while (i < length && isUnreserved(value.charAt(i))) {
+			i++;
+		}
+		if (i == length) {
+			sb.append(value);
+			return;
+		}
+		sb.append(value, 0, i);
+		for (; i < length; i++) {
+			char c = value.charAt(i);
+			if (isUnreserved(c)) {
+				sb.append(c);
+			} else if (c < 0x80) {
+				appendHex(sb, c);
+			} else if (c < 0x800) {
+				appendHex(sb, 0xC0 | (c >> 6));
+				appendHex(sb, 0x80 | (c & 0x3F));
+			} else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+				int cp = Character.toCodePoint(c, value.charAt(++i));
+				appendHex(sb, 0xF0 | (cp >> 18));
+				appendHex(sb, 0x80 | ((cp >> 12) & 0x3F));
+				appendHex(sb, 0x80 | ((cp >> 6) & 0x3F));
+				appendHex(sb, 0x80 | (cp & 0x3F));
+			} else if (Character.isSurrogate(c)) {
+				// 不成对的代理字符按 '?' 处理, 与 String.getBytes 一致
+				appendHex(sb, '?');
+			} else {
+				appendHex(sb, 0xE0 | (c >> 12));
+				appendHex(sb, 0x80 | ((c >> 6) & 0x3F));
+				appendHex(sb, 0x80 | (c & 0x3F));
+			}
+		}
+	}
+
+	private static boolean isUnreserved(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '_' || c == '.' || c == '~';
+	}
+
+	private static void appendHex(StringBuilder sb, int b) {
+		sb.append('%').append(HEX[b >>> 4]).append(HEX[b & 0xF]);
+	}
 	
 }
@@ -5,4 +5,26 @@ public interface IReportData {
 	
 	public String getParams();
 	
+	/**
+	 * 按查询串格式 dataType=..&tag=..&count=..&countType=.. 写入, 值已做百分号转义;
+	 * 
+	 * @param sb
+	 *            可复用的缓冲区
+	 */
+	public void writeTo(StringBuilder sb);
+	
+	/**
+	 * 按批量上报行协议写入序列部分: dataType[,tag=value]*, 值已做百分号转义;
+	 * 
+	 * @param sb
+	 *            可复用的缓冲区
+	 */
+	public void writeSeries(StringBuilder sb);
+	
+	public String getDataType();
+	
+	public int getCount();
+	
+	public int getCountType();
+	
 }
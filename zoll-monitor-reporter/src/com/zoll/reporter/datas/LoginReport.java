@@ -14,8 +14,10 @@ public class LoginReport extends BaseReportData {
 	}
 
 	@Override
-	public String getParams() {
-		return String.format("dataType=%s&playerId=%s&platform=%s&serverId=%s&count=%s&countType=%s", dataType, playerId, platform, serverId, count, countType);
+	protected void appendTags(StringBuilder sb, char separator) {
+		appendTag(sb, separator, "playerId", playerId);
+		appendTag(sb, separator, "platform", platform);
+		appendTag(sb, separator, "serverId", serverId);
 	}
 
 }
@@ -11,8 +11,9 @@ public class OnlineReport extends BaseReportData {
 	}
 
 	@Override
-	public String getParams() {
-		return String.format("dataType=%s&platform=%s&serverId=%s&count=%s&countType=%s", dataType, platform, serverId, count, countType);
+	protected void appendTags(StringBuilder sb, char separator) {
+		appendTag(sb, separator, "platform", platform);
+		appendTag(sb, separator, "serverId", serverId);
 	}
 
 }
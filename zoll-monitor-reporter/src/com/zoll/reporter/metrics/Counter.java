@@ -0,0 +1,49 @@
+package com.zoll.reporter.metrics;
+
+import com.zoll.reporter.ReportAggregator;
+import com.zoll.reporter.ReporterCfg;
+import com.zoll.util.StripedLong;
+
+/**
+ * 计数器, 按 INCREASE_COUNT 上报两次上报之间的增量;
+ * 
+ * 累加不加锁也不分配对象, 适合放在热点路径上;
+ * 
+ * @date 2026年10月19日 上午3:48:00
+ * 
+ * @project zoll-monitor-reporter
+ * 
+ */
+public class Counter implements IMetric {
+	private final String series;
+	private final StripedLong pending = new StripedLong();
+
+	Counter(String series) {
+		this.series = series;
+	}
+
+	public void inc() {
+		pending.increment();
+	}
+
+	public void inc(long n) {
+		pending.add(n);
+	}
+
+	/**
+	 * 还没有上报的增量;
+	 * 
+	 * @return
+	 */
+	public long getPending() {
+		return pending.sum();
+	}
+
+	@Override
+	public void collect(ReportAggregator aggregator) {
+		long n = pending.sumThenReset();
+		if (n != 0) {
+			aggregator.add(series, n, ReporterCfg.INCREASE_COUNT);
+		}
+	}
+}
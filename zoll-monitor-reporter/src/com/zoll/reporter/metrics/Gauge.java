@@ -0,0 +1,40 @@
+package com.zoll.reporter.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.zoll.reporter.ReportAggregator;
+import com.zoll.reporter.ReporterCfg;
+
+/**
+ * 当前值(如队列长度, 在线人数), 按 LATEST_COUNT 上报;
+ * 
+ * @date 2026年10月19日 上午3:48:00
+ * 
+ * @project zoll-monitor-reporter
+ * 
+ */
+public class Gauge implements IMetric {
+	private final String series;
+	private final AtomicLong value = new AtomicLong();
+
+	Gauge(String series) {
+		this.series = series;
+	}
+
+	public void set(long value) {
+		this.value.set(value);
+	}
+
+	public void add(long delta) {
+		value.addAndGet(delta);
+	}
+
+	public long get() {
+		return value.get();
+	}
+
+	@Override
+	public void collect(ReportAggregator aggregator) {
+		aggregator.add(series, value.get(), ReporterCfg.LATEST_COUNT);
+	}
+}
@@ -0,0 +1,143 @@
+package com.zoll.reporter.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.zoll.reporter.ReportAggregator;
+import com.zoll.reporter.ReporterCfg;
+import com.zoll.util.StripedLong;
+
+/**
+ * 分布统计, 固定的对数线性分桶: 小于16的值每个值一个桶, 之后每个2的幂区间再分成8个桶, 相对误差不超过1/8;
+ *
+ * 所有直方图的桶边界相同, 不同线程, 不同进程的直方图可以直接按桶相加合并; 上报时每个非空桶上报为一行
+ * {name}_bucket,...,le=桶上界 (INCREASE_COUNT), 另外上报 {name}_count, {name}_sum (INCREASE_COUNT) 和 {name}_max (LATEST_COUNT),
+ * 采集端按桶累加后可以算任意范围, 任意实例组合的分位数;
+ *
+ * @date 2026年10月19日 上午3:48:00
+ *
+ * @project zoll-monitor-reporter
+ *
+ */
+public class Histogram implements IMetric {
+	private static final int SUB_BITS = 3;
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+	/** 小于该值的每个值一个桶 */
+	private static final int LINEAR_LIMIT = SUB_COUNT * 2;
+	public static final int BUCKET_COUNT = LINEAR_LIMIT + (62 - SUB_BITS) * SUB_COUNT;
+
+	private final String bucketSeries;
+	private final String countSeries;
+	private final String sumSeries;
+	private final String maxSeries;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+	private final StripedLong sum = new StripedLong();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * @param name
+	 *            已转义的名字
+	 * @param tags
+	 *            已转义的标签, 每个以 ',' 开头
+	 */
+	Histogram(String name, String tags) {
+		this.bucketSeries = name + "_bucket" + tags + ",le=";
+		this.countSeries = name + "_count" + tags;
+		this.sumSeries = name + "_sum" + tags;
+		this.maxSeries = name + "_max" + tags;
+	}
+
+	/**
+	 * 记录一个值, 负数按0记;
+	 *
+	 * @param value
+	 */
+	public void update(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		buckets.incrementAndGet(bucketIndex(value));
+		sum.add(value);
+		long current;
+		while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+		}
+	}
+
+	/**
+	 * 还没有上报的数据的快照;
+	 *
+	 * @return
+	 */
+	public HistogramSnapshot snapshot() {
+		long[] counts = new long[BUCKET_COUNT];
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts[i] = buckets.get(i);
+		}
+		return new HistogramSnapshot(counts, sum.sum(), max.get());
+	}
+
+	/**
+	 * 取出快照并清零, 并发记录的值算进下一次;
+	 *
+	 * @return
+	 */
+	public HistogramSnapshot snapshotThenReset() {
+		long[] counts = new long[BUCKET_COUNT];
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			if (buckets.get(i) != 0) {
+				counts[i] = buckets.getAndSet(i, 0);
+			}
+		}
+		return new HistogramSnapshot(counts, sum.sumThenReset(), max.getAndSet(0));
+	}
+
+	@Override
+	public void collect(ReportAggregator aggregator) {
+		HistogramSnapshot snapshot = snapshotThenReset();
+		if (snapshot.getCount() == 0) {
+			return;
+		}
+		long[] counts = snapshot.getBuckets();
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] != 0) {
+				aggregator.add(bucketSeries + bucketUpperBound(i), counts[i], ReporterCfg.INCREASE_COUNT);
+			}
+		}
+		aggregator.add(countSeries, snapshot.getCount(), ReporterCfg.INCREASE_COUNT);
+		aggregator.add(sumSeries, snapshot.getSum(), ReporterCfg.INCREASE_COUNT);
+		aggregator.add(maxSeries, snapshot.getMax(), ReporterCfg.LATEST_COUNT);
+	}
+
+	/**
+	 * 值所在的桶;
+	 *
+	 * @param value
+	 *            非负
+	 * @return
+	 */
+	public static int bucketIndex(long value) {
+		if (value < LINEAR_LIMIT) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+		return LINEAR_LIMIT + (exponent - SUB_BITS - 1) * SUB_COUNT + sub;
+	}
+
+	/**
+	 * 桶内的最大值(包含);
+	 *
+	 * @param index
+	 * @return
+	 */
+	public static long bucketUpperBound(int index) {
+		if (index < LINEAR_LIMIT) {
+			return index;
+		}
+		int exponent = (index - LINEAR_LIMIT) / SUB_COUNT + SUB_BITS + 1;
+		int sub = (index - LINEAR_LIMIT) % SUB_COUNT;
+		// 最后一个桶移位溢出后减1正好是 Long.MAX_VALUE
+		return ((long) (SUB_COUNT + sub + 1) << (exponent - SUB_BITS)) - 1;
+	}
+}
@@ -0,0 +1,85 @@
+package com.zoll.reporter.metrics;
+
+/**
+ * 直方图快照, 桶边界与 {@link Histogram} 相同, 可以相互合并;
+ *
+ * @date 2026年10月19日 上午3:48:00
+ *
+ * @project zoll-monitor-reporter
+ *
+ */
+public class HistogramSnapshot {
+	private final long[] buckets;
+	private long count;
+	private long sum;
+	private long max;
+
+	public HistogramSnapshot() {
+		this(new long[Histogram.BUCKET_COUNT], 0, 0);
+	}
+
+	HistogramSnapshot(long[] buckets, long sum, long max) {
+		this.buckets = buckets;
+		this.sum = sum;
+		this.max = max;
+		for (long c : buckets) {
+			count += c;
+		}
+	}
+
+	/**
+	 * 把另一个快照合并进来;
+	 *
+	 * @param other
+	 */
+	public void merge(HistogramSnapshot other) {
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i] += other.buckets[i];
+		}
+		count += other.count;
+		sum += other.sum;
+		max = Math.max(max, other.max);
+	}
+
+	/**
+	 * 分位数, 返回所在桶的上界(不超过最大值);
+	 *
+	 * @param percentile
+	 *            0 ~ 100
+	 * @return
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+		long seen = 0;
+		for (int i = 0; i < buckets.length; i++) {
+			seen += buckets[i];
+			if (seen >= rank) {
+				return Math.min(Histogram.bucketUpperBound(i), max);
+			}
+		}
+		return max;
+	}
+
+	public double getMean() {
+		return count == 0 ? 0 : (double) sum / count;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getSum() {
+		return sum;
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+	long[] getBuckets() {
+		return buckets;
+	}
+}
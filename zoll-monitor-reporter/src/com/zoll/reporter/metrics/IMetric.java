@@ -0,0 +1,21 @@
+package com.zoll.reporter.metrics;
+
+import com.zoll.reporter.ReportAggregator;
+
+/**
+ * 上报端指标, 由 {@link MetricRegistry} 在每次批量上报前收集;
+ * 
+ * @date 2026年10月19日 上午3:48:00
+ * 
+ * @project zoll-monitor-reporter
+ * 
+ */
+public interface IMetric {
+
+	/**
+	 * 把两次上报之间的值合并进聚合器;
+	 * 
+	 * @param aggregator
+	 */
+	public void collect(ReportAggregator aggregator);
+}
@@ -0,0 +1,115 @@
+package com.zoll.reporter.metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.zoll.reporter.ReportAggregator;
+import com.zoll.reporter.datas.BaseReportData;
+
+/**
+ * 指标注册表, 同一个名字 + 标签只创建一个指标;
+ *
+ * 查找指标需要拼接字符串, 调用者应该在初始化时取出指标保存下来, 热点路径上只调用指标本身的方法; 名字会作为采集端的表名, 只能使用字母数字下划线;
+ *
+ * @date 2026年10月19日 上午3:48:00
+ *
+ * @project zoll-monitor-reporter
+ *
+ */
+public class MetricRegistry {
+	/** 名字 + 标签 -> 指标 */
+	private final ConcurrentMap<String, IMetric> metrics = new ConcurrentHashMap<String, IMetric>();
+
+	/**
+	 * @param name
+	 * @param tags
+	 *            标签名, 标签值, 标签名, 标签值...
+	 * @return
+	 */
+	public Counter counter(String name, String... tags) {
+		String key = seriesName(name, tags);
+		IMetric metric = metrics.get(key);
+		if (metric == null) {
+			metric = register(key, new Counter(key));
+		}
+		return cast(key, metric, Counter.class);
+	}
+
+	public Gauge gauge(String name, String... tags) {
+		String key = seriesName(name, tags);
+		IMetric metric = metrics.get(key);
+		if (metric == null) {
+			metric = register(key, new Gauge(key));
+		}
+		return cast(key, metric, Gauge.class);
+	}
+
+	public Histogram histogram(String name, String... tags) {
+		String key = seriesName(name, tags);
+		IMetric metric = metrics.get(key);
+		if (metric == null) {
+			metric = register(key, new Histogram(escape(name), tagString(tags)));
+		}
+		return cast(key, metric, Histogram.class);
+	}
+
+	public Timer timer(String name, String... tags) {
+		String key = seriesName(name, tags);
+		IMetric metric = metrics.get(key);
+		if (metric == null) {
+			metric = register(key, new Timer(escape(name), tagString(tags)));
+		}
+		return cast(key, metric, Timer.class);
+	}
+
+	/**
+	 * 把所有指标两次上报之间的值合并进聚合器;
+	 *
+	 * @param aggregator
+	 */
+	public void collect(ReportAggregator aggregator) {
+		for (IMetric metric : metrics.values()) {
+			try {
+				metric.collect(aggregator);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	private IMetric register(String key, IMetric metric) {
+		IMetric old = metrics.putIfAbsent(key, metric);
+		return old == null ? metric : old;
+	}
+
+	private static <T extends IMetric> T cast(String key, IMetric metric, Class<T> type) {
+		if (!type.isInstance(metric)) {
+			throw new IllegalArgumentException(key + " is already registered as " + metric.getClass().getSimpleName());
+		}
+		return type.cast(metric);
+	}
+
+	private static String seriesName(String name, String[] tags) {
+		return escape(name) + tagString(tags);
+	}
+
+	private static String escape(String value) {
+		StringBuilder sb = new StringBuilder(value.length());
+		BaseReportData.escape(sb, value);
+		return sb.toString();
+	}
+
+	private static String tagString(String[] tags) {
+		if (tags.length % 2 != 0) {
+			throw new IllegalArgumentException("tags must be key value pairs");
+		}
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < tags.length; i += 2) {
+			sb.append(',');
+			BaseReportData.escape(sb, tags[i]);
+			sb.append('=');
+			BaseReportData.escape(sb, tags[i + 1]);
+		}
+		return sb.toString();
+	}
+}
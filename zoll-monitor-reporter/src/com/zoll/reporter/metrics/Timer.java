@@ -0,0 +1,45 @@
+package com.zoll.reporter.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 耗时统计, 以微秒记入直方图;
+ *
+ * <pre>
+ * long start = timer.start();
+ * ...
+ * timer.stop(start);
+ * </pre>
+ *
+ * @date 2026年10月19日 上午3:48:00
+ *
+ * @project zoll-monitor-reporter
+ *
+ */
+public class Timer extends Histogram {
+
+	Timer(String name, String tags) {
+		super(name, tags);
+	}
+
+	/**
+	 * @return 开始时间, 交给 {@link #stop(long)}
+	 */
+	public long start() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * 记录从start到现在的耗时;
+	 *
+	 * @param start
+	 *            {@link #start()} 的返回值
+	 */
+	public void stop(long start) {
+		update(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+	}
+
+	public void update(long duration, TimeUnit unit) {
+		update(unit.toMicros(duration));
+	}
+}
@@ -0,0 +1,349 @@
+package com.zoll.reporter.transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import com.zoll.reporter.ReportAggregator.Cell;
+
+/**
+ * 采集端不可用时的本地磁盘缓冲;
+ *
+ * 发送失败的批次连同上报端ID, 序号和时间按顺序追加到分段文件中, 回放时原样重发, 采集端可以据此去重, 每段写满 segmentSize 后换新段; 回放从最老的段开始按顺序读取, 读取位置记在 spool.pos 中,
+ * 进程重启后从上次的位置继续; 总大小超过 maxSize 时删除最老的段;
+ *
+ * <pre>
+ * 记录: 长度(int) crc32(int) 行数(int) 上报端ID(UTF) 批次序号(long) 时间(long) 若干行(与二进制帧相同: 序列长度(short) 序列 count(long) countType(byte))
+ * </pre>
+ *
+ * @date 2026年10月19日 上午3:44:55
+ *
+ * @project zoll-monitor-reporter
+ *
+ */
+public class DiskBuffer {
+	private static final String SEGMENT_PREFIX = "spool-";
+	private static final String SEGMENT_SUFFIX = ".log";
+	private static final String POSITION_FILE = "spool.pos";
+	private static final int RECORD_HEADER = 12;
+
+	private final File dir;
+	private final long segmentSize;
+	private final long maxSize;
+
+	/** 从老到新的段序号 */
+	private final LinkedList<Long> segments = new LinkedList<Long>();
+	/** 所有段的总字节数 */
+	private long totalSize;
+	/** 正在追加的段 */
+	private FileOutputStream writer;
+	private long writerSize;
+	/** 最老的段中下一条待回放记录的位置 */
+	private long readPosition;
+	/** 上一次 peek 的记录长度, commit 时前移 */
+	private int peekedLength;
+	/** 超过磁盘上限而删除的字节数 */
+	private AtomicLong droppedBytes = new AtomicLong(0);
+
+	public DiskBuffer(File dir, long segmentSize, long maxSize) {
+		this.dir = dir;
+		this.segmentSize = segmentSize;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * 打开缓冲目录, 恢复上次的段和回放位置; 之后的追加总是写入新段, 不在可能写了一半的旧段后面继续写;
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void open() throws IOException {
+		if (!dir.exists() && !dir.mkdirs()) {
+			throw new IOException("can't create " + dir.getAbsolutePath());
+		}
+		String[] names = dir.list(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+			}
+		});
+		long[] seqs = new long[names.length];
+		for (int i = 0; i < names.length; i++) {
+			seqs[i] = Long.parseLong(names[i].substring(SEGMENT_PREFIX.length(), names[i].length() - SEGMENT_SUFFIX.length()));
+		}
+		Arrays.sort(seqs);
+		for (long seq : seqs) {
+			segments.add(seq);
+			totalSize += segmentFile(seq).length();
+		}
+		File position = new File(dir, POSITION_FILE);
+		if (position.exists() && !segments.isEmpty()) {
+			RandomAccessFile file = new RandomAccessFile(position, "r");
+			try {
+				long seq = file.readLong();
+				long offset = file.readLong();
+				// 位置之前的段已回放完
+				while (!segments.isEmpty() && segments.getFirst() < seq) {
+					deleteFirst();
+				}
+				if (!segments.isEmpty() && segments.getFirst() == seq) {
+					readPosition = offset;
+				}
+			} catch (IOException e) {
+				System.err.println("spool position is broken, replay from head E:" + e.getMessage());
+			} finally {
+				file.close();
+			}
+		}
+		roll();
+	}
+
+	/**
+	 * 追加一批发送失败的数据;
+	 *
+	 * @param batch
+	 * @return 是否写入成功
+	 */
+	public boolean append(ReportBatch batch) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(batch.size() * 48 + RECORD_HEADER + 64);
+		DataOutputStream out = new DataOutputStream(bytes);
+		int lines = 0;
+		try {
+			out.writeInt(0);
+			out.writeInt(0);
+			out.writeInt(0);
+			out.writeUTF(batch.getReporterId());
+			out.writeLong(batch.getSeq());
+			out.writeLong(batch.getTime());
+			for (Cell cell : batch.getCells()) {
+				if (cell.writeFrame(out)) {
+					lines++;
+				}
+			}
+			out.flush();
+		} catch (IOException e) {
+			return false;
+		}
+		byte[] record = bytes.toByteArray();
+		CRC32 crc = new CRC32();
+		crc.update(record, RECORD_HEADER, record.length - RECORD_HEADER);
+		putInt(record, 0, record.length - RECORD_HEADER);
+		putInt(record, 4, (int) crc.getValue());
+		putInt(record, 8, lines);
+		synchronized (this) {
+			try {
+				if (writerSize > 0 && writerSize + record.length > segmentSize) {
+					roll();
+				}
+				// 一条记录一次写入, 回放线程读到的记录要么完整要么还没有
+				writer.write(record);
+				writerSize += record.length;
+				totalSize += record.length;
+			} catch (IOException e) {
+				System.err.println("spool append fail E:" + e.getMessage());
+				return false;
+			}
+			while (totalSize > maxSize && segments.size() > 1) {
+				droppedBytes.addAndGet(segmentFile(segments.getFirst()).length() - readPosition);
+				deleteFirst();
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * 读取下一条待回放的记录, 回放成功后调用 {@link #commit()} 前移;
+	 *
+	 * @return 没有待回放的数据时返回null
+	 */
+	public synchronized ReportBatch peek() {
+		while (!segments.isEmpty()) {
+			long seq = segments.getFirst();
+			boolean current = seq == segments.getLast();
+			try {
+				ReportBatch batch = readRecord(segmentFile(seq), current ? writerSize : Long.MAX_VALUE);
+				if (batch != null) {
+					return batch;
+				}
+			} catch (IOException e) {
+				// 记录损坏(如进程在写入中途退出), 放弃这个段剩下的内容
+				System.err.println("spool segment " + seq + " is broken, skip E:" + e.getMessage());
+				if (current) {
+					try {
+						roll();
+					} catch (IOException ex) {
+						System.err.println("spool roll fail E:" + ex.getMessage());
+						return null;
+					}
+					continue;
+				}
+				deleteFirst();
+				savePosition();
+				continue;
+			}
+			if (current) {
+				return null;
+			}
+			deleteFirst();
+			savePosition();
+		}
+		return null;
+	}
+
+	/**
+	 * 上一次 peek 的记录已回放成功;
+	 */
+	public synchronized void commit() {
+		if (peekedLength == 0) {
+			return;
+		}
+		readPosition += peekedLength;
+		peekedLength = 0;
+		if (segments.size() == 1 && readPosition == writerSize) {
+			// 全部回放完, 当前段清空重写
+			try {
+				roll();
+			} catch (IOException e) {
+				System.err.println("spool roll fail E:" + e.getMessage());
+			}
+		}
+		savePosition();
+	}
+
+	/**
+	 * 是否还有待回放的数据;
+	 *
+	 * @return
+	 */
+	public synchronized boolean isEmpty() {
+		return segments.size() == 1 && readPosition == writerSize;
+	}
+
+	/**
+	 * 缓冲占用的磁盘字节数;
+	 *
+	 * @return
+	 */
+	public synchronized long getSize() {
+		return totalSize;
+	}
+
+	public long getDroppedBytes() {
+		return droppedBytes.get();
+	}
+
+	public synchronized void close() {
+		try {
+			if (writer != null) {
+				writer.close();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		savePosition();
+	}
+
+	/**
+	 * 换一个新段追加, 当前段已全部回放时删除;
+	 *
+	 * @throws IOException
+	 */
+	private void roll() throws IOException {
+		if (writer != null) {
+			writer.close();
+		}
+		long next = segments.isEmpty() ? 0 : segments.getLast() + 1;
+		if (segments.size() == 1 && readPosition >= segmentFile(segments.getFirst()).length()) {
+			deleteFirst();
+		}
+		segments.add(next);
+		writer = new FileOutputStream(segmentFile(next));
+		writerSize = 0;
+	}
+
+	private ReportBatch readRecord(File file, long limit) throws IOException {
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			long end = Math.min(limit, in.length());
+			if (readPosition + RECORD_HEADER > end) {
+				return null;
+			}
+			in.seek(readPosition);
+			int length = in.readInt();
+			int checksum = in.readInt();
+			int lines = in.readInt();
+			if (length < 0 || readPosition + RECORD_HEADER + length > end) {
+				throw new IOException("truncated record at " + readPosition);
+			}
+			byte[] body = new byte[length];
+			in.readFully(body);
+			CRC32 crc = new CRC32();
+			crc.update(body);
+			if ((int) crc.getValue() != checksum) {
+				throw new IOException("crc mismatch at " + readPosition);
+			}
+			DataInputStream data = new DataInputStream(new ByteArrayInputStream(body));
+			String reporterId = data.readUTF();
+			long seq = data.readLong();
+			long time = data.readLong();
+			List<Cell> cells = new ArrayList<Cell>(lines);
+			for (int i = 0; i < lines; i++) {
+				cells.add(Cell.readFrame(data));
+			}
+			peekedLength = RECORD_HEADER + length;
+			return new ReportBatch(reporterId, seq, time, cells);
+		} finally {
+			in.close();
+		}
+	}
+
+	private void deleteFirst() {
+		File file = segmentFile(segments.removeFirst());
+		totalSize -= file.length();
+		if (!file.delete()) {
+			System.err.println("can't delete " + file.getAbsolutePath());
+		}
+		readPosition = 0;
+		peekedLength = 0;
+	}
+
+	private void savePosition() {
+		if (segments.isEmpty()) {
+			return;
+		}
+		try {
+			RandomAccessFile file = new RandomAccessFile(new File(dir, POSITION_FILE), "rw");
+			try {
+				file.seek(0);
+				file.writeLong(segments.getFirst());
+				file.writeLong(readPosition);
+			} finally {
+				file.close();
+			}
+		} catch (IOException e) {
+			System.err.println("save spool position fail E:" + e.getMessage());
+		}
+	}
+
+	private File segmentFile(long seq) {
+		return new File(dir, SEGMENT_PREFIX + String.format("%012d", seq) + SEGMENT_SUFFIX);
+	}
+
+	private static void putInt(byte[] bytes, int offset, int value) {
+		bytes[offset] = (byte) (value >>> 24);
+		bytes[offset + 1] = (byte) (value >>> 16);
+		bytes[offset + 2] = (byte) (value >>> 8);
+		bytes[offset + 3] = (byte) value;
+	}
+}
@@ -0,0 +1,197 @@
+package com.zoll.reporter.transport;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.zoll.reporter.ReportAggregator.Cell;
+
+/**
+ * 通过长连接向采集端发送二进制帧, 帧格式与采集端的 FrameCodec 一致: type(int) + length(int) + body, 大端;
+ * 
+ * <pre>
+ * TYPE_REPORTS body: 上报端ID(UTF) 批次序号(long) 时间(long) 行数(int), 每行: 序列长度(short) 序列 count(long) countType(byte)
+ * TYPE_ACK     body: accepted(int) rejected(int) 负载百分比(int) 建议暂停时间(int, 毫秒), accepted为-1表示采集端过载未处理
+ * </pre>
+ * 
+ * 每个连接同一时间只被一个发送线程使用, 发出一帧后等待应答; 连接出错时关闭, 下次使用时重连;
+ * 
+ * @date 2026年10月19日 上午3:41:21
+ * 
+ * @project zoll-monitor-reporter
+ * 
+ */
+public class FrameTransport implements IReportTransport {
+	/** 以下与采集端 FrameCodec 保持一致 */
+	public static final int HEAD_LENGTH = 8;
+	public static final int TYPE_REPORTS = 2;
+	public static final int TYPE_ACK = 3;
+
+	private final InetSocketAddress address;
+	private final int timeout;
+	private final BlockingQueue<FrameConnection> idle;
+	private volatile ILoadListener loadListener;
+	private final AtomicLong rejectedCount = new AtomicLong(0);
+
+	public FrameTransport(String host, int port, int timeout, int connections) {
+		this.address = new InetSocketAddress(host, port);
+		this.timeout = timeout;
+		this.idle = new ArrayBlockingQueue<FrameConnection>(connections);
+		for (int i = 0; i < connections; i++) {
+			idle.offer(new FrameConnection());
+		}
+	}
+
+	@Override
+	public SendResult send(ReportBatch batch) {
+		byte[] frame;
+		try {
+			frame = encode(batch);
+		} catch (IOException e) {
+			// 只会是上报端ID超长, 重发也无法编码
+			System.out.println(batch.size() + " lines are rejected: " + e.getMessage());
+			rejectedCount.addAndGet(batch.size());
+			return SendResult.REJECTED;
+		}
+		FrameConnection connection;
+		try {
+			connection = idle.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return SendResult.RETRY;
+		}
+		try {
+			return connection.send(frame) ? SendResult.SENT : SendResult.RETRY;
+		} catch (IOException e) {
+			System.out.println(batch.size() + " lines are reported fail: " + e.getMessage());
+			connection.close();
+			return SendResult.RETRY;
+		} finally {
+			idle.offer(connection);
+		}
+	}
+
+	@Override
+	public void setLoadListener(ILoadListener listener) {
+		this.loadListener = listener;
+	}
+
+	@Override
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+
+	@Override
+	public void close() {
+		for (FrameConnection connection : idle) {
+			connection.close();
+		}
+	}
+
+	private byte[] encode(ReportBatch batch) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEAD_LENGTH + batch.size() * 64);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(TYPE_REPORTS);
+		out.writeInt(0);
+		out.writeUTF(batch.getReporterId());
+		out.writeLong(batch.getSeq());
+		out.writeLong(batch.getTime());
+		int rowsOffset = out.size();
+		out.writeInt(0);
+		int rows = 0;
+		for (Cell cell : batch.getCells()) {
+			if (cell.writeFrame(out)) {
+				rows++;
+			}
+		}
+		if (rows < batch.size()) {
+			// 序列超过帧格式的长度上限, 不发送, 记为拒收
+			rejectedCount.addAndGet(batch.size() - rows);
+			System.out.println((batch.size() - rows) + " lines are rejected: series longer than 65535");
+		}
+		out.flush();
+		byte[] frame = bytes.toByteArray();
+		writeInt(frame, 4, frame.length - HEAD_LENGTH);
+		writeInt(frame, rowsOffset, rows);
+		return frame;
+	}
+
+	private static void writeInt(byte[] buf, int offset, int value) {
+		buf[offset] = (byte) (value >>> 24);
+		buf[offset + 1] = (byte) (value >>> 16);
+		buf[offset + 2] = (byte) (value >>> 8);
+		buf[offset + 3] = (byte) value;
+	}
+
+	/**
+	 * 一个到采集端的长连接;
+	 */
+	class FrameConnection {
+		private Socket socket;
+		private OutputStream out;
+		private DataInputStream in;
+
+		/**
+		 * @param frame
+		 * @return 采集端是否处理了这一帧
+		 * @throws IOException
+		 */
+		boolean send(byte[] frame) throws IOException {
+			if (socket == null) {
+				socket = new Socket();
+				socket.setTcpNoDelay(true);
+				socket.setSoTimeout(timeout);
+				socket.connect(address, timeout);
+				out = new BufferedOutputStream(socket.getOutputStream());
+				in = new DataInputStream(socket.getInputStream());
+			}
+			out.write(frame);
+			out.flush();
+			int type = in.readInt();
+			int length = in.readInt();
+			if (type != TYPE_ACK || length < 8) {
+				throw new IOException("unexpected frame " + type + " from " + address);
+			}
+			int accepted = in.readInt();
+			int rejected = in.readInt();
+			length -= 8;
+			if (length >= 8) {
+				int load = in.readInt();
+				int retryAfter = in.readInt();
+				length -= 8;
+				ILoadListener listener = loadListener;
+				if (listener != null) {
+					listener.onLoad(load, retryAfter);
+				}
+			}
+			in.readFully(new byte[length]);
+			if (accepted < 0) {
+				System.out.println("collector " + address + " is busy");
+				return false;
+			}
+			if (rejected > 0) {
+				rejectedCount.addAndGet(rejected);
+			}
+			return true;
+		}
+
+		void close() {
+			if (socket != null) {
+				try {
+					socket.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+				socket = null;
+			}
+		}
+	}
+}
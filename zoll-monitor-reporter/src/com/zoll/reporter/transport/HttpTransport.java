@@ -0,0 +1,149 @@
+package com.zoll.reporter.transport;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpException;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.httpclient.methods.PostMethod;
+import org.apache.commons.httpclient.methods.StringRequestEntity;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+
+import com.zoll.reporter.ReportAggregator.Cell;
+
+/**
+ * 按行协议批量POST给采集端的 /bulk, 上报端ID, 批次序号和时间放在查询串 rid, seq, ts 中;
+ * 
+ * 应答中的 load, retryAfter 字段交给 {@link ILoadListener}; 采集端过载时返回503, 整批算作失败;
+ * 
+ * 每个发送线程占用一个长连接, 连接用完归还连接池, 不再每个请求重新建立TCP连接;
+ * 
+ * @date 2026年10月19日 上午3:41:21
+ * 
+ * @project zoll-monitor-reporter
+ * 
+ */
+public class HttpTransport implements IReportTransport {
+	private final String url;
+	private final MultiThreadedHttpConnectionManager connectionManager;
+	private final HttpClient httpClient;
+	private volatile ILoadListener loadListener;
+	private final AtomicLong rejectedCount = new AtomicLong(0);
+
+	public HttpTransport(String url, int timeout, int connections) {
+		this.url = url;
+		connectionManager = new MultiThreadedHttpConnectionManager();
+		HttpConnectionManagerParams params = connectionManager.getParams();
+		params.setDefaultMaxConnectionsPerHost(connections);
+		params.setMaxTotalConnections(connections);
+		params.setConnectionTimeout(timeout);
+		params.setSoTimeout(timeout);
+		params.setTcpNoDelay(true);
+		httpClient = new HttpClient(connectionManager);
+	}
+
+	@Override
+	public SendResult send(ReportBatch batch) {
+		StringBuilder payload = new StringBuilder(batch.size() * 64);
+		for (Cell cell : batch.getCells()) {
+			cell.appendLine(payload);
+		}
+		PostMethod postMethod = null;
+		try {
+			String query = "rid=" + URLEncoder.encode(batch.getReporterId(), "UTF-8") + "&seq=" + batch.getSeq() + "&ts=" + batch.getTime();
+			postMethod = new PostMethod(url + (url.indexOf('?') < 0 ? '?' : '&') + query);
+			postMethod.setRequestEntity(new StringRequestEntity(payload.toString(), "text/plain", "UTF-8"));
+			int serverCode = httpClient.executeMethod(postMethod);
+			String body = postMethod.getResponseBodyAsString();
+			notifyLoad(body);
+			if (serverCode != HttpStatus.SC_OK) {
+				if (isPermanent(serverCode)) {
+					System.out.println(batch.size() + " lines are rejected, code: " + serverCode);
+					rejectedCount.addAndGet(batch.size());
+					return SendResult.REJECTED;
+				}
+				System.out.println(batch.size() + " lines are reported fail, code: " + serverCode);
+				return SendResult.RETRY;
+			}
+			long rejected = body == null ? -1 : parseField(body, "rejected");
+			if (rejected > 0) {
+				rejectedCount.addAndGet(rejected);
+			}
+			return SendResult.SENT;
+		} catch (HttpException e) {
+			System.out.println(e.getMessage());
+		} catch (IOException e) {
+			System.out.println(e.getMessage());
+		} finally {
+			if (postMethod != null) {
+				postMethod.releaseConnection();
+			}
+		}
+		return SendResult.RETRY;
+	}
+
+	/**
+	 * 4xx表示请求本身有问题, 重发也不会成功; 408超时和429限流除外;
+	 * 
+	 * @param serverCode
+	 * @return
+	 */
+	static boolean isPermanent(int serverCode) {
+		return serverCode >= 400 && serverCode < 500 && serverCode != HttpStatus.SC_REQUEST_TIMEOUT && serverCode != 429;
+	}
+
+	@Override
+	public void setLoadListener(ILoadListener listener) {
+		this.loadListener = listener;
+	}
+
+	private void notifyLoad(String body) {
+		ILoadListener listener = loadListener;
+		if (listener == null || body == null) {
+			return;
+		}
+		long load = parseField(body, "load");
+		if (load >= 0) {
+			listener.onLoad((int) load, Math.max(0, parseField(body, "retryAfter")));
+		}
+	}
+
+	/**
+	 * 从应答的json中取出一个非负整数字段;
+	 * 
+	 * @param body
+	 * @param name
+	 * @return 没有该字段时返回-1
+	 */
+	static long parseField(String body, String name) {
+		String key = "\"" + name + "\":";
+		int index = body.indexOf(key);
+		if (index < 0) {
+			return -1;
+		}
+		long value = 0;
+		boolean found = false;
+		for (int i = index + key.length(); i < body.length(); i++) {
+			char c = body.charAt(i);
+			if (c < '0' || c > '9') {
+				break;
+			}
+			value = value * 10 + (c - '0');
+			found = true;
+		}
+		return found ? value : -1;
+	}
+
+	@Override
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+
+	@Override
+	public void close() {
+		connectionManager.shutdown();
+	}
+}
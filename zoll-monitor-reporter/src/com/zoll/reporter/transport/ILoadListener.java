@@ -0,0 +1,20 @@
+package com.zoll.reporter.transport;
+
+/**
+ * 采集端负载提示的接收者, 每收到一个带负载提示的应答调用一次, 可能被多个发送线程同时调用;
+ * 
+ * @date 2026年10月19日 上午4:06:00
+ * 
+ * @project zoll-monitor-reporter
+ * 
+ */
+public interface ILoadListener {
+
+	/**
+	 * @param load
+	 *            采集端负载百分比, 0 ~ 100
+	 * @param retryAfter
+	 *            采集端建议的暂停时间(毫秒), 0表示不需要暂停
+	 */
+	public void onLoad(int load, long retryAfter);
+}
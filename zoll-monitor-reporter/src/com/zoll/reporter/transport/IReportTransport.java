@@ -0,0 +1,36 @@
+package com.zoll.reporter.transport;
+
+/**
+ * 把一批聚合后的数据发给采集端, 需要支持多个发送线程同时调用;
+ * 
+ * @date 2026年10月19日 上午3:41:21
+ * 
+ * @project zoll-monitor-reporter
+ * 
+ */
+public interface IReportTransport {
+
+	/**
+	 * 发送一批数据;
+	 * 
+	 * @param batch
+	 * @return 发送结果, 拒收的批次计入 {@link #getRejectedCount()}
+	 */
+	public SendResult send(ReportBatch batch);
+
+	/**
+	 * 设置采集端负载提示的接收者;
+	 * 
+	 * @param listener
+	 */
+	public void setLoadListener(ILoadListener listener);
+
+	/**
+	 * 被拒收的行数: 采集端应答中拒收的行, 整批被拒收的行, 以及序列超长无法编码的行;
+	 * 
+	 * @return
+	 */
+	public long getRejectedCount();
+
+	public void close();
+}
@@ -0,0 +1,49 @@
+package com.zoll.reporter.transport;
+
+import java.util.List;
+
+import com.zoll.reporter.ReportAggregator.Cell;
+
+/**
+ * 一次发送的批次, 也是失败重试和磁盘回放的单位;
+ * 
+ * 上报端ID + 序号在重试和回放时保持不变, 采集端据此去重; 时间为批次生成时上报端的时间, 采集端按它聚合落库;
+ * 
+ * @date 2026年10月19日 上午3:53:55
+ * 
+ * @project zoll-monitor-reporter
+ * 
+ */
+public class ReportBatch {
+	private final String reporterId;
+	private final long seq;
+	private final long time;
+	private final List<Cell> cells;
+
+	public ReportBatch(String reporterId, long seq, long time, List<Cell> cells) {
+		this.reporterId = reporterId;
+		this.seq = seq;
+		this.time = time;
+		this.cells = cells;
+	}
+
+	public String getReporterId() {
+		return reporterId;
+	}
+
+	public long getSeq() {
+		return seq;
+	}
+
+	public long getTime() {
+		return time;
+	}
+
+	public List<Cell> getCells() {
+		return cells;
+	}
+
+	public int size() {
+		return cells.size();
+	}
+}
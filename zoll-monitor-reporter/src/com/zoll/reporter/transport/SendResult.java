@@ -0,0 +1,19 @@
+package com.zoll.reporter.transport;
+
+/**
+ * 一批数据的发送结果;
+ * 
+ * @date 2026年10月19日 上午4:58:12
+ * 
+ * @project zoll-monitor-reporter
+ * 
+ */
+public enum SendResult {
+	/** 采集端已收下(包括采集端判定为重复的批次) */
+	SENT,
+	/** 连接出错, 采集端过载或5xx, 稍后可以重发 */
+	RETRY,
+	/** 采集端拒收(4xx)或无法编码, 重发也不会成功, 整批记为拒收 */
+	REJECTED,
+	;
+}
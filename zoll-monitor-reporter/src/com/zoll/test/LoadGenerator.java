@@ -0,0 +1,371 @@
+package com.zoll.test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.methods.GetMethod;
+
+import com.zoll.reporter.OverflowPolicy;
+import com.zoll.reporter.ReporterCfg;
+import com.zoll.reporter.TReporter;
+import com.zoll.reporter.datas.IReportData;
+import com.zoll.reporter.datas.LoginReport;
+import com.zoll.reporter.datas.OnlineReport;
+import com.zoll.reporter.metrics.Gauge;
+import com.zoll.reporter.metrics.Histogram;
+import com.zoll.reporter.metrics.HistogramSnapshot;
+import com.zoll.reporter.metrics.MetricRegistry;
+
+/**
+ * 采集端压测工具, 取代 ReportMain 中 50 个线程无限循环的写法;
+ *
+ * 开环发压: 每个事件的计划发送时间由目标速率(含线性爬坡)事先算好, 发压线程落后时不会放慢节奏, report() 的延迟从计划时间算起,
+ * 避免 coordinated omission 把排队时间藏起来; 同时输出从实际调用时间算起的延迟作对比;
+ *
+ * 端到端延迟: 每秒把当前时间作为 LATEST_COUNT 指标 loadgen_probe 上报, 另一个线程轮询采集端已落地的最新值, 看到某个时间戳落地时,
+ * 当前时间减去它就是这个探针从 report 到落库的延迟; 嵌入式时序存储通过采集端的 /query 读取, MySQL 通过 JDBC 读取;
+ *
+ * 参数(-D):
+ *
+ * <pre>
+ * load.host      采集端地址, http://ip:port 或 tcp://ip:port, 默认 http://localhost:9099
+ * load.rate      目标速率(事件/秒), 默认 5000
+ * load.duration  持续时间(秒, 含爬坡), 默认 60
+ * load.rampUp    从0线性爬到目标速率的时间(秒), 默认 10
+ * load.threads   发压线程数, 默认 4
+ * load.mix       事件比例, 默认 Login:3,Online:1
+ * load.players   playerId 的取值个数, 决定序列数, 默认 10000
+ * load.policy    队列满时的处理方式, 默认 DROP_OLDEST
+ * load.probe     探针读取方式: 采集端 /query 的地址, jdbc:mysql://... 或 none, 默认 http://localhost:9099/query
+ * load.probe.user / load.probe.password  JDBC 用户名密码
+ * load.drain     结束后等待探针落地的最长时间(秒), 默认 30
+ * </pre>
+ *
+ * @date 2026年10月19日 上午3:49:48
+ *
+ * @project zoll-monitor-reporter
+ *
+ */
+public class LoadGenerator {
+	private static final String PROBE_TYPE = "loadgen_probe";
+	private static final long PROBE_INTERVAL = 1000;
+	private static final long POLL_INTERVAL = 50;
+	private static final String[] PLATFORMS = { "android", "ios", "pc" };
+	private static final int SERVERS = 240;
+
+	private final String host = System.getProperty("load.host", "http://localhost:9099");
+	private final double rate = Double.parseDouble(System.getProperty("load.rate", "5000"));
+	private final long duration = TimeUnit.SECONDS.toNanos(Long.getLong("load.duration", 60));
+	private final long rampUp = TimeUnit.SECONDS.toNanos(Long.getLong("load.rampUp", 10));
+	private final int threads = Integer.getInteger("load.threads", 4);
+	private final String mix = System.getProperty("load.mix", "Login:3,Online:1");
+	private final int players = Integer.getInteger("load.players", 10000);
+	private final OverflowPolicy policy = OverflowPolicy.valueOf(System.getProperty("load.policy", OverflowPolicy.DROP_OLDEST.name()));
+	private final String probe = System.getProperty("load.probe", "http://localhost:9099/query");
+	private final long drain = TimeUnit.SECONDS.toMillis(Long.getLong("load.drain", 30));
+
+	/** 事件类型及累计权重 */
+	private final List<String> types = new ArrayList<String>();
+	private final List<Integer> weights = new ArrayList<Integer>();
+	private int totalWeight;
+
+	private final TReporter reporter = new TReporter();
+	/** 压测自身的统计, 不上报 */
+	private final MetricRegistry stats = new MetricRegistry();
+	private final Histogram correctedLatency = stats.histogram("corrected");
+	private final Histogram serviceLatency = stats.histogram("service");
+	private final Histogram endToEndLatency = stats.histogram("e2e");
+	private final AtomicLong sent = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+
+	/** 已上报, 还没看到落地的探针时间戳, 按时间顺序 */
+	private final ConcurrentLinkedQueue<Long> pendingProbes = new ConcurrentLinkedQueue<Long>();
+	private volatile long lastEndToEnd = -1;
+
+	public static void main(String[] args) throws Exception {
+		new LoadGenerator().run();
+	}
+
+	private void run() throws Exception {
+		parseMix();
+		System.out.println(String.format("host=%s rate=%.0f/s duration=%ds rampUp=%ds threads=%d mix=%s players=%d policy=%s probe=%s", host, rate, TimeUnit.NANOSECONDS.toSeconds(duration),
+				TimeUnit.NANOSECONDS.toSeconds(rampUp), threads, mix, players, policy, probe));
+		reporter.init("/bulk", host, 10000, ReporterCfg.QUEUE_SIZE, policy);
+
+		final long start = System.nanoTime();
+		final CountDownLatch done = new CountDownLatch(threads);
+		for (int i = 0; i < threads; i++) {
+			Thread t = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						generate(start, rate / threads);
+					} finally {
+						done.countDown();
+					}
+				}
+			}, "LoadGen-" + i);
+			t.start();
+		}
+		IProbeReader reader = createProbeReader();
+		Thread prober = null;
+		if (reader != null) {
+			prober = startProber(reader, done);
+		}
+
+		long lastSent = 0;
+		long lastReported = 0;
+		while (!done.await(1, TimeUnit.SECONDS)) {
+			long elapsed = System.nanoTime() - start;
+			long nowSent = sent.get();
+			long nowReported = reporter.getReportedCount();
+			System.out.println(String.format("%4ds target %7.0f/s sent %7d/s lines %6d/s rejected %d dropped %d queue %d spool %dB e2e %dms | load %d interval %dms batch %d sample 1/%d", TimeUnit.NANOSECONDS.toSeconds(elapsed), targetRate(elapsed, rate),
+					nowSent - lastSent, nowReported - lastReported, rejected.get(), reporter.getDroppedCount(), reporter.getQueueSize(), reporter.getSpoolSize(), lastEndToEnd,
+					reporter.getController().getLoad(), reporter.getController().getFlushInterval(), reporter.getController().getBatchSize(), reporter.getController().getSampleStep()));
+			lastSent = nowSent;
+			lastReported = nowReported;
+		}
+		long elapsed = System.nanoTime() - start;
+
+		if (prober != null) {
+			prober.join(drain + PROBE_INTERVAL * 2);
+			prober.interrupt();
+		}
+		reporter.shutdown();
+
+		System.out.println(String.format("sent %d events in %.1fs, achieved %.0f/s of target %.0f/s (ramp-up included), rejected %d, dropped %d, lines reported %d", sent.get(),
+				elapsed / 1e9, sent.get() * 1e9 / elapsed, rate, rejected.get(), reporter.getDroppedCount(), reporter.getReportedCount()));
+		print("report() corrected(us)", correctedLatency.snapshot());
+		print("report() service(us)", serviceLatency.snapshot());
+		print("report->row e2e(ms)", endToEndLatency.snapshot());
+		if (!pendingProbes.isEmpty()) {
+			System.out.println(pendingProbes.size() + " probes never landed");
+		}
+	}
+
+	/**
+	 * 一个发压线程, 按计划时间发送, 速率为总速率的 1/threads;
+	 *
+	 * @param start
+	 * @param threadRate
+	 */
+	private void generate(long start, double threadRate) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		for (long k = 0;; k++) {
+			long intended = start + intendedOffset(k, threadRate);
+			if (intended - start >= duration) {
+				return;
+			}
+			long wait;
+			while ((wait = intended - System.nanoTime()) > 0) {
+				LockSupport.parkNanos(wait);
+			}
+			long begin = System.nanoTime();
+			if (reporter.report(nextEvent(random))) {
+				sent.incrementAndGet();
+			} else {
+				rejected.incrementAndGet();
+			}
+			long end = System.nanoTime();
+			correctedLatency.update(TimeUnit.NANOSECONDS.toMicros(end - intended));
+			serviceLatency.update(TimeUnit.NANOSECONDS.toMicros(end - begin));
+		}
+	}
+
+	/**
+	 * 第k个事件的计划发送时间(相对开始时间): 爬坡期内速率从0线性增长, 累计事件数为 r*t^2/(2*rampUp), 之后按目标速率匀速;
+	 *
+	 * @param k
+	 * @param r
+	 *            每秒事件数
+	 * @return 纳秒
+	 */
+	private long intendedOffset(long k, double r) {
+		double rampSeconds = rampUp / 1e9;
+		double rampEvents = r * rampSeconds / 2;
+		double seconds;
+		if (k < rampEvents) {
+			seconds = Math.sqrt(2 * k * rampSeconds / r);
+		} else {
+			seconds = rampSeconds + (k - rampEvents) / r;
+		}
+		return (long) (seconds * 1e9);
+	}
+
+	private double targetRate(long elapsed, double r) {
+		return elapsed >= rampUp ? r : r * elapsed / rampUp;
+	}
+
+	private IReportData nextEvent(ThreadLocalRandom random) {
+		int w = random.nextInt(totalWeight);
+		int i = 0;
+		while (w >= weights.get(i)) {
+			i++;
+		}
+		String platform = PLATFORMS[random.nextInt(PLATFORMS.length)];
+		int serverId = random.nextInt(SERVERS);
+		if ("Online".equals(types.get(i))) {
+			return new OnlineReport("Online", random.nextInt(players), 2, platform, serverId);
+		}
+		return new LoginReport(random.nextInt(players), platform, serverId, types.get(i), 1, 1);
+	}
+
+	/**
+	 * 解析 Login:3,Online:1, Online 按 LATEST_COUNT 上报, 其他类型都按 LoginReport 的结构以该类型名上报;
+	 */
+	private void parseMix() {
+		for (String part : mix.split(",")) {
+			String[] kv = part.trim().split(":");
+			int weight = kv.length > 1 ? Integer.parseInt(kv[1].trim()) : 1;
+			if (weight <= 0) {
+				throw new IllegalArgumentException("bad weight in load.mix: " + part);
+			}
+			totalWeight += weight;
+			types.add(kv[0].trim());
+			weights.add(totalWeight);
+		}
+	}
+
+	/**
+	 * 探针线程: 定时上报当前时间, 并轮询已落地的最新值; 发压结束后再等待最多 load.drain 让剩余的探针落地;
+	 */
+	private Thread startProber(final IProbeReader reader, final CountDownLatch done) {
+		final Gauge gauge = reporter.getMetrics().gauge(PROBE_TYPE);
+		Thread t = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				long nextProbe = 0;
+				long deadline = Long.MAX_VALUE;
+				long landed = 0;
+				while (!Thread.currentThread().isInterrupted()) {
+					long now = System.currentTimeMillis();
+					if (done.getCount() > 0 && now >= nextProbe) {
+						pendingProbes.add(now);
+						gauge.set(now);
+						nextProbe = now + PROBE_INTERVAL;
+					}
+					if (done.getCount() == 0 && deadline == Long.MAX_VALUE) {
+						deadline = now + drain;
+					}
+					if (now > deadline || (deadline != Long.MAX_VALUE && pendingProbes.isEmpty())) {
+						return;
+					}
+					try {
+						long value = reader.latest();
+						if (value > landed) {
+							landed = value;
+							long seen = System.currentTimeMillis();
+							Long head;
+							while ((head = pendingProbes.peek()) != null && head <= value) {
+								pendingProbes.poll();
+								lastEndToEnd = seen - head;
+								endToEndLatency.update(lastEndToEnd);
+							}
+						}
+					} catch (Exception e) {
+						System.err.println("probe read fail E:" + e.getMessage());
+					}
+					try {
+						Thread.sleep(POLL_INTERVAL);
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+			}
+		}, "LoadGen-Probe");
+		t.setDaemon(true);
+		t.start();
+		return t;
+	}
+
+	private IProbeReader createProbeReader() throws SQLException {
+		if ("none".equals(probe)) {
+			return null;
+		}
+		if (probe.startsWith("jdbc:")) {
+			return new JdbcProbeReader(probe, System.getProperty("load.probe.user", "root"), System.getProperty("load.probe.password", ""));
+		}
+		return new HttpProbeReader(probe);
+	}
+
+	private static void print(String name, HistogramSnapshot snapshot) {
+		System.out.println(String.format("%-24s count %8d mean %10.1f p50 %8d p90 %8d p99 %8d p99.9 %8d max %8d", name, snapshot.getCount(), snapshot.getMean(), snapshot.getValueAtPercentile(50),
+				snapshot.getValueAtPercentile(90), snapshot.getValueAtPercentile(99), snapshot.getValueAtPercentile(99.9), snapshot.getMax()));
+	}
+
+	/**
+	 * 读取已落地的最新探针时间戳;
+	 */
+	interface IProbeReader {
+		public long latest() throws Exception;
+	}
+
+	/**
+	 * 通过采集端的 /query 读取嵌入式时序存储;
+	 */
+	static class HttpProbeReader implements IProbeReader {
+		private final String url;
+		private final HttpClient httpClient = new HttpClient();
+
+		HttpProbeReader(String url) {
+			this.url = url;
+		}
+
+		@Override
+		public long latest() throws Exception {
+			long now = System.currentTimeMillis();
+			// 只查一个覆盖当前时间的桶, LATEST_COUNT 序列返回桶内的最新值
+			GetMethod get = new GetMethod(url + "?dataType=" + PROBE_TYPE + "&start=" + (now - 3600 * 1000L) + "&end=" + (now + 3600 * 1000L) + "&step=" + 7200 * 1000L);
+			try {
+				if (httpClient.executeMethod(get) != HttpStatus.SC_OK) {
+					throw new IllegalStateException(url + " returns " + get.getStatusCode());
+				}
+				String body = get.getResponseBodyAsString().trim();
+				return Long.parseLong(body.substring(1, body.length() - 1));
+			} finally {
+				get.releaseConnection();
+			}
+		}
+	}
+
+	/**
+	 * 直接查MySQL中的探针表;
+	 */
+	static class JdbcProbeReader implements IProbeReader {
+		private final Connection connection;
+
+		JdbcProbeReader(String url, String user, String password) throws SQLException {
+			connection = DriverManager.getConnection(url, user, password);
+		}
+
+		@Override
+		public long latest() throws Exception {
+			Statement statement = connection.createStatement();
+			try {
+				ResultSet result = statement.executeQuery("select max(count) from " + PROBE_TYPE);
+				return result.next() ? result.getLong(1) : 0;
+			} catch (SQLException e) {
+				// 1146: 第一个探针落地前表还不存在
+				if (e.getErrorCode() == 1146) {
+					return 0;
+				}
+				throw e;
+			} finally {
+				statement.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,135 @@
+package com.zoll.test;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.zoll.reporter.ReportAggregator;
+import com.zoll.reporter.datas.LoginReport;
+import com.zoll.reporter.metrics.Counter;
+import com.zoll.reporter.metrics.Histogram;
+import com.zoll.reporter.metrics.MetricRegistry;
+import com.zoll.util.StripedLong;
+
+/**
+ * 埋点开销对比: 每次计数创建一个上报对象并预聚合 / Counter.inc / Histogram.update, 以及多线程下 AtomicLong 与 StripedLong 的累加吞吐;
+ *
+ * 与 ReportSerializeBenchmark 一样用预热 + 多轮计时, 单线程部分通过 ThreadMXBean 统计每次操作分配的字节数;
+ *
+ * @date 2026年10月19日 上午3:48:00
+ *
+ * @project zoll-monitor-reporter
+ *
+ */
+public class MetricBenchmark {
+	private static final int ROUNDS = 5;
+	private static final int ITERATIONS = 2000000;
+	private static final int THREADS = 4;
+
+	private static long sink;
+
+	public static void main(String[] args) throws InterruptedException {
+		final ReportAggregator aggregator = new ReportAggregator();
+		MetricRegistry registry = new MetricRegistry();
+		final Counter counter = registry.counter("Login", "platform", "android");
+		final Histogram histogram = registry.histogram("rpc_latency", "method", "login");
+		for (int round = 0; round < ROUNDS; round++) {
+			boolean print = round >= 2;
+			run("report object", new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < ITERATIONS; i++) {
+						aggregator.add(new LoginReport(i & 63, "android", 1, "Login", 1, 1));
+					}
+					sink += aggregator.drain().size();
+				}
+			}, print);
+			run("Counter.inc", new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < ITERATIONS; i++) {
+						counter.inc();
+					}
+					counter.collect(aggregator);
+					sink += aggregator.drain().size();
+				}
+			}, print);
+			run("Histogram.update", new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < ITERATIONS; i++) {
+						histogram.update(i & 4095);
+					}
+					sink += histogram.snapshotThenReset().getValueAtPercentile(99);
+				}
+			}, print);
+
+			final AtomicLong atomic = new AtomicLong();
+			contended("AtomicLong x" + THREADS, new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < ITERATIONS; i++) {
+						atomic.incrementAndGet();
+					}
+				}
+			}, print);
+			final StripedLong striped = new StripedLong();
+			contended("StripedLong x" + THREADS, new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < ITERATIONS; i++) {
+						striped.increment();
+					}
+				}
+			}, print);
+			sink += atomic.get() + striped.sum();
+		}
+		System.out.println("sink=" + sink);
+	}
+
+	private static void run(String name, Runnable task, boolean print) {
+		long allocatedBefore = allocatedBytes();
+		long begin = System.nanoTime();
+		task.run();
+		long cost = System.nanoTime() - begin;
+		long allocated = allocatedBytes() - allocatedBefore;
+		if (print) {
+			System.out.println(String.format("%-20s %8.1f ns/op %8.1f B/op", name, (double) cost / ITERATIONS, (double) allocated / ITERATIONS));
+		}
+	}
+
+	private static void contended(String name, final Runnable task, boolean print) throws InterruptedException {
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(THREADS);
+		for (int i = 0; i < THREADS; i++) {
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+						task.run();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					} finally {
+						done.countDown();
+					}
+				}
+			}).start();
+		}
+		long begin = System.nanoTime();
+		start.countDown();
+		done.await();
+		long cost = System.nanoTime() - begin;
+		if (print) {
+			System.out.println(String.format("%-20s %8.1f ns/op", name, (double) cost / ((long) ITERATIONS * THREADS)));
+		}
+	}
+
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return 0;
+	}
+}
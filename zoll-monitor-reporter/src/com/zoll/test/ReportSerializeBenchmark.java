@@ -0,0 +1,101 @@
+package com.zoll.test;
+
+import java.lang.management.ManagementFactory;
+
+import com.zoll.reporter.ReportAggregator;
+import com.zoll.reporter.datas.IReportData;
+import com.zoll.reporter.datas.LoginReport;
+import com.zoll.reporter.datas.OnlineReport;
+
+/**
+ * 上报数据序列化的单事件开销对比: 旧的 String.format 实现 / getParams / 聚合线程实际走的 ReportAggregator.add (序列写进复用的缓冲后查找聚合值);
+ *
+ * 环境中没有JMH, 与采集端的 QueryParserBenchmark 一样用预热 + 多轮计时, 并通过 ThreadMXBean 统计每次序列化分配的字节数;
+ *
+ * @date 2026年10月19日 上午3:36:48
+ *
+ * @project zoll-monitor-reporter
+ *
+ */
+public class ReportSerializeBenchmark {
+	private static final IReportData[] DATAS = {
+			new LoginReport(8231, "android", 12, "Login", 1, 1),
+			new OnlineReport("Online", 3412, 2, "ios", 201),
+			new LoginReport(77, "应用宝", 3, "Login", 1, 1) };
+	/** 与DATAS对应的原始字段, 供旧实现使用 */
+	private static final Object[][] FIELDS = {
+			{ "Login", 8231, "android", 12, 1, 1 },
+			{ "Online", "ios", 201, 3412, 2 },
+			{ "Login", 77, "应用宝", 3, 1, 1 } };
+	private static final int ROUNDS = 5;
+	private static final int ITERATIONS = 2000000;
+
+	private static long sink;
+
+	public static void main(String[] args) {
+		for (int i = 0; i < DATAS.length; i++) {
+			System.out.println(legacyGetParams(i) + " -> " + DATAS[i].getParams());
+		}
+		for (int round = 0; round < ROUNDS; round++) {
+			boolean print = round >= 2;
+			run("String.format", new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < ITERATIONS; i++) {
+						sink += legacyGetParams(i % DATAS.length).length();
+					}
+				}
+			}, print);
+			run("getParams", new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < ITERATIONS; i++) {
+						sink += DATAS[i % DATAS.length].getParams().length();
+					}
+				}
+			}, print);
+			run("ReportAggregator.add", new Runnable() {
+				final ReportAggregator aggregator = new ReportAggregator();
+
+				@Override
+				public void run() {
+					for (int i = 0; i < ITERATIONS; i++) {
+						sink += aggregator.add(DATAS[i % DATAS.length]);
+					}
+					sink += aggregator.drain().size();
+				}
+			}, print);
+		}
+		System.out.println("sink=" + sink);
+	}
+
+	private static void run(String name, Runnable task, boolean print) {
+		long allocatedBefore = allocatedBytes();
+		long begin = System.nanoTime();
+		task.run();
+		long cost = System.nanoTime() - begin;
+		long allocated = allocatedBytes() - allocatedBefore;
+		if (print) {
+			System.out.println(String.format("%-20s %8.1f ns/op %8.1f B/op", name, (double) cost / ITERATIONS, (double) allocated / ITERATIONS));
+		}
+	}
+
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return 0;
+	}
+
+	/**
+	 * 原 LoginReport / OnlineReport.getParams 的实现(值不做转义);
+	 */
+	private static String legacyGetParams(int index) {
+		Object[] f = FIELDS[index];
+		if (f.length == 6) {
+			return String.format("dataType=%s&playerId=%s&platform=%s&serverId=%s&count=%s&countType=%s", f[0], f[1], f[2], f[3], f[4], f[5]);
+		}
+		return String.format("dataType=%s&platform=%s&serverId=%s&count=%s&countType=%s", f[0], f[1], f[2], f[3], f[4]);
+	}
+}
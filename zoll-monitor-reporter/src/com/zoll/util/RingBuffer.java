@@ -0,0 +1,104 @@
+package com.zoll.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 有界无锁环形队列, 多生产者多消费者;
+ * 
+ * 每个槽位带一个序号: 序号等于写位置时可写, 等于写位置+1时可读, 读完后加上容量留给下一圈; 生产者和消费者只在各自的位置上CAS, 不加锁, 入队和出队都不分配对象;
+ * 
+ * @date 2026年10月19日 上午3:33:27
+ * 
+ * @project zoll-monitor-reporter
+ * 
+ * @param <E>
+ */
+public class RingBuffer<E> {
+	private final int mask;
+	private final AtomicReferenceArray<E> elements;
+	private final AtomicLongArray sequences;
+	/** 下一个读位置 */
+	private final AtomicLong head = new AtomicLong(0);
+	/** 下一个写位置 */
+	private final AtomicLong tail = new AtomicLong(0);
+
+	/**
+	 * @param capacity
+	 *            向上取整为2的幂
+	 */
+	public RingBuffer(int capacity) {
+		int size = 1;
+		while (size < capacity) {
+			size <<= 1;
+		}
+		this.mask = size - 1;
+		this.elements = new AtomicReferenceArray<E>(size);
+		this.sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, i);
+		}
+	}
+
+	/**
+	 * 入队;
+	 * 
+	 * @param element
+	 * @return 队列已满时返回false
+	 */
+	public boolean offer(E element) {
+		long pos = tail.get();
+		while (true) {
+			int index = (int) (pos & mask);
+			long diff = sequences.get(index) - pos;
+			if (diff == 0) {
+				if (tail.compareAndSet(pos, pos + 1)) {
+					elements.lazySet(index, element);
+					sequences.lazySet(index, pos + 1);
+					return true;
+				}
+			} else if (diff < 0) {
+				return false;
+			}
+			pos = tail.get();
+		}
+	}
+
+	/**
+	 * 出队;
+	 * 
+	 * @return 队列为空时返回null
+	 */
+	public E poll() {
+		long pos = head.get();
+		while (true) {
+			int index = (int) (pos & mask);
+			long diff = sequences.get(index) - (pos + 1);
+			if (diff == 0) {
+				if (head.compareAndSet(pos, pos + 1)) {
+					E element = elements.get(index);
+					elements.lazySet(index, null);
+					sequences.lazySet(index, pos + mask + 1);
+					return element;
+				}
+			} else if (diff < 0) {
+				return null;
+			}
+			pos = head.get();
+		}
+	}
+
+	public int size() {
+		long size = tail.get() - head.get();
+		return (int) Math.max(0, Math.min(size, capacity()));
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	public int capacity() {
+		return mask + 1;
+	}
+}
@@ -0,0 +1,78 @@
+package com.zoll.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 分段累加的long, 用于多线程频繁累加, 偶尔读取的计数(Java 7 没有 LongAdder);
+ *
+ * 每个线程按线程id散列到一个槽位上累加, 槽位之间间隔一个缓存行, 不同线程之间基本没有CAS竞争也没有伪共享; 读取时把所有槽位加起来;
+ *
+ * @date 2026年10月19日 上午3:48:00
+ *
+ * @project zoll-monitor-reporter
+ *
+ */
+public class StripedLong {
+	/** 槽位间隔8个long(64字节) */
+	private static final int PADDING_SHIFT = 3;
+
+	private final int mask;
+	private final AtomicLongArray cells;
+
+	public StripedLong() {
+		this(Runtime.getRuntime().availableProcessors() * 2);
+	}
+
+	/**
+	 * @param stripes
+	 *            槽位数, 向上取整为2的幂
+	 */
+	public StripedLong(int stripes) {
+		int size = 1;
+		while (size < stripes) {
+			size <<= 1;
+		}
+		this.mask = size - 1;
+		this.cells = new AtomicLongArray(size << PADDING_SHIFT);
+	}
+
+	public void add(long x) {
+		cells.getAndAdd(index(), x);
+	}
+
+	public void increment() {
+		add(1);
+	}
+
+	/**
+	 * 当前总和, 并发累加时不是精确快照;
+	 *
+	 * @return
+	 */
+	public long sum() {
+		long sum = 0;
+		for (int i = 0; i <= mask; i++) {
+			sum += cells.get(i << PADDING_SHIFT);
+		}
+		return sum;
+	}
+
+	/**
+	 * 取出总和并清零, 并发累加的值不会丢失, 只会算进下一次;
+	 *
+	 * @return
+	 */
+	public long sumThenReset() {
+		long sum = 0;
+		for (int i = 0; i <= mask; i++) {
+			sum += cells.getAndSet(i << PADDING_SHIFT, 0);
+		}
+		return sum;
+	}
+
+	private int index() {
+		long id = Thread.currentThread().getId();
+		int h = (int) (id * 0x9E3779B97F4A7C15L >>> 32);
+		return (h & mask) << PADDING_SHIFT;
+	}
+}
@@ -7,13 +7,13 @@ public enum CountType {
 	INCREASE_COUNT(1) {
 		@Override
 		public String getFormat() {
-			return "select sum(count) from %s where createTime>'%s' and createTime<'%s'";
+			return "select sum(count) from %s where createTime>='%s' and createTime<'%s'";
 		}
 	},
 	LATEST_COUNT(2) {
 		@Override
 		public String getFormat() {
-			return "select count from %s where createTime>'%s' and createTime<'%s' order by createTime desc limit 1";
+			return "select count from %s where createTime>='%s' and createTime<'%s' order by createTime desc limit 1";
 		}
 	},
 	;
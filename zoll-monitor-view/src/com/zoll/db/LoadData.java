@@ -5,21 +5,34 @@ import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
+import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang.time.DateUtils;
 
 public class LoadData {
 	private static LoadData instance = new LoadData();
 	
 	public static final String ALL_TABLE_SQL = "select table_name from information_schema.tables where table_schema='bangzi'";
 	public static final String SELECT_COUNT = "select countType from %s limit 1";
+	public static final String SELECT_ROLLED = "select max(createTime) from %s";
+	
+	private static final String[] TIME_PATTERNS = {"yyyy-MM-dd HH:mm:ss"};
+	/** 汇总表进度的缓存时间 */
+	private static final long ROLLED_CACHE_TIME = 30 * 1000;
 	
 	private static final String HOST = "jdbc:mysql://localhost:3306/bangzi?useUnicode=true&characterEncoding=UTF-8&autoReconnect=true";
 	private static final String USER_NAME = "root";
 	private static final String PASS_WORD = "";
 	
 	private Connection connection;
+	/** 汇总表 -> {最后一个桶的起始时间, 查询时间} */
+	private Map<String, long[]> rolledCache = new ConcurrentHashMap<String, long[]>();
 	
 	private LoadData() {
 		checkConnection();
@@ -59,7 +72,7 @@ public class LoadData {
 			}
 			String format = CountType.valueOf(countType).getFormat();
 			
-			String dataCountSql = String.format(format, dataType, startTime, endTime);
+			String dataCountSql = String.format(format, chooseTable(statement, dataType, startTime, endTime), startTime, endTime);
 			result2 = statement.executeQuery(dataCountSql);
 			int targetCount = 0;
 			if (result2.next()) {
@@ -85,6 +98,9 @@ public class LoadData {
 			result = statement.executeQuery(ALL_TABLE_SQL);
 			while (result.next()) {
 				String tableName = result.getString(1);
+				if (Resolution.isRollupTable(tableName)) {
+					continue;
+				}
 				menus.add(tableName);
 			}
 			if (menus.size() > 0) {
@@ -105,6 +121,66 @@ public class LoadData {
 		return menus;
 	}
 	
+	/**
+	 * 选择能回答该时间范围的最粗精度的表: 起止时间都在桶边界上, 且最后一个桶已经汇总完成; 否则查原始表;
+	 * 
+	 * @param statement
+	 * @param dataType
+	 * @param startTime
+	 * @param endTime
+	 * @return
+	 */
+	private String chooseTable(Statement statement, String dataType, String startTime, String endTime) {
+		long start;
+		long end;
+		try {
+			start = DateUtils.parseDate(startTime, TIME_PATTERNS).getTime();
+			end = DateUtils.parseDate(endTime, TIME_PATTERNS).getTime();
+		} catch (ParseException e) {
+			return dataType;
+		}
+		for (Resolution resolution : Resolution.values()) {
+			if (!resolution.isAligned(start) || !resolution.isAligned(end) || resolution.previous(end) < start) {
+				continue;
+			}
+			String table = dataType + resolution.getSuffix();
+			if (getRolled(statement, table) >= resolution.previous(end)) {
+				return table;
+			}
+		}
+		return dataType;
+	}
+
+	/**
+	 * 汇总表中最后一个桶的起始时间, 表不存在或为空时返回-1;
+	 * 
+	 * @param statement
+	 * @param table
+	 * @return
+	 */
+	private long getRolled(Statement statement, String table) {
+		long now = System.currentTimeMillis();
+		long[] cached = rolledCache.get(table);
+		if (cached != null && now - cached[1] < ROLLED_CACHE_TIME) {
+			return cached[0];
+		}
+		long rolled = -1;
+		ResultSet result = null;
+		try {
+			result = statement.executeQuery(String.format(SELECT_ROLLED, table));
+			if (result.next()) {
+				Timestamp time = result.getTimestamp(1);
+				rolled = time == null ? -1 : time.getTime();
+			}
+		} catch (SQLException e) {
+			// 汇总表还没有建立
+		} finally {
+			close(null, result);
+		}
+		rolledCache.put(table, new long[] {rolled, now});
+		return rolled;
+	}
+	
 	private void close(Statement statement, ResultSet... result) {
 		try {
 			if (statement != null) {
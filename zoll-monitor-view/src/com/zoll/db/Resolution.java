@@ -0,0 +1,70 @@
+package com.zoll.db;
+
+import java.util.Calendar;
+
+/**
+ * 采集端生成的汇总表精度, 从粗到细排列; 采集端不接受以这些后缀结尾的dataType, 所以可以按后缀识别汇总表;
+ * 
+ * @date 2026年10月19日 上午3:16:46
+ * 
+ * @project zoll-monitor-view
+ * 
+ */
+public enum Resolution {
+	DAY("_1d", Calendar.DAY_OF_MONTH),
+	HOUR("_1h", Calendar.HOUR_OF_DAY),
+	MINUTE("_1m", Calendar.MINUTE),
+	;
+
+	private String suffix;
+	private int calendarField;
+
+	private Resolution(String suffix, int calendarField) {
+		this.suffix = suffix;
+		this.calendarField = calendarField;
+	}
+
+	public String getSuffix() {
+		return suffix;
+	}
+
+	/**
+	 * 时间是否落在该精度的桶边界上;
+	 * 
+	 * @param time
+	 * @return
+	 */
+	public boolean isAligned(long time) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTimeInMillis(time);
+		if (calendar.get(Calendar.MILLISECOND) != 0 || calendar.get(Calendar.SECOND) != 0) {
+			return false;
+		}
+		if (calendarField != Calendar.MINUTE && calendar.get(Calendar.MINUTE) != 0) {
+			return false;
+		}
+		return calendarField != Calendar.DAY_OF_MONTH || calendar.get(Calendar.HOUR_OF_DAY) == 0;
+	}
+
+	/**
+	 * 某个时间之前的一个桶的起始时间;
+	 * 
+	 * @param time
+	 * @return
+	 */
+	public long previous(long time) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTimeInMillis(time);
+		calendar.add(calendarField, -1);
+		return calendar.getTimeInMillis();
+	}
+
+	public static boolean isRollupTable(String table) {
+		for (Resolution resolution : values()) {
+			if (table.toLowerCase().endsWith(resolution.suffix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
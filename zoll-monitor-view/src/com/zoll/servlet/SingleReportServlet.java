@@ -34,8 +34,10 @@ public class SingleReportServlet extends HttpServlet {
 		PrintWriter writer = resp.getWriter();
 		
 		List<Integer> datas = new ArrayList<Integer>();
+		// 按整分钟对齐, 已结束的分钟可以直接从分钟汇总表读取
+		long end = Long.parseLong(times) / RefreshDashboardServlet.TIME_SPACE * RefreshDashboardServlet.TIME_SPACE;
 		for (int i = 0; i < 60; i++) {
-			String[] dateRange = RefreshDashboardServlet.dateRange(Long.parseLong(times) - RefreshDashboardServlet.TIME_SPACE * (60 - i));
+			String[] dateRange = RefreshDashboardServlet.dateRange(end - RefreshDashboardServlet.TIME_SPACE * (60 - i));
 			int count = LoadData.getInstance().getTimeUnitDataCount(dateRange[0], dateRange[1], dataType);
 			datas.add(count);
 		}